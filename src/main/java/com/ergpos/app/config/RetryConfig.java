@@ -0,0 +1,73 @@
+package com.ergpos.app.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.annotation.EnableRetry;
+
+/**
+ * Reintentos ante conflictos de concurrencia optimista.
+ *
+ * El interceptor de reintento se ejecuta por fuera de @Transactional,
+ * por lo que cada intento abre una transacción nueva.
+ */
+@Configuration
+@EnableRetry
+public class RetryConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryConfig.class);
+
+    @Bean
+    public RetryListener optimisticLockRetryListener(MeterRegistry meterRegistry) {
+        return new RetryListener() {
+
+            @Override
+            public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                    Throwable throwable) {
+                if (!(throwable instanceof OptimisticLockingFailureException)) {
+                    return;
+                }
+                String operacion = operacion(context);
+                meterRegistry.counter("ergpos.concurrencia.conflictos", "operacion", operacion).increment();
+                logger.debug("Conflicto de concurrencia en {} (intento {})", operacion, context.getRetryCount());
+            }
+
+            @Override
+            public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+                    Throwable throwable) {
+                String operacion = operacion(context);
+                // Intentos realizados menos el primero
+                int reintentos = throwable == null ? context.getRetryCount() : context.getRetryCount() - 1;
+                if (reintentos > 0) {
+                    meterRegistry.counter("ergpos.concurrencia.reintentos", "operacion", operacion)
+                            .increment(reintentos);
+                }
+                if (throwable instanceof OptimisticLockingFailureException) {
+                    meterRegistry.counter("ergpos.concurrencia.agotados", "operacion", operacion).increment();
+                    logger.warn("Reintentos agotados en {}: {}", operacion, throwable.getMessage());
+                }
+            }
+
+            // "public ... com.ergpos.app.service.ProductoService.actualizar(...)" -> "ProductoService.actualizar"
+            private String operacion(RetryContext context) {
+                Object nombre = context.getAttribute(RetryContext.NAME);
+                if (nombre == null) {
+                    return "desconocida";
+                }
+                String firma = nombre.toString();
+                int parentesis = firma.indexOf('(');
+                String metodo = parentesis > 0 ? firma.substring(0, parentesis) : firma;
+                metodo = metodo.substring(metodo.lastIndexOf(' ') + 1);
+                int punto = metodo.lastIndexOf('.');
+                int puntoClase = punto > 0 ? metodo.lastIndexOf('.', punto - 1) : -1;
+                return metodo.substring(puntoClase + 1);
+            }
+        };
+    }
+}
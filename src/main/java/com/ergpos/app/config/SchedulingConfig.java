@@ -0,0 +1,15 @@
+package com.ergpos.app.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas periódicas (@Scheduled) de los servicios.
+ *
+ * El pool del scheduler se dimensiona en spring.task.scheduling.pool.size
+ * (por defecto Boot usa un solo hilo compartido por todas las tareas).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -7,6 +7,7 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
@@ -15,6 +16,8 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import com.ergpos.app.security.JwtAuthenticationFilter;
+import com.ergpos.app.security.LimiteTraficoFilter;
+import jakarta.servlet.DispatcherType;
 
 import java.util.Arrays;
 
@@ -23,14 +26,17 @@ import java.util.Arrays;
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final LimiteTraficoFilter limiteTraficoFilter;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, LimiteTraficoFilter limiteTraficoFilter) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.limiteTraficoFilter = limiteTraficoFilter;
     }
 
+    // Los hashes con otro costo se actualizan al iniciar sesión (PasswordHashService)
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.password.bcrypt-costo:10}") int costo) {
+        return new BCryptPasswordEncoder(costo);
     }
 
     @Bean
@@ -45,13 +51,17 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authz -> authz
+                        // La petición original ya se autorizó; el despacho ASYNC solo cierra la respuesta en streaming
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/error").permitAll()
                         .requestMatchers("/actuator/health").permitAll() // Para health checks
                         .requestMatchers(org.springframework.http.HttpMethod.OPTIONS, "/**").permitAll()
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Necesita el usuario autenticado por el filtro JWT
+                .addFilterAfter(limiteTraficoFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -75,12 +85,18 @@ public class SecurityConfig {
                 "Content-Type",
                 "Accept",
                 "Origin",
-                "X-Requested-With"
+                "X-Requested-With",
+                "If-Match",
+                // GET condicionales de los listados (304 Not Modified)
+                "If-None-Match",
+                "If-Modified-Since"
         ));
         
         configuration.setExposedHeaders(Arrays.asList(
                 "Authorization",
-                "Content-Type"
+                "Content-Type",
+                "ETag",
+                "Last-Modified"
         ));
         
         configuration.setAllowCredentials(true);
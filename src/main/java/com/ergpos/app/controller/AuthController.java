@@ -3,18 +3,20 @@ package com.ergpos.app.controller;
 import com.ergpos.app.dto.auth.ErrorResponseDTO;
 import com.ergpos.app.dto.auth.LoginRequestDTO;
 import com.ergpos.app.dto.auth.LoginResponseDTO;
+import com.ergpos.app.exception.BusinessException;
 import com.ergpos.app.exception.UnauthorizedException;
 import com.ergpos.app.model.Usuario;
 import com.ergpos.app.repository.UsuarioRepository;
 import com.ergpos.app.security.JwtUtils;
 import com.ergpos.app.security.LoginAttemptService;
+import com.ergpos.app.security.PasswordHashService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -31,17 +33,17 @@ public class AuthController {
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
     private final JwtUtils jwtUtils;
     private final UsuarioRepository usuarioRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashService passwordHashService;
     private final LoginAttemptService loginAttemptService;
 
     public AuthController(
             JwtUtils jwtUtils,
             UsuarioRepository usuarioRepository,
-            PasswordEncoder passwordEncoder,
+            PasswordHashService passwordHashService,
             LoginAttemptService loginAttemptService) {
         this.jwtUtils = jwtUtils;
         this.usuarioRepository = usuarioRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashService = passwordHashService;
         this.loginAttemptService = loginAttemptService;
     }
 
@@ -54,9 +56,9 @@ public class AuthController {
         String username = loginRequest.getUsername();
 
         try {
-            // Verificar si la IP está bloqueada por exceso de intentos
-            if (loginAttemptService.isBlocked(clientIp)) {
-                long remainingTime = loginAttemptService.getRemainingLockTime(clientIp);
+            // Verificar si la IP o el usuario están bloqueados por exceso de intentos
+            if (loginAttemptService.isBlocked(clientIp, username)) {
+                long remainingTime = loginAttemptService.getRemainingLockTime(clientIp, username);
                 logger.warn(
                         "Login bloqueado por exceso de intentos - IP: {} - Usuario: {} - Tiempo restante: {} minutos",
                         clientIp, username, remainingTime);
@@ -78,7 +80,7 @@ public class AuthController {
 
             // Respuesta genérica si no existe
             if (usuarioOpt.isEmpty()) {
-                loginAttemptService.loginFailed(clientIp);
+                loginAttemptService.loginFailed(clientIp, username);
                 logger.warn("Login fallido - Usuario no encontrado: {} - IP: {}", username, clientIp);
                 return buildErrorResponse("INVALID_CREDENTIALS", "Credenciales inválidas", HttpStatus.UNAUTHORIZED);
             }
@@ -86,22 +88,30 @@ public class AuthController {
             Usuario usuario = usuarioOpt.get();
 
             // Verificar contraseña ANTES de revisar estado
-            if (!passwordEncoder.matches(loginRequest.getPassword(), usuario.getPasswordHash())) {
-                loginAttemptService.loginFailed(clientIp);
+            if (!passwordHashService.verificar(loginRequest.getPassword(), usuario.getPasswordHash())) {
+                loginAttemptService.loginFailed(clientIp, username);
                 logger.warn("Login fallido - Contraseña incorrecta - Usuario: {} - IP: {}", username, clientIp);
                 return buildErrorResponse("INVALID_CREDENTIALS", "Credenciales inválidas", HttpStatus.UNAUTHORIZED);
             }
 
             // Verificar si el usuario está activo
             if (!usuario.getActivo()) {
-                loginAttemptService.loginFailed(clientIp);
+                loginAttemptService.loginFailed(clientIp, username);
                 logger.warn("Login fallido - Usuario inactivo: {} - IP: {}", username, clientIp);
                 return buildErrorResponse("USER_INACTIVE", "Tu cuenta está inactiva. Contacta al administrador.",
                         HttpStatus.FORBIDDEN);
             }
 
             // Login exitoso - limpiar intentos fallidos
-            loginAttemptService.loginSucceeded(clientIp);
+            loginAttemptService.loginSucceeded(clientIp, username);
+
+            // Hash con un costo distinto al configurado: se rehace sin demorar la respuesta
+            if (passwordHashService.requiereRehash(usuario.getPasswordHash())) {
+                UUID usuarioId = usuario.getId();
+                String hashAnterior = usuario.getPasswordHash();
+                passwordHashService.rehashEnSegundoPlano(loginRequest.getPassword(),
+                        nuevo -> usuarioRepository.actualizarPasswordHash(usuarioId, hashAnterior, nuevo));
+            }
 
             // Generar token JWT
             String jwt = jwtUtils.generateTokenFromUsername(usuario.getEmail());
@@ -119,6 +129,10 @@ public class AuthController {
 
             return ResponseEntity.ok(response);
 
+        } catch (BusinessException e) {
+            // Pool de hash saturado (503): no cuenta como intento fallido
+            logger.warn("Login rechazado - Usuario: {} - IP: {} - {}", username, clientIp, e.getMessage());
+            return buildErrorResponse(e.getCode(), e.getMessage(), HttpStatus.valueOf(e.getStatusCode()));
         } catch (Exception e) {
             logger.error("Error en login - Usuario: {} - IP: {} - Error: {}", username, clientIp, e.getMessage(), e);
             return buildErrorResponse("SERVER_ERROR", "Error interno del servidor", HttpStatus.INTERNAL_SERVER_ERROR);
@@ -155,7 +169,8 @@ public class AuthController {
     }
 
     @PostMapping("/verify")
-    public ResponseEntity<?> verifyToken(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> verifyToken(@RequestHeader("Authorization") String authHeader,
+            HttpServletRequest request) {
         try {
             logger.debug("Verificación de token solicitada");
 
@@ -163,13 +178,14 @@ public class AuthController {
                 return buildErrorResponse("INVALID_TOKEN_FORMAT", "Formato de token inválido", HttpStatus.BAD_REQUEST);
             }
 
-            String token = authHeader.substring(7);
+            // Verificado por JwtAuthenticationFilter en esta misma petición
+            Claims claims = jwtUtils.claimsDePeticion(request);
 
-            if (!jwtUtils.validateJwtToken(token)) {
+            if (claims == null) {
                 return buildErrorResponse("INVALID_TOKEN", "Token inválido o expirado", HttpStatus.UNAUTHORIZED);
             }
 
-            String username = jwtUtils.getUserNameFromJwtToken(token);
+            String username = claims.getSubject();
             logger.debug("Token válido para usuario: {}", username);
 
             return ResponseEntity.ok(Map.of(
@@ -185,7 +201,8 @@ public class AuthController {
     }
 
     @GetMapping("/modules")
-    public ResponseEntity<?> getUserModules(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getUserModules(@RequestHeader("Authorization") String authHeader,
+            HttpServletRequest request) {
         try {
             logger.debug("Obtención de módulos solicitada");
 
@@ -193,13 +210,14 @@ public class AuthController {
                 return buildErrorResponse("INVALID_TOKEN_FORMAT", "Token no proporcionado", HttpStatus.BAD_REQUEST);
             }
 
-            String token = authHeader.substring(7);
+            // Verificado por JwtAuthenticationFilter en esta misma petición
+            Claims claims = jwtUtils.claimsDePeticion(request);
 
-            if (!jwtUtils.validateJwtToken(token)) {
+            if (claims == null) {
                 return buildErrorResponse("INVALID_TOKEN", "Token inválido", HttpStatus.UNAUTHORIZED);
             }
 
-            String username = jwtUtils.getUserNameFromJwtToken(token);
+            String username = claims.getSubject();
             Usuario usuario = usuarioRepository.findByEmailIgnoreCase(username)
                     .or(() -> usuarioRepository.findByCodigo(username))
                     .orElseThrow(() -> new UnauthorizedException("Usuario no encontrado"));
@@ -224,7 +242,8 @@ public class AuthController {
     }
 
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String authHeader,
+            HttpServletRequest request) {
         try {
             logger.debug("Obtención de información de usuario solicitada");
 
@@ -232,13 +251,14 @@ public class AuthController {
                 return buildErrorResponse("INVALID_TOKEN_FORMAT", "Token no proporcionado", HttpStatus.BAD_REQUEST);
             }
 
-            String token = authHeader.substring(7);
+            // Verificado por JwtAuthenticationFilter en esta misma petición
+            Claims claims = jwtUtils.claimsDePeticion(request);
 
-            if (!jwtUtils.validateJwtToken(token)) {
+            if (claims == null) {
                 return buildErrorResponse("INVALID_TOKEN", "Token inválido", HttpStatus.UNAUTHORIZED);
             }
 
-            String username = jwtUtils.getUserNameFromJwtToken(token);
+            String username = claims.getSubject();
             Usuario usuario = usuarioRepository.findByEmailIgnoreCase(username)
                     .or(() -> usuarioRepository.findByCodigo(username))
                     .orElseThrow(() -> new UnauthorizedException("Usuario no encontrado"));
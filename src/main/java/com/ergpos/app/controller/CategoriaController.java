@@ -1,13 +1,17 @@
 package com.ergpos.app.controller;
 
 import java.util.List;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import jakarta.validation.Valid;
 import com.ergpos.app.dto.categorias.CategoriaRequestDTO;
 import com.ergpos.app.dto.categorias.CategoriaResponseDTO;
 import com.ergpos.app.service.CategoriaService;
+import com.ergpos.app.service.VersionCatalogoService;
+import com.ergpos.app.util.ETagUtils;
 
 @RestController
 @RequestMapping("/api/categorias")
@@ -15,9 +19,11 @@ import com.ergpos.app.service.CategoriaService;
 public class CategoriaController {
 
     private final CategoriaService categoriaService;
+    private final VersionCatalogoService versionCatalogo;
 
-    public CategoriaController(CategoriaService categoriaService) {
+    public CategoriaController(CategoriaService categoriaService, VersionCatalogoService versionCatalogo) {
         this.categoriaService = categoriaService;
+        this.versionCatalogo = versionCatalogo;
     }
 
     // Crear categoría
@@ -26,26 +32,42 @@ public class CategoriaController {
         return ResponseEntity.status(HttpStatus.CREATED).body(categoriaService.crear(request));
     }
 
-    // Listar todas con filtros opcionales
+    // Listar todas con filtros opcionales (304 si no cambiaron desde el ETag del cliente)
     @GetMapping
     public ResponseEntity<List<CategoriaResponseDTO>> listar(
             @RequestParam(required = false) String buscar,
-            @RequestParam(required = false) Boolean activo) {
-        return ResponseEntity.ok(categoriaService.listar(buscar, activo));
+            @RequestParam(required = false) Boolean activo,
+            WebRequest webRequest) {
+        VersionCatalogoService.Version version = versionCatalogo.categorias();
+        if (webRequest.checkNotModified(version.etag(), version.ultimaModificacion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(categoriaService.listar(buscar, activo));
     }
 
     // Obtener por ID o Código
     @GetMapping("/{identificador}")
     public ResponseEntity<CategoriaResponseDTO> obtener(@PathVariable String identificador) {
-        return ResponseEntity.ok(categoriaService.obtener(identificador));
+        CategoriaResponseDTO categoria = categoriaService.obtener(identificador);
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.fromVersion(categoria.getVersion()))
+                .body(categoria);
     }
 
-    // Actualizar por ID o Código
+    // Actualizar por ID o Código (If-Match opcional con la versión)
     @PutMapping("/{identificador}")
     public ResponseEntity<CategoriaResponseDTO> actualizar(
             @PathVariable String identificador,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @Valid @RequestBody CategoriaRequestDTO request) {
-        return ResponseEntity.ok(categoriaService.actualizar(identificador, request));
+        CategoriaResponseDTO categoria = categoriaService.actualizar(identificador, request, ETagUtils.parseVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.fromVersion(categoria.getVersion()))
+                .body(categoria);
     }
 
     // Activar por ID o Código
@@ -3,12 +3,19 @@ package com.ergpos.app.controller;
 import java.time.LocalDateTime;
 import java.util.List;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
 import com.ergpos.app.dto.movimientos.MovimientoInventarioRequestDTO;
 import com.ergpos.app.dto.movimientos.MovimientoInventarioResponseDTO;
+import com.ergpos.app.dto.movimientos.MovimientoLoteRequestDTO;
+import com.ergpos.app.dto.movimientos.MovimientoLoteResponseDTO;
+import com.ergpos.app.dto.movimientos.MovimientoPaginaResponseDTO;
+import com.ergpos.app.service.MovimientoExportService;
+import com.ergpos.app.service.MovimientoExportService.FormatoExport;
 import com.ergpos.app.service.MovimientoInventarioService;
 
 @RestController
@@ -17,9 +24,13 @@ import com.ergpos.app.service.MovimientoInventarioService;
 public class MovimientoInventarioController {
 
         private final MovimientoInventarioService movimientoService;
+        private final MovimientoExportService exportService;
 
-        public MovimientoInventarioController(MovimientoInventarioService movimientoService) {
+        public MovimientoInventarioController(
+                        MovimientoInventarioService movimientoService,
+                        MovimientoExportService exportService) {
                 this.movimientoService = movimientoService;
+                this.exportService = exportService;
         }
 
         // Crear movimiento (entrada o salida)
@@ -29,18 +40,51 @@ public class MovimientoInventarioController {
                 return ResponseEntity.status(HttpStatus.CREATED).body(movimientoService.crear(request));
         }
 
-        // Listar con filtros dinámicos
+        // Crear varios movimientos en una sola transacción (todo o nada)
+        @PostMapping("/lote")
+        public ResponseEntity<MovimientoLoteResponseDTO> crearLote(
+                        @Valid @RequestBody MovimientoLoteRequestDTO request) {
+                MovimientoLoteResponseDTO resultado = movimientoService.crearLote(request);
+                return ResponseEntity
+                                .status(resultado.isExitoso() ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST)
+                                .body(resultado);
+        }
+
+        // Listar con filtros dinámicos (paginado por cursor: usar siguienteCursor de la respuesta)
         @GetMapping
-        public ResponseEntity<List<MovimientoInventarioResponseDTO>> listar(
+        public ResponseEntity<MovimientoPaginaResponseDTO> listar(
                         @RequestParam(required = false) String producto,
                         @RequestParam(required = false) String tipo,
                         @RequestParam(required = false) String estado,
                         @RequestParam(required = false) String usuario,
                         @RequestParam(required = false) String proveedor,
                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
-                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
-                return ResponseEntity
-                                .ok(movimientoService.listar(producto, tipo, estado, usuario, proveedor, desde, hasta));
+                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+                        @RequestParam(required = false) String cursor,
+                        @RequestParam(required = false) Integer tamano) {
+                return ResponseEntity.ok(movimientoService.listar(
+                                producto, tipo, estado, usuario, proveedor, desde, hasta, cursor, tamano));
+        }
+
+        // Exportar en streaming (CSV o NDJSON) con los mismos filtros que listar, sin paginar
+        @GetMapping("/export")
+        public ResponseEntity<StreamingResponseBody> exportar(
+                        @RequestParam(required = false) String producto,
+                        @RequestParam(required = false) String tipo,
+                        @RequestParam(required = false) String estado,
+                        @RequestParam(required = false) String usuario,
+                        @RequestParam(required = false) String proveedor,
+                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+                        @RequestParam(required = false) String formato) {
+                FormatoExport formatoExport = exportService.resolverFormato(formato);
+                StreamingResponseBody cuerpo = exportService.exportar(
+                                producto, tipo, estado, usuario, proveedor, desde, hasta, formatoExport);
+                return ResponseEntity.ok()
+                                .contentType(formatoExport.getMediaType())
+                                .header(HttpHeaders.CONTENT_DISPOSITION,
+                                                "attachment; filename=\"movimientos." + formatoExport.getExtension() + "\"")
+                                .body(cuerpo);
         }
 
         // Obtener por ID
@@ -1,35 +1,68 @@
 package com.ergpos.app.controller;
 
+import com.ergpos.app.dto.producto.ActualizacionMasivaRequestDTO;
+import com.ergpos.app.dto.producto.ActualizacionMasivaResponseDTO;
+import com.ergpos.app.dto.producto.ProductoImportResponseDTO;
 import com.ergpos.app.dto.producto.ProductoRequestDTO;
 import com.ergpos.app.dto.producto.ProductoResponseDTO;
 import com.ergpos.app.dto.producto.StockBajoResponseDTO;
 import com.ergpos.app.dto.producto.StockUpdateRequestDTO;
+import com.ergpos.app.dto.producto.StockVerificationRequestDTO;
 import com.ergpos.app.dto.producto.StockVerificationResponseDTO;
+import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.service.ProductoActualizacionMasivaService;
+import com.ergpos.app.service.ProductoImportService;
 import com.ergpos.app.service.ProductoService;
+import com.ergpos.app.service.ProductoService.PaginaSinConteo;
+import com.ergpos.app.service.ReporteService;
+import com.ergpos.app.service.VersionCatalogoService;
+import com.ergpos.app.util.ETagUtils;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/productos")
 @CrossOrigin(origins = "*")
 public class ProductoController {
 
-    private final ProductoService productoService;
+    // Modos de conteo de los listados paginados
+    private static final String CONTEO_EXACTO = "exacto";
+    private static final String CONTEO_NINGUNO = "ninguno";
+    private static final String CONTEO_APROXIMADO = "aproximado";
 
-    public ProductoController(ProductoService productoService) {
+    private final ProductoService productoService;
+    private final ReporteService reporteService;
+    private final ProductoImportService productoImportService;
+    private final ProductoActualizacionMasivaService actualizacionMasivaService;
+    private final VersionCatalogoService versionCatalogo;
+
+    public ProductoController(ProductoService productoService, ReporteService reporteService,
+            ProductoImportService productoImportService,
+            ProductoActualizacionMasivaService actualizacionMasivaService,
+            VersionCatalogoService versionCatalogo) {
         this.productoService = productoService;
+        this.reporteService = reporteService;
+        this.productoImportService = productoImportService;
+        this.actualizacionMasivaService = actualizacionMasivaService;
+        this.versionCatalogo = versionCatalogo;
     }
 
     // ============ ENDPOINTS CRUD BÁSICOS ============
@@ -40,7 +73,8 @@ public class ProductoController {
         return ResponseEntity.status(HttpStatus.CREATED).body(productoService.crear(request));
     }
 
-    // Listar CON PAGINACIÓN
+    // Listar CON PAGINACIÓN (304 si el catálogo no cambió desde el ETag del cliente).
+    // conteo: exacto (COUNT por petición), ninguno (solo hasNext) o aproximado (total cacheado)
     @GetMapping
     public ResponseEntity<Map<String, Object>> listar(
             @RequestParam(required = false) String buscar,
@@ -49,7 +83,19 @@ public class ProductoController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "nombre") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir) {
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = CONTEO_EXACTO) String conteo,
+            WebRequest webRequest) {
+
+        String modoConteo = validarModoConteo(conteo);
+
+        // Antes de consultar: un cambio concurrente solo puede dejar un ETag más antiguo que los datos
+        VersionCatalogoService.Version version = versionCatalogo.productos();
+        if (webRequest.checkNotModified(version.etag(), version.ultimaModificacion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .build();
+        }
 
         Sort.Direction direction = sortDir.equalsIgnoreCase("desc")
                 ? Sort.Direction.DESC
@@ -57,33 +103,47 @@ public class ProductoController {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
 
-        Page<ProductoResponseDTO> productosPage = productoService.listar(
-                buscar, categoria, activo, pageable);
-
         Map<String, Object> response = new HashMap<>();
-        response.put("productos", productosPage.getContent());
-        response.put("currentPage", productosPage.getNumber());
-        response.put("totalItems", productosPage.getTotalElements());
-        response.put("totalPages", productosPage.getTotalPages());
-        response.put("pageSize", productosPage.getSize());
-        response.put("hasNext", productosPage.hasNext());
-        response.put("hasPrevious", productosPage.hasPrevious());
+        if (CONTEO_EXACTO.equals(modoConteo)) {
+            Page<ProductoResponseDTO> productosPage = productoService.listar(
+                    buscar, categoria, activo, pageable);
+
+            response.put("productos", productosPage.getContent());
+            response.put("currentPage", productosPage.getNumber());
+            response.put("totalItems", productosPage.getTotalElements());
+            response.put("totalPages", productosPage.getTotalPages());
+            response.put("pageSize", productosPage.getSize());
+            response.put("hasNext", productosPage.hasNext());
+            response.put("hasPrevious", productosPage.hasPrevious());
+        } else {
+            agregarPaginaSinConteo(response, productoService.listarSinConteo(
+                    buscar, categoria, activo, pageable, CONTEO_APROXIMADO.equals(modoConteo)));
+        }
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(response);
     }
 
     // Obtener por código
     @GetMapping("/{codigo}")
     public ResponseEntity<ProductoResponseDTO> obtener(@PathVariable String codigo) {
-        return ResponseEntity.ok(productoService.obtener(codigo));
+        ProductoResponseDTO producto = productoService.obtener(codigo);
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.fromVersion(producto.getVersion()))
+                .body(producto);
     }
 
-    // Actualizar por código
+    // Actualizar por código (If-Match opcional con la versión del producto)
     @PutMapping("/{codigo}")
     public ResponseEntity<ProductoResponseDTO> actualizar(
             @PathVariable String codigo,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @Valid @RequestBody ProductoRequestDTO request) {
-        return ResponseEntity.ok(productoService.actualizar(codigo, request));
+        ProductoResponseDTO producto = productoService.actualizar(codigo, request, ETagUtils.parseVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.fromVersion(producto.getVersion()))
+                .body(producto);
     }
 
     // Activar por código
@@ -100,47 +160,81 @@ public class ProductoController {
 
     // ============ ENDPOINTS DE STOCK ============
 
+    // Repartir el stock en N shards (productos de alta rotación)
+    @PatchMapping("/{codigo}/stock-fraccionado/habilitar")
+    public ResponseEntity<ProductoResponseDTO> habilitarStockFraccionado(
+            @PathVariable String codigo,
+            @RequestParam(defaultValue = "8") int shards) {
+        return ResponseEntity.ok(productoService.habilitarStockFraccionado(codigo, shards));
+    }
+
+    // Consolidar los shards de nuevo en stock_actual
+    @PatchMapping("/{codigo}/stock-fraccionado/deshabilitar")
+    public ResponseEntity<ProductoResponseDTO> deshabilitarStockFraccionado(@PathVariable String codigo) {
+        return ResponseEntity.ok(productoService.deshabilitarStockFraccionado(codigo));
+    }
+
     // Verificar stock disponible de un producto
     @GetMapping("/{codigo}/stock-disponible")
     public ResponseEntity<StockVerificationResponseDTO> verificarStockDisponible(
             @PathVariable String codigo,
             @RequestParam Integer cantidad) {
 
-        ProductoResponseDTO producto = productoService.obtener(codigo);
-
-        StockVerificationResponseDTO response = new StockVerificationResponseDTO(
-                producto.getCodigo(),
-                producto.getNombre(),
-                producto.getStockActual(),
-                cantidad); // Constructor de 4 parámetros
-
-        return ResponseEntity.ok(response);
+        // Descuenta las reservas activas (disponible para prometer)
+        return ResponseEntity.ok(productoService.verificarStockDisponibleConRespuesta(codigo, cantidad));
     }
 
-    // Reporte de stock bajo con estadísticas
+    // Reporte de stock bajo con estadísticas (paginado, más críticos primero)
     @GetMapping("/reportes/stock-bajo")
-    public ResponseEntity<Map<String, Object>> obtenerReporteStockBajo() {
-        List<StockBajoResponseDTO> productos = productoService.obtenerProductosConStockBajo();
-        Map<String, Object> estadisticas = productoService.obtenerEstadisticasStock();
+    public ResponseEntity<Map<String, Object>> obtenerReporteStockBajo(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(reporteService.obtenerReporteStockBajo(page, size));
+    }
+
+    // Obtener productos críticos (sin stock o < 20% del mínimo), paginado en SQL
+    @GetMapping("/reportes/stock-critico")
+    public ResponseEntity<Map<String, Object>> obtenerProductosStockCritico(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        Page<StockBajoResponseDTO> productosPage = productoService.obtenerReporteStockCritico(
+                PageRequest.of(page, size));
 
         Map<String, Object> response = new HashMap<>();
-        response.put("productos", productos);
-        response.put("estadisticas", estadisticas);
-        response.put("totalProductosStockBajo", productos.size());
-        response.put("timestamp", LocalDateTime.now());
+        response.put("productos", productosPage.getContent());
+        response.put("currentPage", productosPage.getNumber());
+        response.put("totalItems", productosPage.getTotalElements());
+        response.put("totalPages", productosPage.getTotalPages());
+        response.put("pageSize", productosPage.getSize());
+        response.put("hasNext", productosPage.hasNext());
+        response.put("hasPrevious", productosPage.hasPrevious());
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(response);
     }
 
-    // Obtener productos críticos (sin stock)
-    @GetMapping("/reportes/stock-critico")
-    public ResponseEntity<List<StockBajoResponseDTO>> obtenerProductosStockCritico() {
-        List<StockBajoResponseDTO> productos = productoService.obtenerProductosConStockBajo()
-                .stream()
-                .filter(p -> p.getNivelCriticidad() == 3)
-                .collect(Collectors.toList());
+    // Importación masiva desde CSV (errores por fila en la respuesta)
+    @PostMapping(value = "/importar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ProductoImportResponseDTO> importar(
+            @RequestParam("archivo") MultipartFile archivo,
+            @RequestParam(defaultValue = "false") boolean actualizarExistentes) throws IOException {
+
+        if (archivo.isEmpty()) {
+            throw new BusinessException("INVALID_FILE", "El archivo está vacío", 400);
+        }
 
-        return ResponseEntity.ok(productos);
+        try (InputStream entrada = archivo.getInputStream()) {
+            return ResponseEntity.ok(productoImportService.importar(entrada, actualizarExistentes));
+        }
+    }
+
+    // Precio, stock mínimo o estado de muchos productos; simular = solo calcular el impacto
+    @PostMapping("/actualizacion-masiva")
+    public ResponseEntity<ActualizacionMasivaResponseDTO> actualizacionMasiva(
+            @Valid @RequestBody ActualizacionMasivaRequestDTO request,
+            @RequestParam(defaultValue = "false") boolean simular) {
+        return ResponseEntity.ok(actualizacionMasivaService.actualizar(request, simular));
     }
 
     // Actualizar stock manualmente (para administradores)
@@ -195,42 +289,10 @@ public class ProductoController {
         }
     }
 
-    // Obtener reporte completo de stock
+    // Obtener reporte completo de stock (estadísticas en memoria, todos los productos activos)
     @GetMapping("/reportes/stock")
     public ResponseEntity<Map<String, Object>> obtenerReporteStock() {
-        Page<ProductoResponseDTO> productosPage = productoService.listar(
-                null, null, true, PageRequest.of(0, 1000));
-
-        List<ProductoResponseDTO> productos = productosPage.getContent();
-
-        // Calcular estadísticas
-        long totalProductos = productos.size();
-        long productosConStockBajo = productos.stream()
-                .filter(p -> p.getStockActual() == 0 ||
-                        (p.getStockMinimo() > 0 && p.getStockActual() < p.getStockMinimo()))
-                .count();
-
-        long productosSinStock = productos.stream()
-                .filter(p -> p.getStockActual() == 0)
-                .count();
-
-        int stockTotal = productos.stream()
-                .mapToInt(ProductoResponseDTO::getStockActual)
-                .sum();
-
-        double valorTotalInventario = productos.stream()
-                .mapToDouble(p -> p.getPrecio().doubleValue() * p.getStockActual())
-                .sum();
-
-        Map<String, Object> reporte = new HashMap<>();
-        reporte.put("totalProductos", totalProductos);
-        reporte.put("productosConStockBajo", productosConStockBajo);
-        reporte.put("productosSinStock", productosSinStock);
-        reporte.put("stockTotal", stockTotal);
-        reporte.put("valorTotalInventario", valorTotalInventario);
-        reporte.put("timestamp", LocalDateTime.now());
-
-        return ResponseEntity.ok(reporte);
+        return ResponseEntity.ok(reporteService.obtenerReporteStock());
     }
 
     // Buscar productos por stock (filtros) - Versión paginada
@@ -242,7 +304,19 @@ public class ProductoController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "stockActual") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir) {
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(defaultValue = CONTEO_EXACTO) String conteo,
+            WebRequest webRequest) {
+
+        String modoConteo = validarModoConteo(conteo);
+
+        // Antes de consultar: un cambio concurrente solo puede dejar un ETag más antiguo que los datos
+        VersionCatalogoService.Version version = versionCatalogo.productos();
+        if (webRequest.checkNotModified(version.etag(), version.ultimaModificacion())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .build();
+        }
 
         Sort.Direction direction = sortDir.equalsIgnoreCase("desc")
                 ? Sort.Direction.DESC
@@ -250,21 +324,54 @@ public class ProductoController {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
 
-        Page<ProductoResponseDTO> productosPage = productoService.buscarPorStock(
-                stockMinimo, stockMaximo, bajoStockMinimo, pageable);
-
         Map<String, Object> response = new HashMap<>();
-        response.put("productos", productosPage.getContent());
-        response.put("currentPage", productosPage.getNumber());
-        response.put("totalItems", productosPage.getTotalElements());
-        response.put("totalPages", productosPage.getTotalPages());
+        if (CONTEO_EXACTO.equals(modoConteo)) {
+            Page<ProductoResponseDTO> productosPage = productoService.buscarPorStock(
+                    stockMinimo, stockMaximo, bajoStockMinimo, pageable);
+
+            response.put("productos", productosPage.getContent());
+            response.put("currentPage", productosPage.getNumber());
+            response.put("totalItems", productosPage.getTotalElements());
+            response.put("totalPages", productosPage.getTotalPages());
+        } else {
+            agregarPaginaSinConteo(response, productoService.buscarPorStockSinConteo(
+                    stockMinimo, stockMaximo, bajoStockMinimo, pageable, CONTEO_APROXIMADO.equals(modoConteo)));
+        }
         response.put("filtros", Map.of(
                 "stockMinimo", stockMinimo,
                 "stockMaximo", stockMaximo,
                 "bajoStockMinimo", bajoStockMinimo));
         response.put("timestamp", LocalDateTime.now());
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(response);
+    }
+
+    private static String validarModoConteo(String conteo) {
+        String modo = conteo.trim().toLowerCase();
+        if (!CONTEO_EXACTO.equals(modo) && !CONTEO_NINGUNO.equals(modo) && !CONTEO_APROXIMADO.equals(modo)) {
+            throw new BusinessException("INVALID_INPUT",
+                    "Modo de conteo inválido: " + conteo + " (exacto, ninguno o aproximado)", 400);
+        }
+        return modo;
+    }
+
+    // totalItems/totalPages solo en modo aproximado y cuando ya hay un total calculado
+    private static void agregarPaginaSinConteo(Map<String, Object> response, PaginaSinConteo resultado) {
+        Slice<ProductoResponseDTO> pagina = resultado.pagina();
+        response.put("productos", pagina.getContent());
+        response.put("currentPage", pagina.getNumber());
+        response.put("pageSize", pagina.getSize());
+        response.put("hasNext", pagina.hasNext());
+        response.put("hasPrevious", pagina.hasPrevious());
+
+        Long total = resultado.totalAproximado();
+        if (total != null) {
+            response.put("totalItems", total);
+            response.put("totalPages", pagina.getSize() > 0 ? (int) Math.ceil((double) total / pagina.getSize()) : 1);
+            response.put("totalAproximado", true);
+        }
     }
 
     // ============ ENDPOINTS ADICIONALES ============
@@ -290,26 +397,11 @@ public class ProductoController {
         return ResponseEntity.ok(response);
     }
 
-    // Verificar múltiples productos en stock
+    // Verificar múltiples productos en stock (códigos inexistentes: encontrado = false)
     @PostMapping("/verificar-stock-multiple")
     public ResponseEntity<List<StockVerificationResponseDTO>> verificarStockMultiple(
-            @RequestBody List<Map<String, Object>> productos) {
-
-        List<StockVerificationResponseDTO> resultados = productos.stream()
-                .map(p -> {
-                    String codigo = (String) p.get("codigo");
-                    Integer cantidad = (Integer) p.get("cantidad");
-
-                    ProductoResponseDTO producto = productoService.obtener(codigo);
-                    return new StockVerificationResponseDTO(
-                            producto.getCodigo(),
-                            producto.getNombre(),
-                            producto.getStockActual(),
-                            cantidad);
-                })
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(resultados);
+            @Valid @RequestBody StockVerificationRequestDTO request) {
+        return ResponseEntity.ok(productoService.verificarStockMultiple(request.getProductos()));
     }
 
     // ✅ NUEVO: Obtener por código con query parameter
@@ -322,8 +414,12 @@ public class ProductoController {
     @PutMapping
     public ResponseEntity<ProductoResponseDTO> actualizarPorQueryParam(
             @RequestParam String codigo,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @Valid @RequestBody ProductoRequestDTO request) {
-        return ResponseEntity.ok(productoService.actualizar(codigo, request));
+        ProductoResponseDTO producto = productoService.actualizar(codigo, request, ETagUtils.parseVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.fromVersion(producto.getVersion()))
+                .body(producto);
     }
 
     // ✅ NUEVO: Activar con query parameter
@@ -341,35 +437,6 @@ public class ProductoController {
     // Obtener dashboard de estadísticas
     @GetMapping("/dashboard")
     public ResponseEntity<Map<String, Object>> obtenerDashboard() {
-        Map<String, Object> dashboard = new HashMap<>();
-
-        // Estadísticas generales
-        Page<ProductoResponseDTO> todosProductos = productoService.listar(
-                null, null, true, PageRequest.of(0, 1));
-
-        long totalProductos = todosProductos.getTotalElements();
-        dashboard.put("totalProductos", totalProductos);
-
-        // Productos con stock bajo
-        List<StockBajoResponseDTO> stockBajo = productoService.obtenerProductosConStockBajo();
-        dashboard.put("productosStockBajo", stockBajo.size());
-
-        // Productos críticos
-        long criticos = stockBajo.stream()
-                .filter(p -> p.getNivelCriticidad() == 3)
-                .count();
-        dashboard.put("productosCriticos", criticos);
-
-        // Categorías con más productos
-        Map<String, Long> categorias = productoService.obtenerEstadisticasCategorias();
-        dashboard.put("distribucionCategorias", categorias);
-
-        // Valor total del inventario
-        Map<String, Object> estadisticasStock = productoService.obtenerEstadisticasStock();
-        dashboard.put("valorInventario", estadisticasStock.getOrDefault("valorTotalInventario", 0));
-
-        dashboard.put("timestamp", LocalDateTime.now());
-
-        return ResponseEntity.ok(dashboard);
+        return ResponseEntity.ok(reporteService.obtenerDashboard());
     }
 }
\ No newline at end of file
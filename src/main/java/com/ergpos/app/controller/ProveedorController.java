@@ -8,6 +8,7 @@ import jakarta.validation.Valid;
 import com.ergpos.app.dto.proveedores.ProveedorRequestDTO;
 import com.ergpos.app.dto.proveedores.ProveedorResponseDTO;
 import com.ergpos.app.service.ProveedorService;
+import com.ergpos.app.util.ETagUtils;
 
 @RestController
 @RequestMapping("/api/proveedores")
@@ -37,15 +38,22 @@ public class ProveedorController {
     // Obtener por RUC, Email o Nombre
     @GetMapping("/{identificador}")
     public ResponseEntity<ProveedorResponseDTO> obtener(@PathVariable String identificador) {
-        return ResponseEntity.ok(proveedorService.obtener(identificador));
+        ProveedorResponseDTO proveedor = proveedorService.obtener(identificador);
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.fromVersion(proveedor.getVersion()))
+                .body(proveedor);
     }
 
-    // Actualizar por RUC, Email o Nombre
+    // Actualizar por RUC, Email o Nombre (If-Match opcional con la versión)
     @PutMapping("/{identificador}")
     public ResponseEntity<ProveedorResponseDTO> actualizar(
             @PathVariable String identificador,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch,
             @Valid @RequestBody ProveedorRequestDTO request) {
-        return ResponseEntity.ok(proveedorService.actualizar(identificador, request));
+        ProveedorResponseDTO proveedor = proveedorService.actualizar(identificador, request, ETagUtils.parseVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ETagUtils.fromVersion(proveedor.getVersion()))
+                .body(proveedor);
     }
 
     // Activar por RUC, Email o Nombre
@@ -0,0 +1,44 @@
+package com.ergpos.app.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import jakarta.validation.Valid;
+import com.ergpos.app.dto.movimientos.MovimientoInventarioResponseDTO;
+import com.ergpos.app.dto.reservas.ReservaConfirmacionRequestDTO;
+import com.ergpos.app.dto.reservas.ReservaRequestDTO;
+import com.ergpos.app.dto.reservas.ReservaResponseDTO;
+import com.ergpos.app.service.ReservaStockService;
+
+@RestController
+@RequestMapping("/api/reservas")
+@CrossOrigin(origins = "*")
+public class ReservaStockController {
+
+    private final ReservaStockService reservaService;
+
+    public ReservaStockController(ReservaStockService reservaService) {
+        this.reservaService = reservaService;
+    }
+
+    // Retener stock para un carrito (expira tras el TTL)
+    @PostMapping
+    public ResponseEntity<ReservaResponseDTO> reservar(@Valid @RequestBody ReservaRequestDTO request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(reservaService.reservar(request));
+    }
+
+    // Confirmar: crea el movimiento SALIDA y libera la retención
+    @PostMapping("/{id}/confirmar")
+    public ResponseEntity<MovimientoInventarioResponseDTO> confirmar(
+            @PathVariable String id,
+            @Valid @RequestBody ReservaConfirmacionRequestDTO request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(reservaService.confirmar(id, request));
+    }
+
+    // Liberar la reserva sin generar movimiento
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> liberar(@PathVariable String id) {
+        reservaService.liberar(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -11,6 +11,7 @@ public class CategoriaResponseDTO {
     private Boolean activo;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 
     // Constructor por defecto
     public CategoriaResponseDTO() {
@@ -76,6 +77,14 @@ public class CategoriaResponseDTO {
         this.updatedAt = updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "CategoriaResponseDTO{" +
@@ -0,0 +1,52 @@
+package com.ergpos.app.dto.movimientos;
+
+public class MovimientoLoteErrorDTO {
+
+    private int linea;
+    private String codigoProducto;
+    private String code;
+    private String message;
+
+    public MovimientoLoteErrorDTO() {
+    }
+
+    public MovimientoLoteErrorDTO(int linea, String codigoProducto, String code, String message) {
+        this.linea = linea;
+        this.codigoProducto = codigoProducto;
+        this.code = code;
+        this.message = message;
+    }
+
+    // Getters y Setters
+    public int getLinea() {
+        return linea;
+    }
+
+    public void setLinea(int linea) {
+        this.linea = linea;
+    }
+
+    public String getCodigoProducto() {
+        return codigoProducto;
+    }
+
+    public void setCodigoProducto(String codigoProducto) {
+        this.codigoProducto = codigoProducto;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ergpos.app.dto.movimientos;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public class MovimientoLoteRequestDTO {
+
+    @NotBlank(message = "El código del usuario es obligatorio")
+    private String codigoUsuario;
+
+    private String rucProveedor;
+    private String documentoRef;
+
+    // Estado inicial de todas las líneas (ACTIVO por defecto)
+    private String estado;
+
+    @NotEmpty(message = "El lote debe tener al menos una línea")
+    @Size(max = 1000, message = "El lote no puede tener más de 1000 líneas")
+    private List<MovimientoLoteItemDTO> items;
+
+    // Getters y Setters
+    public String getCodigoUsuario() {
+        return codigoUsuario;
+    }
+
+    public void setCodigoUsuario(String codigoUsuario) {
+        this.codigoUsuario = codigoUsuario;
+    }
+
+    public String getRucProveedor() {
+        return rucProveedor;
+    }
+
+    public void setRucProveedor(String rucProveedor) {
+        this.rucProveedor = rucProveedor;
+    }
+
+    public String getDocumentoRef() {
+        return documentoRef;
+    }
+
+    public void setDocumentoRef(String documentoRef) {
+        this.documentoRef = documentoRef;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public List<MovimientoLoteItemDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<MovimientoLoteItemDTO> items) {
+        this.items = items;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ergpos.app.dto.movimientos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MovimientoLoteResponseDTO {
+
+    private boolean exitoso;
+    private int totalLineas;
+    private int lineasProcesadas;
+    private List<MovimientoLoteErrorDTO> errores = new ArrayList<>();
+    private List<MovimientoInventarioResponseDTO> movimientos = new ArrayList<>();
+
+    // Getters y Setters
+    public boolean isExitoso() {
+        return exitoso;
+    }
+
+    public void setExitoso(boolean exitoso) {
+        this.exitoso = exitoso;
+    }
+
+    public int getTotalLineas() {
+        return totalLineas;
+    }
+
+    public void setTotalLineas(int totalLineas) {
+        this.totalLineas = totalLineas;
+    }
+
+    public int getLineasProcesadas() {
+        return lineasProcesadas;
+    }
+
+    public void setLineasProcesadas(int lineasProcesadas) {
+        this.lineasProcesadas = lineasProcesadas;
+    }
+
+    public List<MovimientoLoteErrorDTO> getErrores() {
+        return errores;
+    }
+
+    public void setErrores(List<MovimientoLoteErrorDTO> errores) {
+        this.errores = errores;
+    }
+
+    public List<MovimientoInventarioResponseDTO> getMovimientos() {
+        return movimientos;
+    }
+
+    public void setMovimientos(List<MovimientoInventarioResponseDTO> movimientos) {
+        this.movimientos = movimientos;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ergpos.app.dto.movimientos;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MovimientoPaginaResponseDTO {
+
+    private List<MovimientoInventarioResponseDTO> items = new ArrayList<>();
+    private int tamano;
+    private boolean hayMas;
+    // null en la última página
+    private String siguienteCursor;
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+
+    // Getters y Setters
+    public List<MovimientoInventarioResponseDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<MovimientoInventarioResponseDTO> items) {
+        this.items = items;
+    }
+
+    public int getTamano() {
+        return tamano;
+    }
+
+    public void setTamano(int tamano) {
+        this.tamano = tamano;
+    }
+
+    public boolean isHayMas() {
+        return hayMas;
+    }
+
+    public void setHayMas(boolean hayMas) {
+        this.hayMas = hayMas;
+    }
+
+    public String getSiguienteCursor() {
+        return siguienteCursor;
+    }
+
+    public void setSiguienteCursor(String siguienteCursor) {
+        this.siguienteCursor = siguienteCursor;
+    }
+
+    public LocalDateTime getDesde() {
+        return desde;
+    }
+
+    public void setDesde(LocalDateTime desde) {
+        this.desde = desde;
+    }
+
+    public LocalDateTime getHasta() {
+        return hasta;
+    }
+
+    public void setHasta(LocalDateTime hasta) {
+        this.hasta = hasta;
+    }
+}
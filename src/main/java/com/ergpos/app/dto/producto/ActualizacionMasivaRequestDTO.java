@@ -0,0 +1,92 @@
+package com.ergpos.app.dto.producto;
+
+import jakarta.validation.constraints.Size;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Productos a modificar (filtro y/o lista de códigos; los criterios se
+ * combinan) y cambios a aplicar (los campos nulos no se modifican).
+ */
+public class ActualizacionMasivaRequestDTO {
+
+    // Filtro
+    private String codigoCategoria;
+    // Productos con entradas registradas de este proveedor
+    private String rucProveedor;
+    private String prefijoCodigo;
+
+    @Size(max = 10000, message = "No se pueden indicar más de 10000 códigos")
+    private List<String> codigos;
+
+    // Cambios: precio fijo o variación porcentual (10 = +10%, -5 = -5%)
+    private BigDecimal precio;
+    private BigDecimal porcentajePrecio;
+    private Integer stockMinimo;
+    private Boolean activo;
+
+    // Getters y Setters
+    public String getCodigoCategoria() {
+        return codigoCategoria;
+    }
+
+    public void setCodigoCategoria(String codigoCategoria) {
+        this.codigoCategoria = codigoCategoria;
+    }
+
+    public String getRucProveedor() {
+        return rucProveedor;
+    }
+
+    public void setRucProveedor(String rucProveedor) {
+        this.rucProveedor = rucProveedor;
+    }
+
+    public String getPrefijoCodigo() {
+        return prefijoCodigo;
+    }
+
+    public void setPrefijoCodigo(String prefijoCodigo) {
+        this.prefijoCodigo = prefijoCodigo;
+    }
+
+    public List<String> getCodigos() {
+        return codigos;
+    }
+
+    public void setCodigos(List<String> codigos) {
+        this.codigos = codigos;
+    }
+
+    public BigDecimal getPrecio() {
+        return precio;
+    }
+
+    public void setPrecio(BigDecimal precio) {
+        this.precio = precio;
+    }
+
+    public BigDecimal getPorcentajePrecio() {
+        return porcentajePrecio;
+    }
+
+    public void setPorcentajePrecio(BigDecimal porcentajePrecio) {
+        this.porcentajePrecio = porcentajePrecio;
+    }
+
+    public Integer getStockMinimo() {
+        return stockMinimo;
+    }
+
+    public void setStockMinimo(Integer stockMinimo) {
+        this.stockMinimo = stockMinimo;
+    }
+
+    public Boolean getActivo() {
+        return activo;
+    }
+
+    public void setActivo(Boolean activo) {
+        this.activo = activo;
+    }
+}
@@ -0,0 +1,67 @@
+package com.ergpos.app.dto.producto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ActualizacionMasivaResponseDTO {
+
+    // true: solo se calculó el impacto, no se escribió nada
+    private boolean simulacion;
+    private long productosAfectados;
+    // Desactivación: productos con stock, que se omiten sin ningún cambio
+    private long omitidosConStock;
+    // Productos que tras el cambio quedan con stock por debajo del mínimo
+    private long productosBajoMinimo;
+    // Variación porcentual: precios que saldrían del rango permitido (impiden aplicar)
+    private long preciosFueraDeRango;
+    private List<String> codigosNoEncontrados = new ArrayList<>();
+
+    // Getters y Setters
+    public boolean isSimulacion() {
+        return simulacion;
+    }
+
+    public void setSimulacion(boolean simulacion) {
+        this.simulacion = simulacion;
+    }
+
+    public long getProductosAfectados() {
+        return productosAfectados;
+    }
+
+    public void setProductosAfectados(long productosAfectados) {
+        this.productosAfectados = productosAfectados;
+    }
+
+    public long getOmitidosConStock() {
+        return omitidosConStock;
+    }
+
+    public void setOmitidosConStock(long omitidosConStock) {
+        this.omitidosConStock = omitidosConStock;
+    }
+
+    public long getProductosBajoMinimo() {
+        return productosBajoMinimo;
+    }
+
+    public void setProductosBajoMinimo(long productosBajoMinimo) {
+        this.productosBajoMinimo = productosBajoMinimo;
+    }
+
+    public long getPreciosFueraDeRango() {
+        return preciosFueraDeRango;
+    }
+
+    public void setPreciosFueraDeRango(long preciosFueraDeRango) {
+        this.preciosFueraDeRango = preciosFueraDeRango;
+    }
+
+    public List<String> getCodigosNoEncontrados() {
+        return codigosNoEncontrados;
+    }
+
+    public void setCodigosNoEncontrados(List<String> codigosNoEncontrados) {
+        this.codigosNoEncontrados = codigosNoEncontrados;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ergpos.app.dto.producto;
+
+public class ProductoImportErrorDTO {
+
+    // Número de registro en el archivo (la cabecera es el 1)
+    private long fila;
+    private String codigo;
+    private String code;
+    private String message;
+
+    public ProductoImportErrorDTO() {
+    }
+
+    public ProductoImportErrorDTO(long fila, String codigo, String code, String message) {
+        this.fila = fila;
+        this.codigo = codigo;
+        this.code = code;
+        this.message = message;
+    }
+
+    // Getters y Setters
+    public long getFila() {
+        return fila;
+    }
+
+    public void setFila(long fila) {
+        this.fila = fila;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public void setCodigo(String codigo) {
+        this.codigo = codigo;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,74 @@
+package com.ergpos.app.dto.producto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductoImportResponseDTO {
+
+    private long totalFilas;
+    private long insertados;
+    private long actualizados;
+    private long filasConError;
+    // Errores no detallados en la lista por superar el máximo del reporte
+    private long erroresOmitidos;
+    // El archivo no se pudo leer completo; las filas anteriores sí se procesaron
+    private boolean interrumpido;
+    private List<ProductoImportErrorDTO> errores = new ArrayList<>();
+
+    // Getters y Setters
+    public long getTotalFilas() {
+        return totalFilas;
+    }
+
+    public void setTotalFilas(long totalFilas) {
+        this.totalFilas = totalFilas;
+    }
+
+    public long getInsertados() {
+        return insertados;
+    }
+
+    public void setInsertados(long insertados) {
+        this.insertados = insertados;
+    }
+
+    public long getActualizados() {
+        return actualizados;
+    }
+
+    public void setActualizados(long actualizados) {
+        this.actualizados = actualizados;
+    }
+
+    public long getFilasConError() {
+        return filasConError;
+    }
+
+    public void setFilasConError(long filasConError) {
+        this.filasConError = filasConError;
+    }
+
+    public long getErroresOmitidos() {
+        return erroresOmitidos;
+    }
+
+    public void setErroresOmitidos(long erroresOmitidos) {
+        this.erroresOmitidos = erroresOmitidos;
+    }
+
+    public boolean isInterrumpido() {
+        return interrumpido;
+    }
+
+    public void setInterrumpido(boolean interrumpido) {
+        this.interrumpido = interrumpido;
+    }
+
+    public List<ProductoImportErrorDTO> getErrores() {
+        return errores;
+    }
+
+    public void setErrores(List<ProductoImportErrorDTO> errores) {
+        this.errores = errores;
+    }
+}
@@ -16,10 +16,12 @@ public class ProductoResponseDTO {
     private BigDecimal precio;
     private Integer stockMinimo;
     private Integer stockActual;
+    private Boolean stockFraccionado;
     private String unidadMedida;
     private Boolean activo;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 
     public UUID getId() {
         return id;
@@ -125,6 +127,22 @@ public class ProductoResponseDTO {
         this.updatedAt = updatedAt;
     }
 
+    public Boolean getStockFraccionado() {
+        return stockFraccionado;
+    }
+
+    public void setStockFraccionado(Boolean stockFraccionado) {
+        this.stockFraccionado = stockFraccionado;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getCategoriaCodigo() {
         return categoriaCodigo;
     }
@@ -0,0 +1,24 @@
+package com.ergpos.app.dto.producto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+// Se recibe como arreglo JSON: [{"codigo": "...", "cantidad": 2}, ...]
+public class StockVerificationRequestDTO {
+
+    @NotEmpty(message = "Debe indicar al menos un producto")
+    @Size(max = 5000, message = "No se pueden verificar más de 5000 productos por petición")
+    private final List<@Valid StockVerificationItemDTO> productos;
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public StockVerificationRequestDTO(List<StockVerificationItemDTO> productos) {
+        this.productos = productos;
+    }
+
+    public List<StockVerificationItemDTO> getProductos() {
+        return productos;
+    }
+}
@@ -6,6 +6,8 @@ public class StockVerificationResponseDTO {
     private String codigoProducto;
     private String nombreProducto;
     private Integer stockActual;
+    private Integer stockReservado;
+    private Integer stockDisponible;
     private Integer stockMinimo;
     private Integer cantidadSolicitada;
     private BigDecimal precio;
@@ -13,6 +15,7 @@ public class StockVerificationResponseDTO {
     private Integer faltante;
     private Boolean bajoStockMinimo;
     private String mensaje;
+    private Boolean encontrado = true;
 
     public StockVerificationResponseDTO(String codigoProducto, String nombreProducto,
             Integer stockActual, Integer cantidadSolicitada) {
@@ -42,6 +45,31 @@ public class StockVerificationResponseDTO {
         this.mensaje = disponible ? "Stock suficiente" : "Stock insuficiente";
     }
 
+    // Disponible para prometer: stock menos reservas activas
+    public StockVerificationResponseDTO(String codigoProducto, String nombreProducto,
+            Integer stockActual, Integer stockReservado, Integer cantidadSolicitada) {
+        this.codigoProducto = codigoProducto;
+        this.nombreProducto = nombreProducto;
+        this.stockActual = stockActual;
+        this.stockReservado = stockReservado;
+        this.stockDisponible = Math.max(0, stockActual - stockReservado);
+        this.cantidadSolicitada = cantidadSolicitada;
+        this.disponible = stockDisponible >= cantidadSolicitada;
+        this.faltante = disponible ? 0 : cantidadSolicitada - stockDisponible;
+        this.bajoStockMinimo = stockActual < 10;
+        this.mensaje = disponible ? "Stock suficiente" : "Stock insuficiente";
+    }
+
+    // Código inexistente en una verificación múltiple: se informa sin fallar la petición
+    public static StockVerificationResponseDTO noEncontrado(String codigoProducto, Integer cantidadSolicitada) {
+        StockVerificationResponseDTO dto = new StockVerificationResponseDTO(codigoProducto, null, 0, 0,
+                cantidadSolicitada);
+        dto.setEncontrado(false);
+        dto.setBajoStockMinimo(null);
+        dto.setMensaje("Producto no encontrado");
+        return dto;
+    }
+
     // Getters y Setters
     public String getCodigoProducto() {
         return codigoProducto;
@@ -67,6 +95,22 @@ public class StockVerificationResponseDTO {
         this.stockActual = stockActual;
     }
 
+    public Integer getStockReservado() {
+        return stockReservado;
+    }
+
+    public void setStockReservado(Integer stockReservado) {
+        this.stockReservado = stockReservado;
+    }
+
+    public Integer getStockDisponible() {
+        return stockDisponible;
+    }
+
+    public void setStockDisponible(Integer stockDisponible) {
+        this.stockDisponible = stockDisponible;
+    }
+
     public Integer getStockMinimo() {
         return stockMinimo;
     }
@@ -122,4 +166,12 @@ public class StockVerificationResponseDTO {
     public void setMensaje(String mensaje) {
         this.mensaje = mensaje;
     }
+
+    public Boolean getEncontrado() {
+        return encontrado;
+    }
+
+    public void setEncontrado(Boolean encontrado) {
+        this.encontrado = encontrado;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.ergpos.app.dto.reservas;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import java.math.BigDecimal;
+
+public class ReservaConfirmacionRequestDTO {
+
+    @NotBlank(message = "El código del usuario es obligatorio")
+    private String codigoUsuario;
+
+    private String documentoRef;
+    private String observacion;
+
+    @Positive(message = "El costo unitario debe ser mayor a 0")
+    private BigDecimal costoUnitario;
+
+    // Getters y Setters
+    public String getCodigoUsuario() {
+        return codigoUsuario;
+    }
+
+    public void setCodigoUsuario(String codigoUsuario) {
+        this.codigoUsuario = codigoUsuario;
+    }
+
+    public String getDocumentoRef() {
+        return documentoRef;
+    }
+
+    public void setDocumentoRef(String documentoRef) {
+        this.documentoRef = documentoRef;
+    }
+
+    public String getObservacion() {
+        return observacion;
+    }
+
+    public void setObservacion(String observacion) {
+        this.observacion = observacion;
+    }
+
+    public BigDecimal getCostoUnitario() {
+        return costoUnitario;
+    }
+
+    public void setCostoUnitario(BigDecimal costoUnitario) {
+        this.costoUnitario = costoUnitario;
+    }
+}
@@ -0,0 +1,44 @@
+package com.ergpos.app.dto.reservas;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public class ReservaRequestDTO {
+
+    @NotBlank(message = "El código del producto es obligatorio")
+    private String codigoProducto;
+
+    @NotNull(message = "La cantidad es obligatoria")
+    @Positive(message = "La cantidad debe ser mayor a 0")
+    private Integer cantidad;
+
+    // Opcional: si no se envía se usa el TTL por defecto
+    @Positive(message = "El TTL debe ser mayor a 0")
+    private Integer ttlSegundos;
+
+    // Getters y Setters
+    public String getCodigoProducto() {
+        return codigoProducto;
+    }
+
+    public void setCodigoProducto(String codigoProducto) {
+        this.codigoProducto = codigoProducto;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public Integer getTtlSegundos() {
+        return ttlSegundos;
+    }
+
+    public void setTtlSegundos(Integer ttlSegundos) {
+        this.ttlSegundos = ttlSegundos;
+    }
+}
@@ -3,6 +3,7 @@ package com.ergpos.app.exception;
 import com.ergpos.app.dto.auth.ErrorResponseDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -89,6 +90,20 @@ public class GlobalExceptionHandler {
                                 .body(error);
         }
 
+        // Conflicto de concurrencia optimista (reintentos agotados, o reemplazo completo sin reintento)
+        @ExceptionHandler(OptimisticLockingFailureException.class)
+        public ResponseEntity<ErrorResponseDTO> handleOptimisticLockingFailureException(
+                        OptimisticLockingFailureException ex) {
+                logger.warn("Optimistic locking failure: {}", ex.getMessage());
+                ErrorResponseDTO error = new ErrorResponseDTO(
+                                "CONCURRENT_MODIFICATION",
+                                "El registro fue modificado por otra operación. Intente nuevamente",
+                                HttpStatus.CONFLICT.value());
+                return ResponseEntity
+                                .status(HttpStatus.CONFLICT)
+                                .body(error);
+        }
+
         // Manejo de errores de validación (@Valid)
         @ExceptionHandler(MethodArgumentNotValidException.class)
         public ResponseEntity<Map<String, Object>> handleValidationExceptions(
@@ -0,0 +1,42 @@
+package com.ergpos.app.exception;
+
+/**
+ * Excepción para conflictos de versión (412 Precondition Failed).
+ * 
+ * Usar cuando el cliente envía If-Match con una versión que ya no
+ * corresponde a la versión actual del recurso.
+ * 
+ * @example
+ * throw new VersionConflictException("Producto", 3L, 4L);
+ */
+public class VersionConflictException extends BusinessException {
+
+    /**
+     * Constructor con tipo de recurso y versiones esperada/actual.
+     * 
+     * @param resourceType Tipo de recurso (ej: "Producto")
+     * @param esperada Versión enviada por el cliente
+     * @param actual Versión actual en base de datos
+     */
+    public VersionConflictException(String resourceType, Long esperada, Long actual) {
+        super(
+            "VERSION_CONFLICT",
+            String.format("Conflicto de versión en %s (esperada: %d, actual: %d). Recargue los datos e intente nuevamente",
+                    resourceType, esperada, actual),
+            412
+        );
+    }
+
+    /**
+     * Verifica la versión esperada (si se envió) contra la versión actual.
+     * 
+     * @param resourceType Tipo de recurso
+     * @param esperada Versión enviada por el cliente (null = sin verificación)
+     * @param actual Versión actual
+     */
+    public static void verificar(String resourceType, Long esperada, Long actual) {
+        if (esperada != null && !esperada.equals(actual)) {
+            throw new VersionConflictException(resourceType, esperada, actual);
+        }
+    }
+}
@@ -28,6 +28,11 @@ public class Categoria {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Control de concurrencia optimista
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     public void prePersist() {
         createdAt = LocalDateTime.now();
@@ -98,6 +103,10 @@ public class Categoria {
         return updatedAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     @Override
     public String toString() {
         return "Categoria{" +
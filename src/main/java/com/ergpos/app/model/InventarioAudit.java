@@ -108,6 +108,10 @@ public class InventarioAudit {
         return createdAt;
     }
 
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
     // Método helper para crear detalle JSON desde objeto
     public void setDetalleFromObject(Object object) {
         try {
@@ -0,0 +1,13 @@
+package com.ergpos.app.model;
+
+import java.util.UUID;
+
+/**
+ * Evento pendiente de la tabla outbox_eventos (payload JSON sin interpretar).
+ */
+public record OutboxEvento(long id, String tipo, UUID agregadoId, String payload, int intentos) {
+
+    public static final String MOVIMIENTO_CREADO = "MOVIMIENTO_CREADO";
+    public static final String MOVIMIENTO_ANULADO = "MOVIMIENTO_ANULADO";
+    public static final String MOVIMIENTO_ACTIVADO = "MOVIMIENTO_ACTIVADO";
+}
@@ -41,12 +41,28 @@ public class Producto {
     @Column(nullable = false)
     private Boolean activo = true;
 
+    // Stock repartido en producto_stock_shards (productos de alta rotación)
+    @Column(name = "stock_fraccionado", nullable = false)
+    private Boolean stockFraccionado = false;
+
+    // Columnas generadas por la base de datos (ver ReglasStock); solo lectura
+    @Column(name = "stock_bajo", insertable = false, updatable = false)
+    private Boolean stockBajo;
+
+    @Column(name = "nivel_criticidad", insertable = false, updatable = false)
+    private Integer nivelCriticidad;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Control de concurrencia optimista
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     public void prePersist() {
         createdAt = LocalDateTime.now();
@@ -139,6 +155,22 @@ public class Producto {
         this.activo = activo;
     }
 
+    public Boolean getStockFraccionado() {
+        return stockFraccionado;
+    }
+
+    public void setStockFraccionado(Boolean stockFraccionado) {
+        this.stockFraccionado = stockFraccionado;
+    }
+
+    public Boolean getStockBajo() {
+        return stockBajo;
+    }
+
+    public Integer getNivelCriticidad() {
+        return nivelCriticidad;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -146,4 +178,8 @@ public class Producto {
     public LocalDateTime getUpdatedAt() {
         return updatedAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
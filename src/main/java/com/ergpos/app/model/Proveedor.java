@@ -36,6 +36,11 @@ public class Proveedor {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Control de concurrencia optimista
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     public void prePersist() {
         createdAt = LocalDateTime.now();
@@ -111,4 +116,8 @@ public class Proveedor {
     public LocalDateTime getUpdatedAt() {
         return updatedAt;
     }
+
+    public Long getVersion() {
+        return version;
+    }
 }
\ No newline at end of file
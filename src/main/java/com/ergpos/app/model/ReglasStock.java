@@ -0,0 +1,53 @@
+package com.ergpos.app.model;
+
+/**
+ * Reglas de stock bajo y nivel de criticidad de un producto.
+ *
+ * Los métodos Java son la referencia. La base de datos las replica en las
+ * columnas generadas productos.stock_bajo y productos.nivel_criticidad
+ * (migración 005), usadas por los reportes para filtrar, ordenar y paginar
+ * en SQL. Cualquier cambio aquí debe llevar su migración equivalente;
+ * ReglasStockTest verifica la paridad.
+ *
+ * Todo se calcula con aritmética entera ("stock < 20% del mínimo" es
+ * stock * 5 < mínimo) para que Java y SQL den exactamente el mismo resultado.
+ */
+public final class ReglasStock {
+
+    // Con stock mínimo 0, se considera bajo hasta este stock
+    public static final int UMBRAL_ABSOLUTO = 5;
+
+    public static final int CRITICIDAD_ALTA = 3;
+    public static final int CRITICIDAD_MEDIA = 2;
+    public static final int CRITICIDAD_BAJA = 1;
+
+    private ReglasStock() {
+    }
+
+    /**
+     * Sin stock, por debajo del mínimo, o (sin mínimo definido) en el umbral absoluto.
+     */
+    public static boolean esStockBajo(int stockActual, int stockMinimo) {
+        return stockActual == 0
+                || (stockMinimo > 0 && stockActual < stockMinimo)
+                || (stockMinimo == 0 && stockActual <= UMBRAL_ABSOLUTO);
+    }
+
+    /**
+     * Sin stock o por debajo del 20% del mínimo.
+     */
+    public static boolean esStockCritico(int stockActual, int stockMinimo) {
+        return stockActual == 0
+                || (stockMinimo > 0 && stockActual * 5 < stockMinimo);
+    }
+
+    public static int nivelCriticidad(int stockActual, int stockMinimo) {
+        if (esStockCritico(stockActual, stockMinimo)) {
+            return CRITICIDAD_ALTA;
+        }
+        if (stockMinimo > 0 && stockActual < stockMinimo) {
+            return CRITICIDAD_MEDIA;
+        }
+        return CRITICIDAD_BAJA;
+    }
+}
@@ -0,0 +1,39 @@
+package com.ergpos.app.repository;
+
+import java.sql.Timestamp;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Acceso JDBC a catalogo_version: un contador por listado, compartido por
+ * todas las instancias de la aplicación.
+ */
+@Repository
+public class CatalogoVersionRepository {
+
+    /**
+     * Versión de un listado y el instante de su último cambio (reloj de la base).
+     */
+    public record Fila(long version, Timestamp actualizadoAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CatalogoVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Fila leer(String listado) {
+        return jdbcTemplate.queryForObject(
+                "SELECT version, actualizado_at FROM catalogo_version WHERE listado = ?",
+                (rs, i) -> new Fila(rs.getLong("version"), rs.getTimestamp("actualizado_at")),
+                listado);
+    }
+
+    // Filas afectadas: 0 si falta la fila del listado (migración 007 no aplicada)
+    public int incrementar(String listado) {
+        return jdbcTemplate.update(
+                "UPDATE catalogo_version SET version = version + 1, actualizado_at = CURRENT_TIMESTAMP WHERE listado = ?",
+                listado);
+    }
+}
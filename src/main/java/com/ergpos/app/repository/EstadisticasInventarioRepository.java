@@ -0,0 +1,73 @@
+package com.ergpos.app.repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Lectura JDBC de los datos de producto que alimentan las estadísticas de
+ * inventario (solo productos activos). Con stock fraccionado, el stock es la
+ * suma de shards, no productos.stock_actual (que se sincroniza con retraso).
+ */
+@Repository
+public class EstadisticasInventarioRepository {
+
+    /**
+     * Lo que aporta un producto activo a las estadísticas.
+     */
+    public record FilaStock(int stockActual, int stockMinimo, BigDecimal precio) {
+    }
+
+    private static final String SELECT_FILAS = """
+            SELECT p.id, p.stock_minimo, p.precio,
+                   CASE WHEN p.stock_fraccionado
+                        THEN (SELECT COALESCE(SUM(s.cantidad), 0) FROM producto_stock_shards s
+                              WHERE s.producto_id = p.id)
+                        ELSE p.stock_actual
+                   END AS stock
+            FROM productos p
+            WHERE p.activo = TRUE
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public EstadisticasInventarioRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public Map<UUID, FilaStock> cargarTodos() {
+        Map<UUID, FilaStock> filas = new HashMap<>();
+        jdbcTemplate.query(SELECT_FILAS, rs -> {
+            filas.put(rs.getObject("id", UUID.class), mapear(rs));
+        });
+        return filas;
+    }
+
+    // Los IDs ausentes del resultado son productos inactivos o eliminados
+    public Map<UUID, FilaStock> cargar(Collection<UUID> productoIds) {
+        Map<UUID, FilaStock> filas = new HashMap<>();
+        if (productoIds.isEmpty()) {
+            return filas;
+        }
+        namedJdbcTemplate.query(SELECT_FILAS + " AND p.id IN (:ids)",
+                new MapSqlParameterSource("ids", productoIds),
+                rs -> {
+                    filas.put(rs.getObject("id", UUID.class), mapear(rs));
+                });
+        return filas;
+    }
+
+    private FilaStock mapear(ResultSet rs) throws SQLException {
+        return new FilaStock(rs.getInt("stock"), rs.getInt("stock_minimo"), rs.getBigDecimal("precio"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.ergpos.app.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import com.ergpos.app.model.InventarioAudit;
+import com.ergpos.app.model.MovimientoInventario;
+
+/**
+ * Inserciones masivas de movimientos y auditoría mediante JDBC batching.
+ *
+ * Se usa JDBC directo porque InventarioAudit tiene ID IDENTITY y Hibernate
+ * desactiva el batching de inserts para ese tipo de generador. Participa en
+ * la transacción JPA activa (misma conexión).
+ */
+@Repository
+public class InventarioBatchRepository {
+
+    private static final String INSERT_MOVIMIENTO = """
+            INSERT INTO movimientos_inventario
+                (id, producto_id, tipo, cantidad, proveedor_id, usuario_id, observacion,
+                 documento_ref, costo_unitario, fecha, created_at, estado)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_AUDITORIA = """
+            INSERT INTO inventario_audit
+                (evento_tipo, tabla_nombre, registro_id, usuario_id, detalle, created_at)
+            VALUES (?, ?, ?, ?, CAST(? AS jsonb), ?)
+            """;
+
+    // Reintento desde el journal: evita duplicar registros ya escritos antes de una caída
+    private static final String INSERT_AUDITORIA_SI_NO_EXISTE = """
+            INSERT INTO inventario_audit
+                (evento_tipo, tabla_nombre, registro_id, usuario_id, detalle, created_at)
+            SELECT ?, ?, CAST(? AS uuid), CAST(? AS uuid), CAST(? AS jsonb), ?
+            WHERE NOT EXISTS (
+                SELECT 1 FROM inventario_audit
+                WHERE created_at = ? AND evento_tipo = ? AND tabla_nombre = ?
+                  AND registro_id IS NOT DISTINCT FROM CAST(? AS uuid))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public InventarioBatchRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.inventario.batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    // Los movimientos deben traer ID asignado (UUID generado en aplicación)
+    public void insertarMovimientos(List<MovimientoInventario> movimientos) {
+        if (movimientos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_MOVIMIENTO, movimientos, batchSize, (ps, m) -> {
+            ps.setObject(1, m.getId());
+            ps.setObject(2, m.getProducto().getId());
+            ps.setString(3, m.getTipo().name());
+            ps.setInt(4, m.getCantidad());
+            setUUID(ps, 5, m.getProveedor() != null ? m.getProveedor().getId() : null);
+            ps.setObject(6, m.getUsuario().getId());
+            ps.setString(7, m.getObservacion());
+            ps.setString(8, m.getDocumentoRef());
+            ps.setBigDecimal(9, m.getCostoUnitario());
+            ps.setObject(10, m.getFecha());
+            ps.setObject(11, m.getCreatedAt());
+            ps.setString(12, m.getEstado().name());
+        });
+    }
+
+    public void insertarAuditorias(List<InventarioAudit> auditorias) {
+        if (auditorias.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_AUDITORIA, auditorias, batchSize, (ps, a) -> {
+            ps.setString(1, a.getEventoTipo());
+            ps.setString(2, a.getTablaNombre());
+            setUUID(ps, 3, a.getRegistroId());
+            setUUID(ps, 4, a.getUsuarioId());
+            ps.setString(5, a.getDetalle());
+            ps.setObject(6, a.getCreatedAt());
+        });
+    }
+
+    public void insertarAuditoriasSiNoExisten(List<InventarioAudit> auditorias) {
+        if (auditorias.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_AUDITORIA_SI_NO_EXISTE, auditorias, batchSize, (ps, a) -> {
+            ps.setString(1, a.getEventoTipo());
+            ps.setString(2, a.getTablaNombre());
+            setUUID(ps, 3, a.getRegistroId());
+            setUUID(ps, 4, a.getUsuarioId());
+            ps.setString(5, a.getDetalle());
+            ps.setObject(6, a.getCreatedAt());
+            ps.setObject(7, a.getCreatedAt());
+            ps.setString(8, a.getEventoTipo());
+            ps.setString(9, a.getTablaNombre());
+            setUUID(ps, 10, a.getRegistroId());
+        });
+    }
+
+    private void setUUID(PreparedStatement ps, int index, UUID value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.OTHER);
+        } else {
+            ps.setObject(index, value);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.ergpos.app.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import com.ergpos.app.dto.movimientos.MovimientoInventarioResponseDTO;
+import com.ergpos.app.model.MovimientoInventario.EstadoMovimiento;
+import com.ergpos.app.model.MovimientoInventario.TipoMovimiento;
+
+/**
+ * Lectura JDBC en streaming de movimientos para exportación.
+ *
+ * La consulta se recorre fila a fila con un fetch size acotado: con
+ * PostgreSQL el driver usa un cursor de servidor siempre que la conexión
+ * esté dentro de una transacción (autocommit desactivado), así que la
+ * memoria no depende del número de filas. Cada fila se entrega al
+ * consumidor y se descarta.
+ */
+@Repository
+public class MovimientoExportRepository {
+
+    private static final String SELECT_MOVIMIENTOS = """
+            SELECT m.id, p.codigo, p.nombre AS producto_nombre, m.cantidad, m.tipo,
+                   pr.nombre AS proveedor_nombre, u.nombre AS usuario_nombre, m.observacion,
+                   m.documento_ref, m.costo_unitario, m.fecha, m.estado, m.created_at
+            FROM movimientos_inventario m
+            JOIN productos p ON p.id = m.producto_id
+            JOIN usuarios u ON u.id = m.usuario_id
+            LEFT JOIN proveedores pr ON pr.id = m.proveedor_id
+            WHERE m.fecha >= ? AND m.fecha <= ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MovimientoExportRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.movimientos.export.fetch-size:1000}") int fetchSize) {
+        // Plantilla propia: el fetch size no debe afectar al resto de consultas
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Recorre los movimientos del rango (más recientes primero) aplicando solo
+     * los filtros no nulos. Debe llamarse dentro de una transacción.
+     */
+    public long recorrer(
+            UUID productoId,
+            TipoMovimiento tipo,
+            EstadoMovimiento estado,
+            UUID usuarioId,
+            UUID proveedorId,
+            LocalDateTime desde,
+            LocalDateTime hasta,
+            Consumer<MovimientoInventarioResponseDTO> consumidor) {
+
+        StringBuilder sql = new StringBuilder(SELECT_MOVIMIENTOS);
+        List<Object> params = new ArrayList<>();
+        params.add(Timestamp.valueOf(desde));
+        params.add(Timestamp.valueOf(hasta));
+
+        if (productoId != null) {
+            sql.append(" AND m.producto_id = ?");
+            params.add(productoId);
+        }
+        if (tipo != null) {
+            sql.append(" AND m.tipo = ?");
+            params.add(tipo.name());
+        }
+        if (estado != null) {
+            sql.append(" AND m.estado = ?");
+            params.add(estado.name());
+        }
+        if (usuarioId != null) {
+            sql.append(" AND m.usuario_id = ?");
+            params.add(usuarioId);
+        }
+        if (proveedorId != null) {
+            sql.append(" AND m.proveedor_id = ?");
+            params.add(proveedorId);
+        }
+        sql.append(" ORDER BY m.fecha DESC, m.id DESC");
+
+        long[] filas = new long[1];
+        jdbcTemplate.query(sql.toString(), rs -> {
+            consumidor.accept(mapear(rs));
+            filas[0]++;
+        }, params.toArray());
+        return filas[0];
+    }
+
+    private MovimientoInventarioResponseDTO mapear(ResultSet rs) throws SQLException {
+        MovimientoInventarioResponseDTO dto = new MovimientoInventarioResponseDTO();
+        dto.setId(rs.getObject("id", UUID.class));
+        dto.setCodigoProducto(rs.getString("codigo"));
+        dto.setNombreProducto(rs.getString("producto_nombre"));
+        dto.setCantidad(rs.getInt("cantidad"));
+        dto.setTipo(rs.getString("tipo"));
+        dto.setProveedorNombre(rs.getString("proveedor_nombre"));
+        dto.setUsuarioNombre(rs.getString("usuario_nombre"));
+        dto.setObservacion(rs.getString("observacion"));
+        dto.setDocumentoRef(rs.getString("documento_ref"));
+        dto.setCostoUnitario(rs.getBigDecimal("costo_unitario"));
+        dto.setFecha(rs.getObject("fecha", LocalDateTime.class));
+        dto.setEstado(rs.getString("estado"));
+        dto.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        return dto;
+    }
+}
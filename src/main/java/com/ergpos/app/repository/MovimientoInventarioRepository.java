@@ -1,7 +1,10 @@
 package com.ergpos.app.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,20 +16,41 @@ import com.ergpos.app.model.MovimientoInventario.EstadoMovimiento;
 @Repository
 public interface MovimientoInventarioRepository extends JpaRepository<MovimientoInventario, UUID> {
 
-        // Búsqueda dinámica con todos los filtros
+        // Detalle de un movimiento con las relaciones del DTO en una sola consulta
         @Query("""
                         SELECT m FROM MovimientoInventario m
-                        WHERE (:productoId IS NULL OR m.producto.id = :productoId)
+                        JOIN FETCH m.producto
+                        JOIN FETCH m.usuario
+                        LEFT JOIN FETCH m.proveedor
+                        WHERE m.id = :id
+                        """)
+        Optional<MovimientoInventario> findDetalleById(@Param("id") UUID id);
+
+        // Búsqueda keyset: página de movimientos dentro de [desde, hasta] posterior al cursor
+        // (fecha, id) en orden descendente. Las relaciones usadas por el DTO se traen en la misma consulta.
+        @Query("""
+                        SELECT m FROM MovimientoInventario m
+                        JOIN FETCH m.producto p
+                        JOIN FETCH m.usuario u
+                        LEFT JOIN FETCH m.proveedor pr
+                        WHERE m.fecha >= :desde
+                        AND m.fecha <= :cursorFecha
+                        AND (m.fecha < :cursorFecha OR m.id < :cursorId)
+                        AND (:productoId IS NULL OR p.id = :productoId)
                         AND (:tipo IS NULL OR m.tipo = :tipo)
                         AND (:estado IS NULL OR m.estado = :estado)
-                        AND (:usuarioId IS NULL OR m.usuario.id = :usuarioId)
-                        AND (:proveedorId IS NULL OR m.proveedor.id = :proveedorId)
-                        ORDER BY m.fecha DESC
+                        AND (:usuarioId IS NULL OR u.id = :usuarioId)
+                        AND (:proveedorId IS NULL OR pr.id = :proveedorId)
+                        ORDER BY m.fecha DESC, m.id DESC
                         """)
-        List<MovimientoInventario> buscarMovimientos(
+        List<MovimientoInventario> buscarPagina(
                         @Param("productoId") UUID productoId,
                         @Param("tipo") TipoMovimiento tipo,
                         @Param("estado") EstadoMovimiento estado,
                         @Param("usuarioId") UUID usuarioId,
-                        @Param("proveedorId") UUID proveedorId);
+                        @Param("proveedorId") UUID proveedorId,
+                        @Param("desde") LocalDateTime desde,
+                        @Param("cursorFecha") LocalDateTime cursorFecha,
+                        @Param("cursorId") UUID cursorId,
+                        Limit limite);
 }
\ No newline at end of file
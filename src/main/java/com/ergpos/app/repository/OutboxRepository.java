@@ -0,0 +1,103 @@
+package com.ergpos.app.repository;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import com.ergpos.app.model.OutboxEvento;
+
+/**
+ * Acceso JDBC a outbox_eventos.
+ *
+ * Los eventos se reclaman con FOR UPDATE SKIP LOCKED: varios relays (hilos o
+ * instancias) pueden procesar en paralelo sin bloquearse ni repetir filas.
+ */
+@Repository
+public class OutboxRepository {
+
+    private static final String INSERT_EVENTO = """
+            INSERT INTO outbox_eventos (tipo, agregado_id, payload) VALUES (?, ?, CAST(? AS jsonb))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public OutboxRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.inventario.batch-size:100}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public void insertar(String tipo, UUID agregadoId, String payload) {
+        jdbcTemplate.update(INSERT_EVENTO, ps -> {
+            ps.setString(1, tipo);
+            if (agregadoId == null) {
+                ps.setNull(2, Types.OTHER);
+            } else {
+                ps.setObject(2, agregadoId);
+            }
+            ps.setString(3, payload);
+        });
+    }
+
+    public void insertarLote(List<OutboxEvento> eventos) {
+        if (eventos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENTO, eventos, batchSize, (ps, e) -> {
+            ps.setString(1, e.tipo());
+            if (e.agregadoId() == null) {
+                ps.setNull(2, Types.OTHER);
+            } else {
+                ps.setObject(2, e.agregadoId());
+            }
+            ps.setString(3, e.payload());
+        });
+    }
+
+    // Debe ejecutarse dentro de una transacción: los locks se mantienen hasta el commit
+    public List<OutboxEvento> reclamarPendientes(int limite, int maxIntentos) {
+        return jdbcTemplate.query("""
+                SELECT id, tipo, agregado_id, payload::text AS payload, intentos
+                FROM outbox_eventos
+                WHERE procesado_at IS NULL AND disponible_at <= NOW() AND intentos < ?
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+                """,
+                (rs, i) -> new OutboxEvento(
+                        rs.getLong("id"),
+                        rs.getString("tipo"),
+                        rs.getObject("agregado_id", UUID.class),
+                        rs.getString("payload"),
+                        rs.getInt("intentos")),
+                maxIntentos, limite);
+    }
+
+    public void marcarProcesados(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("UPDATE outbox_eventos SET procesado_at = NOW() WHERE id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+
+    // Reprograma el evento con espera creciente
+    public void marcarFallido(long id, String error, long esperaSegundos) {
+        jdbcTemplate.update("""
+                UPDATE outbox_eventos
+                SET intentos = intentos + 1, ultimo_error = ?,
+                    disponible_at = NOW() + ? * INTERVAL '1 second'
+                WHERE id = ?
+                """, error, esperaSegundos, id);
+    }
+
+    public int eliminarProcesadosAntesDe(LocalDateTime limite) {
+        return jdbcTemplate.update(
+                "DELETE FROM outbox_eventos WHERE procesado_at IS NOT NULL AND procesado_at < ?", limite);
+    }
+}
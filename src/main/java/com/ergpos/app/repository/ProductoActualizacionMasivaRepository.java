@@ -0,0 +1,190 @@
+package com.ergpos.app.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Actualización masiva de productos con sentencias SQL sobre conjuntos: el
+ * filtro, los cambios y las reglas (desactivar solo sin stock, rango de
+ * precio) se expresan en SQL en lugar de cargar cada producto.
+ *
+ * Participa en la transacción activa (misma conexión).
+ */
+@Repository
+public class ProductoActualizacionMasivaRepository {
+
+    /**
+     * Productos a modificar; los criterios presentes se combinan con AND.
+     */
+    public record Criterio(UUID categoriaId, UUID proveedorId, String prefijoCodigo, List<String> codigos) {
+    }
+
+    /**
+     * Cambios a aplicar; null = sin cambio. precio y porcentajePrecio son excluyentes.
+     */
+    public record Cambios(BigDecimal precio, BigDecimal porcentajePrecio, Integer stockMinimo, Boolean activo) {
+    }
+
+    public record Impacto(long afectados, long omitidosConStock, long bajoMinimo, long preciosFueraDeRango) {
+    }
+
+    // Stock real: con stock fraccionado, la suma de shards
+    private static final String STOCK_REAL = """
+            CASE WHEN p.stock_fraccionado
+                 THEN (SELECT COALESCE(SUM(s.cantidad), 0) FROM producto_stock_shards s WHERE s.producto_id = p.id)
+                 ELSE p.stock_actual
+            END""";
+
+    private static final String PRECIO_MAXIMO = "1000000";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public ProductoActualizacionMasivaRepository(JdbcTemplate jdbcTemplate) {
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public Impacto calcularImpacto(Criterio criterio, Cambios cambios) {
+        MapSqlParameterSource params = parametros(criterio, cambios);
+        String aplica = "(" + cambia(cambios) + ") AND NOT (" + bloqueado(cambios, STOCK_REAL) + ")";
+        String nuevoPrecio = nuevoPrecio(cambios);
+
+        String sql = "SELECT"
+                + " COUNT(*) FILTER (WHERE " + aplica + ") AS afectados,"
+                + " COUNT(*) FILTER (WHERE " + bloqueado(cambios, STOCK_REAL) + ") AS omitidos,"
+                + " COUNT(*) FILTER (WHERE " + aplica + " AND " + STOCK_REAL + " < " + nuevoMinimo(cambios)
+                + ") AS bajo_minimo,"
+                + " COUNT(*) FILTER (WHERE " + aplica + " AND (" + nuevoPrecio + " <= 0 OR " + nuevoPrecio
+                + " > " + PRECIO_MAXIMO + ")) AS precios_fuera"
+                + " FROM productos p WHERE " + where(criterio);
+
+        return namedJdbcTemplate.queryForObject(sql, params, (rs, i) -> new Impacto(
+                rs.getLong("afectados"),
+                rs.getLong("omitidos"),
+                rs.getLong("bajo_minimo"),
+                rs.getLong("precios_fuera")));
+    }
+
+    /**
+     * Bloquea las filas del filtro en orden de id (mismo orden que los lotes de
+     * movimientos), para que el cálculo de impacto y el UPDATE vean lo mismo.
+     */
+    public void bloquear(Criterio criterio) {
+        namedJdbcTemplate.query("SELECT p.id FROM productos p WHERE " + where(criterio) + " ORDER BY p.id FOR UPDATE",
+                parametros(criterio, null), rs -> {
+                });
+    }
+
+    // Un solo UPDATE; devuelve los IDs modificados
+    public List<UUID> aplicar(Criterio criterio, Cambios cambios) {
+        MapSqlParameterSource params = parametros(criterio, cambios);
+        params.addValue("ahora", LocalDateTime.now());
+
+        String sql = "UPDATE productos p SET"
+                + " precio = " + nuevoPrecio(cambios) + ","
+                + " stock_minimo = " + nuevoMinimo(cambios) + ","
+                + " activo = " + (cambios.activo() != null ? ":activo" : "p.activo") + ","
+                + " updated_at = :ahora, version = p.version + 1"
+                + " WHERE " + where(criterio)
+                + " AND (" + cambia(cambios) + ") AND NOT (" + bloqueado(cambios, STOCK_REAL) + ")"
+                + " RETURNING p.id";
+
+        List<UUID> ids = new ArrayList<>();
+        namedJdbcTemplate.query(sql, params, rs -> {
+            ids.add(rs.getObject("id", UUID.class));
+        });
+        return ids;
+    }
+
+    public Set<String> codigosExistentes(Collection<String> codigos) {
+        if (codigos.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT codigo FROM productos WHERE codigo IN (:codigos)",
+                new MapSqlParameterSource("codigos", codigos), String.class));
+    }
+
+    private static String where(Criterio criterio) {
+        List<String> condiciones = new ArrayList<>();
+        if (criterio.categoriaId() != null) {
+            condiciones.add("p.categoria_id = :categoriaId");
+        }
+        if (criterio.proveedorId() != null) {
+            condiciones.add("p.id IN (SELECT m.producto_id FROM movimientos_inventario m"
+                    + " WHERE m.proveedor_id = :proveedorId AND m.tipo = 'ENTRADA')");
+        }
+        if (criterio.prefijoCodigo() != null) {
+            condiciones.add("p.codigo LIKE :prefijo ESCAPE '\\'");
+        }
+        if (criterio.codigos() != null) {
+            condiciones.add("p.codigo IN (:codigos)");
+        }
+        return String.join(" AND ", condiciones);
+    }
+
+    private static String nuevoPrecio(Cambios cambios) {
+        if (cambios.precio() != null) {
+            return "CAST(:precio AS numeric)";
+        }
+        if (cambios.porcentajePrecio() != null) {
+            return "ROUND(p.precio * (100 + CAST(:porcentaje AS numeric)) / 100, 2)";
+        }
+        return "p.precio";
+    }
+
+    private static String nuevoMinimo(Cambios cambios) {
+        return cambios.stockMinimo() != null ? ":stockMinimo" : "p.stock_minimo";
+    }
+
+    // Alguno de los campos a cambiar tiene un valor distinto
+    private static String cambia(Cambios cambios) {
+        List<String> diferencias = new ArrayList<>();
+        if (cambios.precio() != null || cambios.porcentajePrecio() != null) {
+            diferencias.add("p.precio <> " + nuevoPrecio(cambios));
+        }
+        if (cambios.stockMinimo() != null) {
+            diferencias.add("p.stock_minimo <> :stockMinimo");
+        }
+        if (cambios.activo() != null) {
+            diferencias.add("p.activo <> :activo");
+        }
+        return String.join(" OR ", diferencias);
+    }
+
+    // Como en ProductoService.desactivar: un producto con stock no se desactiva
+    private static String bloqueado(Cambios cambios, String stock) {
+        if (Boolean.FALSE.equals(cambios.activo())) {
+            return "p.activo AND " + stock + " > 0";
+        }
+        return "FALSE";
+    }
+
+    private static MapSqlParameterSource parametros(Criterio criterio, Cambios cambios) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        params.addValue("categoriaId", criterio.categoriaId());
+        params.addValue("proveedorId", criterio.proveedorId());
+        if (criterio.prefijoCodigo() != null) {
+            String escapado = criterio.prefijoCodigo()
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            params.addValue("prefijo", escapado + "%");
+        }
+        params.addValue("codigos", criterio.codigos());
+        if (cambios != null) {
+            params.addValue("precio", cambios.precio());
+            params.addValue("porcentaje", cambios.porcentajePrecio());
+            params.addValue("stockMinimo", cambios.stockMinimo());
+            params.addValue("activo", cambios.activo());
+        }
+        return params;
+    }
+}
@@ -0,0 +1,176 @@
+package com.ergpos.app.repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Acceso JDBC de la importación masiva de productos: catálogos de apoyo
+ * cargados una sola vez e inserciones/actualizaciones en batch.
+ *
+ * Participa en la transacción activa (misma conexión).
+ */
+@Repository
+public class ProductoImportRepository {
+
+    /**
+     * Producto validado, listo para escribir. descripcion, stockMinimo y
+     * stockActual son null si el archivo no los trae: al insertar quedan
+     * vacío/0 y al actualizar se conserva el valor actual.
+     */
+    public record Fila(UUID id, String codigo, String nombre, String descripcion, UUID categoriaId,
+            BigDecimal precio, Integer stockMinimo, Integer stockActual, String unidadMedida) {
+
+        public Fila conId(UUID otroId) {
+            return new Fila(otroId, codigo, nombre, descripcion, categoriaId, precio, stockMinimo, stockActual,
+                    unidadMedida);
+        }
+    }
+
+    public record CategoriaRef(UUID id, boolean activo) {
+    }
+
+    public record Existente(UUID id, boolean stockFraccionado, int stockMinimo, int stockActual) {
+    }
+
+    // Un código creado en paralelo por otra petición no se sobrescribe
+    private static final String INSERT_PRODUCTO = """
+            INSERT INTO productos
+                (id, codigo, nombre, descripcion, categoria_id, precio, stock_minimo, stock_actual,
+                 unidad_medida, activo, stock_fraccionado, created_at, updated_at, version)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, TRUE, FALSE, ?, ?, 0)
+            ON CONFLICT (codigo) DO NOTHING
+            """;
+
+    // Con stock fraccionado el stock vive en los shards: la fila no se toca.
+    // Los valores que no vienen en el archivo (null) conservan el actual
+    private static final String UPDATE_PRODUCTO = """
+            UPDATE productos
+            SET nombre = ?, descripcion = COALESCE(?, descripcion), categoria_id = ?, precio = ?,
+                stock_minimo = COALESCE(?, stock_minimo),
+                stock_actual = CASE WHEN stock_fraccionado THEN stock_actual ELSE COALESCE(?, stock_actual) END,
+                unidad_medida = ?, updated_at = ?, version = version + 1
+            WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final int batchSize;
+
+    public ProductoImportRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.productos.importacion.lote:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.batchSize = batchSize;
+    }
+
+    // Clave: código en minúsculas (la búsqueda de categoría no distingue mayúsculas)
+    public Map<String, CategoriaRef> cargarCategorias() {
+        Map<String, CategoriaRef> categorias = new HashMap<>();
+        jdbcTemplate.query("SELECT id, codigo, activo FROM categorias WHERE codigo IS NOT NULL", rs -> {
+            categorias.put(rs.getString("codigo").toLowerCase(),
+                    new CategoriaRef(rs.getObject("id", UUID.class), rs.getBoolean("activo")));
+        });
+        return categorias;
+    }
+
+    public Set<String> cargarNombresProveedores() {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT LOWER(nombre) FROM proveedores", String.class));
+    }
+
+    public Map<String, Existente> buscarExistentes(Collection<String> codigos) {
+        Map<String, Existente> existentes = new HashMap<>();
+        if (codigos.isEmpty()) {
+            return existentes;
+        }
+        namedJdbcTemplate.query("""
+                SELECT id, codigo, stock_fraccionado, stock_minimo, stock_actual
+                FROM productos WHERE codigo IN (:codigos)
+                """,
+                new MapSqlParameterSource("codigos", codigos),
+                rs -> {
+                    existentes.put(rs.getString("codigo"), new Existente(
+                            rs.getObject("id", UUID.class),
+                            rs.getBoolean("stock_fraccionado"),
+                            rs.getInt("stock_minimo"),
+                            rs.getInt("stock_actual")));
+                });
+        return existentes;
+    }
+
+    // De los IDs dados, los que existen (para saber qué inserciones se omitieron por conflicto)
+    public Set<UUID> buscarIds(Collection<UUID> ids) {
+        Set<UUID> encontrados = new HashSet<>();
+        if (ids.isEmpty()) {
+            return encontrados;
+        }
+        namedJdbcTemplate.query("SELECT id FROM productos WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    encontrados.add(rs.getObject("id", UUID.class));
+                });
+        return encontrados;
+    }
+
+    public void insertar(List<Fila> filas) {
+        if (filas.isEmpty()) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_PRODUCTO, filas, batchSize, (ps, f) -> {
+            ps.setObject(1, f.id());
+            ps.setString(2, f.codigo());
+            ps.setString(3, f.nombre());
+            ps.setString(4, f.descripcion());
+            setUUID(ps, 5, f.categoriaId());
+            ps.setBigDecimal(6, f.precio());
+            ps.setInt(7, f.stockMinimo() != null ? f.stockMinimo() : 0);
+            ps.setInt(8, f.stockActual() != null ? f.stockActual() : 0);
+            ps.setString(9, f.unidadMedida());
+            ps.setObject(10, ahora);
+            ps.setObject(11, ahora);
+        });
+    }
+
+    // Fila.id es el ID del producto existente
+    public void actualizar(List<Fila> filas) {
+        if (filas.isEmpty()) {
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(UPDATE_PRODUCTO, filas, batchSize, (ps, f) -> {
+            ps.setString(1, f.nombre());
+            ps.setString(2, f.descripcion());
+            setUUID(ps, 3, f.categoriaId());
+            ps.setBigDecimal(4, f.precio());
+            ps.setObject(5, f.stockMinimo(), Types.INTEGER);
+            ps.setObject(6, f.stockActual(), Types.INTEGER);
+            ps.setString(7, f.unidadMedida());
+            ps.setObject(8, ahora);
+            ps.setObject(9, f.id());
+        });
+    }
+
+    private void setUUID(PreparedStatement ps, int index, UUID value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.OTHER);
+        } else {
+            ps.setObject(index, value);
+        }
+    }
+}
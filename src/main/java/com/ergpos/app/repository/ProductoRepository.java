@@ -2,21 +2,38 @@ package com.ergpos.app.repository;
 
 import com.ergpos.app.model.Producto;
 import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, UUID>, JpaSpecificationExecutor<Producto> {
 
+        // Lecturas que terminan en DTO: la categoría se trae en la misma consulta (evita 1+N)
+        @EntityGraph(attributePaths = "categoria")
         Optional<Producto> findByCodigo(String codigo);
 
+        @Override
+        @EntityGraph(attributePaths = "categoria")
+        List<Producto> findAll();
+
+        @Override
+        @EntityGraph(attributePaths = "categoria")
+        Page<Producto> findAll(Specification<Producto> spec, Pageable pageable);
+
         boolean existsByCodigo(String codigo);
 
         @Query("SELECT p FROM Producto p WHERE p.id = :id")
@@ -26,4 +43,92 @@ public interface ProductoRepository extends JpaRepository<Producto, UUID>, JpaSp
         @Query("SELECT p FROM Producto p WHERE p.codigo = :codigo")
         @Lock(LockModeType.PESSIMISTIC_WRITE)
         Optional<Producto> findByCodigoWithLock(@Param("codigo") String codigo);
-}
\ No newline at end of file
+
+        // Bloquea varios productos en orden de id para evitar deadlocks entre lotes concurrentes
+        @Query("SELECT p FROM Producto p WHERE p.codigo IN :codigos ORDER BY p.id")
+        @Lock(LockModeType.PESSIMISTIC_WRITE)
+        List<Producto> findAllByCodigoInWithLock(@Param("codigos") Collection<String> codigos);
+
+        // Verificación de stock de varios productos: sin categoría, no se usa en la respuesta
+        List<Producto> findAllByCodigoIn(Collection<String> codigos);
+
+        // Descuento condicional: solo afecta la fila si hay stock suficiente (0 filas = insuficiente)
+        @Modifying(flushAutomatically = true)
+        @Query("""
+                        UPDATE Producto p
+                        SET p.stockActual = p.stockActual - :cantidad, p.updatedAt = CURRENT_TIMESTAMP,
+                            p.version = p.version + 1
+                        WHERE p.id = :id AND p.stockActual >= :cantidad
+                        """)
+        int descontarStock(@Param("id") UUID id, @Param("cantidad") int cantidad);
+
+        // Igual, pero deja intacta la cantidad retenida por reservas de otros carritos
+        @Modifying(flushAutomatically = true)
+        @Query("""
+                        UPDATE Producto p
+                        SET p.stockActual = p.stockActual - :cantidad, p.updatedAt = CURRENT_TIMESTAMP,
+                            p.version = p.version + 1
+                        WHERE p.id = :id AND p.stockActual - :reservado >= :cantidad
+                        """)
+        int descontarStockLibre(@Param("id") UUID id, @Param("cantidad") int cantidad,
+                        @Param("reservado") int reservado);
+
+        @Modifying(flushAutomatically = true)
+        @Query("""
+                        UPDATE Producto p
+                        SET p.stockActual = p.stockActual + :cantidad, p.updatedAt = CURRENT_TIMESTAMP,
+                            p.version = p.version + 1
+                        WHERE p.id = :id
+                        """)
+        int incrementarStock(@Param("id") UUID id, @Param("cantidad") int cantidad);
+
+        @Query("SELECT p.stockActual FROM Producto p WHERE p.id = :id")
+        Integer obtenerStockActual(@Param("id") UUID id);
+
+        // Reportes de stock bajo: filtro y orden sobre las columnas generadas stock_bajo y
+        // nivel_criticidad (ver ReglasStock), cubiertos por el índice parcial idx_productos_stock_bajo
+        @EntityGraph(attributePaths = "categoria")
+        @Query(value = """
+                        SELECT p FROM Producto p
+                        WHERE p.activo = true AND p.stockBajo = true
+                        ORDER BY p.nivelCriticidad DESC, p.codigo
+                        """, countQuery = "SELECT COUNT(p) FROM Producto p WHERE p.activo = true AND p.stockBajo = true")
+        Page<Producto> findStockBajo(Pageable pageable);
+
+        @EntityGraph(attributePaths = "categoria")
+        @Query("""
+                        SELECT p FROM Producto p
+                        WHERE p.activo = true AND p.stockBajo = true
+                        ORDER BY p.nivelCriticidad DESC, p.codigo
+                        """)
+        List<Producto> findStockBajo();
+
+        // Críticos: nivel 3 (implica stock bajo; se repite la condición de los índices parciales)
+        // Índice idx_productos_stock_critico: página y COUNT sin recorrer el catálogo
+        @EntityGraph(attributePaths = "categoria")
+        @Query(value = """
+                        SELECT p FROM Producto p
+                        WHERE p.activo = true AND p.stockBajo = true AND p.nivelCriticidad = 3
+                        ORDER BY p.codigo
+                        """, countQuery = """
+                        SELECT COUNT(p) FROM Producto p
+                        WHERE p.activo = true AND p.stockBajo = true AND p.nivelCriticidad = 3
+                        """)
+        Page<Producto> findStockCritico(Pageable pageable);
+
+        // Productos activos por nombre de categoría: [nombre, total]
+        @Query("""
+                        SELECT COALESCE(c.nombre, 'Sin Categoría'), COUNT(p)
+                        FROM Producto p LEFT JOIN p.categoria c
+                        WHERE p.activo = true
+                        GROUP BY c.nombre
+                        """)
+        List<Object[]> contarActivosPorCategoria();
+
+        // Permite decidir la estrategia de lock sin cargar la entidad
+        @Query("SELECT COUNT(p) > 0 FROM Producto p WHERE p.codigo = :codigo AND p.stockFraccionado = true")
+        boolean esStockFraccionado(@Param("codigo") String codigo);
+
+        @Query("SELECT COUNT(p) > 0 FROM Producto p WHERE p.id = :id AND p.stockFraccionado = true")
+        boolean esStockFraccionado(@Param("id") UUID id);
+}
@@ -0,0 +1,125 @@
+package com.ergpos.app.repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Acceso JDBC a producto_stock_shards.
+ *
+ * Cada producto con stock fraccionado tiene N filas (shards) cuya suma es el
+ * stock real. Los descuentos se hacen con UPDATE condicional sobre un solo
+ * shard, de modo que terminales concurrentes bloquean filas distintas.
+ */
+@Repository
+public class StockShardRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public StockShardRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public int contarShards(UUID productoId) {
+        Integer total = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM producto_stock_shards WHERE producto_id = ?",
+                Integer.class, productoId);
+        return total != null ? total : 0;
+    }
+
+    // Descuento condicional: false si el shard no tiene cantidad suficiente
+    public boolean descontar(UUID productoId, int shard, int cantidad) {
+        return jdbcTemplate.update("""
+                UPDATE producto_stock_shards SET cantidad = cantidad - ?
+                WHERE producto_id = ? AND shard = ? AND cantidad >= ?
+                """, cantidad, productoId, shard, cantidad) > 0;
+    }
+
+    // Filas afectadas: 0 si el shard no existe (número de shards cambiado o stock ya no fraccionado)
+    public int incrementar(UUID productoId, int shard, int cantidad) {
+        return jdbcTemplate.update(
+                "UPDATE producto_stock_shards SET cantidad = cantidad + ? WHERE producto_id = ? AND shard = ?",
+                cantidad, productoId, shard);
+    }
+
+    public int sumar(UUID productoId) {
+        Integer total = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(cantidad), 0) FROM producto_stock_shards WHERE producto_id = ?",
+                Integer.class, productoId);
+        return total != null ? total : 0;
+    }
+
+    public Map<UUID, Integer> sumar(Collection<UUID> productoIds) {
+        Map<UUID, Integer> totales = new HashMap<>();
+        if (productoIds.isEmpty()) {
+            return totales;
+        }
+        namedJdbcTemplate.query("""
+                SELECT producto_id, SUM(cantidad) AS total FROM producto_stock_shards
+                WHERE producto_id IN (:ids) GROUP BY producto_id
+                """,
+                new MapSqlParameterSource("ids", productoIds),
+                rs -> {
+                    totales.put(rs.getObject("producto_id", UUID.class), rs.getInt("total"));
+                });
+        return totales;
+    }
+
+    // Bloquea todos los shards del producto en orden; el índice de la lista es el número de shard
+    public List<Integer> bloquearShards(UUID productoId) {
+        return jdbcTemplate.queryForList("""
+                SELECT cantidad FROM producto_stock_shards
+                WHERE producto_id = ? ORDER BY shard FOR UPDATE
+                """, Integer.class, productoId);
+    }
+
+    // Reemplaza los shards del producto por las cantidades indicadas
+    public void reemplazar(UUID productoId, int[] cantidades) {
+        eliminar(productoId);
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO producto_stock_shards (producto_id, shard, cantidad) VALUES (?, ?, ?)",
+                IntStream.range(0, cantidades.length).boxed().toList(),
+                cantidades.length,
+                (ps, shard) -> {
+                    ps.setObject(1, productoId);
+                    ps.setInt(2, shard);
+                    ps.setInt(3, cantidades[shard]);
+                });
+    }
+
+    // Actualiza en sitio: los UPDATE concurrentes en espera re-evalúan sobre la nueva versión de la fila
+    public void actualizar(UUID productoId, int[] cantidades) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE producto_stock_shards SET cantidad = ? WHERE producto_id = ? AND shard = ?",
+                IntStream.range(0, cantidades.length).boxed().toList(),
+                cantidades.length,
+                (ps, shard) -> {
+                    ps.setInt(1, cantidades[shard]);
+                    ps.setObject(2, productoId);
+                    ps.setInt(3, shard);
+                });
+    }
+
+    public void eliminar(UUID productoId) {
+        jdbcTemplate.update("DELETE FROM producto_stock_shards WHERE producto_id = ?", productoId);
+    }
+
+    // Copia la suma de shards a productos.stock_actual (solo filas desactualizadas)
+    public int sincronizarStockActual() {
+        return jdbcTemplate.update("""
+                UPDATE productos p SET stock_actual = s.total
+                FROM (SELECT producto_id, SUM(cantidad) AS total
+                      FROM producto_stock_shards GROUP BY producto_id) s
+                WHERE p.id = s.producto_id AND p.stock_fraccionado AND p.stock_actual <> s.total
+                """);
+    }
+}
@@ -3,10 +3,13 @@ package com.ergpos.app.repository;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import com.ergpos.app.model.Usuario;
 
 @Repository
@@ -15,9 +18,10 @@ public interface UsuarioRepository extends JpaRepository<Usuario, UUID> {
     // Búsqueda dinámica
     @Query("""
             SELECT u FROM Usuario u
+            JOIN FETCH u.rol r
             WHERE (:nombre IS NULL OR :nombre = '' OR LOWER(u.nombre) LIKE LOWER(CONCAT('%', :nombre, '%')))
             AND (:email IS NULL OR :email = '' OR LOWER(u.email) LIKE LOWER(CONCAT('%', :email, '%')))
-            AND (:rolNombre IS NULL OR :rolNombre = '' OR LOWER(u.rol.nombre) LIKE LOWER(CONCAT('%', :rolNombre, '%')))
+            AND (:rolNombre IS NULL OR :rolNombre = '' OR LOWER(r.nombre) LIKE LOWER(CONCAT('%', :rolNombre, '%')))
             AND (:activo IS NULL OR u.activo = :activo)
             ORDER BY u.nombre ASC
             """)
@@ -27,9 +31,11 @@ public interface UsuarioRepository extends JpaRepository<Usuario, UUID> {
             @Param("rolNombre") String rolNombre,
             @Param("activo") Boolean activo);
 
-    // Búsquedas por campos únicos
+    // Búsquedas por campos únicos (el rol se usa en autenticación y en el DTO)
+    @EntityGraph(attributePaths = "rol")
     Optional<Usuario> findByEmailIgnoreCase(String email);
 
+    @EntityGraph(attributePaths = "rol")
     Optional<Usuario> findByCodigo(String codigo);
 
     // Validaciones de existencia
@@ -45,4 +51,13 @@ public interface UsuarioRepository extends JpaRepository<Usuario, UUID> {
     long countByActivoTrue();
 
     long countByActivoFalse();
+
+    // Rehash condicional: no pisa una contraseña cambiada entre tanto (0 filas = cambió)
+    @Transactional
+    @Modifying
+    @Query("UPDATE Usuario u SET u.passwordHash = :nuevo WHERE u.id = :id AND u.passwordHash = :anterior")
+    int actualizarPasswordHash(
+            @Param("id") UUID id,
+            @Param("anterior") String anterior,
+            @Param("nuevo") String nuevo);
 }
\ No newline at end of file
@@ -3,31 +3,70 @@ package com.ergpos.app.security;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 
 import javax.crypto.SecretKey;
 import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Emisión y verificación de JWT.
+ *
+ * Un único parser inmutable (thread-safe) para toda la aplicación. Los
+ * tokens verificados se recuerdan por su digest SHA-256 hasta su
+ * expiración, de modo que la firma HMAC y la decodificación Base64/JSON se
+ * hacen una sola vez por token; los inválidos o expirados no se cachean.
+ * Dentro de una petición, los claims quedan en el atributo ATRIBUTO_CLAIMS.
+ *
+ * Los Claims devueltos son compartidos: no deben modificarse.
+ */
 @Component
 public class JwtUtils {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-    @Value("${app.jwt.secret}")
-    private String jwtSecret;
+    // Claims verificados de la petición en curso (ver claimsDePeticion)
+    public static final String ATRIBUTO_CLAIMS = JwtUtils.class.getName() + ".claims";
+    private static final String PREFIJO_BEARER = "Bearer ";
 
-    @Value("${app.jwt.expiration-ms:86400000}") // 24 horas por defecto
-    private int jwtExpirationMs;
+    private final String jwtSecret;
+    private final int jwtExpirationMs;
+    private final long maxTokensCacheados;
+    private final MeterRegistry meterRegistry;
 
     private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, Claims> verificados;
+
+    public JwtUtils(
+            @Value("${app.jwt.secret}") String jwtSecret,
+            @Value("${app.jwt.expiration-ms:86400000}") int jwtExpirationMs, // 24 horas por defecto
+            @Value("${app.jwt.cache.max-entradas:10000}") long maxTokensCacheados,
+            MeterRegistry meterRegistry) {
+        this.jwtSecret = jwtSecret;
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.maxTokensCacheados = maxTokensCacheados;
+        this.meterRegistry = meterRegistry;
+    }
 
     @PostConstruct
     public void init() {
@@ -38,6 +77,17 @@ public class JwtUtils {
                             "Configura la variable APP_JWT_SECRET en el entorno.");
         }
         this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        // Cada entrada vence con su token
+        this.verificados = Caffeine.newBuilder()
+                .maximumSize(maxTokensCacheados)
+                .expireAfter(Expiry.creating((String digest, Claims claims) -> Duration.ofMillis(
+                        Math.max(0, claims.getExpiration().getTime() - System.currentTimeMillis()))))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verificados, "jwt");
         logger.info("JwtUtils inicializado correctamente");
     }
 
@@ -66,27 +116,58 @@ public class JwtUtils {
                 .compact();
     }
 
-    public String getUserNameFromJwtToken(String token) {
-        try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(signingKey)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
-        } catch (ExpiredJwtException e) {
-            logger.warn("Token expirado, pero aún se puede extraer el username");
-            return e.getClaims().getSubject();
+    /**
+     * Claims del token Bearer de la petición, verificados una sola vez por
+     * petición (el resultado queda en ATRIBUTO_CLAIMS).
+     *
+     * @return Claims verificados, o null si no hay token o no es válido
+     */
+    public Claims claimsDePeticion(HttpServletRequest request) {
+        Object guardados = request.getAttribute(ATRIBUTO_CLAIMS);
+        if (guardados instanceof Claims claims) {
+            return claims;
+        }
+
+        String headerAuth = request.getHeader("Authorization");
+        if (!StringUtils.hasText(headerAuth) || !headerAuth.startsWith(PREFIJO_BEARER)) {
+            return null;
+        }
+
+        Claims claims = verificar(headerAuth.substring(PREFIJO_BEARER.length()));
+        if (claims != null) {
+            request.setAttribute(ATRIBUTO_CLAIMS, claims);
         }
+        return claims;
     }
 
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Verifica firma y expiración de un token.
+     *
+     * @return Claims verificados, o null si el token no es válido o expiró
+     */
+    public Claims verificar(String token) {
+        if (!StringUtils.hasText(token)) {
+            logger.error("JWT claims string está vacío");
+            return null;
+        }
+
+        String digest = digest(token);
+        Claims cacheados = verificados.getIfPresent(digest);
+        if (cacheados != null) {
+            // La entrada puede sobrevivir unos instantes a su vencimiento
+            if (cacheados.getExpiration().getTime() > System.currentTimeMillis()) {
+                return cacheados;
+            }
+            logger.error("Token JWT expirado: {}", cacheados.getExpiration());
+            return null;
+        }
+
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(signingKey)
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getExpiration() != null) {
+                verificados.put(digest, claims);
+            }
+            return claims;
         } catch (SignatureException e) {
             logger.error("Firma JWT inválida: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -98,54 +179,65 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string está vacío: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
 
-    public List<String> getRolesFromToken(String token) {
+    public String getUserNameFromJwtToken(String token) {
+        Claims claims = verificar(token);
+        if (claims != null) {
+            return claims.getSubject();
+        }
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(signingKey)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            return claims.get("roles", List.class);
-        } catch (Exception e) {
-            logger.error("Error al extraer roles del token: {}", e.getMessage());
+            return parser.parseClaimsJws(token).getBody().getSubject();
+        } catch (ExpiredJwtException e) {
+            logger.warn("Token expirado, pero aún se puede extraer el username");
+            return e.getClaims().getSubject();
+        }
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return verificar(authToken) != null;
+    }
+
+    public List<String> getRolesFromToken(String token) {
+        Claims claims = verificar(token);
+        if (claims == null) {
+            logger.error("Error al extraer roles del token: token inválido");
             return List.of();
         }
+        List<?> roles = claims.get("roles", List.class);
+        return roles != null ? roles.stream().map(String::valueOf).collect(Collectors.toList()) : List.of();
     }
 
     public boolean isTokenExpiringSoon(String token, int minutesThreshold) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(signingKey)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            Date expiration = claims.getExpiration();
-            long timeUntilExpiration = expiration.getTime() - System.currentTimeMillis();
-
-            return timeUntilExpiration <= (minutesThreshold * 60 * 1000);
-        } catch (Exception e) {
-            logger.error("Error al verificar expiración del token: {}", e.getMessage());
+        Claims claims = verificar(token);
+        if (claims == null) {
+            logger.error("Error al verificar expiración del token: token inválido");
             return true;
         }
+
+        Date expiration = claims.getExpiration();
+        long timeUntilExpiration = expiration.getTime() - System.currentTimeMillis();
+
+        return timeUntilExpiration <= (minutesThreshold * 60 * 1000);
     }
 
     public Date getExpirationDateFromToken(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(signingKey)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            return claims.getExpiration();
-        } catch (Exception e) {
-            logger.error("Error al obtener fecha de expiración: {}", e.getMessage());
+        Claims claims = verificar(token);
+        if (claims == null) {
+            logger.error("Error al obtener fecha de expiración: token inválido");
             return null;
         }
+        return claims.getExpiration();
+    }
+
+    // Clave de la caché: no se retienen los tokens en claro
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,251 @@
+package com.ergpos.app.security;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import com.ergpos.app.dto.auth.ErrorResponseDTO;
+import com.ergpos.app.util.LimitadorTasa;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Límites de tráfico para las peticiones autenticadas de /api.
+ *
+ * Cada petición se clasifica (reportes, stock, escrituras, lecturas) y pasa
+ * por dos controles:
+ * - Tasa por usuario y clase (token bucket, LimitadorTasa): excedida, 429
+ * con Retry-After.
+ * - Compartimento (bulkhead) por clase: máximo de peticiones en curso; lleno,
+ * 503 inmediato. Así una tormenta de reportes no agota el pool de
+ * conexiones que necesitan las ventas.
+ *
+ * Las respuestas en streaming (asíncronas) retienen su lugar hasta terminar.
+ * /api/auth tiene su propio límite (LoginAttemptService); las peticiones
+ * sin autenticar siguen de largo y las rechaza la autorización.
+ *
+ * Métricas: ergpos.limites.rechazos (tags clase, motivo=tasa|concurrencia)
+ * y ergpos.limites.en-curso (tag clase).
+ */
+@Component
+public class LimiteTraficoFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(LimiteTraficoFilter.class);
+
+    /**
+     * Clases de ruta, con sus valores por defecto (app.limites.&lt;clave&gt;.*).
+     */
+    public enum ClaseRuta {
+        // Reportes, auditoría, exportaciones y operaciones masivas
+        REPORTES("reportes", 30, 10, 4),
+        // Movimientos, reservas y ajustes de stock (flujo de venta)
+        STOCK("stock", 600, 60, 16),
+        ESCRITURAS("escrituras", 300, 30, 8),
+        LECTURAS("lecturas", 1200, 100, 24);
+
+        private final String clave;
+        private final int porMinuto;
+        private final int rafaga;
+        private final int concurrentes;
+
+        ClaseRuta(String clave, int porMinuto, int rafaga, int concurrentes) {
+            this.clave = clave;
+            this.porMinuto = porMinuto;
+            this.rafaga = rafaga;
+            this.concurrentes = concurrentes;
+        }
+
+        public String getClave() {
+            return clave;
+        }
+    }
+
+    private record Limite(LimitadorTasa tasa, Semaphore enCurso, Counter rechazosTasa,
+            Counter rechazosConcurrencia) {
+    }
+
+    private final boolean habilitado;
+    private final Map<ClaseRuta, Limite> limites = new EnumMap<>(ClaseRuta.class);
+    private final ObjectMapper objectMapper;
+
+    public LimiteTraficoFilter(Environment entorno, MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.habilitado = entorno.getProperty("app.limites.habilitado", Boolean.class, true);
+        int capacidad = entorno.getProperty("app.limites.capacidad", Integer.class, 16384);
+        long ahora = System.currentTimeMillis();
+
+        for (ClaseRuta clase : ClaseRuta.values()) {
+            String prefijo = "app.limites." + clase.clave + ".";
+            int porMinuto = entorno.getProperty(prefijo + "por-minuto", Integer.class, clase.porMinuto);
+            int rafaga = entorno.getProperty(prefijo + "rafaga", Integer.class, clase.rafaga);
+            int concurrentes = entorno.getProperty(prefijo + "concurrentes", Integer.class, clase.concurrentes);
+            if (porMinuto <= 0 || rafaga <= 0 || concurrentes <= 0) {
+                throw new IllegalStateException("Los límites de " + prefijo + "* deben ser mayores a 0");
+            }
+
+            // Token bucket: rafaga fichas, repuestas a porMinuto por minuto
+            long ventanaMs = TimeUnit.MINUTES.toMillis(1) * rafaga / porMinuto;
+            Semaphore enCurso = new Semaphore(concurrentes);
+            Limite limite = new Limite(
+                    new LimitadorTasa(rafaga, Math.max(ventanaMs, rafaga), capacidad, ahora),
+                    enCurso,
+                    rechazos(meterRegistry, clase, "tasa"),
+                    rechazos(meterRegistry, clase, "concurrencia"));
+            limites.put(clase, limite);
+
+            Gauge.builder("ergpos.limites.en-curso", enCurso, s -> concurrentes - s.availablePermits())
+                    .description("Peticiones en curso por clase de ruta")
+                    .tag("clase", clase.clave)
+                    .register(meterRegistry);
+        }
+    }
+
+    private static Counter rechazos(MeterRegistry meterRegistry, ClaseRuta clase, String motivo) {
+        return Counter.builder("ergpos.limites.rechazos")
+                .description("Peticiones rechazadas por límite de tasa (429) o de concurrencia (503)")
+                .tag("clase", clase.clave)
+                .tag("motivo", motivo)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String ruta = ruta(request);
+        return !habilitado
+                || "OPTIONS".equals(request.getMethod())
+                || !ruta.startsWith("/api/")
+                || ruta.startsWith("/api/auth/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacion == null || !autenticacion.isAuthenticated()
+                || autenticacion instanceof AnonymousAuthenticationToken) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ClaseRuta clase = clasificar(request.getMethod(), ruta(request));
+        Limite limite = limites.get(clase);
+        String usuario = autenticacion.getName();
+        long ahora = System.currentTimeMillis();
+
+        if (!limite.tasa().registrar(usuario, ahora)) {
+            limite.rechazosTasa().increment();
+            long esperaSegundos = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(limite.tasa().espera(usuario, ahora) + 999));
+            log.warn("Límite de tasa excedido - Usuario: {} - Clase: {} - {} {}", usuario, clase.clave,
+                    request.getMethod(), request.getRequestURI());
+            rechazar(response, HttpStatus.TOO_MANY_REQUESTS, esperaSegundos, "RATE_LIMITED",
+                    "Demasiadas solicitudes. Intenta nuevamente en " + esperaSegundos + " segundos");
+            return;
+        }
+
+        if (!limite.enCurso().tryAcquire()) {
+            limite.rechazosConcurrencia().increment();
+            log.warn("Compartimento lleno - Clase: {} - {} {}", clase.clave, request.getMethod(),
+                    request.getRequestURI());
+            rechazar(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "SERVICE_BUSY",
+                    "El servicio está ocupado. Intenta nuevamente en unos segundos");
+            return;
+        }
+
+        AtomicBoolean liberado = new AtomicBoolean();
+        Runnable liberar = () -> {
+            if (liberado.compareAndSet(false, true)) {
+                limite.enCurso().release();
+            }
+        };
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Streaming: el lugar se libera al completar la respuesta asíncrona
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        liberar.run();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        liberar.run();
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        liberar.run();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                liberar.run();
+            }
+        }
+    }
+
+    /**
+     * Clase de una petición según método y ruta (sin el context path).
+     */
+    public static ClaseRuta clasificar(String metodo, String ruta) {
+        if (ruta.startsWith("/api/auditoria")
+                || ruta.startsWith("/api/productos/reportes/")
+                || ruta.equals("/api/productos/dashboard")
+                || ruta.equals("/api/movimientos/export")
+                || ruta.equals("/api/productos/importar")
+                || ruta.equals("/api/productos/actualizacion-masiva")) {
+            return ClaseRuta.REPORTES;
+        }
+
+        if ("GET".equals(metodo) || "HEAD".equals(metodo)) {
+            return ClaseRuta.LECTURAS;
+        }
+
+        if (ruta.startsWith("/api/movimientos")
+                || ruta.startsWith("/api/reservas")
+                || ruta.equals("/api/productos/verificar-stock-multiple")
+                || (ruta.startsWith("/api/productos/") && ruta.endsWith("/stock"))) {
+            return ClaseRuta.STOCK;
+        }
+
+        return ClaseRuta.ESCRITURAS;
+    }
+
+    private static String ruta(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private void rechazar(HttpServletResponse response, HttpStatus status, long reintentarSegundos, String code,
+            String message) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(reintentarSegundos));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponseDTO(code, message, status.value()));
+    }
+}
@@ -1,126 +1,114 @@
 package com.ergpos.app.security;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import com.ergpos.app.util.LimitadorTasa;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Servicio para prevenir ataques de fuerza bruta mediante rate limiting.
- * 
- * Rastrea intentos de login fallidos por IP y bloquea temporalmente
- * después de exceder el límite.
+ *
+ * Limita los intentos de login fallidos por IP y por usuario (un ataque
+ * repartido entre muchas IPs sigue contando contra la cuenta). Cada límite
+ * admite N fallos por ventana; superado, hay que esperar a que la ventana
+ * libere un intento. La memoria es fija (LimitadorTasa): una avalancha de
+ * claves nuevas no hace crecer el heap.
  */
 @Service
 public class LoginAttemptService {
 
-    private static final int MAX_ATTEMPTS = 5;
-    private static final long LOCK_TIME_DURATION = TimeUnit.MINUTES.toMillis(15); // 15 minutos
-
-    private final ConcurrentHashMap<String, LoginAttempt> attemptsCache = new ConcurrentHashMap<>();
+    private final LimitadorTasa porIp;
+    private final LimitadorTasa porUsuario;
+
+    public LoginAttemptService(
+            @Value("${app.login.intentos.max-por-ip:5}") int maxPorIp,
+            @Value("${app.login.intentos.max-por-usuario:10}") int maxPorUsuario,
+            @Value("${app.login.intentos.ventana-ms:900000}") long ventanaMs, // 15 minutos
+            @Value("${app.login.intentos.capacidad:65536}") int capacidad) {
+        long ahora = System.currentTimeMillis();
+        this.porIp = new LimitadorTasa(maxPorIp, ventanaMs, capacidad, ahora);
+        this.porUsuario = new LimitadorTasa(maxPorUsuario, ventanaMs, capacidad, ahora);
+    }
 
     /**
      * Registra un intento de login fallido.
-     * 
-     * @param key Identificador (generalmente IP del cliente)
+     *
+     * @param ip      IP del cliente
+     * @param usuario Email o código con el que se intentó
      */
-    public void loginFailed(String key) {
-        LoginAttempt attempt = attemptsCache.computeIfAbsent(key, k -> new LoginAttempt());
-        attempt.incrementAttempts();
+    public void loginFailed(String ip, String usuario) {
+        long ahora = System.currentTimeMillis();
+        porIp.registrar(ip, ahora);
+        if (usuario != null) {
+            porUsuario.registrar(normalizar(usuario), ahora);
+        }
     }
 
     /**
      * Registra un login exitoso y limpia los intentos fallidos.
-     * 
-     * @param key Identificador (generalmente IP del cliente)
+     *
+     * @param ip      IP del cliente
+     * @param usuario Email o código con el que se ingresó
      */
-    public void loginSucceeded(String key) {
-        attemptsCache.remove(key);
+    public void loginSucceeded(String ip, String usuario) {
+        porIp.limpiar(ip);
+        if (usuario != null) {
+            porUsuario.limpiar(normalizar(usuario));
+        }
     }
 
     /**
-     * Verifica si una IP está bloqueada por exceso de intentos.
-     * 
-     * @param key Identificador (generalmente IP del cliente)
-     * @return true si está bloqueada, false si puede intentar
+     * Verifica si la IP o el usuario están bloqueados por exceso de intentos.
+     *
+     * @return true si está bloqueado, false si puede intentar
      */
-    public boolean isBlocked(String key) {
-        LoginAttempt attempt = attemptsCache.get(key);
-
-        if (attempt == null) {
-            return false;
-        }
-
-        // Si ha pasado el tiempo de bloqueo, limpiar
-        if (attempt.isExpired()) {
-            attemptsCache.remove(key);
-            return false;
-        }
-
-        return attempt.getAttempts() >= MAX_ATTEMPTS;
+    public boolean isBlocked(String ip, String usuario) {
+        return getRemainingLockMillis(ip, usuario) > 0;
     }
 
     /**
-     * Obtiene el número de intentos fallidos.
-     * 
-     * @param key Identificador
+     * Obtiene el número aproximado de intentos fallidos aún dentro de la ventana.
+     *
+     * @param ip IP del cliente
      * @return Número de intentos
      */
-    public int getAttempts(String key) {
-        LoginAttempt attempt = attemptsCache.get(key);
-        return attempt != null ? attempt.getAttempts() : 0;
+    public int getAttempts(String ip) {
+        return porIp.eventos(ip, System.currentTimeMillis());
     }
 
     /**
-     * Obtiene el tiempo restante de bloqueo en minutos.
-     * 
-     * @param key Identificador
+     * Obtiene el tiempo restante de bloqueo en minutos (redondeado hacia arriba).
+     *
      * @return Minutos restantes de bloqueo, 0 si no está bloqueado
      */
-    public long getRemainingLockTime(String key) {
-        LoginAttempt attempt = attemptsCache.get(key);
-
-        if (attempt == null || !isBlocked(key)) {
-            return 0;
-        }
-
-        long elapsed = System.currentTimeMillis() - attempt.getLastAttemptTime();
-        long remaining = LOCK_TIME_DURATION - elapsed;
-
-        return TimeUnit.MILLISECONDS.toMinutes(remaining);
+    public long getRemainingLockTime(String ip, String usuario) {
+        long restante = getRemainingLockMillis(ip, usuario);
+        long minuto = TimeUnit.MINUTES.toMillis(1);
+        return (restante + minuto - 1) / minuto;
     }
 
     /**
      * Limpia manualmente los intentos de una IP (útil para administradores).
-     * 
-     * @param key Identificador a limpiar
+     *
+     * @param ip IP a limpiar
      */
-    public void clearAttempts(String key) {
-        attemptsCache.remove(key);
+    public void clearAttempts(String ip) {
+        porIp.limpiar(ip);
     }
 
-    /**
-     * Clase interna para rastrear intentos de login.
-     */
-    private static class LoginAttempt {
-        private int attempts = 0;
-        private long lastAttemptTime = System.currentTimeMillis();
-
-        public void incrementAttempts() {
-            attempts++;
-            lastAttemptTime = System.currentTimeMillis();
-        }
-
-        public int getAttempts() {
-            return attempts;
-        }
-
-        public long getLastAttemptTime() {
-            return lastAttemptTime;
+    private long getRemainingLockMillis(String ip, String usuario) {
+        long ahora = System.currentTimeMillis();
+        long restante = porIp.espera(ip, ahora);
+        if (usuario != null) {
+            restante = Math.max(restante, porUsuario.espera(normalizar(usuario), ahora));
         }
+        return restante;
+    }
 
-        public boolean isExpired() {
-            return System.currentTimeMillis() - lastAttemptTime > LOCK_TIME_DURATION;
-        }
+    // El login acepta el email sin distinguir mayúsculas
+    private static String normalizar(String usuario) {
+        return usuario.trim().toLowerCase(Locale.ROOT);
     }
 }
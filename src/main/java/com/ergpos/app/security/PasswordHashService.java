@@ -0,0 +1,194 @@
+package com.ergpos.app.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import com.ergpos.app.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Hash y verificación de contraseñas (BCrypt) en un pool propio y acotado.
+ *
+ * BCrypt consume decenas de ms de CPU por operación: en los hilos de Tomcat,
+ * una ráfaga de logins ocupa todos los núcleos y frena el resto de la API.
+ * Aquí corre en pocos hilos (por defecto la mitad de los núcleos) con una
+ * cola limitada; con la cola llena, o si la espera supera el máximo, se
+ * responde 503 de inmediato.
+ *
+ * El costo se configura con app.password.bcrypt-costo. Los hashes con otro
+ * costo se rehacen en segundo plano tras un login correcto (requiereRehash),
+ * sin obligar a cambiar contraseñas.
+ *
+ * Métricas (con histograma): ergpos.password.hash (tag operacion) y
+ * ergpos.password.espera-cola; además ergpos.password.cola y
+ * ergpos.password.rechazos.
+ */
+@Service
+public class PasswordHashService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashService.class);
+    private static final Pattern COSTO_BCRYPT = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
+    private final PasswordEncoder passwordEncoder;
+    private final int costo;
+    private final long esperaMaxMs;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer verificarTimer;
+    private final Timer codificarTimer;
+    private final Timer esperaCola;
+    private final Counter rechazos;
+
+    public PasswordHashService(
+            PasswordEncoder passwordEncoder,
+            MeterRegistry meterRegistry,
+            @Value("${app.password.bcrypt-costo:10}") int costo,
+            @Value("${app.password.hilos:0}") int hilos,
+            @Value("${app.password.cola:64}") int capacidadCola,
+            @Value("${app.password.espera-max-ms:5000}") long esperaMaxMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.costo = costo;
+        this.esperaMaxMs = esperaMaxMs;
+
+        // 0 = la mitad de los núcleos: el resto queda para atender la API
+        int tamano = hilos > 0 ? hilos : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(tamano, tamano, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola), tarea -> {
+                    Thread hilo = new Thread(tarea, "password-hash-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+
+        this.verificarTimer = Timer.builder("ergpos.password.hash")
+                .description("Tiempo de CPU de una operación BCrypt")
+                .tag("operacion", "verificar")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.codificarTimer = Timer.builder("ergpos.password.hash")
+                .description("Tiempo de CPU de una operación BCrypt")
+                .tag("operacion", "codificar")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.esperaCola = Timer.builder("ergpos.password.espera-cola")
+                .description("Espera en cola antes de empezar el hash")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rechazos = Counter.builder("ergpos.password.rechazos")
+                .description("Operaciones rechazadas por cola llena o espera excesiva (503)")
+                .register(meterRegistry);
+        Gauge.builder("ergpos.password.cola", executor, e -> e.getQueue().size())
+                .description("Operaciones BCrypt en cola")
+                .register(meterRegistry);
+
+        logger.info("Pool de hash de contraseñas: {} hilos, cola {}, costo BCrypt {}", tamano, capacidadCola, costo);
+    }
+
+    /**
+     * Compara una contraseña con su hash.
+     *
+     * @throws BusinessException SERVICE_BUSY (503) si el pool está saturado
+     */
+    public boolean verificar(String password, String hash) {
+        return ejecutar(() -> passwordEncoder.matches(password, hash), verificarTimer);
+    }
+
+    /**
+     * Genera el hash de una contraseña con el costo configurado.
+     *
+     * @throws BusinessException SERVICE_BUSY (503) si el pool está saturado
+     */
+    public String codificar(String password) {
+        return ejecutar(() -> passwordEncoder.encode(password), codificarTimer);
+    }
+
+    /**
+     * Indica si un hash BCrypt fue generado con un costo distinto al configurado.
+     */
+    public boolean requiereRehash(String hash) {
+        if (hash == null) {
+            return false;
+        }
+        Matcher matcher = COSTO_BCRYPT.matcher(hash);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != costo;
+    }
+
+    /**
+     * Rehace el hash en segundo plano y lo entrega a guardar. Si el pool
+     * está saturado se omite: se reintentará en el próximo login.
+     */
+    public void rehashEnSegundoPlano(String password, Consumer<String> guardar) {
+        try {
+            executor.execute(() -> {
+                try {
+                    guardar.accept(codificarTimer.recordCallable(() -> passwordEncoder.encode(password)));
+                } catch (Exception e) {
+                    logger.warn("No se pudo actualizar el hash de la contraseña: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Rehash omitido: pool de hash saturado");
+        }
+    }
+
+    private <T> T ejecutar(Callable<T> operacion, Timer timer) {
+        long encolado = System.nanoTime();
+        Future<T> resultado;
+        try {
+            resultado = executor.submit(() -> {
+                esperaCola.record(System.nanoTime() - encolado, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(operacion);
+            });
+        } catch (RejectedExecutionException e) {
+            rechazos.increment();
+            throw ocupado();
+        }
+
+        try {
+            return resultado.get(esperaMaxMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            resultado.cancel(true);
+            rechazos.increment();
+            throw ocupado();
+        } catch (InterruptedException e) {
+            resultado.cancel(true);
+            Thread.currentThread().interrupt();
+            throw ocupado();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error al procesar la contraseña", e.getCause());
+        }
+    }
+
+    private static BusinessException ocupado() {
+        return new BusinessException(
+                "SERVICE_BUSY",
+                "El servicio está ocupado. Intenta nuevamente en unos segundos",
+                503);
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+}
@@ -2,6 +2,7 @@ package com.ergpos.app.security;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
@@ -9,22 +10,96 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 import com.ergpos.app.model.Usuario;
 import com.ergpos.app.repository.UsuarioRepository;
-
+import com.ergpos.app.service.RolModificadoEvent;
+import com.ergpos.app.service.UsuarioModificadoEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
     private final UsuarioRepository usuarioRepository;
-
-    public UserDetailsServiceImpl(UsuarioRepository usuarioRepository) {
+    private final TransactionTemplate lecturaTx;
+
+    // Principales de las peticiones con JWT, por subject del token (sin hash de contraseña)
+    private final Cache<String, UserDetails> principales;
+    // Se incrementa antes de cada invalidación
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    public UserDetailsServiceImpl(
+            UsuarioRepository usuarioRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.security.principales.max-entradas:10000}") long maxEntradas,
+            @Value("${app.security.principales.ttl-ms:60000}") long ttlMillis) {
         this.usuarioRepository = usuarioRepository;
+        this.lecturaTx = new TransactionTemplate(transactionManager);
+        this.lecturaTx.setReadOnly(true);
+        this.principales = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, principales, "principales");
+        Gauge.builder("ergpos.principales.cache.ratio-aciertos", principales, c -> c.stats().hitRate())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Principal de una petición autenticada con JWT, a través de la caché.
+     *
+     * Los usuarios inexistentes o inactivos no se cachean (lanza
+     * UsernameNotFoundException). Una carga concurrente con una invalidación
+     * no se cachea: pudo leer el estado anterior al cambio.
+     */
+    public UserDetails cargarPrincipal(String subject) {
+        UserDetails[] sinCachear = new UserDetails[1];
+
+        UserDetails principal = principales.get(subject, clave -> {
+            long inicio = invalidaciones.get();
+            UserDetails cargado = lecturaTx.execute(status -> loadUserByUsername(clave));
+            // Solo identidad y roles: la contraseña no hace falta fuera del login
+            UserDetails sinPassword = new User(cargado.getUsername(), "", cargado.getAuthorities());
+            if (invalidaciones.get() != inicio) {
+                sinCachear[0] = sinPassword;
+                return null;
+            }
+            return sinPassword;
+        });
+
+        return principal != null ? principal : sinCachear[0];
+    }
+
+    // Tras el commit: la siguiente petición del usuario vuelve a leer su estado
+    @TransactionalEventListener(fallbackExecution = true)
+    public void usuarioModificado(UsuarioModificadoEvent evento) {
+        invalidaciones.incrementAndGet();
+        principales.asMap().entrySet().removeIf(entrada -> entrada.getKey().equalsIgnoreCase(evento.email())
+                || entrada.getValue().getUsername().equalsIgnoreCase(evento.email()));
+    }
+
+    // Cambia las authorities de todos los usuarios del rol
+    @TransactionalEventListener(fallbackExecution = true)
+    public void rolModificado(RolModificadoEvent evento) {
+        invalidaciones.incrementAndGet();
+        principales.invalidateAll();
     }
 
     @Override
@@ -61,7 +136,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         List<GrantedAuthority> authorities = Collections.singletonList(
                 new SimpleGrantedAuthority("ROLE_" + usuario.getRol().getNombre().toUpperCase()));
 
-        logger.info("Login exitoso para usuario: {}", username);
+        logger.debug("Usuario cargado: {}", username);
 
         return new User(
                 usuario.getEmail(), // Usamos email como username principal
@@ -0,0 +1,69 @@
+package com.ergpos.app.service;
+
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import com.ergpos.app.model.OutboxEvento;
+import com.ergpos.app.model.Producto;
+import com.ergpos.app.repository.ProductoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Alerta de stock bajo tras cada movimiento (log WARN + métrica
+ * ergpos.alertas.stock_bajo), evaluada fuera de la transacción del movimiento.
+ */
+@Service
+public class AlertaStockBajoListener implements OutboxListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertaStockBajoListener.class);
+
+    private final ProductoRepository productoRepo;
+    private final StockFraccionadoService stockFraccionado;
+    private final ObjectMapper objectMapper;
+    private final Counter alertas;
+
+    public AlertaStockBajoListener(ProductoRepository productoRepo,
+            StockFraccionadoService stockFraccionado,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.productoRepo = productoRepo;
+        this.stockFraccionado = stockFraccionado;
+        this.objectMapper = objectMapper;
+        this.alertas = meterRegistry.counter("ergpos.alertas.stock_bajo");
+    }
+
+    @Override
+    public boolean soporta(String tipo) {
+        return OutboxEvento.MOVIMIENTO_CREADO.equals(tipo)
+                || OutboxEvento.MOVIMIENTO_ANULADO.equals(tipo)
+                || OutboxEvento.MOVIMIENTO_ACTIVADO.equals(tipo);
+    }
+
+    @Override
+    public void manejar(OutboxEvento evento) {
+        MovimientoEvento movimiento;
+        try {
+            movimiento = objectMapper.readValue(evento.payload(), MovimientoEvento.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Payload de movimiento inválido en evento " + evento.id(), e);
+        }
+
+        Producto producto = productoRepo.findById(movimiento.productoId()).orElse(null);
+        if (producto == null || !producto.getActivo()) {
+            return;
+        }
+
+        int stock = producto.getStockFraccionado()
+                ? stockFraccionado.stockTotal(producto.getId())
+                : producto.getStockActual();
+
+        if (stock < producto.getStockMinimo()) {
+            alertas.increment();
+            logger.warn("ALERTA STOCK BAJO - Producto: {}, Stock: {}, Mínimo: {}",
+                    producto.getCodigo(), stock, producto.getStockMinimo());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.ergpos.app.service;
+
+import java.io.IOException;
+import org.springframework.stereotype.Service;
+import com.ergpos.app.model.OutboxEvento;
+import com.ergpos.app.model.Producto;
+import com.ergpos.app.repository.ProductoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Registra la auditoría de los movimientos a partir de los eventos del outbox,
+ * fuera de la transacción del movimiento.
+ */
+@Service
+public class AuditoriaMovimientoListener implements OutboxListener {
+
+    private final InventarioAuditService auditService;
+    private final ProductoRepository productoRepo;
+    private final ObjectMapper objectMapper;
+
+    public AuditoriaMovimientoListener(InventarioAuditService auditService,
+            ProductoRepository productoRepo,
+            ObjectMapper objectMapper) {
+        this.auditService = auditService;
+        this.productoRepo = productoRepo;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean soporta(String tipo) {
+        return OutboxEvento.MOVIMIENTO_CREADO.equals(tipo)
+                || OutboxEvento.MOVIMIENTO_ANULADO.equals(tipo)
+                || OutboxEvento.MOVIMIENTO_ACTIVADO.equals(tipo);
+    }
+
+    @Override
+    public void manejar(OutboxEvento evento) {
+        MovimientoEvento movimiento = leer(evento);
+
+        String eventoTipo;
+        String detalle;
+        switch (evento.tipo()) {
+            case OutboxEvento.MOVIMIENTO_CREADO -> {
+                String nombreProducto = productoRepo.findById(movimiento.productoId())
+                        .map(Producto::getNombre)
+                        .orElse(movimiento.productoId().toString());
+                eventoTipo = "INSERT";
+                detalle = String.format("Movimiento %s: Producto %s, Cantidad %d",
+                        movimiento.tipoMovimiento(), nombreProducto, movimiento.cantidad());
+            }
+            case OutboxEvento.MOVIMIENTO_ANULADO -> {
+                eventoTipo = "UPDATE";
+                detalle = String.format("Movimiento anulado. Stock revertido de %d", movimiento.cantidad());
+            }
+            default -> {
+                eventoTipo = "UPDATE";
+                detalle = String.format("Movimiento PENDIENTE activado. Stock actualizado %d %s",
+                        movimiento.cantidad(), movimiento.tipoMovimiento());
+            }
+        }
+
+        auditService.registrarAuditoria(
+                eventoTipo,
+                "movimientos_inventario",
+                movimiento.movimientoId(),
+                movimiento.usuarioId(),
+                detalle);
+    }
+
+    private MovimientoEvento leer(OutboxEvento evento) {
+        try {
+            return objectMapper.readValue(evento.payload(), MovimientoEvento.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Payload de movimiento inválido en evento " + evento.id(), e);
+        }
+    }
+}
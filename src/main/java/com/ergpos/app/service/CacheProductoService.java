@@ -0,0 +1,122 @@
+package com.ergpos.app.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.ergpos.app.dto.producto.ProductoResponseDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Caché acotada (W-TinyLFU) de productos por código, para las consultas
+ * repetidas del flujo de escaneo.
+ *
+ * Cada escritura confirmada sobre un producto (ProductosModificadosEvent)
+ * invalida su entrada, localizada por ID aunque el código haya cambiado.
+ * Una carga concurrente con un commit no se cachea: pudo leer el estado
+ * anterior sin que la invalidación la encontrara. Así el stock nunca se
+ * sirve desactualizado tras un commit hecho por la aplicación; la vigencia
+ * solo acota los cambios hechos fuera de ella.
+ *
+ * Las reservas no forman parte de la entrada (se leen aparte, en memoria).
+ * Los DTO cacheados son compartidos: no deben modificarse.
+ *
+ * Métricas: cache.* con tag cache=productos (aciertos, fallos, expulsiones,
+ * tiempo de carga) y ergpos.productos.cache.ratio-aciertos.
+ */
+@Service
+public class CacheProductoService {
+
+    private final Cache<String, ProductoResponseDTO> cache;
+    // Código con el que está cacheado cada producto, para invalidar por ID
+    private final Map<UUID, String> codigoPorId = new ConcurrentHashMap<>();
+    // Se incrementa antes de cada invalidación
+    private final AtomicLong invalidaciones = new AtomicLong();
+
+    public CacheProductoService(
+            MeterRegistry meterRegistry,
+            @Value("${app.productos.cache.max-entradas:10000}") long maxEntradas,
+            @Value("${app.productos.cache.ttl-ms:600000}") long ttlMillis) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                // Síncrono, dentro de la expulsión: no puede borrar el índice de una carga posterior
+                .evictionListener((String codigo, ProductoResponseDTO dto, RemovalCause causa) -> {
+                    if (dto != null) {
+                        codigoPorId.remove(dto.getId(), codigo);
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productos");
+        Gauge.builder("ergpos.productos.cache.ratio-aciertos", cache, c -> c.stats().hitRate())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Producto por código, o null si no existe. cargar debe leer de la base
+     * de datos y devolver null si no hay producto (los ausentes no se cachean).
+     */
+    public ProductoResponseDTO obtener(String codigo, Function<String, ProductoResponseDTO> cargar) {
+        // Dentro de una transacción de escritura se podría cachear algo que luego se revierte
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return cargar.apply(codigo);
+        }
+
+        ProductoResponseDTO[] sinCachear = new ProductoResponseDTO[1];
+
+        ProductoResponseDTO dto = cache.get(codigo, clave -> {
+            long inicio = invalidaciones.get();
+            ProductoResponseDTO cargado = cargar.apply(clave);
+            if (cargado == null) {
+                return null;
+            }
+
+            codigoPorId.put(cargado.getId(), clave);
+            if (invalidaciones.get() != inicio) {
+                // Un commit durante la carga pudo buscar el índice antes de este put
+                codigoPorId.remove(cargado.getId(), clave);
+                sinCachear[0] = cargado;
+                return null;
+            }
+            return cargado;
+        });
+
+        return dto != null ? dto : sinCachear[0];
+    }
+
+    // Tras el commit; si hay una carga en curso de la misma clave, espera a que termine
+    @TransactionalEventListener(fallbackExecution = true)
+    public void productosModificados(ProductosModificadosEvent evento) {
+        invalidaciones.incrementAndGet();
+        for (UUID id : evento.productoIds()) {
+            String codigo = codigoPorId.remove(id);
+            if (codigo != null) {
+                cache.invalidate(codigo);
+            }
+        }
+    }
+
+    // Nombre o código de categoría: afecta a todos sus productos
+    @TransactionalEventListener(fallbackExecution = true)
+    public void categoriaModificada(CategoriaModificadaEvent evento) {
+        if (!evento.afectaProductos()) {
+            return;
+        }
+        invalidaciones.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,11 @@
+package com.ergpos.app.service;
+
+import java.util.UUID;
+
+/**
+ * Categoría creada o modificada. afectaProductos indica que cambió su nombre
+ * o código (datos que se muestran en cada producto). Los consumidores lo
+ * reciben tras el commit (o de inmediato si no hay transacción).
+ */
+public record CategoriaModificadaEvent(UUID categoriaId, boolean afectaProductos) {
+}
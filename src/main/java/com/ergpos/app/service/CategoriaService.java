@@ -6,6 +6,7 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,6 +14,7 @@ import com.ergpos.app.dto.categorias.CategoriaRequestDTO;
 import com.ergpos.app.dto.categorias.CategoriaResponseDTO;
 import com.ergpos.app.exception.DuplicateResourceException;
 import com.ergpos.app.exception.ResourceNotFoundException;
+import com.ergpos.app.exception.VersionConflictException;
 import com.ergpos.app.exception.ValidationException;
 import com.ergpos.app.model.Categoria;
 import com.ergpos.app.repository.CategoriaRepository;
@@ -29,9 +31,12 @@ public class CategoriaService {
 
     private static final Logger logger = LoggerFactory.getLogger(CategoriaService.class);
     private final CategoriaRepository categoriaRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public CategoriaService(CategoriaRepository categoriaRepository) {
+    public CategoriaService(CategoriaRepository categoriaRepository,
+            ApplicationEventPublisher eventPublisher) {
         this.categoriaRepository = categoriaRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     private CategoriaResponseDTO toDTO(Categoria categoria) {
@@ -42,6 +47,7 @@ public class CategoriaService {
         dto.setActivo(categoria.getActivo());
         dto.setCreatedAt(categoria.getCreatedAt());
         dto.setUpdatedAt(categoria.getUpdatedAt());
+        dto.setVersion(categoria.getVersion());
         return dto;
     }
 
@@ -123,6 +129,7 @@ public class CategoriaService {
         categoria.setActivo(true);
 
         Categoria saved = categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(saved.getId(), false));
         logger.info("Categoría creada: {}", saved.getNombre());
 
         return toDTO(saved);
@@ -130,12 +137,17 @@ public class CategoriaService {
 
     /**
      * Actualiza una categoría por ID, código o nombre.
+     *
+     * Sin reintento optimista: es un reemplazo completo, y repetirlo sobre la
+     * fila releída pisaría la edición concurrente; el conflicto se responde
+     * con 409 (o 412 si la versión de If-Match ya no es la actual).
      */
     @Transactional
-    public CategoriaResponseDTO actualizar(String identificador, CategoriaRequestDTO request) {
+    public CategoriaResponseDTO actualizar(String identificador, CategoriaRequestDTO request, Long versionEsperada) {
         logger.info("Actualizando categoría: {}", identificador);
 
         Categoria categoria = buscarCategoria(identificador);
+        VersionConflictException.verificar("Categoría", versionEsperada, categoria.getVersion());
 
         String nuevoNombre = ValidationUtils.requireNonEmpty(request.getNombre(), "nombre");
         ValidationUtils.requireMaxLength(nuevoNombre, "nombre", 255);
@@ -161,7 +173,8 @@ public class CategoriaService {
         categoria.setNombre(nuevoNombre);
         categoria.setCodigo(nuevoCodigo);
 
-        Categoria updated = categoriaRepository.save(categoria);
+        Categoria updated = categoriaRepository.saveAndFlush(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(updated.getId(), true));
         logger.info("Categoría actualizada: {}", updated.getNombre());
 
         return toDTO(updated);
@@ -170,6 +183,7 @@ public class CategoriaService {
     /**
      * Activa una categoría por ID, código o nombre.
      */
+    @ReintentoOptimista
     @Transactional
     public CategoriaResponseDTO activar(String identificador) {
         logger.info("Activando categoría: {}", identificador);
@@ -181,7 +195,8 @@ public class CategoriaService {
         }
 
         categoria.setActivo(true);
-        Categoria updated = categoriaRepository.save(categoria);
+        Categoria updated = categoriaRepository.saveAndFlush(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(updated.getId(), false));
 
         logger.info("Categoría activada: {}", updated.getNombre());
         return toDTO(updated);
@@ -190,6 +205,7 @@ public class CategoriaService {
     /**
      * Desactiva una categoría por ID, código o nombre.
      */
+    @ReintentoOptimista
     @Transactional
     public CategoriaResponseDTO desactivar(String identificador) {
         logger.info("Desactivando categoría: {}", identificador);
@@ -201,7 +217,8 @@ public class CategoriaService {
         }
 
         categoria.setActivo(false);
-        Categoria updated = categoriaRepository.save(categoria);
+        Categoria updated = categoriaRepository.saveAndFlush(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(updated.getId(), false));
 
         logger.info("Categoría desactivada: {}", updated.getNombre());
         return toDTO(updated);
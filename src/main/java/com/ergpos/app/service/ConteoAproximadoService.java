@@ -0,0 +1,114 @@
+package com.ergpos.app.service;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Totales aproximados para listados paginados: el COUNT de cada filtro se
+ * calcula en segundo plano y se reutiliza, de modo que la petición solo paga
+ * la consulta de la página.
+ *
+ * Un total vencido se sigue entregando mientras se recalcula; un filtro sin
+ * total todavía devuelve null (el cliente lo verá en la página siguiente).
+ * Como máximo un recálculo por clave a la vez; si la cola de recálculos está
+ * llena se descarta y se reintenta en la próxima consulta.
+ *
+ * Métricas: ergpos.conteo.calculos y ergpos.conteo.descartados.
+ */
+@Service
+public class ConteoAproximadoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConteoAproximadoService.class);
+    private static final int COLA_RECALCULOS = 32;
+
+    private record Conteo(long total, long calculadoEnMillis) {
+    }
+
+    private final Cache<Object, Conteo> conteos;
+    private final Set<Object> enCurso = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor executor;
+    private final long refrescoMillis;
+    private final Counter calculos;
+    private final Counter descartados;
+
+    public ConteoAproximadoService(
+            MeterRegistry meterRegistry,
+            @Value("${app.productos.conteo.refresco-ms:60000}") long refrescoMillis,
+            @Value("${app.productos.conteo.max-entradas:1000}") long maxEntradas) {
+        this.refrescoMillis = refrescoMillis;
+        // Los filtros que nadie vuelve a consultar se descartan
+        this.conteos = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterAccess(Duration.ofMillis(refrescoMillis * 10))
+                .build();
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(COLA_RECALCULOS), tarea -> {
+                    Thread hilo = new Thread(tarea, "conteo-aproximado");
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        this.calculos = Counter.builder("ergpos.conteo.calculos")
+                .description("COUNT ejecutados en segundo plano para totales aproximados")
+                .register(meterRegistry);
+        this.descartados = Counter.builder("ergpos.conteo.descartados")
+                .description("Recálculos descartados por cola llena")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Total cacheado para la clave, o null si aún no se calculó. Si falta o
+     * está vencido, programa el recálculo con contar (fuera de la petición).
+     *
+     * @param clave  Consulta y filtros normalizados (debe implementar equals/hashCode)
+     * @param contar COUNT exacto; se ejecuta en otro hilo, sin la transacción del llamador
+     */
+    public Long estimar(Object clave, LongSupplier contar) {
+        Conteo conteo = conteos.getIfPresent(clave);
+        if (conteo == null || System.currentTimeMillis() - conteo.calculadoEnMillis() >= refrescoMillis) {
+            recalcular(clave, contar);
+        }
+        return conteo != null ? conteo.total() : null;
+    }
+
+    private void recalcular(Object clave, LongSupplier contar) {
+        if (!enCurso.add(clave)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    long total = contar.getAsLong();
+                    conteos.put(clave, new Conteo(total, System.currentTimeMillis()));
+                    calculos.increment();
+                } catch (RuntimeException e) {
+                    logger.warn("No se pudo calcular el total aproximado de {}: {}", clave, e.getMessage());
+                } finally {
+                    enCurso.remove(clave);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            enCurso.remove(clave);
+            descartados.increment();
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,217 @@
+package com.ergpos.app.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import com.ergpos.app.model.ReglasStock;
+import com.ergpos.app.repository.EstadisticasInventarioRepository;
+import com.ergpos.app.repository.EstadisticasInventarioRepository.FilaStock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Estadísticas de inventario mantenidas en memoria para lecturas O(1).
+ *
+ * Se cargan completas al arrancar. Después, cada escritura que afecta a un
+ * producto (stock, precio, mínimo, activo) lo marca como pendiente al hacer
+ * commit; un refresco periódico relee solo esos productos y aplica la
+ * diferencia (resta lo que aportaban, suma lo nuevo). Una reconciliación
+ * completa periódica detecta y corrige desviaciones (p. ej. cambios hechos
+ * fuera de la aplicación).
+ *
+ * El resumen publicado es inmutable; las lecturas no bloquean.
+ */
+@Service
+public class EstadisticasInventarioService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EstadisticasInventarioService.class);
+    private static final int LOTE_RECARGA = 1000;
+
+    /**
+     * Estadísticas de los productos activos.
+     */
+    public record Resumen(
+            long totalProductos,
+            long productosConStockBajo,
+            long productosSinStock,
+            long productosPorDebajoMinimo,
+            long productosCriticos,
+            long productosSinStockOBajoMinimo,
+            long stockTotal,
+            BigDecimal valorTotalInventario) {
+
+        public double porcentajeStockBajo() {
+            return totalProductos > 0 ? (productosConStockBajo * 100.0 / totalProductos) : 0;
+        }
+    }
+
+    // Contadores mutables; solo se usan bajo el monitor del servicio
+    private static final class Acumulador {
+        private long total;
+        private long stockBajo;
+        private long sinStock;
+        private long bajoMinimo;
+        private long criticos;
+        private long sinStockOBajoMinimo;
+        private long stockTotal;
+        private BigDecimal valor = BigDecimal.ZERO;
+
+        private void aplicar(FilaStock fila, int signo) {
+            if (fila == null) {
+                return;
+            }
+            int stock = fila.stockActual();
+            int minimo = fila.stockMinimo();
+            boolean porDebajo = minimo > 0 && stock < minimo;
+
+            total += signo;
+            if (ReglasStock.esStockBajo(stock, minimo)) {
+                stockBajo += signo;
+            }
+            if (stock == 0) {
+                sinStock += signo;
+            }
+            if (porDebajo) {
+                bajoMinimo += signo;
+            }
+            if (ReglasStock.esStockCritico(stock, minimo)) {
+                criticos += signo;
+            }
+            if (stock == 0 || porDebajo) {
+                sinStockOBajoMinimo += signo;
+            }
+            stockTotal += (long) signo * stock;
+            valor = valor.add(fila.precio().multiply(BigDecimal.valueOf((long) signo * stock)));
+        }
+
+        private Resumen resumen() {
+            return new Resumen(total, stockBajo, sinStock, bajoMinimo, criticos, sinStockOBajoMinimo,
+                    stockTotal, valor);
+        }
+    }
+
+    private final EstadisticasInventarioRepository estadisticasRepo;
+    private final Counter desviaciones;
+
+    private final Set<UUID> pendientes = ConcurrentHashMap.newKeySet();
+    private Map<UUID, FilaStock> filas = new HashMap<>();
+    private Acumulador acumulado = new Acumulador();
+    private volatile Resumen resumen;
+
+    public EstadisticasInventarioService(EstadisticasInventarioRepository estadisticasRepo,
+            MeterRegistry meterRegistry) {
+        this.estadisticasRepo = estadisticasRepo;
+        this.desviaciones = meterRegistry.counter("ergpos.estadisticas.desviaciones");
+    }
+
+    /**
+     * Estadísticas actuales (con el retraso del refresco). Si aún no se
+     * cargaron, se cargan en esta llamada.
+     */
+    public Resumen obtener() {
+        Resumen actual = resumen;
+        if (actual == null) {
+            reconciliar();
+            actual = resumen;
+        }
+        return actual;
+    }
+
+    // Marca los productos para recalcular su aporte, solo si la transacción hace commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void productosModificados(ProductosModificadosEvent evento) {
+        pendientes.addAll(evento.productoIds());
+    }
+
+    // Relee los productos modificados y aplica la diferencia
+    @Scheduled(fixedDelayString = "${app.estadisticas.refresco-ms:1000}")
+    public synchronized void aplicarPendientes() {
+        if (resumen == null || pendientes.isEmpty()) {
+            return;
+        }
+
+        List<UUID> ids = new ArrayList<>();
+        Iterator<UUID> it = pendientes.iterator();
+        while (it.hasNext() && ids.size() < LOTE_RECARGA) {
+            ids.add(it.next());
+            it.remove();
+        }
+
+        Map<UUID, FilaStock> cargadas;
+        try {
+            cargadas = estadisticasRepo.cargar(ids);
+        } catch (RuntimeException e) {
+            pendientes.addAll(ids);
+            logger.warn("No se pudieron refrescar las estadísticas de inventario: {}", e.getMessage());
+            return;
+        }
+
+        for (UUID id : ids) {
+            FilaStock nueva = cargadas.get(id);
+            FilaStock anterior = nueva != null ? filas.put(id, nueva) : filas.remove(id);
+            acumulado.aplicar(anterior, -1);
+            acumulado.aplicar(nueva, 1);
+        }
+        resumen = acumulado.resumen();
+    }
+
+    // Recalcula todo desde la base de datos y corrige cualquier desviación
+    @Scheduled(fixedDelayString = "${app.estadisticas.reconciliacion-ms:300000}",
+            initialDelayString = "${app.estadisticas.reconciliacion-ms:300000}")
+    public synchronized void reconciliar() {
+        // Lo ya confirmado se aplica antes, para no contarlo como desviación
+        aplicarPendientes();
+
+        Map<UUID, FilaStock> cargadas = estadisticasRepo.cargarTodos();
+        Acumulador nuevo = new Acumulador();
+        cargadas.values().forEach(fila -> nuevo.aplicar(fila, 1));
+
+        Resumen calculado = nuevo.resumen();
+        Resumen anterior = resumen;
+        if (anterior != null && !mismosValores(anterior, calculado)) {
+            desviaciones.increment();
+            logger.warn("Estadísticas de inventario desviadas, corregidas. Memoria: {}, base de datos: {}",
+                    anterior, calculado);
+        }
+
+        filas = cargadas;
+        acumulado = nuevo;
+        resumen = calculado;
+        logger.debug("Estadísticas de inventario reconciliadas - productos activos: {}", cargadas.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        try {
+            reconciliar();
+        } catch (RuntimeException e) {
+            // Se reintenta en la primera lectura o en la siguiente reconciliación
+            logger.warn("No se pudieron cargar las estadísticas de inventario al arrancar: {}", e.getMessage());
+        }
+    }
+
+    // BigDecimal.equals distingue escalas (10.0 vs 10.00)
+    private static boolean mismosValores(Resumen a, Resumen b) {
+        return a.totalProductos() == b.totalProductos()
+                && a.productosConStockBajo() == b.productosConStockBajo()
+                && a.productosSinStock() == b.productosSinStock()
+                && a.productosPorDebajoMinimo() == b.productosPorDebajoMinimo()
+                && a.productosCriticos() == b.productosCriticos()
+                && a.productosSinStockOBajoMinimo() == b.productosSinStockOBajoMinimo()
+                && a.stockTotal() == b.stockTotal()
+                && a.valorTotalInventario().compareTo(b.valorTotalInventario()) == 0;
+    }
+}
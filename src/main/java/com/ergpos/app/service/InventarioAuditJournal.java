@@ -0,0 +1,152 @@
+package com.ergpos.app.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Journal local (append-only, una línea JSON por registro) de la auditoría
+ * pendiente de escribir en base de datos.
+ *
+ * Lo escribe el hilo del escritor por lotes (una escritura y un flush por
+ * lote), no cada petición.
+ *
+ * Se escribe en segmentos; cada segmento cuenta sus registros pendientes y
+ * se elimina cuando está cerrado y todos se han persistido. Lo que quede en
+ * disco tras una caída se reprocesa al arrancar.
+ */
+class InventarioAuditJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventarioAuditJournal.class);
+    private static final String PREFIJO = "audit-";
+    private static final String EXTENSION = ".log";
+
+    static final class Segmento {
+        private final Path archivo;
+        private final AtomicInteger pendientes = new AtomicInteger();
+        private int entradas;
+
+        private Segmento(Path archivo) {
+            this.archivo = archivo;
+        }
+    }
+
+    private final Path directorio;
+    private final int maxEntradasPorSegmento;
+    private final List<Segmento> cerrados = new ArrayList<>();
+    private Segmento actual;
+    private BufferedWriter writer;
+    private long secuencia;
+
+    InventarioAuditJournal(Path directorio, int maxEntradasPorSegmento) throws IOException {
+        this.directorio = directorio;
+        this.maxEntradasPorSegmento = maxEntradasPorSegmento;
+        Files.createDirectories(directorio);
+    }
+
+    /**
+     * Segmentos que quedaron en disco de una ejecución anterior (en orden de creación).
+     * Debe llamarse antes del primer append().
+     */
+    List<Path> segmentosHuerfanos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIJO)
+                            && p.getFileName().toString().endsWith(EXTENSION))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Añade las líneas al segmento actual (un solo flush al sistema operativo)
+     * y devuelve el segmento para confirmarlas después. Un lote no se parte
+     * entre segmentos: el segmento se cierra al superar el máximo.
+     */
+    synchronized Segmento append(List<String> lineas) throws IOException {
+        if (actual == null) {
+            abrirSegmento();
+        }
+        for (String linea : lineas) {
+            writer.write(linea);
+            writer.newLine();
+        }
+        writer.flush();
+
+        Segmento segmento = actual;
+        segmento.pendientes.addAndGet(lineas.size());
+        segmento.entradas += lineas.size();
+        if (segmento.entradas >= maxEntradasPorSegmento) {
+            cerrarSegmentoActual();
+        }
+        return segmento;
+    }
+
+    /**
+     * Marca como persistidos los registros indicados del segmento.
+     */
+    void confirmar(Segmento segmento, int cantidad) {
+        if (segmento.pendientes.addAndGet(-cantidad) == 0) {
+            limpiar();
+        }
+    }
+
+    synchronized void cerrar() {
+        if (actual != null) {
+            cerrarSegmentoActual();
+        }
+        limpiar();
+    }
+
+    // Elimina los segmentos sin pendientes; el actual se cierra si ya está vacío de pendientes
+    private synchronized void limpiar() {
+        if (actual != null && actual.pendientes.get() == 0) {
+            cerrarSegmentoActual();
+        }
+        Iterator<Segmento> it = cerrados.iterator();
+        while (it.hasNext()) {
+            Segmento segmento = it.next();
+            if (segmento.pendientes.get() == 0) {
+                eliminar(segmento.archivo);
+                it.remove();
+            }
+        }
+    }
+
+    private void abrirSegmento() throws IOException {
+        String nombre = String.format("%s%d-%06d%s", PREFIJO, System.currentTimeMillis(), secuencia++, EXTENSION);
+        Path archivo = directorio.resolve(nombre);
+        writer = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        actual = new Segmento(archivo);
+    }
+
+    private void cerrarSegmentoActual() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("No se pudo cerrar el segmento de auditoría {}: {}", actual.archivo, e.getMessage());
+        }
+        cerrados.add(actual);
+        actual = null;
+        writer = null;
+    }
+
+    static void eliminar(Path archivo) {
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            logger.warn("No se pudo eliminar el segmento de auditoría {}: {}", archivo, e.getMessage());
+        }
+    }
+}
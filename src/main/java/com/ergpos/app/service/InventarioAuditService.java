@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
@@ -11,15 +12,25 @@ import org.springframework.http.HttpStatus;
 import com.ergpos.app.dto.audit.AuditResponseDTO;
 import com.ergpos.app.model.InventarioAudit;
 import com.ergpos.app.repository.InventarioAuditRepository;
+import com.ergpos.app.repository.InventarioBatchRepository;
 
 @Service
 @Transactional(readOnly = true)
 public class InventarioAuditService {
 
     private final InventarioAuditRepository auditRepository;
-
-    public InventarioAuditService(InventarioAuditRepository auditRepository) {
+    private final InventarioBatchRepository batchRepository;
+    private final InventarioAuditWriter auditWriter;
+    private final boolean asincrona;
+
+    public InventarioAuditService(InventarioAuditRepository auditRepository,
+            InventarioBatchRepository batchRepository,
+            InventarioAuditWriter auditWriter,
+            @Value("${app.auditoria.asincrona:true}") boolean asincrona) {
         this.auditRepository = auditRepository;
+        this.batchRepository = batchRepository;
+        this.auditWriter = auditWriter;
+        this.asincrona = asincrona;
     }
 
     private AuditResponseDTO toDTO(InventarioAudit audit) {
@@ -132,32 +143,48 @@ public class InventarioAuditService {
     }
 
     // Método para registrar auditoría manualmente (versión mejorada)
+    // Asíncrona: se escribe tras el commit en batch (la normalización ocurre en el escritor)
     @Transactional
     public void registrarAuditoria(String eventoTipo, String tablaNombre, UUID registroId, UUID usuarioId,
             String detalle) {
+        if (asincrona) {
+            auditWriter.registrar(new InventarioAudit(eventoTipo, tablaNombre, registroId, usuarioId, detalle));
+        } else {
+            auditRepository.save(crearAuditoria(eventoTipo, tablaNombre, registroId, usuarioId, detalle));
+        }
+    }
+
+    // Construye el registro de auditoría sin persistirlo (usado por los procesos en lote)
+    public InventarioAudit crearAuditoria(String eventoTipo, String tablaNombre, UUID registroId, UUID usuarioId,
+            String detalle) {
+        return new InventarioAudit(eventoTipo, tablaNombre, registroId, usuarioId, normalizarDetalle(detalle));
+    }
+
+    // Inserta varios registros de auditoría en un único batch JDBC
+    @Transactional
+    public void registrarAuditoriasEnLote(List<InventarioAudit> auditorias) {
+        batchRepository.insertarAuditorias(auditorias);
+    }
+
+    static String normalizarDetalle(String detalle) {
         // Validar que detalle no sea null o vacío
-        String detalleFinal;
         if (detalle == null || detalle.trim().isEmpty()) {
-            detalleFinal = "{}";
-        } else {
-            // Si el detalle no es JSON válido (no empieza con { o [), convertirlo a JSON
-            String trimmed = detalle.trim();
-            if (!trimmed.startsWith("{") && !trimmed.startsWith("[")) {
-                // Escapar comillas dobles y caracteres especiales en el mensaje
-                String escapedMessage = trimmed
-                        .replace("\\", "\\\\")
-                        .replace("\"", "\\\"")
-                        .replace("\n", "\\n")
-                        .replace("\r", "\\r")
-                        .replace("\t", "\\t");
-                detalleFinal = String.format("{\"mensaje\": \"%s\"}", escapedMessage);
-            } else {
-                detalleFinal = detalle;
-            }
+            return "{}";
         }
 
-        InventarioAudit audit = new InventarioAudit(eventoTipo, tablaNombre, registroId, usuarioId, detalleFinal);
-        auditRepository.save(audit);
+        // Si el detalle no es JSON válido (no empieza con { o [), convertirlo a JSON
+        String trimmed = detalle.trim();
+        if (!trimmed.startsWith("{") && !trimmed.startsWith("[")) {
+            // Escapar comillas dobles y caracteres especiales en el mensaje
+            String escapedMessage = trimmed
+                    .replace("\\", "\\\\")
+                    .replace("\"", "\\\"")
+                    .replace("\n", "\\n")
+                    .replace("\r", "\\r")
+                    .replace("\t", "\\t");
+            return String.format("{\"mensaje\": \"%s\"}", escapedMessage);
+        }
+        return detalle;
     }
 
     // Método sobrecargado para registrar auditoría sin detalle
@@ -176,6 +203,10 @@ public class InventarioAuditService {
             audit.setDetalleFromObject(detalleObject);
         }
 
-        auditRepository.save(audit);
+        if (asincrona) {
+            auditWriter.registrar(audit);
+        } else {
+            auditRepository.save(audit);
+        }
     }
 }
\ No newline at end of file
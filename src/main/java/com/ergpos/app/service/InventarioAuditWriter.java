@@ -0,0 +1,342 @@
+package com.ergpos.app.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ergpos.app.model.InventarioAudit;
+import com.ergpos.app.repository.InventarioBatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Escritura diferida (write-behind) de la auditoría de inventario.
+ *
+ * Al confirmar la transacción de negocio, cada registro solo se encola. Un
+ * hilo dedicado vacía la cola cada N registros o T ms: anota el lote en el
+ * journal local (una escritura y un flush por lote) y lo escribe en un batch
+ * JDBC (multi-fila con reWriteBatchedInserts). Si la cola sigue llena tras la
+ * espera configurada, el propio llamador anota y escribe el registro
+ * (contrapresión). Lo pendiente en el journal se reprocesa al arrancar.
+ *
+ * Ventana de pérdida: lo que está en la cola aún no está en el journal. Una
+ * caída del proceso (no una parada ordenada, que vacía la cola) pierde esos
+ * registros: normalmente los de los últimos intervalo-ms, y hasta
+ * cola-capacidad si la base de datos no responde y el hilo está reintentando.
+ * Con app.auditoria.asincrona=false la auditoría va en la misma transacción.
+ *
+ * Métricas: ergpos.auditoria.cola (profundidad), ergpos.auditoria.flush
+ * (latencia por batch), ergpos.auditoria.desbordadas y ergpos.auditoria.errores.
+ */
+@Service
+public class InventarioAuditWriter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventarioAuditWriter.class);
+    private static final long ESPERA_MAXIMA_REINTENTO_MS = 30_000;
+
+    // Forma del registro en el journal
+    private record EntradaJournal(String eventoTipo, String tablaNombre, UUID registroId, UUID usuarioId,
+            String detalle, LocalDateTime createdAt) {
+    }
+
+    private record Pendiente(InventarioAudit auditoria, InventarioAuditJournal.Segmento segmento) {
+    }
+
+    private final InventarioBatchRepository batchRepository;
+    private final TransactionTemplate txTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<Pendiente> cola;
+    private final int tamanoLote;
+    private final long intervaloMs;
+    private final long esperaEncolarMs;
+    private final Path directorioJournal;
+    private final int maxEntradasSegmento;
+
+    private final Timer flushTimer;
+    private final Counter desbordadas;
+    private final Counter errores;
+
+    private InventarioAuditJournal journal;
+    private Thread hilo;
+    private volatile boolean activo;
+
+    public InventarioAuditWriter(
+            InventarioBatchRepository batchRepository,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.auditoria.cola-capacidad:10000}") int capacidad,
+            @Value("${app.auditoria.lote:200}") int tamanoLote,
+            @Value("${app.auditoria.intervalo-ms:200}") long intervaloMs,
+            @Value("${app.auditoria.espera-encolar-ms:50}") long esperaEncolarMs,
+            @Value("${app.auditoria.journal-dir:data/audit-journal}") String directorioJournal,
+            @Value("${app.auditoria.journal-max-entradas:10000}") int maxEntradasSegmento) {
+        this.batchRepository = batchRepository;
+        this.txTemplate = new TransactionTemplate(transactionManager);
+        // Transacción propia: también se usa desde afterCommit del llamador
+        this.txTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.tamanoLote = tamanoLote;
+        this.intervaloMs = intervaloMs;
+        this.esperaEncolarMs = esperaEncolarMs;
+        this.directorioJournal = Paths.get(directorioJournal);
+        this.maxEntradasSegmento = maxEntradasSegmento;
+
+        meterRegistry.gauge("ergpos.auditoria.cola", cola, BlockingQueue::size);
+        this.flushTimer = Timer.builder("ergpos.auditoria.flush")
+                .description("Latencia de escritura de un batch de auditoría")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.desbordadas = meterRegistry.counter("ergpos.auditoria.desbordadas");
+        this.errores = meterRegistry.counter("ergpos.auditoria.errores");
+    }
+
+    /**
+     * Registra la auditoría para escritura diferida. Dentro de una transacción
+     * solo se encola al confirmarse (un rollback no deja auditoría).
+     */
+    public void registrar(InventarioAudit auditoria) {
+        // Precisión de la columna: permite detectar duplicados al reprocesar el journal
+        auditoria.setCreatedAt(auditoria.getCreatedAt().truncatedTo(ChronoUnit.MICROS));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    encolar(auditoria);
+                }
+            });
+        } else {
+            encolar(auditoria);
+        }
+    }
+
+    private void encolar(InventarioAudit auditoria) {
+        Pendiente pendiente = new Pendiente(auditoria, null);
+        if (journal == null) {
+            escribirDirecto(pendiente);
+            return;
+        }
+
+        boolean encolado = false;
+        if (activo) {
+            try {
+                encolado = cola.offer(pendiente, esperaEncolarMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Contrapresión: cola llena (o writer detenido), anota y escribe el llamador
+        if (!encolado) {
+            desbordadas.increment();
+            escribirDirecto(anotar(List.of(pendiente)).get(0));
+        }
+    }
+
+    // Anota el lote en el journal; sin journal (error de E/S) se escribe igual, sin respaldo
+    private List<Pendiente> anotar(List<Pendiente> lote) {
+        try {
+            List<String> lineas = new ArrayList<>(lote.size());
+            for (Pendiente pendiente : lote) {
+                InventarioAudit auditoria = pendiente.auditoria();
+                lineas.add(objectMapper.writeValueAsString(new EntradaJournal(
+                        auditoria.getEventoTipo(), auditoria.getTablaNombre(), auditoria.getRegistroId(),
+                        auditoria.getUsuarioId(), auditoria.getDetalle(), auditoria.getCreatedAt())));
+            }
+            InventarioAuditJournal.Segmento segmento = journal.append(lineas);
+            List<Pendiente> anotados = new ArrayList<>(lote.size());
+            for (Pendiente pendiente : lote) {
+                anotados.add(new Pendiente(pendiente.auditoria(), segmento));
+            }
+            return anotados;
+        } catch (IOException e) {
+            logger.error("No se pudo anotar la auditoría en el journal: {}", e.getMessage());
+            return lote;
+        }
+    }
+
+    private void escribirDirecto(Pendiente pendiente) {
+        try {
+            escribir(List.of(pendiente));
+        } catch (RuntimeException e) {
+            errores.increment();
+            logger.error("No se pudo escribir la auditoría (queda en el journal si se anotó): {}", e.getMessage());
+        }
+    }
+
+    // ==================== HILO ESCRITOR ====================
+
+    private void ejecutar() {
+        List<Pendiente> lote = new ArrayList<>(tamanoLote);
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(intervaloMs, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+
+                // Completar el lote hasta N registros o T ms desde el primero
+                long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+                while (lote.size() < tamanoLote) {
+                    long restante = limite - System.nanoTime();
+                    Pendiente siguiente = restante > 0 ? cola.poll(restante, TimeUnit.NANOSECONDS) : cola.poll();
+                    if (siguiente == null) {
+                        break;
+                    }
+                    lote.add(siguiente);
+                }
+
+                escribirConReintento(anotar(lote));
+            } catch (InterruptedException e) {
+                // stop(): se sigue vaciando la cola
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribirConReintento(List<Pendiente> lote) throws InterruptedException {
+        long espera = intervaloMs;
+        while (true) {
+            try {
+                escribir(lote);
+                return;
+            } catch (RuntimeException e) {
+                errores.increment();
+                if (!activo) {
+                    logger.error("Auditoría no escrita al detener ({} registros quedan en el journal): {}",
+                            lote.size(), e.getMessage());
+                    return;
+                }
+                logger.warn("Error escribiendo auditoría, reintento en {} ms: {}", espera, e.getMessage());
+                Thread.sleep(espera);
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_REINTENTO_MS);
+            }
+        }
+    }
+
+    private void escribir(List<Pendiente> lote) {
+        List<InventarioAudit> auditorias = new ArrayList<>(lote.size());
+        for (Pendiente pendiente : lote) {
+            InventarioAudit auditoria = pendiente.auditoria();
+            // Escape/normalización fuera del hilo de la petición
+            auditoria.setDetalle(InventarioAuditService.normalizarDetalle(auditoria.getDetalle()));
+            auditorias.add(auditoria);
+        }
+
+        flushTimer.record(() -> txTemplate.executeWithoutResult(
+                status -> batchRepository.insertarAuditorias(auditorias)));
+
+        // Confirmar en el journal agrupando por segmento
+        Map<InventarioAuditJournal.Segmento, Integer> porSegmento = new IdentityHashMap<>();
+        for (Pendiente pendiente : lote) {
+            if (pendiente.segmento() != null) {
+                porSegmento.merge(pendiente.segmento(), 1, Integer::sum);
+            }
+        }
+        porSegmento.forEach((segmento, cantidad) -> journal.confirmar(segmento, cantidad));
+    }
+
+    // ==================== RECUPERACIÓN ====================
+
+    // Reescribe lo que quedó en el journal tras una parada no limpia
+    private void recuperarJournal() throws IOException {
+        for (Path archivo : journal.segmentosHuerfanos()) {
+            List<InventarioAudit> auditorias = new ArrayList<>();
+            for (String linea : Files.readAllLines(archivo)) {
+                if (linea.isBlank()) {
+                    continue;
+                }
+                try {
+                    EntradaJournal entrada = objectMapper.readValue(linea, EntradaJournal.class);
+                    InventarioAudit auditoria = new InventarioAudit(entrada.eventoTipo(), entrada.tablaNombre(),
+                            entrada.registroId(), entrada.usuarioId(),
+                            InventarioAuditService.normalizarDetalle(entrada.detalle()));
+                    auditoria.setCreatedAt(entrada.createdAt());
+                    auditorias.add(auditoria);
+                } catch (IOException e) {
+                    // Línea incompleta por una caída durante la escritura
+                    logger.warn("Línea de journal descartada en {}: {}", archivo.getFileName(), e.getMessage());
+                }
+            }
+
+            txTemplate.executeWithoutResult(status -> batchRepository.insertarAuditoriasSiNoExisten(auditorias));
+            InventarioAuditJournal.eliminar(archivo);
+            logger.info("Journal de auditoría recuperado: {} ({} registros)", archivo.getFileName(),
+                    auditorias.size());
+        }
+    }
+
+    // ==================== CICLO DE VIDA ====================
+
+    @Override
+    public void start() {
+        try {
+            journal = new InventarioAuditJournal(directorioJournal, maxEntradasSegmento);
+            recuperarJournal();
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo inicializar el journal de auditoría en " + directorioJournal,
+                    e);
+        }
+
+        activo = true;
+        hilo = new Thread(this::ejecutar, "audit-writer");
+        hilo.setDaemon(true);
+        hilo.start();
+        logger.info("Escritor de auditoría iniciado (lote: {}, intervalo: {} ms, capacidad: {})",
+                tamanoLote, intervaloMs, cola.remainingCapacity());
+    }
+
+    @Override
+    public void stop() {
+        activo = false;
+        if (hilo != null) {
+            hilo.interrupt();
+            try {
+                hilo.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            journal.cerrar();
+        }
+        logger.info("Escritor de auditoría detenido (pendientes en cola: {})", cola.size());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return activo;
+    }
+
+    // Arranca antes que el servidor web y se detiene después (vacía la cola sin peticiones en curso)
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ergpos.app.service;
+
+import java.util.UUID;
+import com.ergpos.app.model.MovimientoInventario;
+
+/**
+ * Payload de los eventos de movimiento en el outbox.
+ *
+ * Solo lleva identificadores y cantidades (disponibles sin inicializar
+ * proxies); los consumidores cargan el resto fuera de la transacción original.
+ */
+public record MovimientoEvento(UUID movimientoId, UUID productoId, UUID usuarioId, String tipoMovimiento,
+        int cantidad) {
+
+    public static MovimientoEvento de(MovimientoInventario movimiento) {
+        return new MovimientoEvento(
+                movimiento.getId(),
+                movimiento.getProducto().getId(),
+                movimiento.getUsuario().getId(),
+                movimiento.getTipo().name(),
+                movimiento.getCantidad());
+    }
+}
@@ -0,0 +1,236 @@
+package com.ergpos.app.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import com.ergpos.app.dto.movimientos.MovimientoInventarioResponseDTO;
+import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.repository.MovimientoExportRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Exportación de movimientos en streaming (CSV o NDJSON).
+ *
+ * Los filtros se validan antes de empezar a responder; después las filas se
+ * leen con cursor desde la base de datos y se escriben directamente en la
+ * respuesta, sin construir la lista completa en memoria.
+ *
+ * Cada exportación ocupa una conexión del pool mientras dura, por eso se
+ * limita el número de exportaciones simultáneas.
+ */
+@Service
+public class MovimientoExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovimientoExportService.class);
+    private static final int BUFFER_ESCRITURA = 64 * 1024;
+
+    public enum FormatoExport {
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+        NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        FormatoExport(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final String CABECERA_CSV = "id,codigoProducto,nombreProducto,cantidad,tipo,proveedorNombre,"
+            + "usuarioNombre,observacion,documentoRef,costoUnitario,fecha,estado,createdAt";
+
+    private final MovimientoInventarioService movimientoService;
+    private final MovimientoExportRepository exportRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Semaphore exportacionesActivas;
+    private final int filasPorFlush;
+
+    public MovimientoExportService(
+            MovimientoInventarioService movimientoService,
+            MovimientoExportRepository exportRepo,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${app.movimientos.export.max-concurrentes:2}") int maxConcurrentes,
+            @Value("${app.movimientos.export.fetch-size:1000}") int filasPorFlush) {
+        this.movimientoService = movimientoService;
+        this.exportRepo = exportRepo;
+        this.objectMapper = objectMapper;
+        this.exportacionesActivas = new Semaphore(maxConcurrentes);
+        this.filasPorFlush = filasPorFlush;
+
+        // Transacción de solo lectura: necesaria para que el driver use cursor
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public FormatoExport resolverFormato(String formato) {
+        if (formato == null || formato.trim().isEmpty()) {
+            return FormatoExport.CSV;
+        }
+        try {
+            return FormatoExport.valueOf(formato.toUpperCase().trim());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(
+                    "INVALID_FORMATO",
+                    "Formato inválido. Debe ser CSV o NDJSON",
+                    400);
+        }
+    }
+
+    /**
+     * Valida los filtros y comprueba que haya cupo; la escritura ocurre cuando
+     * Spring MVC ejecuta el cuerpo devuelto.
+     *
+     * El cupo se toma y se libera dentro del cuerpo: si Spring MVC nunca lo
+     * ejecuta (cliente desconectado, timeout antes de empezar), no queda
+     * reservado. La comprobación previa solo sirve para responder 503 limpio.
+     */
+    public StreamingResponseBody exportar(
+            String codigoProducto,
+            String tipoStr,
+            String estadoStr,
+            String codigoUsuario,
+            String rucProveedor,
+            LocalDateTime desde,
+            LocalDateTime hasta,
+            FormatoExport formato) {
+
+        MovimientoInventarioService.FiltroMovimientos filtro = movimientoService.resolverFiltros(
+                codigoProducto, tipoStr, estadoStr, codigoUsuario, rucProveedor, desde, hasta);
+
+        if (exportacionesActivas.availablePermits() == 0) {
+            throw exportacionesOcupadas();
+        }
+
+        return salida -> {
+            // Otra exportación tomó el último cupo entre la comprobación y este punto
+            if (!exportacionesActivas.tryAcquire()) {
+                throw exportacionesOcupadas();
+            }
+            long inicio = System.currentTimeMillis();
+            try {
+                Writer writer = new BufferedWriter(
+                        new OutputStreamWriter(salida, StandardCharsets.UTF_8), BUFFER_ESCRITURA);
+                if (formato == FormatoExport.CSV) {
+                    writer.write(CABECERA_CSV);
+                    writer.write('\n');
+                    writer.flush();
+                }
+
+                long[] escritas = new long[1];
+                Long total = transactionTemplate.execute(status -> exportRepo.recorrer(
+                        filtro.productoId(), filtro.tipo(), filtro.estado(), filtro.usuarioId(),
+                        filtro.proveedorId(), filtro.desde(), filtro.hasta(),
+                        mov -> {
+                            try {
+                                escribir(writer, mov, formato);
+                                // Primera fila cuanto antes; luego un flush por bloque leído
+                                if (++escritas[0] == 1 || escritas[0] % filasPorFlush == 0) {
+                                    writer.flush();
+                                }
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }));
+                writer.flush();
+
+                logger.info("Exportación de movimientos ({}) - filas: {}, duración: {} ms",
+                        formato, total, System.currentTimeMillis() - inicio);
+            } catch (UncheckedIOException e) {
+                // Normalmente el cliente cerró la conexión; la transacción ya se revirtió
+                logger.warn("Exportación de movimientos interrumpida: {}", e.getCause().getMessage());
+                throw e.getCause();
+            } finally {
+                exportacionesActivas.release();
+            }
+        };
+    }
+
+    private BusinessException exportacionesOcupadas() {
+        return new BusinessException(
+                "EXPORT_BUSY",
+                "Hay demasiadas exportaciones en curso. Intente nuevamente en unos minutos",
+                503);
+    }
+
+    private void escribir(Writer writer, MovimientoInventarioResponseDTO mov, FormatoExport formato)
+            throws IOException {
+        if (formato == FormatoExport.NDJSON) {
+            try {
+                writer.write(objectMapper.writeValueAsString(mov));
+            } catch (JsonProcessingException e) {
+                throw new IOException(e);
+            }
+            writer.write('\n');
+            return;
+        }
+
+        writer.write(mov.getId().toString());
+        writer.write(',');
+        writer.write(csv(mov.getCodigoProducto()));
+        writer.write(',');
+        writer.write(csv(mov.getNombreProducto()));
+        writer.write(',');
+        writer.write(String.valueOf(mov.getCantidad()));
+        writer.write(',');
+        writer.write(mov.getTipo());
+        writer.write(',');
+        writer.write(csv(mov.getProveedorNombre()));
+        writer.write(',');
+        writer.write(csv(mov.getUsuarioNombre()));
+        writer.write(',');
+        writer.write(csv(mov.getObservacion()));
+        writer.write(',');
+        writer.write(csv(mov.getDocumentoRef()));
+        writer.write(',');
+        writer.write(mov.getCostoUnitario() != null ? mov.getCostoUnitario().toPlainString() : "");
+        writer.write(',');
+        writer.write(mov.getFecha() != null ? mov.getFecha().toString() : "");
+        writer.write(',');
+        writer.write(mov.getEstado());
+        writer.write(',');
+        writer.write(mov.getCreatedAt() != null ? mov.getCreatedAt().toString() : "");
+        writer.write('\n');
+    }
+
+    // Campo CSV (RFC 4180): entre comillas solo si contiene separadores, comillas o saltos de línea.
+    // Un valor que empieza como fórmula (=, +, -, @, tabulador, retorno) se prefija con '
+    // para que la hoja de cálculo lo muestre como texto y no lo evalúe.
+    private static String csv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (!valor.isEmpty() && "=+-@\t\r".indexOf(valor.charAt(0)) >= 0) {
+            valor = "'" + valor;
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0
+                && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
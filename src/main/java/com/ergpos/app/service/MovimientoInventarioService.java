@@ -6,45 +6,94 @@ import java.util.UUID;
 
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.ergpos.app.dto.movimientos.MovimientoInventarioRequestDTO;
 import com.ergpos.app.dto.movimientos.MovimientoInventarioResponseDTO;
+import com.ergpos.app.dto.movimientos.MovimientoLoteErrorDTO;
+import com.ergpos.app.dto.movimientos.MovimientoLoteItemDTO;
+import com.ergpos.app.dto.movimientos.MovimientoLoteRequestDTO;
+import com.ergpos.app.dto.movimientos.MovimientoLoteResponseDTO;
+import com.ergpos.app.dto.movimientos.MovimientoPaginaResponseDTO;
 import com.ergpos.app.model.MovimientoInventario;
+import com.ergpos.app.model.OutboxEvento;
 import com.ergpos.app.model.MovimientoInventario.TipoMovimiento;
 import com.ergpos.app.model.MovimientoInventario.EstadoMovimiento;
 import com.ergpos.app.model.Proveedor;
 import com.ergpos.app.model.Usuario;
+import com.ergpos.app.repository.InventarioBatchRepository;
 import com.ergpos.app.repository.MovimientoInventarioRepository;
 import com.ergpos.app.repository.ProductoRepository;
 import com.ergpos.app.repository.ProveedorRepository;
 import com.ergpos.app.repository.UsuarioRepository;
 import com.ergpos.app.exception.StockInsufficiencyException;
 import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.util.CursorUtils;
 
 @Service
 @Transactional(readOnly = true)
 public class MovimientoInventarioService {
 
+    /**
+     * Estrategia de actualización de stock, configurable por despliegue.
+     *
+     * PESSIMISTA: SELECT ... FOR UPDATE del producto durante toda la transacción.
+     * CONDICIONAL: un único UPDATE con guarda (stock suficiente); el número de
+     * filas afectadas indica si la operación fue posible.
+     */
+    public enum EstrategiaStock {
+        PESSIMISTA, CONDICIONAL
+    }
+
+    private static final int TAMANO_PAGINA_DEFECTO = 50;
+    private static final int TAMANO_PAGINA_MAXIMO = 200;
+    // Mayor UUID en el orden de PostgreSQL: cursor inicial que incluye todas las filas de 'hasta'
+    private static final UUID ULTIMO_UUID = new UUID(-1L, -1L);
+
     private final MovimientoInventarioRepository movimientoRepo;
     private final ProductoRepository productoRepo;
     private final ProveedorRepository proveedorRepo;
     private final UsuarioRepository usuarioRepo;
-    private final InventarioAuditService auditService;
+    private final OutboxService outboxService;
+    private final InventarioBatchRepository batchRepo;
+    private final StockFraccionadoService stockFraccionado;
+    private final StockReservadoService stockReservado;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EstrategiaStock estrategiaStock;
 
     public MovimientoInventarioService(
             MovimientoInventarioRepository movimientoRepo,
             ProductoRepository productoRepo,
             ProveedorRepository proveedorRepo,
             UsuarioRepository usuarioRepo,
-            InventarioAuditService auditService) {
+            OutboxService outboxService,
+            InventarioBatchRepository batchRepo,
+            StockFraccionadoService stockFraccionado,
+            StockReservadoService stockReservado,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.inventario.estrategia-stock:PESSIMISTA}") EstrategiaStock estrategiaStock) {
         this.movimientoRepo = movimientoRepo;
         this.productoRepo = productoRepo;
         this.proveedorRepo = proveedorRepo;
         this.usuarioRepo = usuarioRepo;
-        this.auditService = auditService;
+        this.outboxService = outboxService;
+        this.batchRepo = batchRepo;
+        this.stockFraccionado = stockFraccionado;
+        this.stockReservado = stockReservado;
+        this.eventPublisher = eventPublisher;
+        this.estrategiaStock = estrategiaStock;
     }
 
     private MovimientoInventarioResponseDTO toDTO(MovimientoInventario mov) {
@@ -65,8 +114,72 @@ public class MovimientoInventarioService {
         return dto;
     }
 
-    // Listar con búsqueda dinámica
-    public List<MovimientoInventarioResponseDTO> listar(
+    // Listar con búsqueda dinámica, acotada por fechas y paginada por cursor (fecha, id)
+    public MovimientoPaginaResponseDTO listar(
+            String codigoProducto,
+            String tipoStr,
+            String estadoStr,
+            String codigoUsuario,
+            String rucProveedor,
+            LocalDateTime desde,
+            LocalDateTime hasta,
+            String cursor,
+            Integer tamano) {
+
+        FiltroMovimientos filtro = resolverFiltros(
+                codigoProducto, tipoStr, estadoStr, codigoUsuario, rucProveedor, desde, hasta);
+
+        int tamanoPagina = tamano != null ? tamano : TAMANO_PAGINA_DEFECTO;
+        if (tamanoPagina < 1 || tamanoPagina > TAMANO_PAGINA_MAXIMO) {
+            throw new BusinessException(
+                    "INVALID_PAGE_SIZE",
+                    String.format("El tamaño de página debe estar entre 1 y %d", TAMANO_PAGINA_MAXIMO),
+                    400);
+        }
+
+        // Sin cursor se parte de (hasta, mayor UUID posible): misma consulta para todas las páginas
+        CursorUtils.Cursor posicion = CursorUtils.decodificar(cursor);
+        LocalDateTime cursorFecha = filtro.hasta();
+        UUID cursorId = ULTIMO_UUID;
+        if (posicion != null && !posicion.fecha().isAfter(filtro.hasta())) {
+            cursorFecha = posicion.fecha();
+            cursorId = posicion.id();
+        }
+
+        // Se pide una fila extra para saber si hay más páginas
+        List<MovimientoInventario> filas = movimientoRepo.buscarPagina(
+                filtro.productoId(), filtro.tipo(), filtro.estado(), filtro.usuarioId(), filtro.proveedorId(),
+                filtro.desde(), cursorFecha, cursorId, Limit.of(tamanoPagina + 1));
+
+        boolean hayMas = filas.size() > tamanoPagina;
+        if (hayMas) {
+            filas = filas.subList(0, tamanoPagina);
+        }
+
+        MovimientoPaginaResponseDTO pagina = new MovimientoPaginaResponseDTO();
+        pagina.setItems(filas.stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList()));
+        pagina.setTamano(tamanoPagina);
+        pagina.setHayMas(hayMas);
+        pagina.setDesde(filtro.desde());
+        pagina.setHasta(filtro.hasta());
+        if (hayMas) {
+            MovimientoInventario ultimo = filas.get(filas.size() - 1);
+            pagina.setSiguienteCursor(CursorUtils.codificar(ultimo.getFecha(), ultimo.getId()));
+        }
+        return pagina;
+    }
+
+    /**
+     * Filtros de búsqueda de movimientos ya validados y resueltos a IDs.
+     */
+    record FiltroMovimientos(UUID productoId, TipoMovimiento tipo, EstadoMovimiento estado, UUID usuarioId,
+            UUID proveedorId, LocalDateTime desde, LocalDateTime hasta) {
+    }
+
+    // Valida los filtros de listar/exportar y resuelve los códigos a IDs (rango por defecto: último año)
+    FiltroMovimientos resolverFiltros(
             String codigoProducto,
             String tipoStr,
             String estadoStr,
@@ -143,16 +256,12 @@ public class MovimientoInventarioService {
             proveedorId = proveedor.getId();
         }
 
-        return movimientoRepo.buscarMovimientos(
-                productoId, tipo, estado, usuarioId, proveedorId)
-                .stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return new FiltroMovimientos(productoId, tipo, estado, usuarioId, proveedorId, desde, hasta);
     }
 
     // Obtener por ID
     public MovimientoInventarioResponseDTO obtener(String id) {
-        MovimientoInventario movimiento = movimientoRepo.findById(UUID.fromString(id))
+        MovimientoInventario movimiento = movimientoRepo.findDetalleById(UUID.fromString(id))
                 .orElseThrow(() -> new BusinessException(
                         "MOVIMIENTO_NOT_FOUND",
                         "Movimiento no encontrado",
@@ -160,16 +269,36 @@ public class MovimientoInventarioService {
         return toDTO(movimiento);
     }
 
-    // CREAR MOVIMIENTO CON LOCKS PESSIMISTAS
+    // CREAR MOVIMIENTO
     @Transactional
     public MovimientoInventarioResponseDTO crear(MovimientoInventarioRequestDTO request) {
+        return crear(request, 0);
+    }
 
-        //LOCK PESSIMISTA: Obtener producto con lock
-        Producto producto = productoRepo.findByCodigoWithLock(request.getCodigoProducto())
+    /**
+     * Crea el movimiento. Una SALIDA no puede consumir stock retenido por
+     * reservas activas; al confirmar una reserva, reservadoPropio es su
+     * cantidad, que sí puede consumir.
+     */
+    @Transactional
+    public MovimientoInventarioResponseDTO crear(MovimientoInventarioRequestDTO request, int reservadoPropio) {
+
+        // PESSIMISTA: el producto queda bloqueado durante toda la transacción.
+        // CONDICIONAL: lectura sin lock; el stock se valida en el UPDATE final.
+        // Stock fraccionado: nunca se bloquea la fila del producto, el descuento va a un shard.
+        boolean bajoLock = estrategiaStock == EstrategiaStock.PESSIMISTA
+                && !productoRepo.esStockFraccionado(request.getCodigoProducto());
+        Producto producto = (bajoLock
+                ? productoRepo.findByCodigoWithLock(request.getCodigoProducto())
+                : productoRepo.findByCodigo(request.getCodigoProducto()))
                 .orElseThrow(() -> new BusinessException(
                         "PRODUCTO_NOT_FOUND",
                         "Producto no encontrado",
                         404));
+        // El camino se decide con la fila leída: si el stock se fraccionó entre la
+        // consulta y el lock, el descuento va a los shards aunque se haya bloqueado
+        boolean fraccionado = producto.getStockFraccionado();
+        boolean condicional = !bajoLock || fraccionado;
 
         if (!producto.getActivo()) {
             throw new BusinessException(
@@ -178,69 +307,24 @@ public class MovimientoInventarioService {
                     400);
         }
 
-        // Validar tipo
-        TipoMovimiento tipo;
-        try {
-            tipo = TipoMovimiento.valueOf(request.getTipo().toUpperCase().trim());
-        } catch (IllegalArgumentException e) {
-            throw new BusinessException(
-                    "INVALID_TIPO",
-                    "Tipo inválido. Debe ser ENTRADA o SALIDA",
-                    400);
-        }
-
-        // Determinar estado inicial
-        EstadoMovimiento estadoInicial = EstadoMovimiento.ACTIVO;
-        if (request.getEstado() != null && !request.getEstado().trim().isEmpty()) {
-            try {
-                estadoInicial = EstadoMovimiento.valueOf(request.getEstado().toUpperCase().trim());
-            } catch (IllegalArgumentException e) {
-                throw new BusinessException(
-                        "INVALID_ESTADO",
-                        "Estado inválido. Debe ser ACTIVO, ANULADO o PENDIENTE",
-                        400);
-            }
-        }
+        TipoMovimiento tipo = parseTipo(request.getTipo());
+        EstadoMovimiento estadoInicial = parseEstado(request.getEstado());
+        int reservado = tipo == TipoMovimiento.SALIDA
+                ? Math.max(0, stockReservado.stockReservado(producto.getId()) - reservadoPropio)
+                : 0;
 
         // VALIDACIÓN BAJO LOCK: Validar stock DENTRO de la transacción
-        if (estadoInicial == EstadoMovimiento.ACTIVO && tipo == TipoMovimiento.SALIDA) {
-            if (producto.getStockActual() < request.getCantidad()) {
+        if (!condicional
+                && estadoInicial == EstadoMovimiento.ACTIVO && tipo == TipoMovimiento.SALIDA) {
+            if (producto.getStockActual() - reservado < request.getCantidad()) {
                 throw new StockInsufficiencyException(
-                        producto.getStockActual(),
+                        Math.max(0, producto.getStockActual() - reservado),
                         request.getCantidad());
             }
         }
 
-        // Validar usuario
-        Usuario usuario = usuarioRepo.findByCodigo(request.getCodigoUsuario())
-                .orElseThrow(() -> new BusinessException(
-                        "USUARIO_NOT_FOUND",
-                        "Usuario no encontrado",
-                        404));
-
-        if (!usuario.getActivo()) {
-            throw new BusinessException(
-                    "USUARIO_INACTIVE",
-                    "El usuario está inactivo",
-                    400);
-        }
-
-        // Validar proveedor (opcional)
-        Proveedor proveedor = null;
-        if (request.getRucProveedor() != null && !request.getRucProveedor().trim().isEmpty()) {
-            proveedor = proveedorRepo.findByRuc(request.getRucProveedor())
-                    .orElseThrow(() -> new BusinessException(
-                            "PROVEEDOR_NOT_FOUND",
-                            "Proveedor no encontrado",
-                            404));
-
-            if (!proveedor.getActivo()) {
-                throw new BusinessException(
-                        "PROVEEDOR_INACTIVE",
-                        "El proveedor está inactivo",
-                        400);
-            }
-        }
+        Usuario usuario = resolverUsuario(request.getCodigoUsuario());
+        Proveedor proveedor = resolverProveedor(request.getRucProveedor());
 
         // Crear movimiento
         MovimientoInventario movimiento = new MovimientoInventario();
@@ -256,7 +340,7 @@ public class MovimientoInventarioService {
         movimiento.setEstado(estadoInicial);
 
         // Actualizar stock BAJO LOCK (dentro de transacción)
-        if (estadoInicial == EstadoMovimiento.ACTIVO) {
+        if (!condicional && estadoInicial == EstadoMovimiento.ACTIVO) {
             if (tipo == TipoMovimiento.ENTRADA) {
                 producto.setStockActual(producto.getStockActual() + request.getCantidad());
             } else {
@@ -267,21 +351,177 @@ public class MovimientoInventarioService {
 
         MovimientoInventario saved = movimientoRepo.save(movimiento);
 
-        //REGISTRAR AUDITORÍA
-        auditService.registrarAuditoria(
-                "INSERT",
-                "movimientos_inventario",
-                saved.getId(),
-                usuario.getId(),
-                String.format("Movimiento %s: Producto %s, Cantidad %d",
-                        tipo.name(),
-                        producto.getNombre(),
-                        request.getCantidad()));
+        // OUTBOX: auditoría y alertas se procesan fuera de la transacción
+        outboxService.publicar(OutboxEvento.MOVIMIENTO_CREADO, saved.getId(), MovimientoEvento.de(saved));
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(producto.getId()));
+
+        // UPDATE condicional al final: el lock de fila solo dura hasta el commit
+        if (condicional && estadoInicial == EstadoMovimiento.ACTIVO) {
+            if (tipo == TipoMovimiento.ENTRADA) {
+                incrementarStock(producto.getId(), fraccionado, request.getCantidad());
+            } else if (!descontarStock(producto.getId(), fraccionado, request.getCantidad(), reservado)) {
+                throw new StockInsufficiencyException(
+                        Math.max(0, stockActual(producto.getId(), fraccionado) - reservado),
+                        request.getCantidad());
+            }
+        }
 
         return toDTO(saved);
     }
 
-    // ANULAR MOVIMIENTO CON LOCKS
+    // CREAR MOVIMIENTOS EN LOTE (todo o nada)
+    @Transactional
+    public MovimientoLoteResponseDTO crearLote(MovimientoLoteRequestDTO request) {
+        List<MovimientoLoteItemDTO> items = request.getItems();
+
+        MovimientoLoteResponseDTO resultado = new MovimientoLoteResponseDTO();
+        resultado.setTotalLineas(items.size());
+
+        // Usuario y proveedor se resuelven una sola vez para todo el lote
+        Usuario usuario = resolverUsuario(request.getCodigoUsuario());
+        Proveedor proveedor = resolverProveedor(request.getRucProveedor());
+        EstadoMovimiento estadoInicial = parseEstado(request.getEstado());
+
+        // LOCK PESSIMISTA: todos los productos del lote en una sola consulta, ordenados por id
+        Set<String> codigos = new LinkedHashSet<>();
+        for (MovimientoLoteItemDTO item : items) {
+            if (item.getCodigoProducto() != null) {
+                codigos.add(item.getCodigoProducto().trim());
+            }
+        }
+        Map<String, Producto> productos = productoRepo.findAllByCodigoInWithLock(codigos)
+                .stream()
+                .collect(Collectors.toMap(Producto::getCodigo, Function.identity()));
+
+        // Stock fraccionado: el disponible es la suma de shards, no stock_actual
+        Map<UUID, Integer> totalesFraccionados = stockFraccionado.stockTotales(productos.values().stream()
+                .filter(Producto::getStockFraccionado)
+                .map(Producto::getId)
+                .collect(Collectors.toList()));
+
+        // VALIDACIÓN BAJO LOCK: se acumula el stock resultante por producto
+        Map<String, Integer> stockResultante = new HashMap<>();
+        List<TipoMovimiento> tipos = new ArrayList<>(items.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            MovimientoLoteItemDTO item = items.get(i);
+            int linea = i + 1;
+            String codigo = item.getCodigoProducto() != null ? item.getCodigoProducto().trim() : null;
+            tipos.add(null);
+
+            Producto producto = codigo != null ? productos.get(codigo) : null;
+            if (producto == null) {
+                resultado.getErrores().add(new MovimientoLoteErrorDTO(
+                        linea, codigo, "PRODUCTO_NOT_FOUND", "Producto no encontrado"));
+                continue;
+            }
+
+            if (!producto.getActivo()) {
+                resultado.getErrores().add(new MovimientoLoteErrorDTO(
+                        linea, codigo, "PRODUCTO_INACTIVE", "El producto está inactivo"));
+                continue;
+            }
+
+            if (item.getCantidad() == null || item.getCantidad() <= 0) {
+                resultado.getErrores().add(new MovimientoLoteErrorDTO(
+                        linea, codigo, "INVALID_CANTIDAD", "La cantidad debe ser mayor a 0"));
+                continue;
+            }
+
+            TipoMovimiento tipo;
+            try {
+                tipo = TipoMovimiento.valueOf(item.getTipo().toUpperCase().trim());
+            } catch (IllegalArgumentException | NullPointerException e) {
+                resultado.getErrores().add(new MovimientoLoteErrorDTO(
+                        linea, codigo, "INVALID_TIPO", "Tipo inválido. Debe ser ENTRADA o SALIDA"));
+                continue;
+            }
+            tipos.set(i, tipo);
+
+            if (estadoInicial == EstadoMovimiento.ACTIVO) {
+                int stock = stockResultante.getOrDefault(codigo,
+                        totalesFraccionados.getOrDefault(producto.getId(), producto.getStockActual()));
+                if (tipo == TipoMovimiento.SALIDA) {
+                    // Lo retenido por reservas activas no está disponible
+                    int disponible = stock - stockReservado.stockReservado(producto.getId());
+                    if (disponible < item.getCantidad()) {
+                        resultado.getErrores().add(new MovimientoLoteErrorDTO(
+                                linea, codigo, "INSUFFICIENT_STOCK",
+                                String.format("Stock insuficiente. Disponible: %d, solicitado: %d",
+                                        Math.max(0, disponible), item.getCantidad())));
+                        continue;
+                    }
+                    stockResultante.put(codigo, stock - item.getCantidad());
+                } else {
+                    stockResultante.put(codigo, stock + item.getCantidad());
+                }
+            }
+        }
+
+        // Todo o nada: con cualquier error no se escribe nada
+        if (!resultado.getErrores().isEmpty()) {
+            resultado.setExitoso(false);
+            return resultado;
+        }
+
+        // Aplicar deltas de stock (Hibernate agrupa los UPDATE al hacer flush)
+        stockResultante.forEach((codigo, stock) -> {
+            Producto producto = productos.get(codigo);
+            Integer totalShards = totalesFraccionados.get(producto.getId());
+            if (totalShards == null) {
+                producto.setStockActual(stock);
+            } else if (stock > totalShards) {
+                stockFraccionado.incrementar(producto.getId(), stock - totalShards);
+            } else if (stock < totalShards
+                    && !stockFraccionado.descontar(producto.getId(), totalShards - stock)) {
+                // Otra terminal descontó de los shards después de la validación
+                throw new StockInsufficiencyException(
+                        stockFraccionado.stockTotal(producto.getId()),
+                        totalShards - stock);
+            }
+        });
+
+        LocalDateTime ahora = LocalDateTime.now();
+        List<MovimientoInventario> movimientos = new ArrayList<>(items.size());
+        Map<UUID, MovimientoEvento> eventos = new LinkedHashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            MovimientoLoteItemDTO item = items.get(i);
+            Producto producto = productos.get(item.getCodigoProducto().trim());
+
+            MovimientoInventario movimiento = new MovimientoInventario();
+            movimiento.setId(UUID.randomUUID());
+            movimiento.setProducto(producto);
+            movimiento.setTipo(tipos.get(i));
+            movimiento.setCantidad(item.getCantidad());
+            movimiento.setProveedor(proveedor);
+            movimiento.setUsuario(usuario);
+            movimiento.setObservacion(item.getObservacion());
+            movimiento.setDocumentoRef(request.getDocumentoRef());
+            movimiento.setCostoUnitario(item.getCostoUnitario());
+            movimiento.setFecha(ahora);
+            movimiento.setEstado(estadoInicial);
+            // Mismos valores por defecto que al persistir vía JPA
+            movimiento.prePersist();
+            movimientos.add(movimiento);
+            eventos.put(movimiento.getId(), MovimientoEvento.de(movimiento));
+        }
+
+        batchRepo.insertarMovimientos(movimientos);
+        outboxService.publicarLote(OutboxEvento.MOVIMIENTO_CREADO, eventos);
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(stockResultante.keySet().stream()
+                .map(codigo -> productos.get(codigo).getId())
+                .toList()));
+
+        resultado.setExitoso(true);
+        resultado.setLineasProcesadas(movimientos.size());
+        resultado.setMovimientos(movimientos.stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList()));
+        return resultado;
+    }
+
+    // ANULAR MOVIMIENTO
     @Transactional
     public MovimientoInventarioResponseDTO anular(String id) {
         MovimientoInventario movimiento = movimientoRepo.findById(UUID.fromString(id))
@@ -297,45 +537,51 @@ public class MovimientoInventarioService {
                     400);
         }
 
-        //LOCK PESSIMISTA: Obtener producto con lock
-        Producto producto = productoRepo.findByIdWithLock(movimiento.getProducto().getId())
-                .orElseThrow(() -> new BusinessException(
-                        "PRODUCTO_NOT_FOUND",
-                        "Producto no encontrado",
-                        404));
-
-        // Revertir stock bajo lock
-        if (movimiento.getTipo() == TipoMovimiento.ENTRADA) {
-            int nuevoStock = producto.getStockActual() - movimiento.getCantidad();
-            if (nuevoStock < 0) {
-                throw new BusinessException(
-                        "NEGATIVE_STOCK",
-                        "No se puede anular: el stock quedaría negativo",
-                        400);
+        UUID productoId = movimiento.getProducto().getId();
+        boolean fraccionado = productoRepo.esStockFraccionado(productoId);
+        Producto producto = productoBajoLock(productoId, fraccionado);
+        fraccionado = producto != null ? producto.getStockFraccionado() : fraccionado;
+
+        if (producto == null || fraccionado) {
+            // Revertir stock con un único UPDATE condicional
+            if (movimiento.getTipo() == TipoMovimiento.ENTRADA) {
+                if (!descontarStock(productoId, fraccionado, movimiento.getCantidad(), 0)) {
+                    throw new BusinessException(
+                            "NEGATIVE_STOCK",
+                            "No se puede anular: el stock quedaría negativo",
+                            400);
+                }
+            } else {
+                incrementarStock(productoId, fraccionado, movimiento.getCantidad());
             }
-            producto.setStockActual(nuevoStock);
         } else {
-            producto.setStockActual(producto.getStockActual() + movimiento.getCantidad());
+            // Revertir stock bajo lock
+            if (movimiento.getTipo() == TipoMovimiento.ENTRADA) {
+                int nuevoStock = producto.getStockActual() - movimiento.getCantidad();
+                if (nuevoStock < 0) {
+                    throw new BusinessException(
+                            "NEGATIVE_STOCK",
+                            "No se puede anular: el stock quedaría negativo",
+                            400);
+                }
+                producto.setStockActual(nuevoStock);
+            } else {
+                producto.setStockActual(producto.getStockActual() + movimiento.getCantidad());
+            }
+
+            productoRepo.save(producto);
         }
 
         movimiento.setEstado(EstadoMovimiento.ANULADO);
-
-        productoRepo.save(producto);
         MovimientoInventario updated = movimientoRepo.save(movimiento);
 
-        //REGISTRAR AUDITORÍA
-        auditService.registrarAuditoria(
-                "UPDATE",
-                "movimientos_inventario",
-                movimiento.getId(),
-                movimiento.getUsuario().getId(),
-                String.format("Movimiento anulado. Stock revertido de %d",
-                        movimiento.getCantidad()));
+        outboxService.publicar(OutboxEvento.MOVIMIENTO_ANULADO, movimiento.getId(), MovimientoEvento.de(movimiento));
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(productoId));
 
         return toDTO(updated);
     }
 
-    // ACTIVAR MOVIMIENTO CON LOCKS
+    // ACTIVAR MOVIMIENTO
     @Transactional
     public MovimientoInventarioResponseDTO activar(String id) {
         MovimientoInventario movimiento = movimientoRepo.findById(UUID.fromString(id))
@@ -351,44 +597,158 @@ public class MovimientoInventarioService {
                     400);
         }
 
-        // LOCK PESSIMISTA: Obtener producto con lock
-        Producto producto = productoRepo.findByIdWithLock(movimiento.getProducto().getId())
+        UUID productoId = movimiento.getProducto().getId();
+        boolean fraccionado = productoRepo.esStockFraccionado(productoId);
+        Producto producto = productoBajoLock(productoId, fraccionado);
+        fraccionado = producto != null ? producto.getStockFraccionado() : fraccionado;
+        int reservado = movimiento.getTipo() == TipoMovimiento.SALIDA
+                ? stockReservado.stockReservado(productoId)
+                : 0;
+
+        if (producto == null || fraccionado) {
+            // Aplicar stock con un único UPDATE condicional
+            if (movimiento.getTipo() == TipoMovimiento.SALIDA) {
+                if (!descontarStock(productoId, fraccionado, movimiento.getCantidad(), reservado)) {
+                    throw new StockInsufficiencyException(
+                            Math.max(0, stockActual(productoId, fraccionado) - reservado),
+                            movimiento.getCantidad());
+                }
+            } else {
+                incrementarStock(productoId, fraccionado, movimiento.getCantidad());
+            }
+        } else {
+            // Validar stock para salidas (bajo lock), sin consumir lo retenido por reservas
+            if (movimiento.getTipo() == TipoMovimiento.SALIDA) {
+                if (producto.getStockActual() - reservado < movimiento.getCantidad()) {
+                    throw new StockInsufficiencyException(
+                            Math.max(0, producto.getStockActual() - reservado),
+                            movimiento.getCantidad());
+                }
+            }
+
+            // Actualizar stock bajo lock
+            if (movimiento.getTipo() == TipoMovimiento.ENTRADA) {
+                producto.setStockActual(producto.getStockActual() + movimiento.getCantidad());
+            } else {
+                producto.setStockActual(producto.getStockActual() - movimiento.getCantidad());
+            }
+
+            productoRepo.save(producto);
+        }
+
+        movimiento.setEstado(EstadoMovimiento.ACTIVO);
+        MovimientoInventario updated = movimientoRepo.save(movimiento);
+
+        outboxService.publicar(OutboxEvento.MOVIMIENTO_ACTIVADO, movimiento.getId(), MovimientoEvento.de(movimiento));
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(productoId));
+
+        return toDTO(updated);
+    }
+
+    // ==================== HELPERS ====================
+
+    // LOCK PESSIMISTA de la fila del producto, o null si el stock se actualiza con UPDATE condicional.
+    // El llamador decide con el stockFraccionado de la fila bloqueada: pudo habilitarse tras la consulta.
+    private Producto productoBajoLock(UUID productoId, boolean fraccionado) {
+        if (fraccionado || estrategiaStock == EstrategiaStock.CONDICIONAL) {
+            return null;
+        }
+        return productoRepo.findByIdWithLock(productoId)
                 .orElseThrow(() -> new BusinessException(
                         "PRODUCTO_NOT_FOUND",
                         "Producto no encontrado",
                         404));
+    }
 
-        // Validar stock para salidas (bajo lock)
-        if (movimiento.getTipo() == TipoMovimiento.SALIDA) {
-            if (producto.getStockActual() < movimiento.getCantidad()) {
-                throw new StockInsufficiencyException(
-                        producto.getStockActual(),
-                        movimiento.getCantidad());
-            }
+    // UPDATE condicional sobre la fila del producto o sobre un shard si el stock está fraccionado.
+    // reservado: cantidad retenida por reservas que el descuento no puede tocar
+    private boolean descontarStock(UUID productoId, boolean fraccionado, int cantidad, int reservado) {
+        if (!fraccionado) {
+            return reservado > 0
+                    ? productoRepo.descontarStockLibre(productoId, cantidad, reservado) > 0
+                    : productoRepo.descontarStock(productoId, cantidad) > 0;
+        }
+        // Los shards no tienen guarda global: con reservas se valida antes contra la suma
+        if (reservado > 0 && stockFraccionado.stockTotal(productoId) - reservado < cantidad) {
+            return false;
         }
+        return stockFraccionado.descontar(productoId, cantidad);
+    }
 
-        // Actualizar stock bajo lock
-        if (movimiento.getTipo() == TipoMovimiento.ENTRADA) {
-            producto.setStockActual(producto.getStockActual() + movimiento.getCantidad());
+    private void incrementarStock(UUID productoId, boolean fraccionado, int cantidad) {
+        if (fraccionado) {
+            stockFraccionado.incrementar(productoId, cantidad);
         } else {
-            producto.setStockActual(producto.getStockActual() - movimiento.getCantidad());
+            productoRepo.incrementarStock(productoId, cantidad);
         }
+    }
 
-        movimiento.setEstado(EstadoMovimiento.ACTIVO);
+    private int stockActual(UUID productoId, boolean fraccionado) {
+        return fraccionado
+                ? stockFraccionado.stockTotal(productoId)
+                : productoRepo.obtenerStockActual(productoId);
+    }
 
-        productoRepo.save(producto);
-        MovimientoInventario updated = movimientoRepo.save(movimiento);
+    private TipoMovimiento parseTipo(String tipoStr) {
+        try {
+            return TipoMovimiento.valueOf(tipoStr.toUpperCase().trim());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(
+                    "INVALID_TIPO",
+                    "Tipo inválido. Debe ser ENTRADA o SALIDA",
+                    400);
+        }
+    }
+
+    // Estado inicial del movimiento (ACTIVO si no se especifica)
+    private EstadoMovimiento parseEstado(String estadoStr) {
+        if (estadoStr == null || estadoStr.trim().isEmpty()) {
+            return EstadoMovimiento.ACTIVO;
+        }
+        try {
+            return EstadoMovimiento.valueOf(estadoStr.toUpperCase().trim());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(
+                    "INVALID_ESTADO",
+                    "Estado inválido. Debe ser ACTIVO, ANULADO o PENDIENTE",
+                    400);
+        }
+    }
 
-        // REGISTRAR AUDITORÍA
-        auditService.registrarAuditoria(
-                "UPDATE",
-                "movimientos_inventario",
-                movimiento.getId(),
-                movimiento.getUsuario().getId(),
-                String.format("Movimiento PENDIENTE activado. Stock actualizado %d %s",
-                        movimiento.getCantidad(),
-                        movimiento.getTipo().name()));
+    private Usuario resolverUsuario(String codigoUsuario) {
+        Usuario usuario = usuarioRepo.findByCodigo(codigoUsuario)
+                .orElseThrow(() -> new BusinessException(
+                        "USUARIO_NOT_FOUND",
+                        "Usuario no encontrado",
+                        404));
 
-        return toDTO(updated);
+        if (!usuario.getActivo()) {
+            throw new BusinessException(
+                    "USUARIO_INACTIVE",
+                    "El usuario está inactivo",
+                    400);
+        }
+        return usuario;
+    }
+
+    // Proveedor opcional: null si no se envía RUC
+    private Proveedor resolverProveedor(String rucProveedor) {
+        if (rucProveedor == null || rucProveedor.trim().isEmpty()) {
+            return null;
+        }
+
+        Proveedor proveedor = proveedorRepo.findByRuc(rucProveedor)
+                .orElseThrow(() -> new BusinessException(
+                        "PROVEEDOR_NOT_FOUND",
+                        "Proveedor no encontrado",
+                        404));
+
+        if (!proveedor.getActivo()) {
+            throw new BusinessException(
+                    "PROVEEDOR_INACTIVE",
+                    "El proveedor está inactivo",
+                    400);
+        }
+        return proveedor;
     }
-}
\ No newline at end of file
+}
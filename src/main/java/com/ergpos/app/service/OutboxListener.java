@@ -0,0 +1,16 @@
+package com.ergpos.app.service;
+
+import com.ergpos.app.model.OutboxEvento;
+
+/**
+ * Consumidor en proceso de eventos del outbox.
+ *
+ * La entrega es al menos una vez: manejar() puede recibir el mismo evento
+ * más de una vez y debe tolerarlo. Una excepción reprograma el evento.
+ */
+public interface OutboxListener {
+
+    boolean soporta(String tipo);
+
+    void manejar(OutboxEvento evento);
+}
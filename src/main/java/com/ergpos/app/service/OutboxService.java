@@ -0,0 +1,153 @@
+package com.ergpos.app.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ergpos.app.model.OutboxEvento;
+import com.ergpos.app.repository.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Outbox transaccional para efectos secundarios de los movimientos.
+ *
+ * publicar() inserta una fila en la transacción de negocio; el relay la
+ * reclama después con SKIP LOCKED, la entrega a los OutboxListener en una
+ * transacción propia por evento y la marca como procesada. Entrega al menos
+ * una vez, sin orden garantizado entre relays concurrentes.
+ *
+ * Sin @Transactional a nivel de clase: el relay gestiona sus transacciones
+ * con TransactionTemplate.
+ */
+@Service
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+    private static final long ESPERA_MAXIMA_SEGUNDOS = 3600;
+
+    private final OutboxRepository outboxRepository;
+    private final List<OutboxListener> listeners;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate relayTx;
+    private final TransactionTemplate listenerTx;
+    private final int tamanoLote;
+    private final int maxIntentos;
+    private final int retencionHoras;
+
+    public OutboxService(
+            OutboxRepository outboxRepository,
+            List<OutboxListener> listeners,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.outbox.lote:100}") int tamanoLote,
+            @Value("${app.outbox.max-intentos:10}") int maxIntentos,
+            @Value("${app.outbox.retencion-horas:72}") int retencionHoras) {
+        this.outboxRepository = outboxRepository;
+        this.listeners = listeners;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.relayTx = new TransactionTemplate(transactionManager);
+        // Cada evento se entrega aislado: el fallo de uno no revierte el lote
+        this.listenerTx = new TransactionTemplate(transactionManager);
+        this.listenerTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tamanoLote = tamanoLote;
+        this.maxIntentos = maxIntentos;
+        this.retencionHoras = retencionHoras;
+    }
+
+    /**
+     * Registra un evento en la transacción en curso (obligatoria).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publicar(String tipo, UUID agregadoId, Object payload) {
+        outboxRepository.insertar(tipo, agregadoId, serializar(payload));
+    }
+
+    /**
+     * Registra varios eventos del mismo tipo en un único batch JDBC.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publicarLote(String tipo, Map<UUID, ?> payloadsPorAgregado) {
+        List<OutboxEvento> eventos = new ArrayList<>(payloadsPorAgregado.size());
+        payloadsPorAgregado.forEach((agregadoId, payload) ->
+                eventos.add(new OutboxEvento(0, tipo, agregadoId, serializar(payload), 0)));
+        outboxRepository.insertarLote(eventos);
+    }
+
+    // ==================== RELAY ====================
+
+    @Scheduled(fixedDelayString = "${app.outbox.intervalo-ms:500}")
+    public void procesarPendientes() {
+        Integer procesados;
+        do {
+            procesados = relayTx.execute(status -> procesarLote());
+        } while (procesados != null && procesados == tamanoLote);
+    }
+
+    private int procesarLote() {
+        List<OutboxEvento> eventos = outboxRepository.reclamarPendientes(tamanoLote, maxIntentos);
+        List<Long> entregados = new ArrayList<>(eventos.size());
+
+        for (OutboxEvento evento : eventos) {
+            try {
+                listenerTx.executeWithoutResult(status -> despachar(evento));
+                entregados.add(evento.id());
+                meterRegistry.counter("ergpos.outbox.procesados", "tipo", evento.tipo()).increment();
+            } catch (RuntimeException e) {
+                long espera = Math.min(ESPERA_MAXIMA_SEGUNDOS, 1L << Math.min(evento.intentos(), 12));
+                outboxRepository.marcarFallido(evento.id(), e.getMessage(), espera);
+                meterRegistry.counter("ergpos.outbox.fallidos", "tipo", evento.tipo()).increment();
+
+                if (evento.intentos() + 1 >= maxIntentos) {
+                    logger.error("Evento outbox {} ({}) descartado tras {} intentos: {}",
+                            evento.id(), evento.tipo(), maxIntentos, e.getMessage());
+                } else {
+                    logger.warn("Evento outbox {} ({}) falló, reintento en {} s: {}",
+                            evento.id(), evento.tipo(), espera, e.getMessage());
+                }
+            }
+        }
+
+        outboxRepository.marcarProcesados(entregados);
+        return eventos.size();
+    }
+
+    private void despachar(OutboxEvento evento) {
+        for (OutboxListener listener : listeners) {
+            if (listener.soporta(evento.tipo())) {
+                listener.manejar(evento);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.limpieza-ms:3600000}")
+    public void limpiarProcesados() {
+        int eliminados = outboxRepository.eliminarProcesadosAntesDe(LocalDateTime.now().minusHours(retencionHoras));
+        if (eliminados > 0) {
+            logger.info("Eventos outbox procesados eliminados: {}", eliminados);
+        }
+    }
+
+    private String serializar(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento outbox", e);
+        }
+    }
+}
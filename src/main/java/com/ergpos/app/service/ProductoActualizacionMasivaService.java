@@ -0,0 +1,190 @@
+package com.ergpos.app.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.ergpos.app.dto.producto.ActualizacionMasivaRequestDTO;
+import com.ergpos.app.dto.producto.ActualizacionMasivaResponseDTO;
+import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.model.Categoria;
+import com.ergpos.app.model.Proveedor;
+import com.ergpos.app.repository.CategoriaRepository;
+import com.ergpos.app.repository.ProductoActualizacionMasivaRepository;
+import com.ergpos.app.repository.ProductoActualizacionMasivaRepository.Cambios;
+import com.ergpos.app.repository.ProductoActualizacionMasivaRepository.Criterio;
+import com.ergpos.app.repository.ProductoActualizacionMasivaRepository.Impacto;
+import com.ergpos.app.repository.ProveedorRepository;
+
+/**
+ * Cambios de precio, stock mínimo o estado sobre muchos productos a la vez
+ * (listas de precios de proveedores, ajustes por categoría).
+ *
+ * Los valores se validan en memoria con las reglas de ProductoService antes
+ * de tocar la base de datos; luego todo se resuelve con unas pocas
+ * sentencias sobre conjuntos. En modo simulación solo se calcula el impacto.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ProductoActualizacionMasivaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductoActualizacionMasivaService.class);
+    private static final BigDecimal PORCENTAJE_MINIMO = new BigDecimal("-100");
+    private static final BigDecimal PORCENTAJE_MAXIMO = new BigDecimal("1000");
+
+    private final ProductoActualizacionMasivaRepository masivoRepo;
+    private final CategoriaRepository categoriaRepository;
+    private final ProveedorRepository proveedorRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ProductoActualizacionMasivaService(
+            ProductoActualizacionMasivaRepository masivoRepo,
+            CategoriaRepository categoriaRepository,
+            ProveedorRepository proveedorRepository,
+            ApplicationEventPublisher eventPublisher) {
+        this.masivoRepo = masivoRepo;
+        this.categoriaRepository = categoriaRepository;
+        this.proveedorRepository = proveedorRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public ActualizacionMasivaResponseDTO actualizar(ActualizacionMasivaRequestDTO request, boolean simular) {
+        Cambios cambios = validarCambios(request);
+        Criterio criterio = resolverCriterio(request);
+
+        if (!simular) {
+            masivoRepo.bloquear(criterio);
+        }
+        Impacto impacto = masivoRepo.calcularImpacto(criterio, cambios);
+
+        ActualizacionMasivaResponseDTO response = new ActualizacionMasivaResponseDTO();
+        response.setSimulacion(simular);
+        response.setProductosAfectados(impacto.afectados());
+        response.setOmitidosConStock(impacto.omitidosConStock());
+        response.setProductosBajoMinimo(impacto.bajoMinimo());
+        response.setPreciosFueraDeRango(impacto.preciosFueraDeRango());
+        if (criterio.codigos() != null) {
+            Set<String> existentes = masivoRepo.codigosExistentes(criterio.codigos());
+            criterio.codigos().stream()
+                    .filter(codigo -> !existentes.contains(codigo))
+                    .forEach(response.getCodigosNoEncontrados()::add);
+        }
+
+        if (simular) {
+            return response;
+        }
+
+        if (impacto.preciosFueraDeRango() > 0) {
+            throw new BusinessException(
+                    "INVALID_PRICE",
+                    String.format("%d productos quedarían con un precio fuera del rango permitido (mayor a 0 y hasta 1,000,000)",
+                            impacto.preciosFueraDeRango()),
+                    400);
+        }
+
+        List<UUID> modificados = masivoRepo.aplicar(criterio, cambios);
+        response.setProductosAfectados(modificados.size());
+        if (!modificados.isEmpty()) {
+            eventPublisher.publishEvent(ProductosModificadosEvent.de(modificados));
+        }
+
+        logger.info("ACTUALIZACION_MASIVA - Productos: {}, omitidos con stock: {}, precio: {}, porcentaje: {}, "
+                + "stock mínimo: {}, activo: {}", modificados.size(), impacto.omitidosConStock(),
+                cambios.precio(), cambios.porcentajePrecio(), cambios.stockMinimo(), cambios.activo());
+        return response;
+    }
+
+    private Cambios validarCambios(ActualizacionMasivaRequestDTO request) {
+        if (request.getPrecio() == null && request.getPorcentajePrecio() == null
+                && request.getStockMinimo() == null && request.getActivo() == null) {
+            throw new BusinessException(
+                    "INVALID_INPUT",
+                    "Debe indicar al menos un cambio: precio, porcentajePrecio, stockMinimo o activo",
+                    400);
+        }
+
+        if (request.getPrecio() != null && request.getPorcentajePrecio() != null) {
+            throw new BusinessException(
+                    "INVALID_INPUT",
+                    "Indique precio o porcentajePrecio, no ambos",
+                    400);
+        }
+
+        if (request.getPrecio() != null) {
+            ProductoService.validatePositivePrice(request.getPrecio());
+        }
+
+        BigDecimal porcentaje = request.getPorcentajePrecio();
+        if (porcentaje != null
+                && (porcentaje.compareTo(PORCENTAJE_MINIMO) <= 0 || porcentaje.compareTo(PORCENTAJE_MAXIMO) > 0)) {
+            throw new BusinessException(
+                    "INVALID_PERCENTAGE",
+                    "El porcentaje de variación del precio debe ser mayor a -100 y no mayor a 1000",
+                    400);
+        }
+
+        if (request.getStockMinimo() != null) {
+            ProductoService.validateStockMinimo(request.getStockMinimo());
+        }
+
+        return new Cambios(request.getPrecio(), porcentaje, request.getStockMinimo(), request.getActivo());
+    }
+
+    private Criterio resolverCriterio(ActualizacionMasivaRequestDTO request) {
+        UUID categoriaId = null;
+        if (!esVacio(request.getCodigoCategoria())) {
+            String codigo = request.getCodigoCategoria().trim();
+            Categoria categoria = categoriaRepository.findByCodigoIgnoreCase(codigo)
+                    .orElseThrow(() -> new BusinessException(
+                            "CATEGORIA_NOT_FOUND",
+                            "Categoría no encontrada: " + codigo,
+                            404));
+            categoriaId = categoria.getId();
+        }
+
+        UUID proveedorId = null;
+        if (!esVacio(request.getRucProveedor())) {
+            Proveedor proveedor = proveedorRepository.findByRuc(request.getRucProveedor().trim())
+                    .orElseThrow(() -> new BusinessException(
+                            "PROVEEDOR_NOT_FOUND",
+                            "Proveedor no encontrado",
+                            404));
+            proveedorId = proveedor.getId();
+        }
+
+        String prefijo = esVacio(request.getPrefijoCodigo()) ? null : request.getPrefijoCodigo().trim();
+
+        List<String> codigos = null;
+        if (request.getCodigos() != null && !request.getCodigos().isEmpty()) {
+            Set<String> distintos = new LinkedHashSet<>();
+            for (String codigo : request.getCodigos()) {
+                if (!esVacio(codigo)) {
+                    distintos.add(codigo.trim());
+                }
+            }
+            codigos = distintos.isEmpty() ? null : new ArrayList<>(distintos);
+        }
+
+        // Sin ningún criterio se modificaría todo el catálogo
+        if (categoriaId == null && proveedorId == null && prefijo == null && codigos == null) {
+            throw new BusinessException(
+                    "INVALID_INPUT",
+                    "Debe indicar un filtro (codigoCategoria, rucProveedor, prefijoCodigo) o una lista de códigos",
+                    400);
+        }
+
+        return new Criterio(categoriaId, proveedorId, prefijo, codigos);
+    }
+
+    private static boolean esVacio(String valor) {
+        return valor == null || valor.trim().isEmpty();
+    }
+}
@@ -0,0 +1,401 @@
+package com.ergpos.app.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ergpos.app.dto.producto.ProductoImportErrorDTO;
+import com.ergpos.app.dto.producto.ProductoImportResponseDTO;
+import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.repository.ProductoImportRepository;
+import com.ergpos.app.repository.ProductoImportRepository.CategoriaRef;
+import com.ergpos.app.repository.ProductoImportRepository.Existente;
+import com.ergpos.app.repository.ProductoImportRepository.Fila;
+import com.ergpos.app.util.CsvReader;
+
+/**
+ * Importación masiva de productos desde CSV.
+ *
+ * El archivo se lee registro a registro y cada fila se valida con las mismas
+ * reglas que ProductoService.crear, pero contra catálogos cargados una sola
+ * vez (categorías y nombres de proveedores) y un conjunto en memoria de los
+ * códigos ya leídos. Las filas válidas se escriben por lotes con JDBC
+ * batching, un lote por transacción: un lote fallido no deshace los
+ * anteriores. Solo se retiene el lote en curso y, como máximo, un número
+ * fijo de errores detallados.
+ *
+ * Columnas (cabecera obligatoria, sin distinguir mayúsculas): codigo, nombre,
+ * descripcion, codigoCategoria, precio, stockMinimo, stockActual, unidadMedida.
+ * descripcion, stockMinimo y stockActual son opcionales: ausentes o vacías,
+ * un producto nuevo queda sin descripción y con stock 0, y uno existente
+ * conserva sus valores (una lista de precios no toca el stock).
+ */
+@Service
+public class ProductoImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductoImportService.class);
+    private static final int MAX_CARACTERES_REGISTRO = 16 * 1024;
+    private static final int BUFFER_LECTURA = 64 * 1024;
+    private static final List<String> COLUMNAS_OBLIGATORIAS = List.of(
+            "codigo", "nombre", "codigocategoria", "precio", "unidadmedida");
+
+    private record Pendiente(long numero, Fila fila) {
+    }
+
+    // Estado de una importación en curso
+    private final class Importacion {
+        private final boolean actualizarExistentes;
+        private final Map<String, CategoriaRef> categorias;
+        private final Set<String> proveedores;
+        private final Set<String> codigosLeidos = new HashSet<>();
+        private final ProductoImportResponseDTO resultado = new ProductoImportResponseDTO();
+        private List<Pendiente> lote = new ArrayList<>();
+
+        private Importacion(boolean actualizarExistentes) {
+            this.actualizarExistentes = actualizarExistentes;
+            this.categorias = importRepo.cargarCategorias();
+            this.proveedores = importRepo.cargarNombresProveedores();
+        }
+
+        private void registrarError(long fila, String codigo, String code, String message) {
+            resultado.setFilasConError(resultado.getFilasConError() + 1);
+            if (resultado.getErrores().size() < maxErrores) {
+                resultado.getErrores().add(new ProductoImportErrorDTO(fila, codigo, code, message));
+            } else {
+                resultado.setErroresOmitidos(resultado.getErroresOmitidos() + 1);
+            }
+        }
+    }
+
+    private final ProductoImportRepository importRepo;
+    private final StockFraccionadoService stockFraccionado;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoLote;
+    private final int maxErrores;
+
+    public ProductoImportService(
+            ProductoImportRepository importRepo,
+            StockFraccionadoService stockFraccionado,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.productos.importacion.lote:500}") int tamanoLote,
+            @Value("${app.productos.importacion.max-errores:1000}") int maxErrores) {
+        this.importRepo = importRepo;
+        this.stockFraccionado = stockFraccionado;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tamanoLote = tamanoLote;
+        this.maxErrores = maxErrores;
+    }
+
+    /**
+     * Importa el CSV. Con actualizarExistentes, un código ya registrado
+     * actualiza el producto; si no, la fila se informa como duplicada.
+     */
+    public ProductoImportResponseDTO importar(InputStream entrada, boolean actualizarExistentes) {
+        long inicio = System.currentTimeMillis();
+        CsvReader reader = new CsvReader(
+                new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8), BUFFER_LECTURA),
+                MAX_CARACTERES_REGISTRO);
+
+        Map<String, Integer> columnas = leerCabecera(reader);
+        Importacion imp = new Importacion(actualizarExistentes);
+
+        while (true) {
+            List<String> campos;
+            try {
+                campos = reader.leer();
+            } catch (IOException e) {
+                imp.registrarError(reader.getRegistrosLeidos(), null, "INVALID_CSV", e.getMessage());
+                imp.resultado.setInterrumpido(true);
+                break;
+            }
+            if (campos == null) {
+                break;
+            }
+
+            imp.resultado.setTotalFilas(imp.resultado.getTotalFilas() + 1);
+            long numero = reader.getRegistrosLeidos();
+            String codigo = campo(campos, columnas, "codigo");
+            try {
+                Fila fila = validar(imp, campos, columnas);
+                imp.codigosLeidos.add(fila.codigo());
+                imp.lote.add(new Pendiente(numero, fila));
+            } catch (BusinessException e) {
+                imp.registrarError(numero, codigo, e.getCode(), e.getMessage());
+                continue;
+            }
+
+            if (imp.lote.size() >= tamanoLote) {
+                escribirLote(imp);
+            }
+        }
+        escribirLote(imp);
+
+        ProductoImportResponseDTO resultado = imp.resultado;
+        logger.info("Importación de productos - filas: {}, insertados: {}, actualizados: {}, con error: {}, duración: {} ms",
+                resultado.getTotalFilas(), resultado.getInsertados(), resultado.getActualizados(),
+                resultado.getFilasConError(), System.currentTimeMillis() - inicio);
+        return resultado;
+    }
+
+    // Nombre de columna normalizado -> posición
+    private Map<String, Integer> leerCabecera(CsvReader reader) {
+        List<String> cabecera;
+        try {
+            cabecera = reader.leer();
+        } catch (IOException e) {
+            throw new BusinessException("INVALID_CSV", "No se pudo leer la cabecera del archivo: " + e.getMessage(),
+                    400);
+        }
+        if (cabecera == null) {
+            throw new BusinessException("INVALID_CSV", "El archivo está vacío", 400);
+        }
+
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < cabecera.size(); i++) {
+            // Excel antepone un BOM al guardar como CSV UTF-8
+            String nombre = cabecera.get(i).replace("\uFEFF", "").trim().toLowerCase();
+            columnas.putIfAbsent(nombre, i);
+        }
+
+        List<String> faltantes = COLUMNAS_OBLIGATORIAS.stream()
+                .filter(c -> !columnas.containsKey(c))
+                .collect(Collectors.toList());
+        if (!faltantes.isEmpty()) {
+            throw new BusinessException(
+                    "INVALID_CSV",
+                    "Faltan columnas obligatorias en la cabecera: " + String.join(", ", faltantes),
+                    400);
+        }
+        return columnas;
+    }
+
+    // Mismas reglas que ProductoService.crear; lanza BusinessException con el motivo
+    private Fila validar(Importacion imp, List<String> campos, Map<String, Integer> columnas) {
+        String codigo = ProductoService.requireNonEmpty(campo(campos, columnas, "codigo"), "código");
+        if (codigo.length() > 50) {
+            throw new BusinessException("INVALID_CODE", "El código no puede tener más de 50 caracteres", 400);
+        }
+        if (imp.codigosLeidos.contains(codigo)) {
+            throw new BusinessException("DUPLICATED_CODE", "Código repetido en el archivo: " + codigo, 409);
+        }
+
+        String nombre = ProductoService.requireNonEmpty(campo(campos, columnas, "nombre"), "nombre");
+        if (nombre.length() > 255) {
+            throw new BusinessException(
+                    "INVALID_PRODUCT_NAME",
+                    "El nombre del producto no puede tener más de 255 caracteres",
+                    400);
+        }
+        if (imp.proveedores.contains(nombre.toLowerCase())) {
+            throw new BusinessException(
+                    "INVALID_PRODUCT_NAME",
+                    String.format(
+                            "El nombre '%s' corresponde a un proveedor existente. Use un nombre diferente para el producto.",
+                            nombre),
+                    400);
+        }
+
+        String descripcion = campo(campos, columnas, "descripcion");
+        descripcion = descripcion != null && !descripcion.trim().isEmpty() ? descripcion.trim() : null;
+        if (descripcion != null && descripcion.length() > 255) {
+            throw new BusinessException(
+                    "INVALID_DESCRIPTION",
+                    "La descripción no puede tener más de 255 caracteres",
+                    400);
+        }
+
+        String codigoCategoria = ProductoService.requireNonEmpty(
+                campo(campos, columnas, "codigocategoria"), "código de categoría");
+        CategoriaRef categoria = imp.categorias.get(codigoCategoria.toLowerCase());
+        if (categoria == null) {
+            throw new BusinessException("CATEGORIA_NOT_FOUND", "Categoría no encontrada: " + codigoCategoria, 404);
+        }
+        if (!categoria.activo()) {
+            throw new BusinessException("CATEGORIA_INACTIVE", "La categoría está inactiva: " + codigoCategoria, 400);
+        }
+
+        BigDecimal precio = parsePrecio(campo(campos, columnas, "precio"));
+        ProductoService.validatePositivePrice(precio);
+
+        Integer stockMinimo = parseEntero(campo(campos, columnas, "stockminimo"), "INVALID_STOCK_MINIMO",
+                "stock mínimo");
+        Integer stockActual = parseEntero(campo(campos, columnas, "stockactual"), "INVALID_STOCK_ACTUAL",
+                "stock actual");
+        ProductoService.validateStockMinimo(stockMinimo);
+        ProductoService.validateStockActual(stockActual);
+        // Con alguno ausente la relación se valida al escribir, contra el valor que quedará
+        if (stockMinimo != null && stockActual != null) {
+            validarStockMinimo(stockActual, stockMinimo);
+        }
+
+        String unidadMedida = ProductoService.requireNonEmpty(
+                campo(campos, columnas, "unidadmedida"), "unidad de medida");
+        ProductoService.validateUnidadMedida(unidadMedida);
+
+        return new Fila(UUID.randomUUID(), codigo, nombre, descripcion, categoria.id(), precio,
+                stockMinimo, stockActual, unidadMedida);
+    }
+
+    private void escribirLote(Importacion imp) {
+        List<Pendiente> lote = imp.lote;
+        if (lote.isEmpty()) {
+            return;
+        }
+        imp.lote = new ArrayList<>();
+
+        List<ProductoImportErrorDTO> erroresLote = new ArrayList<>();
+        long[] escritos;
+        try {
+            escritos = transactionTemplate.execute(status -> escribir(lote, imp.actualizarExistentes, erroresLote));
+        } catch (DataAccessException e) {
+            logger.warn("Importación de productos - lote de {} filas (desde la fila {}) no guardado: {}",
+                    lote.size(), lote.get(0).numero(), e.getMostSpecificCause().getMessage());
+            for (Pendiente p : lote) {
+                imp.registrarError(p.numero(), p.fila().codigo(), "IMPORT_FAILED",
+                        "No se pudo guardar el lote que contiene esta fila");
+            }
+            return;
+        }
+
+        imp.resultado.setInsertados(imp.resultado.getInsertados() + escritos[0]);
+        imp.resultado.setActualizados(imp.resultado.getActualizados() + escritos[1]);
+        erroresLote.forEach(e -> imp.registrarError(e.getFila(), e.getCodigo(), e.getCode(), e.getMessage()));
+    }
+
+    // Dentro de la transacción del lote: devuelve {insertados, actualizados}
+    private long[] escribir(List<Pendiente> lote, boolean actualizarExistentes,
+            List<ProductoImportErrorDTO> errores) {
+        Map<String, Existente> existentes = importRepo.buscarExistentes(lote.stream()
+                .map(p -> p.fila().codigo())
+                .collect(Collectors.toList()));
+
+        // Stock real de los fraccionados (suma de shards), para validar contra el mínimo
+        Map<UUID, Integer> totalesFraccionados = actualizarExistentes
+                ? stockFraccionado.stockTotales(existentes.values().stream()
+                        .filter(Existente::stockFraccionado)
+                        .map(Existente::id)
+                        .collect(Collectors.toList()))
+                : Map.of();
+
+        List<Pendiente> nuevos = new ArrayList<>();
+        List<Fila> actualizables = new ArrayList<>();
+        List<Fila> fraccionados = new ArrayList<>();
+        for (Pendiente p : lote) {
+            Fila fila = p.fila();
+            Existente existente = existentes.get(fila.codigo());
+            if (existente != null && !actualizarExistentes) {
+                errores.add(new ProductoImportErrorDTO(p.numero(), fila.codigo(), "DUPLICATED_CODE",
+                        "Ya existe un producto con el código: " + fila.codigo()));
+                continue;
+            }
+
+            // Stock que quedará: el del archivo o, si no viene, 0 (nuevo) o el actual (existente)
+            int stockActual = fila.stockActual() != null ? fila.stockActual()
+                    : existente == null ? 0
+                    : existente.stockFraccionado() ? totalesFraccionados.getOrDefault(existente.id(), 0)
+                    : existente.stockActual();
+            int stockMinimo = fila.stockMinimo() != null ? fila.stockMinimo()
+                    : existente == null ? 0 : existente.stockMinimo();
+            try {
+                validarStockMinimo(stockActual, stockMinimo);
+            } catch (BusinessException e) {
+                errores.add(new ProductoImportErrorDTO(p.numero(), fila.codigo(), e.getCode(), e.getMessage()));
+                continue;
+            }
+
+            if (existente == null) {
+                nuevos.add(p);
+            } else {
+                Fila actualizable = fila.conId(existente.id());
+                actualizables.add(actualizable);
+                if (existente.stockFraccionado() && fila.stockActual() != null) {
+                    fraccionados.add(actualizable);
+                }
+            }
+        }
+
+        importRepo.insertar(nuevos.stream().map(Pendiente::fila).collect(Collectors.toList()));
+        // ON CONFLICT DO NOTHING: un código creado en paralelo no llega a insertarse
+        Set<UUID> insertados = importRepo.buscarIds(nuevos.stream()
+                .map(p -> p.fila().id())
+                .collect(Collectors.toList()));
+        for (Pendiente p : nuevos) {
+            if (!insertados.contains(p.fila().id())) {
+                errores.add(new ProductoImportErrorDTO(p.numero(), p.fila().codigo(), "DUPLICATED_CODE",
+                        "Ya existe un producto con el código: " + p.fila().codigo()));
+            }
+        }
+
+        importRepo.actualizar(actualizables);
+        for (Fila fila : fraccionados) {
+            stockFraccionado.fijarTotal(fila.id(), fila.stockActual());
+        }
+
+        List<UUID> modificados = new ArrayList<>(insertados);
+        actualizables.forEach(f -> modificados.add(f.id()));
+        if (!modificados.isEmpty()) {
+            eventPublisher.publishEvent(ProductosModificadosEvent.de(modificados));
+        }
+        return new long[] { insertados.size(), actualizables.size() };
+    }
+
+    private static String campo(List<String> campos, Map<String, Integer> columnas, String columna) {
+        Integer indice = columnas.get(columna);
+        return indice != null && indice < campos.size() ? campos.get(indice) : null;
+    }
+
+    private static BigDecimal parsePrecio(String valor) {
+        if (valor == null || valor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new BusinessException("INVALID_PRICE", "El precio no es un número válido: " + valor, 400);
+        }
+    }
+
+    // Mismo mensaje que ProductoService.crear
+    private static void validarStockMinimo(int stockActual, int stockMinimo) {
+        if (stockActual < stockMinimo) {
+            throw new BusinessException(
+                    "STOCK_BELOW_MINIMUM",
+                    String.format("El stock actual (%d) no puede ser menor al stock mínimo (%d)",
+                            stockActual, stockMinimo),
+                    400);
+        }
+    }
+
+    // Ausente o vacío = null: 0 al insertar, valor actual al actualizar
+    private static Integer parseEntero(String valor, String code, String campo) {
+        if (valor == null || valor.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new BusinessException(code, "El " + campo + " no es un número entero válido: " + valor, 400);
+        }
+    }
+}
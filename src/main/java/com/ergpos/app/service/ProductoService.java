@@ -3,73 +3,145 @@ package com.ergpos.app.service;
 import com.ergpos.app.dto.producto.ProductoRequestDTO;
 import com.ergpos.app.dto.producto.ProductoResponseDTO;
 import com.ergpos.app.dto.producto.StockBajoResponseDTO;
+import com.ergpos.app.dto.producto.StockVerificationItemDTO;
 import com.ergpos.app.dto.producto.StockVerificationResponseDTO;
 import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.exception.VersionConflictException;
 import com.ergpos.app.model.Categoria;
 import com.ergpos.app.model.Producto;
+import com.ergpos.app.model.ReglasStock;
 import com.ergpos.app.repository.CategoriaRepository;
 import com.ergpos.app.repository.ProductoRepository;
 import com.ergpos.app.repository.ProveedorRepository;
 import jakarta.persistence.criteria.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class ProductoService {
 
+    /**
+     * Página de un listado sin COUNT.
+     *
+     * @param pagina          Productos e indicador de página siguiente
+     * @param totalAproximado Total calculado en segundo plano; null si no se pidió o aún no existe
+     */
+    public record PaginaSinConteo(Slice<ProductoResponseDTO> pagina, Long totalAproximado) {
+    }
+
     private static final Logger logger = LoggerFactory.getLogger(ProductoService.class);
+    // Códigos por consulta IN en la verificación múltiple
+    private static final int LOTE_CODIGOS = 500;
+
     private final ProductoRepository productoRepository;
     private final CategoriaRepository categoriaRepository;
     private final ProveedorRepository proveedorRepository;
-
-    private static final int STOCK_BAJO_UMBRAL_ABSOLUTO = 5;
-    private static final double STOCK_BAJO_PORCENTAJE = 0.3;
+    private final StockFraccionadoService stockFraccionado;
+    private final ReservaStockService reservaStock;
+    private final EstadisticasInventarioService estadisticas;
+    private final CacheProductoService cacheProductos;
+    private final ConteoAproximadoService conteoAproximado;
+    private final ApplicationEventPublisher eventPublisher;
 
     public ProductoService(ProductoRepository productoRepository,
             CategoriaRepository categoriaRepository,
-            ProveedorRepository proveedorRepository) {
+            ProveedorRepository proveedorRepository,
+            StockFraccionadoService stockFraccionado,
+            ReservaStockService reservaStock,
+            EstadisticasInventarioService estadisticas,
+            CacheProductoService cacheProductos,
+            ConteoAproximadoService conteoAproximado,
+            ApplicationEventPublisher eventPublisher) {
         this.productoRepository = productoRepository;
         this.categoriaRepository = categoriaRepository;
         this.proveedorRepository = proveedorRepository;
+        this.stockFraccionado = stockFraccionado;
+        this.reservaStock = reservaStock;
+        this.estadisticas = estadisticas;
+        this.cacheProductos = cacheProductos;
+        this.conteoAproximado = conteoAproximado;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Stock real: con stock fraccionado es la suma de shards (stock_actual se sincroniza con retraso)
+    private int stockReal(Producto producto) {
+        return producto.getStockFraccionado()
+                ? stockFraccionado.stockTotal(producto.getId())
+                : producto.getStockActual();
     }
 
     private ProductoResponseDTO toDTO(Producto producto) {
+        return toDTO(producto, stockReal(producto));
+    }
+
+    // Conversión de listas: los totales de stock fraccionado se leen en una sola consulta
+    private List<ProductoResponseDTO> toDTOs(List<Producto> productos) {
+        List<UUID> fraccionados = productos.stream()
+                .filter(Producto::getStockFraccionado)
+                .map(Producto::getId)
+                .collect(Collectors.toList());
+        Map<UUID, Integer> totales = stockFraccionado.stockTotales(fraccionados);
+
+        return productos.stream()
+                .map(p -> toDTO(p, p.getStockFraccionado()
+                        ? totales.getOrDefault(p.getId(), 0)
+                        : p.getStockActual()))
+                .collect(Collectors.toList());
+    }
+
+    private Page<ProductoResponseDTO> toDTOs(Page<Producto> pagina) {
+        return new PageImpl<>(toDTOs(pagina.getContent()), pagina.getPageable(), pagina.getTotalElements());
+    }
+
+    private Slice<ProductoResponseDTO> toDTOs(Slice<Producto> pagina) {
+        return new SliceImpl<>(toDTOs(pagina.getContent()), pagina.getPageable(), pagina.hasNext());
+    }
+
+    private ProductoResponseDTO toDTO(Producto producto, int stockActual) {
+        Categoria categoria = producto.getCategoria();
         ProductoResponseDTO dto = new ProductoResponseDTO();
         dto.setId(producto.getId());
         dto.setCodigo(producto.getCodigo());
         dto.setNombre(producto.getNombre());
         dto.setDescripcion(producto.getDescripcion());
-        dto.setCategoriaId(producto.getCategoria() != null ? producto.getCategoria().getId() : null);
-        dto.setCategoriaNombre(producto.getCategoria() != null ? producto.getCategoria().getNombre() : null);
-        dto.setCategoriaCodigo(producto.getCategoria().getCodigo());
+        dto.setCategoriaId(categoria != null ? categoria.getId() : null);
+        dto.setCategoriaNombre(categoria != null ? categoria.getNombre() : null);
+        dto.setCategoriaCodigo(categoria != null ? categoria.getCodigo() : null);
         dto.setPrecio(producto.getPrecio());
         dto.setStockMinimo(producto.getStockMinimo());
-        dto.setStockActual(producto.getStockActual());
+        dto.setStockActual(stockActual);
+        dto.setStockFraccionado(producto.getStockFraccionado());
         dto.setUnidadMedida(producto.getUnidadMedida());
         dto.setActivo(producto.getActivo());
         dto.setCreatedAt(producto.getCreatedAt());
         dto.setUpdatedAt(producto.getUpdatedAt());
+        dto.setVersion(producto.getVersion());
         return dto;
     }
 
     // ==================== VALIDACIONES ====================
+    // Las estáticas también las usa la importación masiva (ProductoImportService)
 
-    private String requireNonEmpty(String str, String fieldName) {
+    static String requireNonEmpty(String str, String fieldName) {
         if (str == null || str.trim().isEmpty()) {
             throw new BusinessException(
                     "INVALID_INPUT",
@@ -98,7 +170,7 @@ public class ProductoService {
         return categoria;
     }
 
-    private void validatePositivePrice(BigDecimal precio) {
+    static void validatePositivePrice(BigDecimal precio) {
         if (precio == null) {
             throw new BusinessException(
                     "INVALID_PRICE",
@@ -121,7 +193,7 @@ public class ProductoService {
         }
     }
 
-    private void validateStockMinimo(Integer stockMinimo) {
+    static void validateStockMinimo(Integer stockMinimo) {
         if (stockMinimo == null) {
             stockMinimo = 0;
         }
@@ -141,7 +213,7 @@ public class ProductoService {
         }
     }
 
-    private void validateStockActual(Integer stockActual) {
+    static void validateStockActual(Integer stockActual) {
         if (stockActual == null) {
             stockActual = 0;
         }
@@ -197,7 +269,7 @@ public class ProductoService {
                 });
     }
 
-    private void validateUnidadMedida(String unidadMedida) {
+    static void validateUnidadMedida(String unidadMedida) {
         requireNonEmpty(unidadMedida, "unidad de medida");
 
         List<String> unidadesValidas = List.of(
@@ -229,7 +301,60 @@ public class ProductoService {
             Boolean activo,
             Pageable pageable) {
 
-        Specification<Producto> spec = (root, query, criteriaBuilder) -> {
+        Specification<Producto> spec = especificacionListado(buscar, codigoCategoria, activo);
+
+        logOperation("LISTAR", "Productos", buscar != null ? buscar : "todos");
+        Page<ProductoResponseDTO> productos = toDTOs(productoRepository.findAll(spec, pageable));
+        advertirStockBajo(productos.getContent());
+
+        return productos;
+    }
+
+    // Sin COUNT: una sola consulta (tamaño + 1 filas) para saber si hay página siguiente
+    public PaginaSinConteo listarSinConteo(
+            String buscar,
+            String codigoCategoria,
+            Boolean activo,
+            Pageable pageable,
+            boolean estimarTotal) {
+
+        Specification<Producto> spec = especificacionListado(buscar, codigoCategoria, activo);
+
+        logOperation("LISTAR", "Productos", buscar != null ? buscar : "todos");
+        Slice<ProductoResponseDTO> productos = toDTOs(buscarPagina(spec, pageable));
+        advertirStockBajo(productos.getContent());
+
+        Long total = null;
+        if (estimarTotal) {
+            List<Object> clave = Arrays.asList("listar",
+                    buscar != null && !buscar.trim().isEmpty() ? buscar.toLowerCase() : null,
+                    codigoCategoria != null && !codigoCategoria.trim().isEmpty() ? codigoCategoria.toLowerCase() : null,
+                    activo);
+            total = conteoAproximado.estimar(clave, () -> productoRepository.count(spec));
+        }
+        return new PaginaSinConteo(productos, total);
+    }
+
+    private Specification<Producto> especificacionListado(String buscar, String codigoCategoria, Boolean activo) {
+        // La categoría se resuelve aquí, una sola vez, y no dentro de cada consulta (datos y COUNT)
+        Categoria categoria = null;
+        if (codigoCategoria != null && !codigoCategoria.trim().isEmpty()) {
+            categoria = categoriaRepository.findByCodigoIgnoreCase(codigoCategoria)
+                    .orElseThrow(() -> new BusinessException(
+                            "CATEGORIA_NOT_FOUND",
+                            "Categoría no encontrada: " + codigoCategoria,
+                            404));
+
+            if (!categoria.getActivo() && (activo == null || activo)) {
+                throw new BusinessException(
+                        "CATEGORIA_INACTIVA",
+                        "La categoría está inactiva: " + codigoCategoria,
+                        400);
+            }
+        }
+
+        Categoria categoriaFiltro = categoria;
+        return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             if (buscar != null && !buscar.trim().isEmpty()) {
@@ -241,21 +366,8 @@ public class ProductoService {
                 predicates.add(criteriaBuilder.or(nombrePredicate, codigoPredicate));
             }
 
-            if (codigoCategoria != null && !codigoCategoria.trim().isEmpty()) {
-                Categoria categoria = categoriaRepository.findByCodigoIgnoreCase(codigoCategoria)
-                        .orElseThrow(() -> new BusinessException(
-                                "CATEGORIA_NOT_FOUND",
-                                "Categoría no encontrada: " + codigoCategoria,
-                                404));
-
-                if (!categoria.getActivo() && (activo == null || activo)) {
-                    throw new BusinessException(
-                            "CATEGORIA_INACTIVA",
-                            "La categoría está inactiva: " + codigoCategoria,
-                            400);
-                }
-
-                predicates.add(criteriaBuilder.equal(root.get("categoria"), categoria));
+            if (categoriaFiltro != null) {
+                predicates.add(criteriaBuilder.equal(root.get("categoria"), categoriaFiltro));
             }
 
             if (activo != null) {
@@ -264,29 +376,40 @@ public class ProductoService {
 
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
+    }
 
-        logOperation("LISTAR", "Productos", buscar != null ? buscar : "todos");
-        Page<ProductoResponseDTO> productos = productoRepository.findAll(spec, pageable).map(this::toDTO);
-
-        productos.getContent().forEach(producto -> {
+    private void advertirStockBajo(List<ProductoResponseDTO> productos) {
+        productos.forEach(producto -> {
             if (producto.getStockActual() < producto.getStockMinimo()) {
                 logWarning("LISTAR", "Producto con stock bajo", producto.getCodigo(),
                         String.format("Stock: %d, Mínimo: %d",
                                 producto.getStockActual(), producto.getStockMinimo()));
             }
         });
+    }
 
-        return productos;
+    // Página sin COUNT, con la categoría en la misma consulta (como findAll(spec, pageable))
+    private Slice<Producto> buscarPagina(Specification<Producto> spec, Pageable pageable) {
+        return productoRepository.findBy(spec, consulta -> consulta.project("categoria").slice(pageable));
+    }
+
+    // Consulta por código a través de la caché (invalidada en cada escritura confirmada)
+    private ProductoResponseDTO buscarPorCodigo(String codigo) {
+        ProductoResponseDTO producto = cacheProductos.obtener(codigo,
+                clave -> productoRepository.findByCodigo(clave).map(this::toDTO).orElse(null));
+        if (producto == null) {
+            throw new BusinessException(
+                    "PRODUCTO_NOT_FOUND",
+                    "Producto no encontrado: " + codigo,
+                    404);
+        }
+        return producto;
     }
 
     public ProductoResponseDTO obtener(String codigo) {
         String codigoNormalizado = requireNonEmpty(codigo, "código");
 
-        Producto producto = productoRepository.findByCodigo(codigoNormalizado)
-                .orElseThrow(() -> new BusinessException(
-                        "PRODUCTO_NOT_FOUND",
-                        "Producto no encontrado: " + codigoNormalizado,
-                        404));
+        ProductoResponseDTO producto = buscarPorCodigo(codigoNormalizado);
 
         if (producto.getStockActual() < producto.getStockMinimo()) {
             logWarning("OBTENER", "Producto con stock bajo", codigoNormalizado,
@@ -295,98 +418,100 @@ public class ProductoService {
         }
 
         logOperation("OBTENER", "Producto", codigoNormalizado);
-        return toDTO(producto);
+        return producto;
     }
 
     public boolean verificarStockDisponible(String codigoProducto, Integer cantidadRequerida) {
-        Producto producto = productoRepository.findByCodigo(codigoProducto)
-                .orElseThrow(() -> new BusinessException(
-                        "PRODUCTO_NOT_FOUND",
-                        "Producto no encontrado: " + codigoProducto,
-                        404));
+        ProductoResponseDTO producto = buscarPorCodigo(codigoProducto);
 
-        return producto.getStockActual() >= cantidadRequerida;
+        return producto.getStockActual() - reservaStock.stockReservado(producto.getId()) >= cantidadRequerida;
     }
 
     // MÉTODO NUEVO: Para obtener StockVerificationResponseDTO
     public StockVerificationResponseDTO verificarStockDisponibleConRespuesta(String codigoProducto,
             Integer cantidadRequerida) {
-        Producto producto = productoRepository.findByCodigo(codigoProducto)
-                .orElseThrow(() -> new BusinessException(
-                        "PRODUCTO_NOT_FOUND",
-                        "Producto no encontrado: " + codigoProducto,
-                        404));
+        ProductoResponseDTO producto = buscarPorCodigo(codigoProducto);
 
+        // Reservas en memoria: lectura O(1)
         return new StockVerificationResponseDTO(
                 producto.getCodigo(),
                 producto.getNombre(),
                 producto.getStockActual(),
+                reservaStock.stockReservado(producto.getId()),
                 cantidadRequerida);
     }
 
-    public List<StockBajoResponseDTO> obtenerProductosConStockBajo() {
-        List<Producto> productos = productoRepository.findAll()
-                .stream()
-                .filter(Producto::getActivo)
+    /**
+     * Verifica varios productos a la vez: los códigos se resuelven con consultas
+     * IN por bloques y el stock fraccionado en una sola consulta. Los códigos
+     * inexistentes se informan en su línea sin fallar la petición. El
+     * resultado respeta el orden (y las repeticiones) de la petición.
+     */
+    public List<StockVerificationResponseDTO> verificarStockMultiple(List<StockVerificationItemDTO> items) {
+        List<String> codigos = items.stream()
+                .map(item -> item.getCodigo().trim())
+                .distinct()
                 .collect(Collectors.toList());
 
-        List<StockBajoResponseDTO> resultado = new ArrayList<>();
+        Map<String, Producto> porCodigo = new HashMap<>();
+        for (int i = 0; i < codigos.size(); i += LOTE_CODIGOS) {
+            List<String> bloque = codigos.subList(i, Math.min(i + LOTE_CODIGOS, codigos.size()));
+            productoRepository.findAllByCodigoIn(bloque).forEach(p -> porCodigo.put(p.getCodigo(), p));
+        }
+
+        Map<UUID, Integer> totales = stockFraccionado.stockTotales(porCodigo.values().stream()
+                .filter(Producto::getStockFraccionado)
+                .map(Producto::getId)
+                .collect(Collectors.toList()));
 
-        for (Producto producto : productos) {
-            if (esStockBajo(producto)) {
-                resultado.add(crearStockBajoResponseDTO(producto));
+        List<StockVerificationResponseDTO> resultados = new ArrayList<>(items.size());
+        for (StockVerificationItemDTO item : items) {
+            Producto producto = porCodigo.get(item.getCodigo().trim());
+            if (producto == null) {
+                resultados.add(StockVerificationResponseDTO.noEncontrado(item.getCodigo(), item.getCantidad()));
+                continue;
             }
-        }
+            int stock = producto.getStockFraccionado()
+                    ? totales.getOrDefault(producto.getId(), 0)
+                    : producto.getStockActual();
+            resultados.add(new StockVerificationResponseDTO(
+                    producto.getCodigo(),
+                    producto.getNombre(),
+                    stock,
+                    reservaStock.stockReservado(producto.getId()),
+                    item.getCantidad()));
+        }
+
+        logger.debug("Verificación de stock múltiple - líneas: {}, productos: {}, no encontrados: {}",
+                items.size(), porCodigo.size(), codigos.size() - porCodigo.size());
+        return resultados;
+    }
+
+    // Filtrado y orden por criticidad en SQL (columnas generadas, ver ReglasStock)
+    public List<StockBajoResponseDTO> obtenerProductosConStockBajo() {
+        List<StockBajoResponseDTO> resultado = productoRepository.findStockBajo()
+                .stream()
+                .map(this::crearStockBajoResponseDTO)
+                .collect(Collectors.toList());
 
-        resultado.sort(Comparator.comparing(StockBajoResponseDTO::getNivelCriticidad).reversed());
         logger.info("Encontrados {} productos con stock bajo", resultado.size());
         return resultado;
     }
 
-    private boolean esStockBajo(Producto producto) {
-        int stockActual = producto.getStockActual();
-        int stockMinimo = producto.getStockMinimo();
-
-        if (stockMinimo > 0 && stockActual < stockMinimo) {
-            return true;
-        }
-
-        if (stockMinimo == 0 && stockActual <= STOCK_BAJO_UMBRAL_ABSOLUTO) {
-            return true;
-        }
-
-        if (stockMinimo > 0 && stockActual < (stockMinimo * STOCK_BAJO_PORCENTAJE)) {
-            return true;
-        }
+    public Page<StockBajoResponseDTO> obtenerProductosConStockBajo(Pageable pageable) {
+        return productoRepository.findStockBajo(pageable).map(this::crearStockBajoResponseDTO);
+    }
 
-        if (stockActual == 0) {
-            return true;
-        }
+    public long contarProductosStockBajo() {
+        return estadisticas.obtener().productosConStockBajo();
+    }
 
-        return false;
+    public long contarProductosStockCritico() {
+        return estadisticas.obtener().productosCriticos();
     }
 
     private int calcularNivelCriticidad(Producto producto) {
-        int stockActual = producto.getStockActual();
-        int stockMinimo = producto.getStockMinimo();
-
-        if (stockActual == 0) {
-            return 3;
-        }
-
-        if (stockMinimo > 0 && stockActual < (stockMinimo * 0.2)) {
-            return 3;
-        }
-
-        if (stockMinimo > 0 && stockActual < stockMinimo) {
-            return 2;
-        }
-
-        if (stockActual <= STOCK_BAJO_UMBRAL_ABSOLUTO) {
-            return 1;
-        }
-
-        return 1;
+        return ReglasStock.nivelCriticidad(producto.getStockActual(), producto.getStockMinimo());
     }
 
     private StockBajoResponseDTO crearStockBajoResponseDTO(Producto producto) {
@@ -414,44 +539,37 @@ public class ProductoService {
         return dto;
     }
 
+    // Lectura O(1) de las estadísticas mantenidas en memoria
     public Map<String, Object> obtenerEstadisticasStock() {
-        List<Producto> productos = productoRepository.findAll()
-                .stream()
-                .filter(Producto::getActivo)
-                .collect(Collectors.toList());
+        EstadisticasInventarioService.Resumen resumen = estadisticas.obtener();
 
         Map<String, Object> stats = new HashMap<>();
+        stats.put("totalProductos", resumen.totalProductos());
+        stats.put("productosConStockBajo", resumen.productosConStockBajo());
+        stats.put("productosSinStock", resumen.productosSinStock());
+        stats.put("productosPorDebajoMinimo", resumen.productosPorDebajoMinimo());
+        stats.put("stockTotal", resumen.stockTotal());
+        stats.put("valorTotalInventario", resumen.valorTotalInventario());
+        stats.put("porcentajeStockBajo", resumen.porcentajeStockBajo());
 
-        long totalProductos = productos.size();
-        long productosConStockBajo = productos.stream()
-                .filter(this::esStockBajo)
-                .count();
-
-        long productosSinStock = productos.stream()
-                .filter(p -> p.getStockActual() == 0)
-                .count();
-
-        long productosPorDebajoMinimo = productos.stream()
-                .filter(p -> p.getStockMinimo() > 0 && p.getStockActual() < p.getStockMinimo())
-                .count();
+        return stats;
+    }
 
-        int stockTotal = productos.stream()
-                .mapToInt(Producto::getStockActual)
-                .sum();
+    public Map<String, Object> obtenerReporteStock() {
+        EstadisticasInventarioService.Resumen resumen = estadisticas.obtener();
 
-        BigDecimal valorTotalInventario = productos.stream()
-                .map(p -> p.getPrecio().multiply(BigDecimal.valueOf(p.getStockActual())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Map<String, Object> reporte = new HashMap<>();
+        reporte.put("totalProductos", resumen.totalProductos());
+        reporte.put("productosConStockBajo", resumen.productosSinStockOBajoMinimo());
+        reporte.put("productosSinStock", resumen.productosSinStock());
+        reporte.put("stockTotal", resumen.stockTotal());
+        reporte.put("valorTotalInventario", resumen.valorTotalInventario());
 
-        stats.put("totalProductos", totalProductos);
-        stats.put("productosConStockBajo", productosConStockBajo);
-        stats.put("productosSinStock", productosSinStock);
-        stats.put("productosPorDebajoMinimo", productosPorDebajoMinimo);
-        stats.put("stockTotal", stockTotal);
-        stats.put("valorTotalInventario", valorTotalInventario);
-        stats.put("porcentajeStockBajo", totalProductos > 0 ? (productosConStockBajo * 100.0 / totalProductos) : 0);
+        return reporte;
+    }
 
-        return stats;
+    public long contarProductosActivos() {
+        return estadisticas.obtener().totalProductos();
     }
 
     // ============ MÉTODOS NUEVOS PARA LOS ENDPOINTS DEL CONTROLADOR ============
@@ -461,8 +579,34 @@ public class ProductoService {
             Integer stockMaximo,
             Boolean bajoStockMinimo,
             Pageable pageable) {
+        return toDTOs(productoRepository.findAll(
+                especificacionStock(stockMinimo, stockMaximo, bajoStockMinimo), pageable));
+    }
 
-        Specification<Producto> spec = (root, query, criteriaBuilder) -> {
+    public PaginaSinConteo buscarPorStockSinConteo(
+            Integer stockMinimo,
+            Integer stockMaximo,
+            Boolean bajoStockMinimo,
+            Pageable pageable,
+            boolean estimarTotal) {
+
+        Specification<Producto> spec = especificacionStock(stockMinimo, stockMaximo, bajoStockMinimo);
+        Slice<ProductoResponseDTO> productos = toDTOs(buscarPagina(spec, pageable));
+
+        Long total = null;
+        if (estimarTotal) {
+            List<Object> clave = Arrays.asList("stock", stockMinimo, stockMaximo, bajoStockMinimo);
+            total = conteoAproximado.estimar(clave, () -> productoRepository.count(spec));
+        }
+        return new PaginaSinConteo(productos, total);
+    }
+
+    private Specification<Producto> especificacionStock(
+            Integer stockMinimo,
+            Integer stockMaximo,
+            Boolean bajoStockMinimo) {
+
+        return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             // Solo productos activos
@@ -487,57 +631,27 @@ public class ProductoService {
 
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
-
-        return productoRepository.findAll(spec, pageable).map(this::toDTO);
     }
 
     public Map<String, Long> obtenerEstadisticasCategorias() {
-        List<Producto> productos = productoRepository.findAll()
-                .stream()
-                .filter(Producto::getActivo)
-                .collect(Collectors.toList());
-
         Map<String, Long> estadisticas = new HashMap<>();
-
-        productos.forEach(producto -> {
-            String categoriaNombre = producto.getCategoria() != null ? producto.getCategoria().getNombre()
-                    : "Sin Categoría";
-            estadisticas.put(categoriaNombre, estadisticas.getOrDefault(categoriaNombre, 0L) + 1);
-        });
-
+        for (Object[] fila : productoRepository.contarActivosPorCategoria()) {
+            estadisticas.put((String) fila[0], (Long) fila[1]);
+        }
         return estadisticas;
     }
 
     public List<ProductoResponseDTO> obtenerProductosStockBajoSimple() {
-        List<Producto> productos = productoRepository.findAll()
-                .stream()
-                .filter(Producto::getActivo)
-                .filter(p -> p.getStockActual() == 0 ||
-                        (p.getStockMinimo() > 0 && p.getStockActual() < p.getStockMinimo()) ||
-                        (p.getStockMinimo() == 0 && p.getStockActual() <= 5))
-                .collect(Collectors.toList());
-
-        return productos.stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(productoRepository.findStockBajo());
     }
 
+    // Sin stock o por debajo del 20% del mínimo, paginado en SQL
     public Page<ProductoResponseDTO> obtenerProductosStockCritico(Pageable pageable) {
-        List<Producto> productos = productoRepository.findAll()
-                .stream()
-                .filter(Producto::getActivo)
-                .filter(p -> p.getStockActual() == 0 ||
-                        (p.getStockMinimo() > 0 && p.getStockActual() < (p.getStockMinimo() * 0.2)))
-                .collect(Collectors.toList());
-
-        int start = (int) pageable.getOffset();
-        List<ProductoResponseDTO> contenido = productos.stream()
-                .skip(start)
-                .limit(pageable.getPageSize())
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return toDTOs(productoRepository.findStockCritico(pageable));
+    }
 
-        return new PageImpl<>(contenido, pageable, productos.size());
+    public Page<StockBajoResponseDTO> obtenerReporteStockCritico(Pageable pageable) {
+        return productoRepository.findStockCritico(pageable).map(this::crearStockBajoResponseDTO);
     }
 
     @Transactional
@@ -581,6 +695,7 @@ public class ProductoService {
         producto.setActivo(true);
 
         Producto saved = productoRepository.save(producto);
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(saved.getId()));
         logOperation("CREAR", "Producto", saved.getCodigo());
 
         if (stockActual < stockMinimo) {
@@ -591,8 +706,11 @@ public class ProductoService {
         return toDTO(saved);
     }
 
+    // versionEsperada: versión enviada en If-Match (null = sin verificación).
+    // Sin reintento: repetir el PUT completo sobre la fila releída pisaría la edición
+    // concurrente (o el stock vendido entre tanto); el conflicto se responde con 409
     @Transactional
-    public ProductoResponseDTO actualizar(String codigo, ProductoRequestDTO request) {
+    public ProductoResponseDTO actualizar(String codigo, ProductoRequestDTO request, Long versionEsperada) {
         String codigoActual = requireNonEmpty(codigo, "código actual");
 
         Producto producto = productoRepository.findByCodigo(codigoActual)
@@ -601,6 +719,8 @@ public class ProductoService {
                         "Producto no encontrado: " + codigoActual,
                         404));
 
+        VersionConflictException.verificar("Producto", versionEsperada, producto.getVersion());
+
         String nuevoCodigo = requireNonEmpty(request.getCodigo(), "nuevo código");
         String nuevoNombre = requireNonEmpty(request.getNombre(), "nombre");
         String nuevaUnidadMedida = requireNonEmpty(request.getUnidadMedida(), "unidad de medida");
@@ -624,8 +744,9 @@ public class ProductoService {
 
         Integer nuevoStockMinimo = request.getStockMinimo() != null ? request.getStockMinimo()
                 : producto.getStockMinimo();
+        int stockAnterior = stockReal(producto);
         Integer nuevoStockActual = request.getStockActual() != null ? request.getStockActual()
-                : producto.getStockActual();
+                : stockAnterior;
 
         validateStockMinimo(nuevoStockMinimo);
         validateStockActual(nuevoStockActual);
@@ -639,8 +760,12 @@ public class ProductoService {
         producto.setUnidadMedida(nuevaUnidadMedida);
         producto.setStockMinimo(nuevoStockMinimo);
         producto.setStockActual(nuevoStockActual);
+        if (producto.getStockFraccionado() && nuevoStockActual != stockAnterior) {
+            stockFraccionado.fijarTotal(producto.getId(), nuevoStockActual);
+        }
 
-        Producto updated = productoRepository.save(producto);
+        Producto updated = productoRepository.saveAndFlush(producto);
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(updated.getId()));
         logOperation("ACTUALIZAR", "Producto", updated.getCodigo());
 
         if (nuevoStockActual < nuevoStockMinimo) {
@@ -651,6 +776,7 @@ public class ProductoService {
         return toDTO(updated);
     }
 
+    @ReintentoOptimista
     @Transactional
     public ProductoResponseDTO activar(String codigo) {
         String codigoNormalizado = requireNonEmpty(codigo, "código");
@@ -669,12 +795,14 @@ public class ProductoService {
         }
 
         producto.setActivo(true);
-        Producto updated = productoRepository.save(producto);
+        Producto updated = productoRepository.saveAndFlush(producto);
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(updated.getId()));
 
         logOperation("ACTIVAR", "Producto", codigoNormalizado);
         return toDTO(updated);
     }
 
+    @ReintentoOptimista
     @Transactional
     public ProductoResponseDTO desactivar(String codigo) {
         String codigoNormalizado = requireNonEmpty(codigo, "código");
@@ -692,22 +820,25 @@ public class ProductoService {
                     400);
         }
 
-        if (producto.getStockActual() > 0) {
+        int stockActual = stockReal(producto);
+        if (stockActual > 0) {
             throw new BusinessException(
                     "PRODUCTO_CON_STOCK",
                     String.format(
                             "No se puede desactivar el producto porque tiene stock disponible (%d unidades). Realice una salida de inventario primero.",
-                            producto.getStockActual()),
+                            stockActual),
                     400);
         }
 
         producto.setActivo(false);
-        Producto updated = productoRepository.save(producto);
+        Producto updated = productoRepository.saveAndFlush(producto);
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(updated.getId()));
 
         logOperation("DESACTIVAR", "Producto", codigoNormalizado);
         return toDTO(updated);
     }
 
+    @ReintentoOptimista
     @Transactional
     public void actualizarStock(String codigoProducto, Integer cantidad, boolean esEntrada) {
         Producto producto = productoRepository.findByCodigo(codigoProducto)
@@ -723,15 +854,37 @@ public class ProductoService {
                     400);
         }
 
+        // Una SALIDA no puede consumir el stock retenido por reservas activas. Los shards
+        // no tienen guarda global: con reservas se valida antes contra su suma
+        int reservado = esEntrada ? 0 : reservaStock.stockReservado(producto.getId());
+
+        // Stock fraccionado: el ajuste va a los shards, sin tocar la fila del producto
+        if (producto.getStockFraccionado()) {
+            if (esEntrada) {
+                stockFraccionado.incrementar(producto.getId(), cantidad);
+            } else if ((reservado > 0 && stockFraccionado.stockTotal(producto.getId()) - reservado < cantidad)
+                    || !stockFraccionado.descontar(producto.getId(), cantidad)) {
+                throw new BusinessException(
+                        "STOCK_INSUFFICIENT",
+                        String.format("Stock insuficiente. Disponible: %d, Solicitado: %d",
+                                Math.max(0, stockFraccionado.stockTotal(producto.getId()) - reservado), cantidad),
+                        400);
+            }
+            eventPublisher.publishEvent(ProductosModificadosEvent.de(producto.getId()));
+            logger.info("Stock fraccionado actualizado - Producto: {}, Operación: {}, Cantidad: {}",
+                    codigoProducto, esEntrada ? "ENTRADA" : "SALIDA", cantidad);
+            return;
+        }
+
         int nuevoStock;
         if (esEntrada) {
             nuevoStock = producto.getStockActual() + cantidad;
         } else {
-            if (producto.getStockActual() < cantidad) {
+            if (producto.getStockActual() - reservado < cantidad) {
                 throw new BusinessException(
                         "STOCK_INSUFFICIENT",
                         String.format("Stock insuficiente. Disponible: %d, Solicitado: %d",
-                                producto.getStockActual(), cantidad),
+                                Math.max(0, producto.getStockActual() - reservado), cantidad),
                         400);
             }
             nuevoStock = producto.getStockActual() - cantidad;
@@ -746,6 +899,7 @@ public class ProductoService {
 
         producto.setStockActual(nuevoStock);
         productoRepository.save(producto);
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(producto.getId()));
 
         logger.info("Stock actualizado - Producto: {}, Operación: {}, Cantidad: {}, Stock final: {}",
                 codigoProducto, esEntrada ? "ENTRADA" : "SALIDA", cantidad, nuevoStock);
@@ -755,4 +909,60 @@ public class ProductoService {
                     codigoProducto, String.format("Stock: %d, Mínimo: %d", nuevoStock, producto.getStockMinimo()));
         }
     }
-}
\ No newline at end of file
+
+    // ==================== STOCK FRACCIONADO ====================
+
+    @Transactional
+    public ProductoResponseDTO habilitarStockFraccionado(String codigo, int shards) {
+        String codigoNormalizado = requireNonEmpty(codigo, "código");
+
+        // Lock de la fila: ningún movimiento puede tocar stock_actual mientras se reparte
+        Producto producto = productoRepository.findByCodigoWithLock(codigoNormalizado)
+                .orElseThrow(() -> new BusinessException(
+                        "PRODUCTO_NOT_FOUND",
+                        "Producto no encontrado: " + codigoNormalizado,
+                        404));
+
+        if (producto.getStockFraccionado()) {
+            throw new BusinessException(
+                    "ALREADY_SHARDED",
+                    "El producto ya tiene stock fraccionado",
+                    400);
+        }
+
+        stockFraccionado.habilitar(producto.getId(), producto.getStockActual(), shards);
+        producto.setStockFraccionado(true);
+        Producto updated = productoRepository.saveAndFlush(producto);
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(updated.getId()));
+
+        logOperation("HABILITAR_STOCK_FRACCIONADO", "Producto", codigoNormalizado);
+        return toDTO(updated);
+    }
+
+    @Transactional
+    public ProductoResponseDTO deshabilitarStockFraccionado(String codigo) {
+        String codigoNormalizado = requireNonEmpty(codigo, "código");
+
+        Producto producto = productoRepository.findByCodigoWithLock(codigoNormalizado)
+                .orElseThrow(() -> new BusinessException(
+                        "PRODUCTO_NOT_FOUND",
+                        "Producto no encontrado: " + codigoNormalizado,
+                        404));
+
+        if (!producto.getStockFraccionado()) {
+            throw new BusinessException(
+                    "NOT_SHARDED",
+                    "El producto no tiene stock fraccionado",
+                    400);
+        }
+
+        // Consolidar la suma de shards en stock_actual
+        producto.setStockActual(stockFraccionado.deshabilitar(producto.getId()));
+        producto.setStockFraccionado(false);
+        Producto updated = productoRepository.saveAndFlush(producto);
+        eventPublisher.publishEvent(ProductosModificadosEvent.de(updated.getId()));
+
+        logOperation("DESHABILITAR_STOCK_FRACCIONADO", "Producto", codigoNormalizado);
+        return toDTO(updated);
+    }
+}
@@ -0,0 +1,20 @@
+package com.ergpos.app.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Productos modificados (stock, precio, mínimo, estado u otros datos). Los
+ * consumidores lo reciben tras el commit (o de inmediato si no hay transacción).
+ */
+public record ProductosModificadosEvent(List<UUID> productoIds) {
+
+    public static ProductosModificadosEvent de(UUID productoId) {
+        return new ProductosModificadosEvent(List.of(productoId));
+    }
+
+    public static ProductosModificadosEvent de(Collection<UUID> productoIds) {
+        return new ProductosModificadosEvent(List.copyOf(productoIds));
+    }
+}
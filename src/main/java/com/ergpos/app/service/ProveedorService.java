@@ -12,6 +12,7 @@ import com.ergpos.app.dto.proveedores.ProveedorRequestDTO;
 import com.ergpos.app.dto.proveedores.ProveedorResponseDTO;
 import com.ergpos.app.exception.DuplicateResourceException;
 import com.ergpos.app.exception.ResourceNotFoundException;
+import com.ergpos.app.exception.VersionConflictException;
 import com.ergpos.app.exception.ValidationException;
 import com.ergpos.app.model.Proveedor;
 import com.ergpos.app.repository.ProveedorRepository;
@@ -44,6 +45,7 @@ public class ProveedorService {
         dto.setActivo(proveedor.getActivo());
         dto.setCreatedAt(proveedor.getCreatedAt());
         dto.setUpdatedAt(proveedor.getUpdatedAt());
+        dto.setVersion(proveedor.getVersion());
         return dto;
     }
 
@@ -127,12 +129,17 @@ public class ProveedorService {
 
     /**
      * Actualiza un proveedor por RUC, email o nombre.
+     *
+     * Sin reintento optimista: es un reemplazo completo, y repetirlo sobre la
+     * fila releída pisaría la edición concurrente; el conflicto se responde
+     * con 409 (o 412 si la versión de If-Match ya no es la actual).
      */
     @Transactional
-    public ProveedorResponseDTO actualizar(String identificador, ProveedorRequestDTO request) {
+    public ProveedorResponseDTO actualizar(String identificador, ProveedorRequestDTO request, Long versionEsperada) {
         logger.info("Actualizando proveedor: {}", identificador);
 
         Proveedor proveedor = buscarProveedor(identificador);
+        VersionConflictException.verificar("Proveedor", versionEsperada, proveedor.getVersion());
 
         String nuevoNombre = ValidationUtils.requireNonEmpty(request.getNombre(), "nombre");
         ValidationUtils.requireMaxLength(nuevoNombre, "nombre", 255);
@@ -166,7 +173,7 @@ public class ProveedorService {
         proveedor.setEmail(nuevoEmail);
         proveedor.setDireccion(request.getDireccion() != null ? request.getDireccion().trim() : null);
 
-        Proveedor updated = proveedorRepository.save(proveedor);
+        Proveedor updated = proveedorRepository.saveAndFlush(proveedor);
         logger.info("Proveedor actualizado: {}", updated.getNombre());
 
         return toDTO(updated);
@@ -175,6 +182,7 @@ public class ProveedorService {
     /**
      * Activa un proveedor por RUC, email o nombre.
      */
+    @ReintentoOptimista
     @Transactional
     public ProveedorResponseDTO activar(String identificador) {
         logger.info("Activando proveedor: {}", identificador);
@@ -186,7 +194,7 @@ public class ProveedorService {
         }
 
         proveedor.setActivo(true);
-        Proveedor updated = proveedorRepository.save(proveedor);
+        Proveedor updated = proveedorRepository.saveAndFlush(proveedor);
 
         logger.info("Proveedor activado: {}", updated.getNombre());
         return toDTO(updated);
@@ -195,6 +203,7 @@ public class ProveedorService {
     /**
      * Desactiva un proveedor por RUC, email o nombre.
      */
+    @ReintentoOptimista
     @Transactional
     public ProveedorResponseDTO desactivar(String identificador) {
         logger.info("Desactivando proveedor: {}", identificador);
@@ -206,7 +215,7 @@ public class ProveedorService {
         }
 
         proveedor.setActivo(false);
-        Proveedor updated = proveedorRepository.save(proveedor);
+        Proveedor updated = proveedorRepository.saveAndFlush(proveedor);
 
         logger.info("Proveedor desactivado: {}", updated.getNombre());
         return toDTO(updated);
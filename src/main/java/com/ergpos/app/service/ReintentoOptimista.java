@@ -0,0 +1,30 @@
+package com.ergpos.app.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+/**
+ * Reintenta la operación (en una transacción nueva) cuando falla por un
+ * conflicto de versión optimista. Backoff exponencial con jitter.
+ *
+ * Solo para operaciones que se recalculan sobre el estado releído (activar,
+ * desactivar, ajustes de stock); no para reemplazos completos enviados por
+ * el cliente, donde el reintento sería una actualización perdida.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Retryable(
+        retryFor = OptimisticLockingFailureException.class,
+        maxAttemptsExpression = "${app.retry.optimista.max-intentos:3}",
+        backoff = @Backoff(
+                delayExpression = "${app.retry.optimista.delay-ms:20}",
+                maxDelayExpression = "${app.retry.optimista.max-delay-ms:200}",
+                multiplier = 2,
+                random = true))
+public @interface ReintentoOptimista {
+}
@@ -0,0 +1,99 @@
+package com.ergpos.app.service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import com.ergpos.app.dto.producto.StockBajoResponseDTO;
+import com.ergpos.app.util.SingleFlightCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Reportes de productos (dashboard, stock bajo, stock) con caché de TTL corto.
+ *
+ * Peticiones idénticas concurrentes comparten un único cálculo y el resultado
+ * se reutiliza durante unos segundos; cualquier escritura confirmada que
+ * modifique productos invalida la caché. Métricas: ergpos.reportes.cache
+ * con tag resultado = hit | miss | coalesced.
+ *
+ * Sin @Transactional: quien espera un cálculo en curso no retiene conexión.
+ */
+@Service
+public class ReporteService {
+
+    private final ProductoService productoService;
+    private final SingleFlightCache<String, Map<String, Object>> cache;
+
+    public ReporteService(
+            ProductoService productoService,
+            MeterRegistry meterRegistry,
+            @Value("${app.reportes.cache-ttl-ms:5000}") long ttlMillis) {
+        this.productoService = productoService;
+        this.cache = new SingleFlightCache<>(ttlMillis);
+
+        FunctionCounter.builder("ergpos.reportes.cache", cache, SingleFlightCache::aciertos)
+                .tag("resultado", "hit").register(meterRegistry);
+        FunctionCounter.builder("ergpos.reportes.cache", cache, SingleFlightCache::fallos)
+                .tag("resultado", "miss").register(meterRegistry);
+        FunctionCounter.builder("ergpos.reportes.cache", cache, SingleFlightCache::coalescidas)
+                .tag("resultado", "coalesced").register(meterRegistry);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void productosModificados(ProductosModificadosEvent evento) {
+        cache.invalidar();
+    }
+
+    public Map<String, Object> obtenerDashboard() {
+        return cache.obtener("dashboard", () -> {
+            Map<String, Object> dashboard = new HashMap<>();
+
+            // Estadísticas generales
+            dashboard.put("totalProductos", productoService.contarProductosActivos());
+
+            // Productos con stock bajo y críticos (estadísticas en memoria)
+            dashboard.put("productosStockBajo", productoService.contarProductosStockBajo());
+            dashboard.put("productosCriticos", productoService.contarProductosStockCritico());
+
+            // Categorías con más productos
+            dashboard.put("distribucionCategorias", productoService.obtenerEstadisticasCategorias());
+
+            // Valor total del inventario
+            Map<String, Object> estadisticasStock = productoService.obtenerEstadisticasStock();
+            dashboard.put("valorInventario", estadisticasStock.getOrDefault("valorTotalInventario", 0));
+
+            dashboard.put("timestamp", LocalDateTime.now());
+            return Collections.unmodifiableMap(dashboard);
+        });
+    }
+
+    public Map<String, Object> obtenerReporteStockBajo(int page, int size) {
+        return cache.obtener("stock-bajo:" + page + ":" + size, () -> {
+            Page<StockBajoResponseDTO> productosPage = productoService.obtenerProductosConStockBajo(
+                    PageRequest.of(page, size));
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("productos", productosPage.getContent());
+            response.put("estadisticas", productoService.obtenerEstadisticasStock());
+            response.put("totalProductosStockBajo", productosPage.getTotalElements());
+            response.put("currentPage", productosPage.getNumber());
+            response.put("totalPages", productosPage.getTotalPages());
+            response.put("timestamp", LocalDateTime.now());
+            return Collections.unmodifiableMap(response);
+        });
+    }
+
+    public Map<String, Object> obtenerReporteStock() {
+        return cache.obtener("stock", () -> {
+            Map<String, Object> reporte = productoService.obtenerReporteStock();
+            reporte.put("timestamp", LocalDateTime.now());
+            return Collections.unmodifiableMap(reporte);
+        });
+    }
+}
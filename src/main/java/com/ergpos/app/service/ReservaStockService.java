@@ -0,0 +1,254 @@
+package com.ergpos.app.service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import com.ergpos.app.dto.movimientos.MovimientoInventarioRequestDTO;
+import com.ergpos.app.dto.movimientos.MovimientoInventarioResponseDTO;
+import com.ergpos.app.dto.reservas.ReservaConfirmacionRequestDTO;
+import com.ergpos.app.dto.reservas.ReservaRequestDTO;
+import com.ergpos.app.dto.reservas.ReservaResponseDTO;
+import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.model.MovimientoInventario.TipoMovimiento;
+import com.ergpos.app.model.Producto;
+import com.ergpos.app.repository.ProductoRepository;
+import com.ergpos.app.util.TimerWheel;
+
+/**
+ * Reservas de stock en memoria para carritos POS en curso.
+ *
+ * Una reserva retiene cantidad contra el stock del producto durante un TTL,
+ * sin escribir en base de datos. Al confirmarla se crea el movimiento SALIDA
+ * real; al liberarla o vencer, la cantidad vuelve a estar disponible.
+ * Los vencimientos se procesan con una rueda de temporizadores.
+ *
+ * Las reservas viven en la memoria de esta instancia: se pierden al reiniciar
+ * y no se comparten entre réplicas.
+ *
+ * Sin @Transactional: confirmar() delega en MovimientoInventarioService.crear,
+ * que abre y confirma su propia transacción antes de soltar la reserva.
+ */
+@Service
+public class ReservaStockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservaStockService.class);
+
+    public enum EstadoReserva {
+        ACTIVA, CONFIRMANDO, CONFIRMADA, LIBERADA, EXPIRADA
+    }
+
+    private static final class Reserva {
+        private final UUID id;
+        private final UUID productoId;
+        private final String codigoProducto;
+        private final int cantidad;
+        private final long expiraEnMillis;
+        private final AtomicReference<EstadoReserva> estado = new AtomicReference<>(EstadoReserva.ACTIVA);
+
+        private Reserva(UUID id, UUID productoId, String codigoProducto, int cantidad, long expiraEnMillis) {
+            this.id = id;
+            this.productoId = productoId;
+            this.codigoProducto = codigoProducto;
+            this.cantidad = cantidad;
+            this.expiraEnMillis = expiraEnMillis;
+        }
+    }
+
+    private final ProductoRepository productoRepo;
+    private final StockFraccionadoService stockFraccionado;
+    private final MovimientoInventarioService movimientoService;
+    private final StockReservadoService stockReservado;
+    private final int ttlPorDefecto;
+    private final int ttlMaximo;
+
+    private final Map<UUID, Reserva> reservas = new ConcurrentHashMap<>();
+    private final TimerWheel<UUID> rueda;
+
+    public ReservaStockService(
+            ProductoRepository productoRepo,
+            StockFraccionadoService stockFraccionado,
+            MovimientoInventarioService movimientoService,
+            StockReservadoService stockReservado,
+            @Value("${app.reservas.ttl-segundos:900}") int ttlPorDefecto,
+            @Value("${app.reservas.ttl-max-segundos:3600}") int ttlMaximo,
+            @Value("${app.reservas.tick-ms:1000}") long tickMillis,
+            @Value("${app.reservas.ranuras:512}") int ranuras) {
+        this.productoRepo = productoRepo;
+        this.stockFraccionado = stockFraccionado;
+        this.movimientoService = movimientoService;
+        this.stockReservado = stockReservado;
+        this.ttlPorDefecto = ttlPorDefecto;
+        this.ttlMaximo = ttlMaximo;
+        this.rueda = new TimerWheel<>(tickMillis, ranuras, System.currentTimeMillis());
+    }
+
+    private ReservaResponseDTO toDTO(Reserva reserva, int stockDisponible) {
+        ReservaResponseDTO dto = new ReservaResponseDTO();
+        dto.setId(reserva.id);
+        dto.setCodigoProducto(reserva.codigoProducto);
+        dto.setCantidad(reserva.cantidad);
+        dto.setEstado(reserva.estado.get().name());
+        dto.setExpiraEn(LocalDateTime.ofInstant(Instant.ofEpochMilli(reserva.expiraEnMillis), ZoneId.systemDefault()));
+        dto.setStockDisponible(stockDisponible);
+        return dto;
+    }
+
+    /**
+     * Cantidad retenida por reservas activas del producto.
+     */
+    public int stockReservado(UUID productoId) {
+        return stockReservado.stockReservado(productoId);
+    }
+
+    // RESERVAR
+    public ReservaResponseDTO reservar(ReservaRequestDTO request) {
+        Producto producto = productoRepo.findByCodigo(request.getCodigoProducto())
+                .orElseThrow(() -> new BusinessException(
+                        "PRODUCTO_NOT_FOUND",
+                        "Producto no encontrado",
+                        404));
+
+        if (!producto.getActivo()) {
+            throw new BusinessException(
+                    "PRODUCTO_INACTIVE",
+                    "El producto está inactivo",
+                    400);
+        }
+
+        int ttl = request.getTtlSegundos() != null ? request.getTtlSegundos() : ttlPorDefecto;
+        if (ttl > ttlMaximo) {
+            throw new BusinessException(
+                    "INVALID_TTL",
+                    String.format("El TTL máximo de una reserva es %d segundos", ttlMaximo),
+                    400);
+        }
+
+        int cantidad = request.getCantidad();
+        int stock = producto.getStockFraccionado()
+                ? stockFraccionado.stockTotal(producto.getId())
+                : producto.getStockActual();
+
+        // Verificación y retención atómicas por producto
+        int disponible = stockReservado.retener(producto.getId(), stock, cantidad);
+
+        Reserva reserva = new Reserva(UUID.randomUUID(), producto.getId(), producto.getCodigo(), cantidad,
+                System.currentTimeMillis() + ttl * 1000L);
+        reservas.put(reserva.id, reserva);
+        rueda.schedule(reserva.id, reserva.expiraEnMillis);
+
+        logger.debug("Reserva creada - id: {}, producto: {}, cantidad: {}, ttl: {}s",
+                reserva.id, reserva.codigoProducto, cantidad, ttl);
+        return toDTO(reserva, disponible);
+    }
+
+    // CONFIRMAR: convierte la reserva en un movimiento SALIDA
+    public MovimientoInventarioResponseDTO confirmar(String id, ReservaConfirmacionRequestDTO request) {
+        Reserva reserva = buscarReserva(id);
+
+        if (!reserva.estado.compareAndSet(EstadoReserva.ACTIVA, EstadoReserva.CONFIRMANDO)) {
+            throw reservaNoActiva();
+        }
+        if (System.currentTimeMillis() >= reserva.expiraEnMillis) {
+            finalizar(reserva, EstadoReserva.EXPIRADA);
+            throw reservaNoActiva();
+        }
+
+        MovimientoInventarioRequestDTO movimiento = new MovimientoInventarioRequestDTO();
+        movimiento.setCodigoProducto(reserva.codigoProducto);
+        movimiento.setCantidad(reserva.cantidad);
+        movimiento.setTipo(TipoMovimiento.SALIDA.name());
+        movimiento.setCodigoUsuario(request.getCodigoUsuario());
+        movimiento.setDocumentoRef(request.getDocumentoRef());
+        movimiento.setObservacion(request.getObservacion());
+        movimiento.setCostoUnitario(request.getCostoUnitario());
+
+        // La propia reserva sigue retenida hasta el commit: se excluye solo su cantidad
+        MovimientoInventarioResponseDTO creado;
+        try {
+            creado = movimientoService.crear(movimiento, reserva.cantidad);
+        } catch (RuntimeException e) {
+            // La reserva sigue vigente hasta su TTL; se vuelve a programar por si la rueda ya la descartó
+            reserva.estado.set(EstadoReserva.ACTIVA);
+            rueda.schedule(reserva.id, reserva.expiraEnMillis);
+            throw e;
+        }
+
+        // El movimiento ya está confirmado: la retención deja de ser necesaria
+        finalizar(reserva, EstadoReserva.CONFIRMADA);
+        logger.debug("Reserva confirmada - id: {}, movimiento: {}", reserva.id, creado.getId());
+        return creado;
+    }
+
+    // LIBERAR
+    public void liberar(String id) {
+        Reserva reserva = buscarReserva(id);
+
+        if (!reserva.estado.compareAndSet(EstadoReserva.ACTIVA, EstadoReserva.LIBERADA)) {
+            throw reservaNoActiva();
+        }
+        finalizar(reserva, EstadoReserva.LIBERADA);
+
+        logger.debug("Reserva liberada - id: {}", reserva.id);
+    }
+
+    // Avanza la rueda y libera las reservas vencidas
+    @Scheduled(fixedRateString = "${app.reservas.tick-ms:1000}")
+    public void expirarReservas() {
+        List<UUID> vencidas = rueda.advance(System.currentTimeMillis());
+        int expiradas = 0;
+        for (UUID id : vencidas) {
+            Reserva reserva = reservas.get(id);
+            if (reserva != null && reserva.estado.compareAndSet(EstadoReserva.ACTIVA, EstadoReserva.EXPIRADA)) {
+                finalizar(reserva, EstadoReserva.EXPIRADA);
+                expiradas++;
+            }
+        }
+        if (expiradas > 0) {
+            logger.debug("Reservas expiradas: {}", expiradas);
+        }
+    }
+
+    // ==================== HELPERS ====================
+
+    private Reserva buscarReserva(String id) {
+        UUID reservaId;
+        try {
+            reservaId = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("INVALID_ID", "ID de reserva inválido", 400);
+        }
+        Reserva reserva = reservas.get(reservaId);
+        if (reserva == null) {
+            throw new BusinessException(
+                    "RESERVA_NOT_FOUND",
+                    "Reserva no encontrada o ya finalizada",
+                    404);
+        }
+        return reserva;
+    }
+
+    private BusinessException reservaNoActiva() {
+        return new BusinessException(
+                "RESERVA_NOT_ACTIVE",
+                "La reserva ya no está activa",
+                409);
+    }
+
+    // Quita la reserva y devuelve su cantidad al disponible
+    private void finalizar(Reserva reserva, EstadoReserva estadoFinal) {
+        reserva.estado.set(estadoFinal);
+        if (reservas.remove(reserva.id) != null) {
+            stockReservado.liberar(reserva.productoId, reserva.cantidad);
+        }
+    }
+}
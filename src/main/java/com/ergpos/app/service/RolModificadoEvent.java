@@ -0,0 +1,9 @@
+package com.ergpos.app.service;
+
+/**
+ * Rol cuyo nombre o estado cambió; nombre es el valor anterior al cambio.
+ * Los consumidores lo reciben tras el commit (o de inmediato si no hay
+ * transacción).
+ */
+public record RolModificadoEvent(String nombre) {
+}
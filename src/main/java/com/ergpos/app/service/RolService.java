@@ -6,6 +6,7 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -29,9 +30,11 @@ public class RolService {
 
     private static final Logger logger = LoggerFactory.getLogger(RolService.class);
     private final RolRepository rolRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public RolService(RolRepository rolRepository) {
+    public RolService(RolRepository rolRepository, ApplicationEventPublisher eventPublisher) {
         this.rolRepository = rolRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     private RolResponseDTO toDTO(Rol rol) {
@@ -128,8 +131,10 @@ public class RolService {
             throw new DuplicateResourceException("Rol", "nombre", nuevoNombre);
         }
 
+        String nombreAnterior = rol.getNombre();
         rol.setNombre(nuevoNombre);
         Rol updated = rolRepository.save(rol);
+        eventPublisher.publishEvent(new RolModificadoEvent(nombreAnterior));
 
         logger.info("Rol actualizado: {}", updated.getNombre());
         return toDTO(updated);
@@ -153,6 +158,7 @@ public class RolService {
 
         rol.setActivo(true);
         Rol updated = rolRepository.save(rol);
+        eventPublisher.publishEvent(new RolModificadoEvent(updated.getNombre()));
 
         logger.info("Rol activado: {}", updated.getNombre());
         return toDTO(updated);
@@ -176,6 +182,7 @@ public class RolService {
 
         rol.setActivo(false);
         Rol updated = rolRepository.save(rol);
+        eventPublisher.publishEvent(new RolModificadoEvent(updated.getNombre()));
 
         logger.info("Rol desactivado: {}", updated.getNombre());
         return toDTO(updated);
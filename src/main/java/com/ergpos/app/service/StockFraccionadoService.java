@@ -0,0 +1,191 @@
+package com.ergpos.app.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.repository.StockShardRepository;
+
+/**
+ * Stock fraccionado en N contadores (shards) para productos de alta rotación.
+ *
+ * Un descuento se intenta sobre shards elegidos al azar con UPDATE condicional;
+ * si ningún shard alcanza por sí solo, se bloquean todos y se redistribuye el
+ * total. productos.stock_actual se sincroniza periódicamente con la suma para
+ * reportes y filtros; los DTOs de producto usan siempre la suma real.
+ */
+@Service
+@Transactional(readOnly = true)
+public class StockFraccionadoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockFraccionadoService.class);
+
+    public static final int MIN_SHARDS = 2;
+    public static final int MAX_SHARDS = 64;
+
+    private final StockShardRepository shardRepository;
+
+    // Número de shards por producto (cambia solo al habilitar/deshabilitar, y se fija tras el commit)
+    private final Map<UUID, Integer> shardsPorProducto = new ConcurrentHashMap<>();
+
+    public StockFraccionadoService(StockShardRepository shardRepository) {
+        this.shardRepository = shardRepository;
+    }
+
+    /**
+     * Reparte el stock indicado en el número de shards pedido.
+     * El llamador debe tener bloqueada la fila del producto.
+     */
+    @Transactional
+    public void habilitar(UUID productoId, int stockInicial, int shards) {
+        if (shards < MIN_SHARDS || shards > MAX_SHARDS) {
+            throw new BusinessException(
+                    "INVALID_SHARDS",
+                    String.format("El número de shards debe estar entre %d y %d", MIN_SHARDS, MAX_SHARDS),
+                    400);
+        }
+        shardRepository.reemplazar(productoId, repartir(stockInicial, shards));
+        cachearTrasCommit(productoId, shards);
+    }
+
+    /**
+     * Elimina los shards y devuelve el stock total que contenían.
+     */
+    @Transactional
+    public int deshabilitar(UUID productoId) {
+        int total = shardRepository.bloquearShards(productoId).stream().mapToInt(Integer::intValue).sum();
+        shardRepository.eliminar(productoId);
+        cachearTrasCommit(productoId, null);
+        return total;
+    }
+
+    /**
+     * Descuenta la cantidad del stock fraccionado.
+     *
+     * @return false si el total de shards no alcanza
+     */
+    @Transactional
+    public boolean descontar(UUID productoId, int cantidad) {
+        int shards = numeroShards(productoId);
+        int inicio = ThreadLocalRandom.current().nextInt(shards);
+
+        for (int i = 0; i < shards; i++) {
+            if (shardRepository.descontar(productoId, (inicio + i) % shards, cantidad)) {
+                return true;
+            }
+        }
+
+        // Ningún shard alcanza por sí solo: rebalancear bajo lock de todos los shards
+        List<Integer> cantidades = shardRepository.bloquearShards(productoId);
+        if (cantidades.size() != shards) {
+            // Número de shards en caché desactualizado: se volverá a contar
+            shardsPorProducto.remove(productoId);
+        }
+        int total = cantidades.stream().mapToInt(Integer::intValue).sum();
+        if (total < cantidad) {
+            return false;
+        }
+
+        shardRepository.actualizar(productoId, repartir(total - cantidad, cantidades.size()));
+        logger.debug("Shards rebalanceados - producto: {}, total: {}, descontado: {}", productoId, total, cantidad);
+        return true;
+    }
+
+    @Transactional
+    public void incrementar(UUID productoId, int cantidad) {
+        int shard = ThreadLocalRandom.current().nextInt(numeroShards(productoId));
+        if (shardRepository.incrementar(productoId, shard, cantidad) > 0) {
+            return;
+        }
+
+        // Número de shards en caché desactualizado: se vuelve a contar desde la base
+        shardsPorProducto.remove(productoId);
+        shard = ThreadLocalRandom.current().nextInt(numeroShards(productoId));
+        if (shardRepository.incrementar(productoId, shard, cantidad) == 0) {
+            throw new BusinessException(
+                    "STOCK_FRACCIONADO_NOT_FOUND",
+                    "El producto no tiene stock fraccionado",
+                    409);
+        }
+    }
+
+    /**
+     * Fija un nuevo total (ajuste manual), repartido en los shards existentes.
+     */
+    @Transactional
+    public void fijarTotal(UUID productoId, int total) {
+        int shards = shardRepository.bloquearShards(productoId).size();
+        shardRepository.actualizar(productoId, repartir(total, shards));
+    }
+
+    public int stockTotal(UUID productoId) {
+        return shardRepository.sumar(productoId);
+    }
+
+    public Map<UUID, Integer> stockTotales(Collection<UUID> productoIds) {
+        return shardRepository.sumar(productoIds);
+    }
+
+    // Mantiene productos.stock_actual al día para reportes y filtros SQL
+    @Scheduled(fixedDelayString = "${app.inventario.stock-fraccionado.sincronizacion-ms:5000}")
+    @Transactional
+    public void sincronizarStockActual() {
+        int actualizados = shardRepository.sincronizarStockActual();
+        if (actualizados > 0) {
+            logger.debug("Stock fraccionado sincronizado en {} productos", actualizados);
+        }
+    }
+
+    private int numeroShards(UUID productoId) {
+        int shards = shardsPorProducto.computeIfAbsent(productoId, shardRepository::contarShards);
+        if (shards == 0) {
+            shardsPorProducto.remove(productoId);
+            throw new BusinessException(
+                    "STOCK_FRACCIONADO_NOT_FOUND",
+                    "El producto no tiene stock fraccionado",
+                    409);
+        }
+        return shards;
+    }
+
+    // Antes del commit otras transacciones aún ven los shards anteriores: se invalida ya y se fija al confirmar
+    private void cachearTrasCommit(UUID productoId, Integer shards) {
+        shardsPorProducto.remove(productoId);
+        Runnable fijar = () -> {
+            if (shards != null) {
+                shardsPorProducto.put(productoId, shards);
+            } else {
+                shardsPorProducto.remove(productoId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    fijar.run();
+                }
+            });
+        } else {
+            fijar.run();
+        }
+    }
+
+    // Reparto uniforme; el resto va a los primeros shards
+    private int[] repartir(int total, int shards) {
+        int[] cantidades = new int[shards];
+        for (int i = 0; i < shards; i++) {
+            cantidades[i] = total / shards + (i < total % shards ? 1 : 0);
+        }
+        return cantidades;
+    }
+}
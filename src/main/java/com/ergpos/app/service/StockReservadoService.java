@@ -0,0 +1,62 @@
+package com.ergpos.app.service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Service;
+import com.ergpos.app.exception.StockInsufficiencyException;
+
+/**
+ * Total retenido por reservas activas, por producto.
+ *
+ * ReservaStockService retiene y libera; los movimientos SALIDA lo descuentan
+ * del stock antes de validar, para no consumir unidades retenidas por otros
+ * carritos. Vive en la memoria de esta instancia, igual que las reservas.
+ */
+@Service
+public class StockReservadoService {
+
+    private final Map<UUID, Integer> reservadoPorProducto = new ConcurrentHashMap<>();
+
+    /**
+     * Cantidad retenida por reservas activas del producto (lectura O(1)).
+     */
+    public int stockReservado(UUID productoId) {
+        return reservadoPorProducto.getOrDefault(productoId, 0);
+    }
+
+    /**
+     * Retiene la cantidad si el stock, descontado lo ya retenido, alcanza.
+     * Verificación y retención son atómicas por producto.
+     *
+     * @return Stock disponible tras la retención
+     * @throws StockInsufficiencyException si no alcanza
+     */
+    public int retener(UUID productoId, int stock, int cantidad) {
+        int[] disponible = new int[1];
+        boolean[] retenido = new boolean[1];
+        reservadoPorProducto.compute(productoId, (id, reservado) -> {
+            int actual = reservado != null ? reservado : 0;
+            disponible[0] = stock - actual;
+            if (disponible[0] < cantidad) {
+                return reservado;
+            }
+            retenido[0] = true;
+            disponible[0] -= cantidad;
+            return actual + cantidad;
+        });
+
+        if (!retenido[0]) {
+            throw new StockInsufficiencyException(Math.max(0, disponible[0]), cantidad);
+        }
+        return disponible[0];
+    }
+
+    /**
+     * Devuelve la cantidad al disponible.
+     */
+    public void liberar(UUID productoId, int cantidad) {
+        reservadoPorProducto.computeIfPresent(productoId,
+                (id, reservado) -> reservado - cantidad > 0 ? reservado - cantidad : null);
+    }
+}
@@ -0,0 +1,9 @@
+package com.ergpos.app.service;
+
+/**
+ * Usuario cuyo estado, rol, email o contraseña cambió. email es el valor
+ * anterior al cambio. Los consumidores lo reciben tras el commit (o de
+ * inmediato si no hay transacción).
+ */
+public record UsuarioModificadoEvent(String email) {
+}
@@ -5,14 +5,18 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.ergpos.app.dto.usuarios.CambiarPasswordRequestDTO;
 import com.ergpos.app.dto.usuarios.UsuarioRequestDTO;
 import com.ergpos.app.dto.usuarios.UsuarioResponseDTO;
 import com.ergpos.app.dto.usuarios.UsuarioUpdateRequestDTO;
+import com.ergpos.app.exception.BusinessException;
 import com.ergpos.app.exception.DuplicateResourceException;
 import com.ergpos.app.exception.ResourceNotFoundException;
 import com.ergpos.app.exception.ValidationException;
@@ -20,6 +24,7 @@ import com.ergpos.app.model.Rol;
 import com.ergpos.app.model.Usuario;
 import com.ergpos.app.repository.RolRepository;
 import com.ergpos.app.repository.UsuarioRepository;
+import com.ergpos.app.security.PasswordHashService;
 import com.ergpos.app.util.PasswordValidator;
 import com.ergpos.app.util.ValidationUtils;
 
@@ -28,6 +33,10 @@ import com.ergpos.app.util.ValidationUtils;
  * 
  * Implementa operaciones CRUD y gestión de contraseñas con validaciones
  * de negocio y manejo estandarizado de excepciones.
+ *
+ * Las operaciones con BCrypt (crear, actualizar con contraseña, cambiar
+ * contraseña) hashean fuera de la transacción: la espera del pool de hash
+ * (hasta app.password.espera-max-ms) no retiene una conexión de Hikari.
  */
 @Service
 @Transactional(readOnly = true)
@@ -37,15 +46,24 @@ public class UsuarioService {
 
     private final UsuarioRepository usuarioRepository;
     private final RolRepository rolRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashService passwordHashService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transaccion;
+    private final TransactionTemplate lectura;
 
     public UsuarioService(
             UsuarioRepository usuarioRepository,
             RolRepository rolRepository,
-            PasswordEncoder passwordEncoder) {
+            PasswordHashService passwordHashService,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager) {
         this.usuarioRepository = usuarioRepository;
         this.rolRepository = rolRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashService = passwordHashService;
+        this.eventPublisher = eventPublisher;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
     }
 
     private UsuarioResponseDTO toDTO(Usuario usuario) {
@@ -90,7 +108,7 @@ public class UsuarioService {
     /**
      * Crea un nuevo usuario.
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public UsuarioResponseDTO crear(UsuarioRequestDTO request) {
         logger.info("Creando nuevo usuario con email: {}", request.getEmail());
 
@@ -106,57 +124,60 @@ public class UsuarioService {
         String nombreRol = ValidationUtils.requireNonEmpty(request.getNombreRol(), "rol");
 
         // Validar código si se proporciona
-        String codigo = null;
-        if (request.getCodigo() != null && !request.getCodigo().trim().isEmpty()) {
-            codigo = request.getCodigo().trim();
+        String codigo = request.getCodigo() != null && !request.getCodigo().trim().isEmpty()
+                ? request.getCodigo().trim()
+                : null;
+        if (codigo != null) {
             ValidationUtils.requireMaxLength(codigo, "código", 50);
+        }
+
+        // Hash antes de abrir la transacción
+        String passwordHash = passwordHashService.codificar(password);
 
-            if (usuarioRepository.existsByCodigo(codigo)) {
+        return transaccion.execute(status -> {
+            if (codigo != null && usuarioRepository.existsByCodigo(codigo)) {
                 throw new DuplicateResourceException("Usuario", "código", codigo);
             }
-        }
 
-        // Verificar que el email no exista
-        if (usuarioRepository.existsByEmail(email)) {
-            throw new DuplicateResourceException("Usuario", "email", email);
-        }
+            // Verificar que el email no exista
+            if (usuarioRepository.existsByEmail(email)) {
+                throw new DuplicateResourceException("Usuario", "email", email);
+            }
 
-        // Buscar y validar rol
-        Rol rol = rolRepository.findByNombreIgnoreCase(nombreRol)
-                .orElseThrow(() -> new ResourceNotFoundException("Rol", "nombre", nombreRol));
+            // Buscar y validar rol
+            Rol rol = rolRepository.findByNombreIgnoreCase(nombreRol)
+                    .orElseThrow(() -> new ResourceNotFoundException("Rol", "nombre", nombreRol));
 
-        if (!rol.getActivo()) {
-            throw new ValidationException("INACTIVE_ROLE",
-                    "El rol '" + nombreRol + "' está inactivo");
-        }
+            if (!rol.getActivo()) {
+                throw new ValidationException("INACTIVE_ROLE",
+                        "El rol '" + nombreRol + "' está inactivo");
+            }
 
-        // Crear usuario
-        Usuario usuario = new Usuario();
-        usuario.setNombre(nombre);
-        usuario.setEmail(email);
-        usuario.setPasswordHash(passwordEncoder.encode(password));
-        usuario.setCodigo(codigo);
-        usuario.setRol(rol);
-        usuario.setActivo(true);
+            // Crear usuario
+            Usuario usuario = new Usuario();
+            usuario.setNombre(nombre);
+            usuario.setEmail(email);
+            usuario.setPasswordHash(passwordHash);
+            usuario.setCodigo(codigo);
+            usuario.setRol(rol);
+            usuario.setActivo(true);
 
-        Usuario saved = usuarioRepository.save(usuario);
-        logger.info("Usuario creado exitosamente: {}", email);
+            Usuario saved = usuarioRepository.save(usuario);
+            logger.info("Usuario creado exitosamente: {}", email);
 
-        return toDTO(saved);
+            return toDTO(saved);
+        });
     }
 
     /**
      * Actualiza un usuario existente.
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public UsuarioResponseDTO actualizar(String email, UsuarioUpdateRequestDTO request) {
         String emailActual = ValidationUtils.requireValidEmail(email, "email actual");
 
         logger.info("Actualizando usuario: {}", emailActual);
 
-        Usuario usuario = usuarioRepository.findByEmailIgnoreCase(emailActual)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario", "email", emailActual));
-
         // Validar nuevos datos
         String nuevoNombre = ValidationUtils.requireNonEmpty(request.getNombre(), "nombre");
         ValidationUtils.requireMaxLength(nuevoNombre, "nombre", 255);
@@ -166,51 +187,65 @@ public class UsuarioService {
         String nombreRol = ValidationUtils.requireNonEmpty(request.getNombreRol(), "rol");
 
         // Validar código si se proporciona
-        String nuevoCodigo = null;
-        if (request.getCodigo() != null && !request.getCodigo().trim().isEmpty()) {
-            nuevoCodigo = request.getCodigo().trim();
+        String nuevoCodigo = request.getCodigo() != null && !request.getCodigo().trim().isEmpty()
+                ? request.getCodigo().trim()
+                : null;
+        if (nuevoCodigo != null) {
             ValidationUtils.requireMaxLength(nuevoCodigo, "código", 50);
+        }
+
+        // Password solo si se proporciona; el hash antes de abrir la transacción
+        String nuevoPasswordHash = null;
+        if (request.getPassword() != null && !request.getPassword().trim().isEmpty()) {
+            String newPassword = request.getPassword().trim();
+            PasswordValidator.validateBasic(newPassword);
+            nuevoPasswordHash = passwordHashService.codificar(newPassword);
+        }
+        String passwordHash = nuevoPasswordHash;
+
+        return transaccion.execute(status -> {
+            Usuario usuario = usuarioRepository.findByEmailIgnoreCase(emailActual)
+                    .orElseThrow(() -> new ResourceNotFoundException("Usuario", "email", emailActual));
 
             // Verificar duplicado solo si cambió
-            if (!nuevoCodigo.equals(usuario.getCodigo()) &&
+            if (nuevoCodigo != null && !nuevoCodigo.equals(usuario.getCodigo()) &&
                     usuarioRepository.existsByCodigo(nuevoCodigo)) {
                 throw new DuplicateResourceException("Usuario", "código", nuevoCodigo);
             }
-        }
 
-        // Verificar email duplicado solo si cambió
-        if (!usuario.getEmail().equals(nuevoEmail) &&
-                usuarioRepository.existsByEmail(nuevoEmail)) {
-            throw new DuplicateResourceException("Usuario", "email", nuevoEmail);
-        }
+            // Verificar email duplicado solo si cambió
+            if (!usuario.getEmail().equals(nuevoEmail) &&
+                    usuarioRepository.existsByEmail(nuevoEmail)) {
+                throw new DuplicateResourceException("Usuario", "email", nuevoEmail);
+            }
 
-        // Buscar y validar rol
-        Rol rol = rolRepository.findByNombreIgnoreCase(nombreRol)
-                .orElseThrow(() -> new ResourceNotFoundException("Rol", "nombre", nombreRol));
+            // Buscar y validar rol
+            Rol rol = rolRepository.findByNombreIgnoreCase(nombreRol)
+                    .orElseThrow(() -> new ResourceNotFoundException("Rol", "nombre", nombreRol));
 
-        if (!rol.getActivo()) {
-            throw new ValidationException("INACTIVE_ROLE",
-                    "El rol '" + nombreRol + "' está inactivo");
-        }
+            if (!rol.getActivo()) {
+                throw new ValidationException("INACTIVE_ROLE",
+                        "El rol '" + nombreRol + "' está inactivo");
+            }
 
-        // Actualizar datos
-        usuario.setNombre(nuevoNombre);
-        usuario.setEmail(nuevoEmail);
-        usuario.setCodigo(nuevoCodigo);
-        usuario.setRol(rol);
+            // Actualizar datos
+            String emailAnterior = usuario.getEmail();
+            usuario.setNombre(nuevoNombre);
+            usuario.setEmail(nuevoEmail);
+            usuario.setCodigo(nuevoCodigo);
+            usuario.setRol(rol);
 
-        // Actualizar password solo si se proporciona
-        if (request.getPassword() != null && !request.getPassword().trim().isEmpty()) {
-            String newPassword = request.getPassword().trim();
-            PasswordValidator.validateBasic(newPassword);
-            usuario.setPasswordHash(passwordEncoder.encode(newPassword));
-            logger.info("Contraseña actualizada para usuario: {}", nuevoEmail);
-        }
+            if (passwordHash != null) {
+                usuario.setPasswordHash(passwordHash);
+                logger.info("Contraseña actualizada para usuario: {}", nuevoEmail);
+            }
 
-        Usuario updated = usuarioRepository.save(usuario);
-        logger.info("Usuario actualizado exitosamente: {}", nuevoEmail);
+            Usuario updated = usuarioRepository.save(usuario);
+            eventPublisher.publishEvent(new UsuarioModificadoEvent(emailAnterior));
+            logger.info("Usuario actualizado exitosamente: {}", nuevoEmail);
 
-        return toDTO(updated);
+            return toDTO(updated);
+        });
     }
 
     /**
@@ -250,6 +285,7 @@ public class UsuarioService {
 
         usuario.setActivo(false);
         Usuario updated = usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioModificadoEvent(usuario.getEmail()));
 
         logger.info("Usuario desactivado: {}", emailNormalizado);
         return toDTO(updated);
@@ -258,18 +294,19 @@ public class UsuarioService {
     /**
      * Cambia la contraseña de un usuario.
      */
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void cambiarPassword(String email, CambiarPasswordRequestDTO request) {
         String emailNormalizado = ValidationUtils.requireValidEmail(email, "email");
 
-        Usuario usuario = usuarioRepository.findByEmailIgnoreCase(emailNormalizado)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario", "email", emailNormalizado));
+        // Lectura corta; las verificaciones BCrypt van fuera de la transacción
+        Usuario usuario = lectura.execute(status -> usuarioRepository.findByEmailIgnoreCase(emailNormalizado)
+                .orElseThrow(() -> new ResourceNotFoundException("Usuario", "email", emailNormalizado)));
 
         // Validar contraseña actual
         String passwordActual = ValidationUtils.requireNonEmpty(
                 request.getPasswordActual(), "contraseña actual");
 
-        if (!passwordEncoder.matches(passwordActual, usuario.getPasswordHash())) {
+        if (!passwordHashService.verificar(passwordActual, usuario.getPasswordHash())) {
             throw new ValidationException("INVALID_PASSWORD", "La contraseña actual es incorrecta");
         }
 
@@ -279,13 +316,30 @@ public class UsuarioService {
         PasswordValidator.validateBasic(nuevoPassword);
 
         // Verificar que la nueva contraseña sea diferente
-        if (passwordEncoder.matches(nuevoPassword, usuario.getPasswordHash())) {
+        if (passwordHashService.verificar(nuevoPassword, usuario.getPasswordHash())) {
             throw new ValidationException("SAME_PASSWORD",
                     "La nueva contraseña debe ser diferente a la actual");
         }
 
-        usuario.setPasswordHash(passwordEncoder.encode(nuevoPassword));
-        usuarioRepository.save(usuario);
+        String hashAnterior = usuario.getPasswordHash();
+        String nuevoHash = passwordHashService.codificar(nuevoPassword);
+
+        transaccion.executeWithoutResult(status -> {
+            Usuario actual = usuarioRepository.findByEmailIgnoreCase(emailNormalizado)
+                    .orElseThrow(() -> new ResourceNotFoundException("Usuario", "email", emailNormalizado));
+
+            // La contraseña verificada ya no es la vigente (cambio concurrente)
+            if (!hashAnterior.equals(actual.getPasswordHash())) {
+                throw new BusinessException(
+                        "CONCURRENT_MODIFICATION",
+                        "La contraseña fue modificada por otra operación. Intente nuevamente",
+                        409);
+            }
+
+            actual.setPasswordHash(nuevoHash);
+            usuarioRepository.save(actual);
+            eventPublisher.publishEvent(new UsuarioModificadoEvent(actual.getEmail()));
+        });
 
         logger.info("Contraseña cambiada para usuario: {}", emailNormalizado);
     }
@@ -0,0 +1,96 @@
+package com.ergpos.app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ergpos.app.repository.CatalogoVersionRepository;
+
+/**
+ * Versión de los listados de productos y categorías para los GET
+ * condicionales (If-None-Match / If-Modified-Since): con una lectura por
+ * clave primaria se responde 304 sin consultar ni serializar el listado.
+ *
+ * La versión vive en la base (catalogo_version), de modo que una escritura
+ * en cualquier instancia invalida los ETag de todas. Se lee antes de
+ * consultar y se incrementa después del commit, por lo que un listado nunca
+ * queda etiquetado con una versión más nueva que sus datos; en el peor caso
+ * el cliente recibe el listado una vez de más.
+ *
+ * El incremento va en una transacción propia y corta, no en la de negocio:
+ * dentro de ella, la fila del contador serializaría hasta el commit todas las
+ * escrituras de stock, de cualquier producto. Si la instancia cae entre el
+ * commit y el incremento, los clientes conservan el listado anterior hasta la
+ * siguiente escritura. Los cambios hechos fuera de la aplicación no se
+ * detectan.
+ */
+@Service
+public class VersionCatalogoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VersionCatalogoService.class);
+
+    private static final String PRODUCTOS = "productos";
+    private static final String CATEGORIAS = "categorias";
+
+    /**
+     * Versión de un listado.
+     *
+     * @param etag               ETag fuerte, entre comillas
+     * @param ultimaModificacion Instante del último cambio, en ms
+     */
+    public record Version(String etag, long ultimaModificacion) {
+    }
+
+    private final CatalogoVersionRepository versionRepo;
+    private final TransactionTemplate transaccionPropia;
+
+    public VersionCatalogoService(CatalogoVersionRepository versionRepo, PlatformTransactionManager transactionManager) {
+        this.versionRepo = versionRepo;
+        this.transaccionPropia = new TransactionTemplate(transactionManager);
+        this.transaccionPropia.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Version productos() {
+        return leer(PRODUCTOS, "p");
+    }
+
+    public Version categorias() {
+        return leer(CATEGORIAS, "c");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void productosModificados(ProductosModificadosEvent evento) {
+        incrementar(PRODUCTOS);
+    }
+
+    // El listado de productos muestra el nombre y código de su categoría
+    @TransactionalEventListener(fallbackExecution = true)
+    public void categoriaModificada(CategoriaModificadaEvent evento) {
+        incrementar(CATEGORIAS);
+        if (evento.afectaProductos()) {
+            incrementar(PRODUCTOS);
+        }
+    }
+
+    private Version leer(String listado, String prefijo) {
+        CatalogoVersionRepository.Fila fila = versionRepo.leer(listado);
+        return new Version("\"" + prefijo + "-" + fila.version() + "\"", fila.actualizadoAt().getTime());
+    }
+
+    // Tras el commit: un fallo no deshace la escritura ya confirmada, solo se registra
+    private void incrementar(String listado) {
+        try {
+            Integer filas = transaccionPropia.execute(status -> versionRepo.incrementar(listado));
+            if (filas == null || filas == 0) {
+                logger.warn("Versión de catálogo sin fila para '{}': falta aplicar la migración 007", listado);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("No se pudo incrementar la versión del catálogo '{}': {}", listado,
+                    e.getMostSpecificCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ergpos.app.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV (RFC 4180) en streaming: devuelve un registro por llamada sin
+ * cargar el archivo en memoria.
+ *
+ * Admite campos entre comillas con separadores, comillas dobladas y saltos
+ * de línea, y finales de línea \n o \r\n. Un registro más largo que el
+ * límite se rechaza, para que un archivo malformado (p. ej. una comilla sin
+ * cerrar) no acumule el resto del archivo en un solo campo.
+ */
+public class CsvReader {
+
+    private final Reader reader;
+    private final int maxCaracteresRegistro;
+    private long registrosLeidos;
+    private int siguiente = -2;
+
+    public CsvReader(Reader reader, int maxCaracteresRegistro) {
+        this.reader = reader;
+        this.maxCaracteresRegistro = maxCaracteresRegistro;
+    }
+
+    /**
+     * Siguiente registro, o null al final del archivo. Las líneas vacías se omiten.
+     *
+     * @throws IOException si falla la lectura o el registro supera el límite
+     */
+    public List<String> leer() throws IOException {
+        while (true) {
+            int c = leerCaracter();
+            if (c == -1) {
+                return null;
+            }
+            if (c == '\n' || c == '\r') {
+                consumirFinDeLinea(c);
+                continue;
+            }
+            siguiente = c;
+            registrosLeidos++;
+            return leerRegistro();
+        }
+    }
+
+    // Número (desde 1) del último registro devuelto
+    public long getRegistrosLeidos() {
+        return registrosLeidos;
+    }
+
+    private List<String> leerRegistro() throws IOException {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        int longitud = 0;
+
+        while (true) {
+            int c = leerCaracter();
+            if (++longitud > maxCaracteresRegistro) {
+                throw new IOException("El registro " + registrosLeidos + " supera el máximo de "
+                        + maxCaracteresRegistro + " caracteres");
+            }
+
+            if (entreComillas) {
+                if (c == -1) {
+                    throw new IOException("Comillas sin cerrar en el registro " + registrosLeidos);
+                }
+                if (c == '"') {
+                    int s = leerCaracter();
+                    if (s == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        siguiente = s;
+                    }
+                } else {
+                    campo.append((char) c);
+                }
+                continue;
+            }
+
+            if (c == '"' && campo.isEmpty()) {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                campos.add(campo.toString());
+                consumirFinDeLinea(c);
+                return campos;
+            } else {
+                campo.append((char) c);
+            }
+        }
+    }
+
+    private void consumirFinDeLinea(int c) throws IOException {
+        if (c == '\r') {
+            int s = leerCaracter();
+            if (s != '\n') {
+                siguiente = s;
+            }
+        }
+    }
+
+    private int leerCaracter() throws IOException {
+        if (siguiente != -2) {
+            int c = siguiente;
+            siguiente = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
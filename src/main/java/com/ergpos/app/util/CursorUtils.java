@@ -0,0 +1,55 @@
+package com.ergpos.app.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+import com.ergpos.app.exception.ValidationException;
+
+/**
+ * Cursores opacos para paginación keyset sobre (fecha, id).
+ */
+public class CursorUtils {
+
+    /**
+     * Posición de la última fila entregada.
+     */
+    public record Cursor(LocalDateTime fecha, UUID id) {
+    }
+
+    /**
+     * Codifica la posición como token Base64 URL-safe.
+     * 
+     * @param fecha Fecha de la última fila
+     * @param id ID de la última fila (desempate)
+     * @return Token opaco para la siguiente página
+     */
+    public static String codificar(LocalDateTime fecha, UUID id) {
+        String valor = fecha + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un token generado por {@link #codificar}.
+     * 
+     * @param token Token recibido del cliente
+     * @return Cursor o null si no se envió token
+     * @throws ValidationException si el token no es válido
+     */
+    public static Cursor decodificar(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separador = valor.indexOf('|');
+            return new Cursor(
+                    LocalDateTime.parse(valor.substring(0, separador)),
+                    UUID.fromString(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+            throw new ValidationException("INVALID_CURSOR", "Cursor de paginación inválido");
+        }
+    }
+}
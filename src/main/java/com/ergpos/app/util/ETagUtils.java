@@ -0,0 +1,46 @@
+package com.ergpos.app.util;
+
+import com.ergpos.app.exception.ValidationException;
+
+/**
+ * Utilidades para cabeceras ETag / If-Match basadas en la versión de la entidad.
+ */
+public class ETagUtils {
+
+    /**
+     * Construye un ETag fuerte a partir de la versión.
+     * 
+     * @param version Versión de la entidad
+     * @return ETag entre comillas (ej: "3")
+     */
+    public static String fromVersion(Long version) {
+        return version != null ? "\"" + version + "\"" : null;
+    }
+
+    /**
+     * Extrae la versión de una cabecera If-Match.
+     * 
+     * Acepta "3", W/"3" o 3. Devuelve null si la cabecera no se envió o es "*".
+     * 
+     * @param ifMatch Valor de la cabecera If-Match
+     * @return Versión esperada o null
+     * @throws ValidationException si el valor no es una versión válida
+     */
+    public static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+
+        String valor = ifMatch.trim();
+        if (valor.startsWith("W/")) {
+            valor = valor.substring(2);
+        }
+        valor = valor.replace("\"", "");
+
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("INVALID_IF_MATCH", "Cabecera If-Match inválida: " + ifMatch);
+        }
+    }
+}
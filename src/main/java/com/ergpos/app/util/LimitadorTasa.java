@@ -0,0 +1,187 @@
+package com.ergpos.app.util;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limitador de tasa GCRA (generic cell rate algorithm) con memoria fija y
+ * sin bloqueos: admite hasta maxEventos por ventana, como una ventana
+ * deslizante, guardando un único instante por clave (TAT, el "instante
+ * teórico de llegada").
+ *
+ * Cada clave ocupa un long (huella de 24 bits + TAT de 40 bits en ms) en un
+ * arreglo de tamaño fijo, dividido en segmentos de VIAS posiciones; la
+ * clave solo puede vivir en su segmento. Todo cambio es un CAS sobre ese
+ * long. Las entradas vencidas (TAT en el pasado) equivalen a vacías y se
+ * reutilizan al insertar; con el segmento lleno se reemplaza la entrada más
+ * próxima a vencer, de modo que las claves más castigadas son las últimas
+ * en perderse.
+ *
+ * Dos claves del mismo segmento con la misma huella comparten contador
+ * (probabilidad del orden de VIAS / 2^24 por consulta con el segmento lleno).
+ * El hash lleva una semilla aleatoria por instancia: las colisiones no se
+ * pueden preparar de antemano.
+ */
+public class LimitadorTasa {
+
+    private static final int VIAS = 8;
+    private static final int BITS_TAT = 40;
+    private static final long MASCARA_TAT = (1L << BITS_TAT) - 1;
+
+    private final AtomicLongArray entradas;
+    private final int mascaraSegmentos;
+    private final long intervaloMs;
+    private final long ventanaMs;
+    private final long baseMillis;
+    private final long semilla = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * @param maxEventos  Eventos admitidos por ventana (ráfaga máxima)
+     * @param ventanaMs   Duración de la ventana
+     * @param capacidad   Claves como máximo (se redondea a potencia de 2, mínimo VIAS)
+     * @param ahoraMillis Instante actual
+     */
+    public LimitadorTasa(int maxEventos, long ventanaMs, int capacidad, long ahoraMillis) {
+        if (maxEventos <= 0 || ventanaMs <= 0 || capacidad <= 0) {
+            throw new IllegalArgumentException("maxEventos, ventanaMs y capacidad deben ser mayores a 0");
+        }
+        int segmentos = Integer.highestOneBit(Math.max(capacidad / VIAS, 1));
+        this.entradas = new AtomicLongArray(segmentos * VIAS);
+        this.mascaraSegmentos = segmentos - 1;
+        this.intervaloMs = Math.max(ventanaMs / maxEventos, 1);
+        this.ventanaMs = intervaloMs * maxEventos;
+        this.baseMillis = ahoraMillis - 1;
+    }
+
+    /**
+     * Registra un evento de la clave y devuelve si estaba dentro del límite.
+     * Un evento fuera del límite también se registra (alarga la espera),
+     * pero nunca más allá de una ventana desde ahora.
+     */
+    public boolean registrar(String clave, long ahoraMillis) {
+        long hash = hash(clave);
+        long huella = huella(hash);
+        int segmento = (int) hash & mascaraSegmentos;
+        long ahora = relativo(ahoraMillis);
+
+        while (true) {
+            int indice = buscar(segmento, huella);
+            long actual;
+            if (indice >= 0) {
+                actual = entradas.get(indice);
+                if (huella(actual) != huella) {
+                    // Reemplazada entre la búsqueda y la lectura
+                    continue;
+                }
+            } else {
+                indice = victima(segmento, ahora);
+                actual = entradas.get(indice);
+            }
+
+            long tat = huella(actual) == huella ? Math.max(tat(actual), ahora) : ahora;
+            boolean admitido = tat - ahora <= ventanaMs - intervaloMs;
+            long nuevoTat = Math.min(tat + intervaloMs, ahora + ventanaMs);
+            if (entradas.compareAndSet(indice, actual, empaquetar(huella, nuevoTat))) {
+                return admitido;
+            }
+        }
+    }
+
+    /**
+     * Milisegundos hasta que la clave vuelva a tener un evento disponible; 0
+     * si ya lo tiene.
+     */
+    public long espera(String clave, long ahoraMillis) {
+        long hash = hash(clave);
+        int indice = buscar((int) hash & mascaraSegmentos, huella(hash));
+        if (indice < 0) {
+            return 0;
+        }
+        long tat = tat(entradas.get(indice));
+        return Math.max(0, tat - (ventanaMs - intervaloMs) - relativo(ahoraMillis));
+    }
+
+    /**
+     * Eventos pendientes de recuperar dentro de la ventana (aproximado).
+     */
+    public int eventos(String clave, long ahoraMillis) {
+        long hash = hash(clave);
+        int indice = buscar((int) hash & mascaraSegmentos, huella(hash));
+        if (indice < 0) {
+            return 0;
+        }
+        long pendiente = tat(entradas.get(indice)) - relativo(ahoraMillis);
+        return pendiente <= 0 ? 0 : (int) ((pendiente + intervaloMs - 1) / intervaloMs);
+    }
+
+    public void limpiar(String clave) {
+        long hash = hash(clave);
+        long huella = huella(hash);
+        int segmento = (int) hash & mascaraSegmentos;
+        int indice;
+        while ((indice = buscar(segmento, huella)) >= 0) {
+            long actual = entradas.get(indice);
+            if (huella(actual) == huella) {
+                entradas.compareAndSet(indice, actual, 0L);
+            }
+        }
+    }
+
+    private int buscar(int segmento, long huella) {
+        int inicio = segmento * VIAS;
+        for (int i = inicio; i < inicio + VIAS; i++) {
+            if (huella(entradas.get(i)) == huella) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Vacía o vencida; si no hay, la más próxima a vencer
+    private int victima(int segmento, long ahora) {
+        int inicio = segmento * VIAS;
+        int elegida = inicio;
+        long menorTat = Long.MAX_VALUE;
+        for (int i = inicio; i < inicio + VIAS; i++) {
+            long tat = tat(entradas.get(i));
+            if (tat <= ahora) {
+                return i;
+            }
+            if (tat < menorTat) {
+                menorTat = tat;
+                elegida = i;
+            }
+        }
+        return elegida;
+    }
+
+    private long relativo(long ahoraMillis) {
+        return Math.max(ahoraMillis - baseMillis, 1);
+    }
+
+    // Huella no nula: 0 marca la posición vacía
+    private static long huella(long valor) {
+        return valor >>> BITS_TAT;
+    }
+
+    private static long tat(long entrada) {
+        return entrada & MASCARA_TAT;
+    }
+
+    private static long empaquetar(long huella, long tat) {
+        return (huella << BITS_TAT) | (tat & MASCARA_TAT);
+    }
+
+    // FNV-1a con semilla y mezcla final (splitmix64); la huella se toma de los bits altos
+    private long hash(String clave) {
+        long h = semilla ^ 0xcbf29ce484222325L;
+        for (int i = 0; i < clave.length(); i++) {
+            h = (h ^ clave.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        // Los bits altos (huella) no pueden ser todos cero
+        return (h >>> BITS_TAT) == 0 ? h | (1L << BITS_TAT) : h;
+    }
+}
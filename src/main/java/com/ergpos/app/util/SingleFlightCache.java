@@ -0,0 +1,114 @@
+package com.ergpos.app.util;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caché con TTL corto y coalescencia de llamadas concurrentes (single flight).
+ *
+ * Para una misma clave, solo el primer llamador ejecuta el cálculo; los que
+ * llegan mientras está en curso esperan ese mismo resultado. El resultado se
+ * reutiliza hasta que vence el TTL o se invalida la caché. Los errores no se
+ * cachean: se propagan a todos los que esperaban y la clave queda libre.
+ */
+public class SingleFlightCache<K, V> {
+
+    private static final class Entrada<V> {
+        private final CompletableFuture<V> valor = new CompletableFuture<>();
+        // En curso no vence; al completar se fija el vencimiento real
+        private volatile long expiraEnMillis = Long.MAX_VALUE;
+
+        private boolean vencida(long ahoraMillis) {
+            return ahoraMillis >= expiraEnMillis;
+        }
+    }
+
+    private final long ttlMillis;
+    private final Map<K, Entrada<V>> entradas = new ConcurrentHashMap<>();
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder coalescidas = new LongAdder();
+
+    public SingleFlightCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public V obtener(K clave, Supplier<V> calculo) {
+        while (true) {
+            long ahora = System.currentTimeMillis();
+            Entrada<V> existente = entradas.get(clave);
+            if (existente != null && !existente.vencida(ahora)) {
+                if (existente.valor.isDone()) {
+                    aciertos.increment();
+                } else {
+                    coalescidas.increment();
+                }
+                return esperar(existente);
+            }
+
+            Entrada<V> nueva = new Entrada<>();
+            boolean propia = existente == null
+                    ? entradas.putIfAbsent(clave, nueva) == null
+                    : entradas.replace(clave, existente, nueva);
+            if (!propia) {
+                // Otro hilo instaló su entrada primero: se usa la suya
+                continue;
+            }
+
+            fallos.increment();
+            purgarVencidas(ahora);
+            try {
+                V valor = calculo.get();
+                nueva.expiraEnMillis = System.currentTimeMillis() + ttlMillis;
+                nueva.valor.complete(valor);
+                return valor;
+            } catch (RuntimeException | Error e) {
+                entradas.remove(clave, nueva);
+                nueva.valor.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Descarta todo lo cacheado. Un cálculo en curso entrega su resultado a
+     * quienes ya esperaban, pero no queda cacheado para los siguientes.
+     */
+    public void invalidar() {
+        entradas.clear();
+    }
+
+    public long aciertos() {
+        return aciertos.sum();
+    }
+
+    public long fallos() {
+        return fallos.sum();
+    }
+
+    public long coalescidas() {
+        return coalescidas.sum();
+    }
+
+    private void purgarVencidas(long ahoraMillis) {
+        entradas.values().removeIf(e -> e.vencida(ahoraMillis));
+    }
+
+    private V esperar(Entrada<V> entrada) {
+        try {
+            return entrada.valor.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.ergpos.app.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Rueda de temporizadores (hashed timer wheel) para vencimientos masivos.
+ *
+ * Cada elemento cae en la ranura de su tick de vencimiento; un único hilo
+ * avanza la rueda y recoge los vencidos. Programar es O(1) y no crea una
+ * tarea por elemento. La precisión es de un tick.
+ *
+ * schedule() es seguro entre hilos; advance() debe llamarlo un solo hilo.
+ */
+public class TimerWheel<T> {
+
+    private record Entrada<T>(T elemento, long tick) {
+    }
+
+    private final long tickMillis;
+    private final List<Queue<Entrada<T>>> ranuras;
+    private volatile long ultimoTick;
+
+    public TimerWheel(long tickMillis, int numeroRanuras, long ahoraMillis) {
+        if (tickMillis <= 0 || numeroRanuras <= 0) {
+            throw new IllegalArgumentException("tickMillis y numeroRanuras deben ser mayores a 0");
+        }
+        this.tickMillis = tickMillis;
+        List<Queue<Entrada<T>>> colas = new ArrayList<>(numeroRanuras);
+        for (int i = 0; i < numeroRanuras; i++) {
+            colas.add(new ConcurrentLinkedQueue<>());
+        }
+        this.ranuras = List.copyOf(colas);
+        this.ultimoTick = ahoraMillis / tickMillis;
+    }
+
+    /**
+     * Programa el vencimiento de un elemento. Un vencimiento ya pasado se
+     * entrega en el siguiente avance.
+     */
+    public void schedule(T elemento, long vencimientoMillis) {
+        long tick = Math.max(vencimientoMillis / tickMillis, ultimoTick + 1);
+        ranuras.get((int) (tick % ranuras.size())).add(new Entrada<>(elemento, tick));
+    }
+
+    /**
+     * Avanza la rueda hasta el instante indicado y devuelve los elementos vencidos.
+     */
+    public List<T> advance(long ahoraMillis) {
+        List<T> vencidos = new ArrayList<>();
+        long tickActual = ahoraMillis / tickMillis;
+
+        // Tras una pausa larga basta con recorrer una vuelta completa
+        long desde = Math.max(ultimoTick + 1, tickActual - ranuras.size() + 1);
+        for (long tick = desde; tick <= tickActual; tick++) {
+            Iterator<Entrada<T>> it = ranuras.get((int) (tick % ranuras.size())).iterator();
+            while (it.hasNext()) {
+                Entrada<T> entrada = it.next();
+                // Las entradas de vueltas posteriores permanecen en la ranura
+                if (entrada.tick() <= tickActual) {
+                    it.remove();
+                    vencidos.add(entrada.elemento());
+                }
+            }
+        }
+        ultimoTick = Math.max(ultimoTick, tickActual);
+        return vencidos;
+    }
+}
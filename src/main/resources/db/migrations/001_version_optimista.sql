@@ -0,0 +1,4 @@
+-- Control de concurrencia optimista (@Version) en productos, categorías y proveedores
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE categorias ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE proveedores ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
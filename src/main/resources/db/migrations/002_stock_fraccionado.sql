@@ -0,0 +1,9 @@
+-- Stock fraccionado (shards) para productos de alta rotación
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS stock_fraccionado BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS producto_stock_shards (
+    producto_id UUID NOT NULL REFERENCES productos(id) ON DELETE CASCADE,
+    shard SMALLINT NOT NULL,
+    cantidad INTEGER NOT NULL CHECK (cantidad >= 0),
+    PRIMARY KEY (producto_id, shard)
+);
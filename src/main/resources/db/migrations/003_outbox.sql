@@ -0,0 +1,16 @@
+-- Outbox transaccional: eventos escritos en la misma transacción que el movimiento
+CREATE TABLE IF NOT EXISTS outbox_eventos (
+    id BIGSERIAL PRIMARY KEY,
+    tipo VARCHAR(50) NOT NULL,
+    agregado_id UUID,
+    payload JSONB NOT NULL DEFAULT '{}'::jsonb,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    disponible_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    procesado_at TIMESTAMP,
+    intentos INTEGER NOT NULL DEFAULT 0,
+    ultimo_error TEXT
+);
+
+-- Solo los pendientes: el relay recorre este índice en orden de id
+CREATE INDEX IF NOT EXISTS idx_outbox_pendientes ON outbox_eventos (id) WHERE procesado_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_outbox_procesados ON outbox_eventos (procesado_at) WHERE procesado_at IS NOT NULL;
@@ -0,0 +1,6 @@
+-- Paginación keyset de movimientos: índices compuestos en el orden (fecha DESC, id DESC)
+CREATE INDEX IF NOT EXISTS idx_movimientos_fecha_id ON movimientos_inventario (fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_movimientos_producto_fecha_id ON movimientos_inventario (producto_id, fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_movimientos_usuario_fecha_id ON movimientos_inventario (usuario_id, fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_movimientos_proveedor_fecha_id ON movimientos_inventario (proveedor_id, fecha DESC, id DESC)
+    WHERE proveedor_id IS NOT NULL;
@@ -0,0 +1,23 @@
+-- Reglas de stock bajo y criticidad como columnas generadas (réplica de ReglasStock)
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS stock_bajo BOOLEAN
+    GENERATED ALWAYS AS (
+        stock_actual = 0
+        OR (stock_minimo > 0 AND stock_actual < stock_minimo)
+        OR (stock_minimo = 0 AND stock_actual <= 5)
+    ) STORED;
+
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS nivel_criticidad SMALLINT
+    GENERATED ALWAYS AS (
+        CASE
+            WHEN stock_actual = 0 OR (stock_minimo > 0 AND stock_actual * 5 < stock_minimo) THEN 3
+            WHEN stock_minimo > 0 AND stock_actual < stock_minimo THEN 2
+            ELSE 1
+        END
+    ) STORED;
+
+-- Solo los productos activos con stock bajo, en el orden del reporte
+CREATE INDEX IF NOT EXISTS idx_productos_stock_bajo ON productos (nivel_criticidad DESC, codigo)
+    WHERE activo = TRUE AND stock_bajo = TRUE;
+
+-- Distribución por categoría de productos activos
+CREATE INDEX IF NOT EXISTS idx_productos_activos_categoria ON productos (categoria_id) WHERE activo = TRUE;
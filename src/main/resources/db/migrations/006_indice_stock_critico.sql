@@ -0,0 +1,3 @@
+-- Reporte de stock crítico (sin stock o < 20% del mínimo): página y COUNT sobre un índice pequeño
+CREATE INDEX IF NOT EXISTS idx_productos_stock_critico ON productos (codigo)
+    WHERE activo = TRUE AND stock_bajo = TRUE AND nivel_criticidad = 3;
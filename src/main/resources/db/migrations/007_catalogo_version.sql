@@ -0,0 +1,10 @@
+-- Versión de los listados (ETag de los GET condicionales), compartida por todas las instancias
+CREATE TABLE IF NOT EXISTS catalogo_version (
+    listado VARCHAR(20) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0,
+    actualizado_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO catalogo_version (listado)
+SELECT l FROM (VALUES ('productos'), ('categorias')) AS listados (l)
+WHERE NOT EXISTS (SELECT 1 FROM catalogo_version WHERE listado = l);
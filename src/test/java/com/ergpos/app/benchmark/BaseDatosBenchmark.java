@@ -0,0 +1,39 @@
+package com.ergpos.app.benchmark;
+
+import java.util.UUID;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Base de datos de los benchmarks.
+ *
+ * Por defecto, H2 en memoria (una base nueva por ejecución): sirve para
+ * comparar estrategias entre sí, no como cifra absoluta. Para medir contra
+ * PostgreSQL, apuntar a una base vacía de pruebas:
+ *
+ * -Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bench
+ * -Dbenchmark.jdbc.usuario=... -Dbenchmark.jdbc.password=...
+ *
+ * Los benchmarks crean sus tablas si no existen, solo escriben filas propias
+ * y las borran al terminar.
+ */
+final class BaseDatosBenchmark {
+
+    private BaseDatosBenchmark() {
+    }
+
+    static HikariDataSource crear(int conexiones) {
+        HikariConfig config = new HikariConfig();
+        String url = System.getProperty("benchmark.jdbc.url");
+        if (url == null) {
+            // Espera de locks amplia: con muchas terminales sobre una fila, 1 s (defecto de H2) no alcanza
+            url = "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=PostgreSQL;LOCK_TIMEOUT=30000;DB_CLOSE_DELAY=-1";
+        }
+        config.setJdbcUrl(url);
+        config.setUsername(System.getProperty("benchmark.jdbc.usuario", "sa"));
+        config.setPassword(System.getProperty("benchmark.jdbc.password", ""));
+        config.setMaximumPoolSize(conexiones);
+        config.setAutoCommit(false);
+        return new HikariDataSource(config);
+    }
+}
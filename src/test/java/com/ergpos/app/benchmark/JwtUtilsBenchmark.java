@@ -0,0 +1,83 @@
+package com.ergpos.app.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.ergpos.app.security.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Costo de verificar un JWT por petición:
+ *
+ * parserPorLlamada: un parser nuevo por token (implementación anterior).
+ * parserCompartido: un único parser inmutable, sin caché.
+ * verificarConCache: JwtUtils.verificar con el token ya verificado (acierto de caché).
+ *
+ * Ejecutar:
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp-test.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp-test.txt) \
+ *     com.ergpos.app.benchmark.JwtUtilsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRETO = "benchmark-secret-de-al-menos-32-caracteres";
+
+    private JwtUtils jwtUtils;
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        jwtUtils = new JwtUtils(SECRETO, 3_600_000, 10_000, new SimpleMeterRegistry());
+        jwtUtils.init();
+        signingKey = Keys.hmacShaKeyFor(SECRETO.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        token = jwtUtils.generateTokenFromUsername("cajero01");
+        jwtUtils.verificar(token);
+    }
+
+    @Benchmark
+    public Claims parserPorLlamada() {
+        return Jwts.parserBuilder().setSigningKey(signingKey).build().parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Claims parserCompartido() {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Claims verificarConCache() {
+        return jwtUtils.verificar(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtUtilsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,201 @@
+package com.ergpos.app.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import com.ergpos.app.service.MovimientoInventarioService.EstrategiaStock;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Contención de ventas concurrentes sobre pocos productos: estrategia
+ * PESSIMISTA (SELECT ... FOR UPDATE al inicio) frente a CONDICIONAL (UPDATE
+ * con guarda al final), con las mismas sentencias y en el mismo orden que
+ * MovimientoInventarioService.crear: el lock del producto cubre los INSERT
+ * de movimiento y outbox solo en la pessimista.
+ *
+ * productos: filas calientes entre las que se reparten las terminales
+ * (1 = todas compiten por la misma fila).
+ *
+ * Ejecutar (1, 4 y 16 terminales):
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp-test.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp-test.txt) \
+ *     com.ergpos.app.benchmark.StockContencionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockContencionBenchmark {
+
+    private static final int[] TERMINALES = { 1, 4, 16 };
+    private static final int STOCK_INICIAL = 1_000_000_000;
+
+    @Param({ "PESSIMISTA", "CONDICIONAL" })
+    private EstrategiaStock estrategia;
+
+    @Param({ "1", "8" })
+    private int productos;
+
+    private HikariDataSource dataSource;
+    private UUID[] ids;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        dataSource = BaseDatosBenchmark.crear(TERMINALES[TERMINALES.length - 1] + 2);
+        ids = new UUID[productos];
+        try (Connection conexion = dataSource.getConnection(); Statement st = conexion.createStatement()) {
+            st.execute("""
+                    CREATE TABLE IF NOT EXISTS bench_productos (
+                        id UUID PRIMARY KEY, stock_actual INTEGER NOT NULL,
+                        updated_at TIMESTAMP, version BIGINT NOT NULL)
+                    """);
+            st.execute("""
+                    CREATE TABLE IF NOT EXISTS bench_movimientos (
+                        id UUID PRIMARY KEY, producto_id UUID NOT NULL, tipo VARCHAR(10) NOT NULL,
+                        cantidad INTEGER NOT NULL, fecha TIMESTAMP NOT NULL)
+                    """);
+            st.execute("""
+                    CREATE TABLE IF NOT EXISTS bench_outbox (
+                        id UUID PRIMARY KEY, agregado_id UUID NOT NULL, creado_en TIMESTAMP NOT NULL)
+                    """);
+            try (PreparedStatement ps = conexion.prepareStatement(
+                    "INSERT INTO bench_productos (id, stock_actual, updated_at, version) VALUES (?, ?, CURRENT_TIMESTAMP, 0)")) {
+                for (int i = 0; i < productos; i++) {
+                    ids[i] = UUID.randomUUID();
+                    ps.setObject(1, ids[i]);
+                    ps.setInt(2, STOCK_INICIAL);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            conexion.commit();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws SQLException {
+        try (Connection conexion = dataSource.getConnection()) {
+            borrar(conexion, "DELETE FROM bench_outbox WHERE agregado_id = ?");
+            borrar(conexion, "DELETE FROM bench_movimientos WHERE producto_id = ?");
+            borrar(conexion, "DELETE FROM bench_productos WHERE id = ?");
+            conexion.commit();
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    private void borrar(Connection conexion, String sql) throws SQLException {
+        try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            for (UUID id : ids) {
+                ps.setObject(1, id);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean salida() throws SQLException {
+        UUID productoId = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+        try (Connection conexion = dataSource.getConnection()) {
+            boolean ok = estrategia == EstrategiaStock.PESSIMISTA
+                    ? salidaPessimista(conexion, productoId, 1)
+                    : salidaCondicional(conexion, productoId, 1);
+            if (ok) {
+                conexion.commit();
+            } else {
+                conexion.rollback();
+            }
+            return ok;
+        }
+    }
+
+    // Lock de la fila primero; se mantiene durante los INSERT hasta el commit
+    private boolean salidaPessimista(Connection conexion, UUID productoId, int cantidad) throws SQLException {
+        int stock;
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "SELECT stock_actual FROM bench_productos WHERE id = ? FOR UPDATE")) {
+            ps.setObject(1, productoId);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                stock = rs.getInt(1);
+            }
+        }
+        if (stock < cantidad) {
+            return false;
+        }
+        insertarMovimientoYOutbox(conexion, productoId, cantidad);
+        try (PreparedStatement ps = conexion.prepareStatement("""
+                UPDATE bench_productos SET stock_actual = ?, updated_at = CURRENT_TIMESTAMP, version = version + 1
+                WHERE id = ?
+                """)) {
+            ps.setInt(1, stock - cantidad);
+            ps.setObject(2, productoId);
+            ps.executeUpdate();
+        }
+        return true;
+    }
+
+    // INSERT primero; el UPDATE con guarda al final toma el lock solo hasta el commit
+    private boolean salidaCondicional(Connection conexion, UUID productoId, int cantidad) throws SQLException {
+        insertarMovimientoYOutbox(conexion, productoId, cantidad);
+        try (PreparedStatement ps = conexion.prepareStatement("""
+                UPDATE bench_productos
+                SET stock_actual = stock_actual - ?, updated_at = CURRENT_TIMESTAMP, version = version + 1
+                WHERE id = ? AND stock_actual >= ?
+                """)) {
+            ps.setInt(1, cantidad);
+            ps.setObject(2, productoId);
+            ps.setInt(3, cantidad);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    private void insertarMovimientoYOutbox(Connection conexion, UUID productoId, int cantidad) throws SQLException {
+        UUID movimientoId = UUID.randomUUID();
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "INSERT INTO bench_movimientos (id, producto_id, tipo, cantidad, fecha) VALUES (?, ?, 'SALIDA', ?, CURRENT_TIMESTAMP)")) {
+            ps.setObject(1, movimientoId);
+            ps.setObject(2, productoId);
+            ps.setInt(3, cantidad);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conexion.prepareStatement(
+                "INSERT INTO bench_outbox (id, agregado_id, creado_en) VALUES (?, ?, CURRENT_TIMESTAMP)")) {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setObject(2, productoId);
+            ps.executeUpdate();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int terminales : TERMINALES) {
+            new Runner(new OptionsBuilder()
+                    .include(StockContencionBenchmark.class.getSimpleName())
+                    .threads(terminales)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.ergpos.app.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import com.ergpos.app.repository.StockShardRepository;
+import com.ergpos.app.service.StockFraccionadoService;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Escalado del throughput de descuentos con el número de terminales, sobre un
+ * único producto caliente: fila única (UPDATE condicional sobre
+ * productos.stock_actual) frente a stock fraccionado en N shards, usando
+ * StockFraccionadoService y StockShardRepository reales.
+ *
+ * shards: 1 = sin fraccionar; 4 y 16 = StockFraccionadoService.descontar.
+ *
+ * Medir contra PostgreSQL (-Dbenchmark.jdbc.url): en H2 en memoria el commit
+ * no espera al disco y el lock de la fila dura microsegundos, así que la fila
+ * única no llega a ser cuello de botella y los shards solo suman sentencias.
+ *
+ * Ejecutar (1, 4, 16 y 32 terminales):
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp-test.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp-test.txt) \
+ *     com.ergpos.app.benchmark.StockFraccionadoBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockFraccionadoBenchmark {
+
+    private static final int[] TERMINALES = { 1, 4, 16, 32 };
+    private static final int STOCK_INICIAL = 1_000_000_000;
+
+    @Param({ "1", "4", "16" })
+    private int shards;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transaccion;
+    private StockFraccionadoService stockFraccionado;
+    private UUID productoId;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        dataSource = BaseDatosBenchmark.crear(TERMINALES[TERMINALES.length - 1] + 2);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transaccion = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        stockFraccionado = new StockFraccionadoService(new StockShardRepository(jdbcTemplate));
+        productoId = UUID.randomUUID();
+
+        transaccion.executeWithoutResult(estado -> {
+            // Solo las columnas que tocan estas rutas; el resto de la tabla no interviene
+            jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS productos (
+                        id UUID PRIMARY KEY, stock_actual INTEGER NOT NULL,
+                        updated_at TIMESTAMP, version BIGINT NOT NULL DEFAULT 0)
+                    """);
+            // Migración 002
+            jdbcTemplate.execute(
+                    "ALTER TABLE productos ADD COLUMN IF NOT EXISTS stock_fraccionado BOOLEAN NOT NULL DEFAULT FALSE");
+            jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS producto_stock_shards (
+                        producto_id UUID NOT NULL REFERENCES productos(id) ON DELETE CASCADE,
+                        shard SMALLINT NOT NULL,
+                        cantidad INTEGER NOT NULL CHECK (cantidad >= 0),
+                        PRIMARY KEY (producto_id, shard))
+                    """);
+            jdbcTemplate.update("""
+                    INSERT INTO productos (id, stock_actual, updated_at, version, stock_fraccionado)
+                    VALUES (?, ?, CURRENT_TIMESTAMP, 0, ?)
+                    """, productoId, STOCK_INICIAL, shards > 1);
+            if (shards > 1) {
+                stockFraccionado.habilitar(productoId, STOCK_INICIAL, shards);
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() {
+        try {
+            transaccion.executeWithoutResult(estado -> {
+                jdbcTemplate.update("DELETE FROM producto_stock_shards WHERE producto_id = ?", productoId);
+                jdbcTemplate.update("DELETE FROM productos WHERE id = ?", productoId);
+            });
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    @Benchmark
+    public Boolean descontar() {
+        return transaccion.execute(estado -> shards > 1
+                ? stockFraccionado.descontar(productoId, 1)
+                : descontarFila(1));
+    }
+
+    // Misma guarda que MovimientoInventarioService en modo CONDICIONAL
+    private boolean descontarFila(int cantidad) {
+        return jdbcTemplate.update("""
+                UPDATE productos
+                SET stock_actual = stock_actual - ?, updated_at = CURRENT_TIMESTAMP, version = version + 1
+                WHERE id = ? AND stock_actual >= ?
+                """, cantidad, productoId, cantidad) > 0;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int terminales : TERMINALES) {
+            new Runner(new OptionsBuilder()
+                    .include(StockFraccionadoBenchmark.class.getSimpleName())
+                    .threads(terminales)
+                    .build()).run();
+        }
+    }
+}
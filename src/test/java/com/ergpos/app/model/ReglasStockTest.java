@@ -0,0 +1,170 @@
+package com.ergpos.app.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Paridad de ReglasStock con la lógica anterior de ProductoService y con las
+ * columnas generadas de la migración 005 (evaluadas en H2, modo PostgreSQL,
+ * con las expresiones tal como están en el archivo).
+ */
+class ReglasStockTest {
+
+    private static final String MIGRACION = "/db/migrations/005_stock_bajo.sql";
+    private static final int MAX_STOCK = 120;
+    private static final int MAX_MINIMO = 120;
+
+    private static Connection conexion;
+    private static PreparedStatement stockBajoSql;
+    private static PreparedStatement nivelCriticidadSql;
+
+    @BeforeAll
+    static void prepararSql() throws IOException, SQLException {
+        String migracion;
+        try (InputStream in = ReglasStockTest.class.getResourceAsStream(MIGRACION)) {
+            migracion = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        conexion = DriverManager.getConnection("jdbc:h2:mem:reglas_stock;MODE=PostgreSQL");
+        stockBajoSql = consulta(expresionGenerada(migracion, "stock_bajo"));
+        nivelCriticidadSql = consulta(expresionGenerada(migracion, "nivel_criticidad"));
+    }
+
+    @AfterAll
+    static void cerrar() throws SQLException {
+        conexion.close();
+    }
+
+    @ParameterizedTest(name = "stock={0}, minimo={1}")
+    @CsvSource({
+            // Sin stock
+            "0, 0, true, 3",
+            "0, 10, true, 3",
+            // Sin mínimo: umbral absoluto de 5
+            "1, 0, true, 1",
+            "5, 0, true, 1",
+            "6, 0, false, 1",
+            // stock * 5 == mínimo: no es crítico (estrictamente menor al 20%)
+            "3, 15, true, 2",
+            "2, 10, true, 2",
+            "1, 5, true, 2",
+            // Justo bajo el 20%
+            "2, 11, true, 3",
+            "1, 6, true, 3",
+            // Igual al mínimo: no es bajo
+            "10, 10, false, 1",
+            "1, 1, false, 1",
+            // Sobre el mínimo, aunque esté en el umbral absoluto
+            "4, 3, false, 1",
+            "11, 10, false, 1"
+    })
+    void casosLimite(int stock, int minimo, boolean bajo, int nivel) throws SQLException {
+        assertThat(ReglasStock.esStockBajo(stock, minimo)).isEqualTo(bajo);
+        assertThat(ReglasStock.nivelCriticidad(stock, minimo)).isEqualTo(nivel);
+        assertThat(stockBajoEnSql(stock, minimo)).isEqualTo(bajo);
+        assertThat(nivelCriticidadEnSql(stock, minimo)).isEqualTo(nivel);
+    }
+
+    @Test
+    void sqlCoincideConJava() throws SQLException {
+        for (int stock = 0; stock <= MAX_STOCK; stock++) {
+            for (int minimo = 0; minimo <= MAX_MINIMO; minimo++) {
+                String caso = "stock=" + stock + ", minimo=" + minimo;
+                assertThat(stockBajoEnSql(stock, minimo)).as(caso)
+                        .isEqualTo(ReglasStock.esStockBajo(stock, minimo));
+                assertThat(nivelCriticidadEnSql(stock, minimo)).as(caso)
+                        .isEqualTo(ReglasStock.nivelCriticidad(stock, minimo));
+            }
+        }
+    }
+
+    @Test
+    void javaCoincideConLogicaAnterior() {
+        for (int stock = 0; stock <= MAX_STOCK; stock++) {
+            for (int minimo = 0; minimo <= MAX_MINIMO; minimo++) {
+                String caso = "stock=" + stock + ", minimo=" + minimo;
+                assertThat(ReglasStock.esStockBajo(stock, minimo)).as(caso)
+                        .isEqualTo(esStockBajoAnterior(stock, minimo));
+                assertThat(ReglasStock.nivelCriticidad(stock, minimo)).as(caso)
+                        .isEqualTo(nivelCriticidadAnterior(stock, minimo));
+            }
+        }
+    }
+
+    // ==================== LÓGICA ANTERIOR (ProductoService) ====================
+
+    private static boolean esStockBajoAnterior(int stockActual, int stockMinimo) {
+        if (stockMinimo > 0 && stockActual < stockMinimo) {
+            return true;
+        }
+        if (stockMinimo == 0 && stockActual <= 5) {
+            return true;
+        }
+        if (stockMinimo > 0 && stockActual < (stockMinimo * 0.3)) {
+            return true;
+        }
+        return stockActual == 0;
+    }
+
+    private static int nivelCriticidadAnterior(int stockActual, int stockMinimo) {
+        if (stockActual == 0) {
+            return 3;
+        }
+        if (stockMinimo > 0 && stockActual < (stockMinimo * 0.2)) {
+            return 3;
+        }
+        if (stockMinimo > 0 && stockActual < stockMinimo) {
+            return 2;
+        }
+        return 1;
+    }
+
+    // ==================== SQL ====================
+
+    private static String expresionGenerada(String migracion, String columna) {
+        Matcher matcher = Pattern.compile(
+                "ADD COLUMN IF NOT EXISTS " + columna + " \\w+\\s+GENERATED ALWAYS AS \\((.*?)\\)\\s*STORED",
+                Pattern.DOTALL).matcher(migracion);
+        assertThat(matcher.find()).as("columna generada %s en %s", columna, MIGRACION).isTrue();
+        return matcher.group(1);
+    }
+
+    private static PreparedStatement consulta(String expresion) throws SQLException {
+        return conexion.prepareStatement("SELECT " + expresion
+                + " FROM (SELECT CAST(? AS INTEGER) AS stock_actual, CAST(? AS INTEGER) AS stock_minimo) productos");
+    }
+
+    private static boolean stockBajoEnSql(int stock, int minimo) throws SQLException {
+        try (ResultSet rs = ejecutar(stockBajoSql, stock, minimo)) {
+            return rs.getBoolean(1);
+        }
+    }
+
+    private static int nivelCriticidadEnSql(int stock, int minimo) throws SQLException {
+        try (ResultSet rs = ejecutar(nivelCriticidadSql, stock, minimo)) {
+            return rs.getInt(1);
+        }
+    }
+
+    private static ResultSet ejecutar(PreparedStatement sql, int stock, int minimo) throws SQLException {
+        sql.setInt(1, stock);
+        sql.setInt(2, minimo);
+        ResultSet rs = sql.executeQuery();
+        assertThat(rs.next()).isTrue();
+        return rs;
+    }
+}
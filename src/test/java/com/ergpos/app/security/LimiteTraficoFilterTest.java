@@ -0,0 +1,160 @@
+package com.ergpos.app.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import com.ergpos.app.security.LimiteTraficoFilter.ClaseRuta;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Clasificación de rutas y compartimentos por clase: el lugar de una
+ * respuesta en streaming se retiene hasta que la petición asíncrona termina.
+ */
+class LimiteTraficoFilterTest {
+
+    private static final String EXPORT = "/api/movimientos/export";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LimiteTraficoFilter filtro;
+
+    @BeforeEach
+    void preparar() {
+        // Un solo lugar para reportes: el segundo export concurrente recibe 503
+        MockEnvironment entorno = new MockEnvironment()
+                .withProperty("app.limites.reportes.concurrentes", "1")
+                .withProperty("app.limites.reportes.rafaga", "100");
+        filtro = new LimiteTraficoFilter(entorno, meterRegistry, new ObjectMapper().findAndRegisterModules());
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "cajero@ergpos.test", null, List.of(new SimpleGrantedAuthority("ROLE_CAJERO"))));
+    }
+
+    @AfterEach
+    void limpiar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void clasificaPorMetodoYRuta() {
+        assertThat(LimiteTraficoFilter.clasificar("GET", "/api/auditoria/inventario")).isEqualTo(ClaseRuta.REPORTES);
+        assertThat(LimiteTraficoFilter.clasificar("GET", "/api/productos/reportes/stock-bajo"))
+                .isEqualTo(ClaseRuta.REPORTES);
+        assertThat(LimiteTraficoFilter.clasificar("GET", "/api/productos/dashboard")).isEqualTo(ClaseRuta.REPORTES);
+        assertThat(LimiteTraficoFilter.clasificar("GET", EXPORT)).isEqualTo(ClaseRuta.REPORTES);
+        assertThat(LimiteTraficoFilter.clasificar("POST", "/api/productos/importar")).isEqualTo(ClaseRuta.REPORTES);
+        assertThat(LimiteTraficoFilter.clasificar("POST", "/api/productos/actualizacion-masiva"))
+                .isEqualTo(ClaseRuta.REPORTES);
+
+        // Las lecturas de stock no compiten con las ventas
+        assertThat(LimiteTraficoFilter.clasificar("GET", "/api/movimientos")).isEqualTo(ClaseRuta.LECTURAS);
+        assertThat(LimiteTraficoFilter.clasificar("HEAD", "/api/productos/P-1")).isEqualTo(ClaseRuta.LECTURAS);
+
+        assertThat(LimiteTraficoFilter.clasificar("POST", "/api/movimientos")).isEqualTo(ClaseRuta.STOCK);
+        assertThat(LimiteTraficoFilter.clasificar("POST", "/api/reservas/confirmar")).isEqualTo(ClaseRuta.STOCK);
+        assertThat(LimiteTraficoFilter.clasificar("POST", "/api/productos/verificar-stock-multiple"))
+                .isEqualTo(ClaseRuta.STOCK);
+        assertThat(LimiteTraficoFilter.clasificar("PATCH", "/api/productos/P-1/stock")).isEqualTo(ClaseRuta.STOCK);
+
+        assertThat(LimiteTraficoFilter.clasificar("POST", "/api/productos")).isEqualTo(ClaseRuta.ESCRITURAS);
+        assertThat(LimiteTraficoFilter.clasificar("PUT", "/api/productos/P-1")).isEqualTo(ClaseRuta.ESCRITURAS);
+        assertThat(LimiteTraficoFilter.clasificar("DELETE", "/api/categorias/1")).isEqualTo(ClaseRuta.ESCRITURAS);
+    }
+
+    @Test
+    void liberaAlTerminarUnaPeticionSincrona() throws Exception {
+        assertThat(filtrar(EXPORT, false).response().getStatus()).isEqualTo(200);
+        assertThat(enCurso()).isZero();
+
+        assertThat(filtrar(EXPORT, false).response().getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void streamingRetieneElLugarHastaCompletar() throws Exception {
+        MockHttpServletRequest request = filtrar(EXPORT, true).request();
+        assertThat(enCurso()).isEqualTo(1);
+
+        // Mientras el stream sigue abierto el compartimento está lleno
+        MockHttpServletResponse rechazada = filtrar(EXPORT, false).response();
+        assertThat(rechazada.getStatus()).isEqualTo(503);
+        assertThat(rechazada.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(meterRegistry.get("ergpos.limites.rechazos").tag("clase", "reportes")
+                .tag("motivo", "concurrencia").counter().count()).isEqualTo(1);
+
+        asyncContext(request).complete();
+
+        assertThat(enCurso()).isZero();
+        assertThat(filtrar(EXPORT, false).response().getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void streamingLiberaPorTimeout() throws Exception {
+        MockHttpServletRequest request = filtrar(EXPORT, true).request();
+        assertThat(enCurso()).isEqualTo(1);
+
+        for (AsyncListener listener : asyncContext(request).getListeners()) {
+            listener.onTimeout(new AsyncEvent(request.getAsyncContext()));
+        }
+
+        assertThat(enCurso()).isZero();
+    }
+
+    @Test
+    void streamingLiberaUnaSolaVezAnteErrorYComplete() throws Exception {
+        MockHttpServletRequest request = filtrar(EXPORT, true).request();
+
+        // El contenedor notifica el error y después completa la respuesta
+        for (AsyncListener listener : asyncContext(request).getListeners()) {
+            listener.onError(new AsyncEvent(request.getAsyncContext(), new IllegalStateException("cliente desconectado")));
+        }
+        asyncContext(request).complete();
+
+        assertThat(enCurso()).isZero();
+        // Un release duplicado dejaría dos lugares y el segundo stream sería aceptado
+        filtrar(EXPORT, true);
+        assertThat(filtrar(EXPORT, false).response().getStatus()).isEqualTo(503);
+    }
+
+    private record Intercambio(MockHttpServletRequest request, MockHttpServletResponse response) {
+    }
+
+    private Intercambio filtrar(String ruta, boolean asincrona) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", ruta);
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                if (asincrona) {
+                    req.startAsync();
+                }
+            }
+        });
+        filtro.doFilter(request, response, chain);
+        return new Intercambio(request, response);
+    }
+
+    private static MockAsyncContext asyncContext(MockHttpServletRequest request) {
+        return (MockAsyncContext) request.getAsyncContext();
+    }
+
+    private double enCurso() {
+        return meterRegistry.get("ergpos.limites.en-curso").tag("clase", "reportes").gauge().value();
+    }
+}
@@ -0,0 +1,161 @@
+package com.ergpos.app.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import com.ergpos.app.exception.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Pool acotado de BCrypt: rechazo inmediato con la cola llena o la espera
+ * excedida (503), y rehash en segundo plano de los hashes con otro costo.
+ */
+class PasswordHashServiceTest {
+
+    private static final int COSTO = 4;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private final AtomicInteger iniciadas = new AtomicInteger();
+    private PasswordHashService servicio;
+
+    @AfterEach
+    void detener() {
+        liberar.countDown();
+        if (servicio != null) {
+            servicio.detener();
+        }
+    }
+
+    @Test
+    void codificaYVerifica() {
+        servicio = new PasswordHashService(new BCryptPasswordEncoder(COSTO), meterRegistry, COSTO, 2, 4, 5000);
+
+        String hash = servicio.codificar("secreta123");
+
+        assertThat(servicio.verificar("secreta123", hash)).isTrue();
+        assertThat(servicio.verificar("otra-clave", hash)).isFalse();
+        assertThat(servicio.requiereRehash(hash)).isFalse();
+    }
+
+    @Test
+    void requiereRehashConOtroCosto() {
+        servicio = new PasswordHashService(new BCryptPasswordEncoder(COSTO), meterRegistry, 5, 1, 4, 5000);
+
+        assertThat(servicio.requiereRehash(new BCryptPasswordEncoder(COSTO).encode("secreta123"))).isTrue();
+        assertThat(servicio.requiereRehash(new BCryptPasswordEncoder(5).encode("secreta123"))).isFalse();
+        assertThat(servicio.requiereRehash(null)).isFalse();
+        assertThat(servicio.requiereRehash("texto-plano")).isFalse();
+    }
+
+    @Test
+    void rechazaConColaLlena() throws Exception {
+        // 1 hilo ocupado + 1 en cola: la tercera operación se rechaza sin esperar
+        servicio = new PasswordHashService(encoderBloqueado(), meterRegistry, COSTO, 1, 1, 5000);
+        CompletableFuture<String> enCurso = CompletableFuture.supplyAsync(() -> servicio.codificar("a"));
+        esperarIniciadas(1);
+        CompletableFuture<String> enCola = CompletableFuture.supplyAsync(() -> servicio.codificar("b"));
+        esperarCola(1);
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> servicio.verificar("c", "hash"))
+                .isInstanceOfSatisfying(BusinessException.class, e -> {
+                    assertThat(e.getCode()).isEqualTo("SERVICE_BUSY");
+                    assertThat(e.getStatusCode()).isEqualTo(503);
+                });
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)).isLessThan(1000);
+        assertThat(meterRegistry.counter("ergpos.password.rechazos").count()).isEqualTo(1);
+
+        // Las aceptadas terminan normalmente
+        liberar.countDown();
+        assertThat(enCurso.get(5, TimeUnit.SECONDS)).isEqualTo("hash-a");
+        assertThat(enCola.get(5, TimeUnit.SECONDS)).isEqualTo("hash-b");
+    }
+
+    @Test
+    void rechazaAlExcederLaEspera() {
+        servicio = new PasswordHashService(encoderBloqueado(), meterRegistry, COSTO, 1, 4, 100);
+
+        assertThatThrownBy(() -> servicio.codificar("a"))
+                .isInstanceOfSatisfying(BusinessException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(503));
+        assertThat(meterRegistry.counter("ergpos.password.rechazos").count()).isEqualTo(1);
+    }
+
+    @Test
+    void rehashEnSegundoPlanoConElCostoConfigurado() throws Exception {
+        servicio = new PasswordHashService(new BCryptPasswordEncoder(COSTO), meterRegistry, COSTO, 1, 4, 5000);
+        CompletableFuture<String> guardado = new CompletableFuture<>();
+
+        servicio.rehashEnSegundoPlano("secreta123", guardado::complete);
+
+        String nuevo = guardado.get(5, TimeUnit.SECONDS);
+        assertThat(nuevo).startsWith("$2a$04$");
+        assertThat(servicio.verificar("secreta123", nuevo)).isTrue();
+    }
+
+    @Test
+    void rehashSeOmiteConElPoolSaturado() throws Exception {
+        servicio = new PasswordHashService(encoderBloqueado(), meterRegistry, COSTO, 1, 1, 5000);
+        CompletableFuture.runAsync(() -> servicio.codificar("a"));
+        esperarIniciadas(1);
+        CompletableFuture.runAsync(() -> servicio.codificar("b"));
+        esperarCola(1);
+
+        AtomicInteger guardados = new AtomicInteger();
+        servicio.rehashEnSegundoPlano("c", nuevo -> guardados.incrementAndGet());
+
+        // No lanza ni cuenta como rechazo de una petición
+        assertThat(meterRegistry.counter("ergpos.password.rechazos").count()).isZero();
+        liberar.countDown();
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertThat(guardados).hasValue(0);
+    }
+
+    // Encoder que retiene el hilo del pool hasta liberar
+    private PasswordEncoder encoderBloqueado() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence password) {
+                iniciadas.incrementAndGet();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash-" + password;
+            }
+
+            @Override
+            public boolean matches(CharSequence password, String hash) {
+                return encode(password).equals(hash);
+            }
+        };
+    }
+
+    private void esperarIniciadas(int esperadas) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (iniciadas.get() < esperadas && System.nanoTime() < limite) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertThat(iniciadas.get()).isGreaterThanOrEqualTo(esperadas);
+    }
+
+    private void esperarCola(int esperadas) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("ergpos.password.cola").gauge().value() < esperadas
+                && System.nanoTime() < limite) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertThat(meterRegistry.get("ergpos.password.cola").gauge().value()).isEqualTo(esperadas);
+    }
+}
@@ -0,0 +1,134 @@
+package com.ergpos.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.ergpos.app.dto.producto.ProductoResponseDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Invalidación de la caché de productos, en particular cuando un commit
+ * ocurre mientras otra petición está cargando el mismo producto.
+ */
+class CacheProductoServiceTest {
+
+    private static final UUID ID = UUID.randomUUID();
+
+    private final CacheProductoService cache = new CacheProductoService(new SimpleMeterRegistry(), 1000, 600_000);
+    private final AtomicInteger cargas = new AtomicInteger();
+
+    @Test
+    void cacheaHastaQueSeInvalida() {
+        Function<String, ProductoResponseDTO> cargar = contando(producto("P-1", 10));
+
+        assertThat(cache.obtener("P-1", cargar).getStockActual()).isEqualTo(10);
+        assertThat(cache.obtener("P-1", cargar).getStockActual()).isEqualTo(10);
+        assertThat(cargas).hasValue(1);
+
+        cache.productosModificados(ProductosModificadosEvent.de(ID));
+
+        cache.obtener("P-1", cargar);
+        assertThat(cargas).hasValue(2);
+    }
+
+    @Test
+    void invalidaPorIdAunqueCambieElCodigo() {
+        cache.obtener("VIEJO", contando(producto("VIEJO", 10)));
+
+        // El producto pasa a llamarse NUEVO; el evento solo trae el ID
+        cache.productosModificados(ProductosModificadosEvent.de(ID));
+
+        assertThat(cache.obtener("VIEJO", contando(null))).isNull();
+        assertThat(cargas).hasValue(2);
+    }
+
+    @Test
+    void noCacheaUnaCargaConcurrenteConUnCommit() throws Exception {
+        CountDownLatch cargando = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+
+        // La carga lee el stock anterior (10) y se detiene antes de devolverlo
+        CompletableFuture<ProductoResponseDTO> lenta = CompletableFuture.supplyAsync(
+                () -> cache.obtener("P-1", codigo -> {
+                    cargas.incrementAndGet();
+                    cargando.countDown();
+                    esperar(continuar);
+                    return producto("P-1", 10);
+                }));
+        assertThat(cargando.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Commit de una venta mientras tanto: la invalidación aún no encuentra la entrada.
+        // En otro hilo: invalidar una clave con carga en curso espera a que termine.
+        CompletableFuture<Void> invalidacion = CompletableFuture.runAsync(
+                () -> cache.productosModificados(ProductosModificadosEvent.de(ID)));
+        TimeUnit.MILLISECONDS.sleep(100);
+        continuar.countDown();
+
+        assertThat(lenta.get(5, TimeUnit.SECONDS).getStockActual()).isEqualTo(10);
+        invalidacion.get(5, TimeUnit.SECONDS);
+
+        // La siguiente consulta vuelve a la base y ve el stock nuevo
+        assertThat(cache.obtener("P-1", contando(producto("P-1", 9))).getStockActual()).isEqualTo(9);
+        assertThat(cargas).hasValue(2);
+    }
+
+    @Test
+    void categoriaModificadaInvalidaTodo() {
+        cache.obtener("P-1", contando(producto("P-1", 10)));
+
+        cache.categoriaModificada(new CategoriaModificadaEvent(UUID.randomUUID(), false));
+        cache.obtener("P-1", contando(producto("P-1", 10)));
+        assertThat(cargas).hasValue(1);
+
+        cache.categoriaModificada(new CategoriaModificadaEvent(UUID.randomUUID(), true));
+        cache.obtener("P-1", contando(producto("P-1", 10)));
+        assertThat(cargas).hasValue(2);
+    }
+
+    @Test
+    void noCacheaAusentesNiDentroDeTransaccionesDeEscritura() {
+        assertThat(cache.obtener("P-1", contando(null))).isNull();
+        assertThat(cache.obtener("P-1", contando(null))).isNull();
+        assertThat(cargas).hasValue(2);
+
+        // Lo leído dentro de una transacción de escritura podría revertirse
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            cache.obtener("P-2", contando(producto("P-2", 10)));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        cache.obtener("P-2", contando(producto("P-2", 10)));
+        assertThat(cargas).hasValue(4);
+    }
+
+    private Function<String, ProductoResponseDTO> contando(ProductoResponseDTO resultado) {
+        return codigo -> {
+            cargas.incrementAndGet();
+            return resultado;
+        };
+    }
+
+    private static ProductoResponseDTO producto(String codigo, int stock) {
+        ProductoResponseDTO dto = new ProductoResponseDTO();
+        dto.setId(ID);
+        dto.setCodigo(codigo);
+        dto.setStockActual(stock);
+        return dto;
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
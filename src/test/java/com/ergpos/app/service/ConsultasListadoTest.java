@@ -0,0 +1,239 @@
+package com.ergpos.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import com.ergpos.app.dto.categorias.CategoriaResponseDTO;
+import com.ergpos.app.dto.movimientos.MovimientoPaginaResponseDTO;
+import com.ergpos.app.dto.producto.ProductoResponseDTO;
+import com.ergpos.app.dto.usuarios.UsuarioResponseDTO;
+import com.ergpos.app.model.Categoria;
+import com.ergpos.app.model.MovimientoInventario;
+import com.ergpos.app.model.MovimientoInventario.TipoMovimiento;
+import com.ergpos.app.model.Producto;
+import com.ergpos.app.model.Proveedor;
+import com.ergpos.app.model.Rol;
+import com.ergpos.app.model.Usuario;
+import com.ergpos.app.repository.InventarioBatchRepository;
+import com.ergpos.app.security.PasswordHashService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Número exacto de sentencias SQL por listado (estadísticas de Hibernate).
+ *
+ * Cada listado debe resolver sus relaciones en la misma consulta: un 1+N
+ * (relación perezosa leída por fila al armar el DTO) cambia el conteo y
+ * hace fallar el test. Se siembran varias filas por relación para que un
+ * 1+N no quede oculto por la caché de primer nivel.
+ */
+@DataJpaTest(properties = {
+        // H2 en modo PostgreSQL; jsonb (inventario_audit) como dominio sobre JSON
+        "spring.datasource.url=jdbc:h2:mem:listados;MODE=PostgreSQL;INIT=CREATE DOMAIN IF NOT EXISTS JSONB AS JSON",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ ProductoService.class, CategoriaService.class, UsuarioService.class,
+        MovimientoInventarioService.class, StockReservadoService.class })
+class ConsultasListadoTest {
+
+    private static final int CATEGORIAS = 4;
+    private static final int PRODUCTOS = 24;
+    private static final int ROLES = 3;
+    private static final int USUARIOS = 9;
+    private static final int MOVIMIENTOS = 30;
+
+    @MockitoBean
+    private StockFraccionadoService stockFraccionado;
+    @MockitoBean
+    private ReservaStockService reservaStock;
+    @MockitoBean
+    private EstadisticasInventarioService estadisticas;
+    @MockitoBean
+    private CacheProductoService cacheProductos;
+    @MockitoBean
+    private ConteoAproximadoService conteoAproximado;
+    @MockitoBean
+    private PasswordHashService passwordHashService;
+    @MockitoBean
+    private OutboxService outboxService;
+    @MockitoBean
+    private InventarioBatchRepository batchRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ProductoService productoService;
+    @Autowired
+    private CategoriaService categoriaService;
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private MovimientoInventarioService movimientoService;
+
+    private Statistics estadisticasHibernate;
+
+    @BeforeEach
+    void sembrar() {
+        Categoria[] categorias = new Categoria[CATEGORIAS];
+        for (int i = 0; i < CATEGORIAS; i++) {
+            Categoria categoria = new Categoria();
+            categoria.setNombre("Categoría " + i);
+            categoria.setCodigo("CAT-" + i);
+            entityManager.persist(categoria);
+            categorias[i] = categoria;
+        }
+
+        Producto[] productos = new Producto[PRODUCTOS];
+        for (int i = 0; i < PRODUCTOS; i++) {
+            Producto producto = new Producto();
+            producto.setCodigo("P-" + i);
+            producto.setNombre("Producto " + i);
+            producto.setCategoria(categorias[i % CATEGORIAS]);
+            producto.setPrecio(BigDecimal.TEN);
+            producto.setStockMinimo(5);
+            producto.setStockActual(10 + i);
+            entityManager.persist(producto);
+            productos[i] = producto;
+        }
+
+        Rol[] roles = new Rol[ROLES];
+        for (int i = 0; i < ROLES; i++) {
+            Rol rol = new Rol();
+            rol.setNombre("ROL_" + i);
+            entityManager.persist(rol);
+            roles[i] = rol;
+        }
+
+        Usuario[] usuarios = new Usuario[USUARIOS];
+        for (int i = 0; i < USUARIOS; i++) {
+            Usuario usuario = new Usuario();
+            usuario.setNombre("Usuario " + i);
+            usuario.setEmail("usuario" + i + "@ergpos.test");
+            usuario.setCodigo("U-" + i);
+            usuario.setPasswordHash("hash");
+            usuario.setRol(roles[i % ROLES]);
+            entityManager.persist(usuario);
+            usuarios[i] = usuario;
+        }
+
+        Proveedor[] proveedores = new Proveedor[3];
+        for (int i = 0; i < proveedores.length; i++) {
+            Proveedor proveedor = new Proveedor();
+            proveedor.setNombre("Proveedor " + i);
+            proveedor.setRuc("2010000000" + i);
+            entityManager.persist(proveedor);
+            proveedores[i] = proveedor;
+        }
+
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < MOVIMIENTOS; i++) {
+            MovimientoInventario movimiento = new MovimientoInventario();
+            movimiento.setProducto(productos[i % PRODUCTOS]);
+            movimiento.setUsuario(usuarios[i % USUARIOS]);
+            movimiento.setProveedor(i % 2 == 0 ? proveedores[i % proveedores.length] : null);
+            movimiento.setTipo(TipoMovimiento.ENTRADA);
+            movimiento.setCantidad(1);
+            movimiento.setFecha(ahora.minusMinutes(i));
+            entityManager.persist(movimiento);
+        }
+
+        // Sin entidades en la caché de primer nivel: cada relación leída por fila iría a la base
+        entityManager.flush();
+        entityManager.clear();
+
+        estadisticasHibernate = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticasHibernate.clear();
+    }
+
+    @Test
+    void listarProductosPaginado() {
+        Page<ProductoResponseDTO> pagina = productoService.listar(null, null, null, PageRequest.of(0, 10));
+
+        assertThat(pagina.getContent()).hasSize(10)
+                .allSatisfy(p -> assertThat(p.getCategoriaNombre()).isNotNull());
+        assertThat(pagina.getTotalElements()).isEqualTo(PRODUCTOS);
+        // Página con categoría (JOIN) + COUNT
+        assertSentencias(2);
+    }
+
+    @Test
+    void listarProductosSinConteo() {
+        ProductoService.PaginaSinConteo pagina = productoService.listarSinConteo(
+                null, null, null, PageRequest.of(0, 10), false);
+
+        assertThat(pagina.pagina().getContent()).hasSize(10)
+                .allSatisfy(p -> assertThat(p.getCategoriaNombre()).isNotNull());
+        assertSentencias(1);
+    }
+
+    @Test
+    void listarProductosPorCategoria() {
+        Page<ProductoResponseDTO> pagina = productoService.listar(null, "CAT-1", true, PageRequest.of(0, 5));
+
+        assertThat(pagina.getContent()).hasSize(5)
+                .allSatisfy(p -> assertThat(p.getCategoriaCodigo()).isEqualTo("CAT-1"));
+        // Categoría del filtro (una vez) + página + COUNT
+        assertSentencias(3);
+    }
+
+    @Test
+    void listarMovimientos() {
+        MovimientoPaginaResponseDTO pagina = movimientoService.listar(
+                null, null, null, null, null, null, null, null, 20);
+
+        assertThat(pagina.getItems()).hasSize(20)
+                .allSatisfy(m -> {
+                    assertThat(m.getNombreProducto()).isNotNull();
+                    assertThat(m.getUsuarioNombre()).isNotNull();
+                });
+        assertThat(pagina.getItems()).anySatisfy(m -> assertThat(m.getProveedorNombre()).isNotNull());
+        // Producto, usuario y proveedor en la misma consulta keyset
+        assertSentencias(1);
+    }
+
+    @Test
+    void listarUsuarios() {
+        List<UsuarioResponseDTO> usuarios = usuarioService.listar(null, null, null, null);
+
+        assertThat(usuarios).hasSize(USUARIOS)
+                .allSatisfy(u -> assertThat(u.getRol()).isNotNull());
+        assertSentencias(1);
+    }
+
+    @Test
+    void listarCategorias() {
+        List<CategoriaResponseDTO> categorias = categoriaService.listar(null, null);
+
+        assertThat(categorias).hasSize(CATEGORIAS);
+        assertSentencias(1);
+    }
+
+    private void assertSentencias(long esperadas) {
+        assertThat(estadisticasHibernate.getPrepareStatementCount())
+                .as("sentencias SQL ejecutadas")
+                .isEqualTo(esperadas);
+    }
+}
@@ -0,0 +1,139 @@
+package com.ergpos.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import com.ergpos.app.dto.movimientos.MovimientoInventarioRequestDTO;
+import com.ergpos.app.model.MovimientoInventario;
+import com.ergpos.app.model.MovimientoInventario.EstadoMovimiento;
+import com.ergpos.app.model.MovimientoInventario.TipoMovimiento;
+import com.ergpos.app.model.Producto;
+import com.ergpos.app.model.Usuario;
+import com.ergpos.app.repository.InventarioBatchRepository;
+import com.ergpos.app.repository.MovimientoInventarioRepository;
+import com.ergpos.app.repository.ProductoRepository;
+import com.ergpos.app.repository.ProveedorRepository;
+import com.ergpos.app.repository.UsuarioRepository;
+import com.ergpos.app.service.MovimientoInventarioService.EstrategiaStock;
+
+/**
+ * Estrategia PESSIMISTA cuando el stock del producto se fracciona entre la
+ * consulta de esStockFraccionado y el lock de la fila: el stock se actualiza
+ * en los shards, nunca en stock_actual ni quedando sin aplicar.
+ */
+class MovimientoInventarioServiceTest {
+
+    private static final String CODIGO = "P-1";
+
+    private final MovimientoInventarioRepository movimientoRepo = mock(MovimientoInventarioRepository.class);
+    private final ProductoRepository productoRepo = mock(ProductoRepository.class);
+    private final UsuarioRepository usuarioRepo = mock(UsuarioRepository.class);
+    private final StockFraccionadoService stockFraccionado = mock(StockFraccionadoService.class);
+    private final StockReservadoService stockReservado = mock(StockReservadoService.class);
+
+    private final MovimientoInventarioService servicio = new MovimientoInventarioService(
+            movimientoRepo, productoRepo, mock(ProveedorRepository.class), usuarioRepo,
+            mock(OutboxService.class), mock(InventarioBatchRepository.class), stockFraccionado,
+            stockReservado, mock(ApplicationEventPublisher.class), EstrategiaStock.PESSIMISTA);
+
+    private Producto producto;
+    private Usuario usuario;
+
+    @BeforeEach
+    void preparar() {
+        producto = new Producto();
+        producto.setId(UUID.randomUUID());
+        producto.setCodigo(CODIGO);
+        producto.setNombre("Producto");
+        producto.setActivo(true);
+        producto.setStockActual(10);
+        // habilitarStockFraccionado confirmó después de la consulta y antes del lock
+        producto.setStockFraccionado(true);
+        when(productoRepo.esStockFraccionado(CODIGO)).thenReturn(false);
+        when(productoRepo.esStockFraccionado(producto.getId())).thenReturn(false);
+        when(productoRepo.findByCodigoWithLock(CODIGO)).thenReturn(Optional.of(producto));
+        when(productoRepo.findByIdWithLock(producto.getId())).thenReturn(Optional.of(producto));
+
+        usuario = new Usuario();
+        usuario.setId(UUID.randomUUID());
+        usuario.setCodigo("U-1");
+        usuario.setNombre("Cajero");
+        usuario.setActivo(true);
+        when(usuarioRepo.findByCodigo("U-1")).thenReturn(Optional.of(usuario));
+
+        when(movimientoRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(stockFraccionado.descontar(any(), anyInt())).thenReturn(true);
+    }
+
+    @Test
+    void salidaFraccionadaTrasElLockDescuentaDeLosShards() {
+        servicio.crear(request("SALIDA", 3));
+
+        verify(stockFraccionado).descontar(producto.getId(), 3);
+        verify(productoRepo, never()).save(any());
+        assertThat(producto.getStockActual()).isEqualTo(10);
+    }
+
+    @Test
+    void entradaFraccionadaTrasElLockIncrementaLosShards() {
+        servicio.crear(request("ENTRADA", 4));
+
+        verify(stockFraccionado).incrementar(producto.getId(), 4);
+        verify(productoRepo, never()).save(any());
+        verify(productoRepo, never()).incrementarStock(any(), anyInt());
+    }
+
+    @Test
+    void anularFraccionadoTrasElLockRevierteEnLosShards() {
+        MovimientoInventario movimiento = movimiento(TipoMovimiento.SALIDA, EstadoMovimiento.ACTIVO, 5);
+
+        servicio.anular(movimiento.getId().toString());
+
+        verify(stockFraccionado).incrementar(producto.getId(), 5);
+        verify(productoRepo, never()).save(any());
+        assertThat(movimiento.getEstado()).isEqualTo(EstadoMovimiento.ANULADO);
+    }
+
+    @Test
+    void activarFraccionadoTrasElLockDescuentaDeLosShards() {
+        MovimientoInventario movimiento = movimiento(TipoMovimiento.SALIDA, EstadoMovimiento.PENDIENTE, 2);
+
+        servicio.activar(movimiento.getId().toString());
+
+        verify(stockFraccionado).descontar(eq(producto.getId()), eq(2));
+        verify(productoRepo, never()).save(any());
+        assertThat(movimiento.getEstado()).isEqualTo(EstadoMovimiento.ACTIVO);
+    }
+
+    private MovimientoInventarioRequestDTO request(String tipo, int cantidad) {
+        MovimientoInventarioRequestDTO request = new MovimientoInventarioRequestDTO();
+        request.setCodigoProducto(CODIGO);
+        request.setCodigoUsuario("U-1");
+        request.setTipo(tipo);
+        request.setCantidad(cantidad);
+        return request;
+    }
+
+    private MovimientoInventario movimiento(TipoMovimiento tipo, EstadoMovimiento estado, int cantidad) {
+        MovimientoInventario movimiento = new MovimientoInventario();
+        movimiento.setId(UUID.randomUUID());
+        movimiento.setProducto(producto);
+        movimiento.setUsuario(usuario);
+        movimiento.setTipo(tipo);
+        movimiento.setEstado(estado);
+        movimiento.setCantidad(cantidad);
+        when(movimientoRepo.findById(movimiento.getId())).thenReturn(Optional.of(movimiento));
+        return movimiento;
+    }
+}
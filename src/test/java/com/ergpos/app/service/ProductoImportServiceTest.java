@@ -0,0 +1,171 @@
+package com.ergpos.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import com.ergpos.app.dto.producto.ProductoImportResponseDTO;
+import com.ergpos.app.model.Categoria;
+import com.ergpos.app.model.Producto;
+import com.ergpos.app.repository.ProductoImportRepository;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Actualización de productos existentes desde CSV: las columnas opcionales
+ * que no vienen (o vienen vacías) conservan el valor actual; una lista de
+ * precios no deja el stock en 0.
+ *
+ * Solo el camino de actualización: la inserción usa ON CONFLICT, que H2 no
+ * admite.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:importacion;MODE=PostgreSQL;INIT=CREATE DOMAIN IF NOT EXISTS JSONB AS JSON",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ ProductoImportService.class, ProductoImportRepository.class })
+class ProductoImportServiceTest {
+
+    @MockitoBean
+    private StockFraccionadoService stockFraccionado;
+
+    @Autowired
+    private ProductoImportService importService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Categoria categoria;
+
+    @BeforeEach
+    void sembrar() {
+        categoria = new Categoria();
+        categoria.setNombre("Bebidas");
+        categoria.setCodigo("CAT-1");
+        entityManager.persist(categoria);
+        producto("P-1", false);
+        producto("P-2", true);
+        entityManager.flush();
+    }
+
+    @Test
+    void listaDePreciosConservaStockYDescripcion() {
+        ProductoImportResponseDTO resultado = importar("""
+                codigo,nombre,codigoCategoria,precio,unidadMedida
+                P-1,Producto P-1,CAT-1,12.50,UNIDAD
+                """);
+
+        assertThat(resultado.getActualizados()).isEqualTo(1);
+        assertThat(fila("P-1"))
+                .containsEntry("STOCK_ACTUAL", 20)
+                .containsEntry("STOCK_MINIMO", 5)
+                .containsEntry("DESCRIPCION", "Original")
+                .containsEntry("PRECIO", new BigDecimal("12.50"));
+    }
+
+    @Test
+    void columnasVaciasConservanElValorActual() {
+        importar("""
+                codigo,nombre,descripcion,codigoCategoria,precio,stockMinimo,stockActual,unidadMedida
+                P-1,Producto P-1,,CAT-1,12.50,,,UNIDAD
+                """);
+
+        assertThat(fila("P-1"))
+                .containsEntry("STOCK_ACTUAL", 20)
+                .containsEntry("STOCK_MINIMO", 5)
+                .containsEntry("DESCRIPCION", "Original");
+    }
+
+    @Test
+    void valoresPresentesSeActualizan() {
+        importar("""
+                codigo,nombre,descripcion,codigoCategoria,precio,stockMinimo,stockActual,unidadMedida
+                P-1,Producto P-1,Nueva,CAT-1,12.50,2,7,UNIDAD
+                """);
+
+        assertThat(fila("P-1"))
+                .containsEntry("STOCK_ACTUAL", 7)
+                .containsEntry("STOCK_MINIMO", 2)
+                .containsEntry("DESCRIPCION", "Nueva");
+    }
+
+    @Test
+    void fraccionadoSinStockNoFijaLosShards() {
+        when(stockFraccionado.stockTotales(any())).thenAnswer(inv -> Map.of(id("P-2"), 20));
+
+        importar("""
+                codigo,nombre,codigoCategoria,precio,unidadMedida
+                P-2,Producto P-2,CAT-1,12.50,UNIDAD
+                """);
+        verify(stockFraccionado, never()).fijarTotal(any(), anyInt());
+
+        importar("""
+                codigo,nombre,codigoCategoria,precio,stockActual,unidadMedida
+                P-2,Producto P-2,CAT-1,12.50,30,UNIDAD
+                """);
+        verify(stockFraccionado).fijarTotal(id("P-2"), 30);
+    }
+
+    @Test
+    void minimoSinStockSeValidaContraElStockActual() {
+        ProductoImportResponseDTO resultado = importar("""
+                codigo,nombre,codigoCategoria,precio,stockMinimo,unidadMedida
+                P-1,Producto P-1,CAT-1,12.50,25,UNIDAD
+                P-3,Producto P-3,CAT-1,12.50,1,UNIDAD
+                """);
+
+        assertThat(resultado.getActualizados()).isZero();
+        assertThat(resultado.getInsertados()).isZero();
+        assertThat(resultado.getErrores()).extracting(e -> e.getCode())
+                .containsExactly("STOCK_BELOW_MINIMUM", "STOCK_BELOW_MINIMUM");
+        assertThat(fila("P-1")).containsEntry("STOCK_MINIMO", 5);
+    }
+
+    private ProductoImportResponseDTO importar(String csv) {
+        return importService.importar(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true);
+    }
+
+    private void producto(String codigo, boolean fraccionado) {
+        Producto producto = new Producto();
+        producto.setCodigo(codigo);
+        producto.setNombre("Producto " + codigo);
+        producto.setDescripcion("Original");
+        producto.setCategoria(categoria);
+        producto.setPrecio(BigDecimal.TEN);
+        producto.setStockMinimo(5);
+        producto.setStockActual(20);
+        producto.setStockFraccionado(fraccionado);
+        entityManager.persist(producto);
+    }
+
+    private Map<String, Object> fila(String codigo) {
+        return jdbcTemplate.queryForMap(
+                "SELECT descripcion, precio, stock_minimo, stock_actual FROM productos WHERE codigo = ?", codigo);
+    }
+
+    private UUID id(String codigo) {
+        return jdbcTemplate.queryForObject("SELECT id FROM productos WHERE codigo = ?", UUID.class, codigo);
+    }
+}
@@ -0,0 +1,90 @@
+package com.ergpos.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.model.Producto;
+import com.ergpos.app.repository.CategoriaRepository;
+import com.ergpos.app.repository.ProductoRepository;
+import com.ergpos.app.repository.ProveedorRepository;
+
+/**
+ * Ajuste manual de stock (PATCH /{codigo}/stock): una SALIDA no consume lo
+ * retenido por reservas activas, con o sin stock fraccionado.
+ */
+class ProductoServiceTest {
+
+    private static final String CODIGO = "P-1";
+
+    private final ProductoRepository productoRepository = mock(ProductoRepository.class);
+    private final StockFraccionadoService stockFraccionado = mock(StockFraccionadoService.class);
+    private final ReservaStockService reservaStock = mock(ReservaStockService.class);
+
+    private final ProductoService servicio = new ProductoService(productoRepository,
+            mock(CategoriaRepository.class), mock(ProveedorRepository.class), stockFraccionado, reservaStock,
+            mock(EstadisticasInventarioService.class), mock(CacheProductoService.class),
+            mock(ConteoAproximadoService.class), mock(ApplicationEventPublisher.class));
+
+    private Producto producto;
+
+    @BeforeEach
+    void preparar() {
+        producto = new Producto();
+        producto.setId(UUID.randomUUID());
+        producto.setCodigo(CODIGO);
+        producto.setActivo(true);
+        producto.setStockMinimo(0);
+        producto.setStockActual(10);
+        when(productoRepository.findByCodigo(CODIGO)).thenReturn(Optional.of(producto));
+        // 7 de las 10 unidades están retenidas por carritos
+        when(reservaStock.stockReservado(producto.getId())).thenReturn(7);
+        when(stockFraccionado.stockTotal(producto.getId())).thenReturn(10);
+        when(stockFraccionado.descontar(any(), anyInt())).thenReturn(true);
+    }
+
+    @Test
+    void salidaNoConsumeStockReservado() {
+        assertThatThrownBy(() -> servicio.actualizarStock(CODIGO, 4, false))
+                .isInstanceOfSatisfying(BusinessException.class, e -> {
+                    assertThat(e.getCode()).isEqualTo("STOCK_INSUFFICIENT");
+                    assertThat(e.getMessage()).contains("Disponible: 3");
+                });
+        verify(productoRepository, never()).save(any());
+
+        servicio.actualizarStock(CODIGO, 3, false);
+        assertThat(producto.getStockActual()).isEqualTo(7);
+    }
+
+    @Test
+    void salidaFraccionadaNoConsumeStockReservado() {
+        producto.setStockFraccionado(true);
+
+        assertThatThrownBy(() -> servicio.actualizarStock(CODIGO, 4, false))
+                .isInstanceOfSatisfying(BusinessException.class,
+                        e -> assertThat(e.getMessage()).contains("Disponible: 3"));
+        verify(stockFraccionado, never()).descontar(any(), anyInt());
+
+        servicio.actualizarStock(CODIGO, 3, false);
+        verify(stockFraccionado).descontar(producto.getId(), 3);
+    }
+
+    @Test
+    void entradaNoConsultaReservas() {
+        servicio.actualizarStock(CODIGO, 5, true);
+
+        assertThat(producto.getStockActual()).isEqualTo(15);
+        verify(reservaStock, never()).stockReservado(any());
+    }
+}
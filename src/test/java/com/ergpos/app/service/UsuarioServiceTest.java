@@ -0,0 +1,163 @@
+package com.ergpos.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import com.ergpos.app.dto.usuarios.CambiarPasswordRequestDTO;
+import com.ergpos.app.dto.usuarios.UsuarioRequestDTO;
+import com.ergpos.app.exception.BusinessException;
+import com.ergpos.app.model.Rol;
+import com.ergpos.app.model.Usuario;
+import com.ergpos.app.repository.RolRepository;
+import com.ergpos.app.repository.UsuarioRepository;
+import com.ergpos.app.security.PasswordHashService;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * BCrypt fuera de la transacción: mientras se hashea no hay transacción
+ * activa ni conexiones del pool en uso.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:usuarios;MODE=PostgreSQL;INIT=CREATE DOMAIN IF NOT EXISTS JSONB AS JSON",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=WARN",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UsuarioService.class)
+// Sin la transacción del test: el servicio abre y confirma las suyas
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UsuarioServiceTest {
+
+    private static final String EMAIL = "cajero@ergpos.test";
+
+    @MockitoBean
+    private PasswordHashService passwordHashService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private RolRepository rolRepository;
+    @Autowired
+    private DataSource dataSource;
+
+    // Estado observado dentro de cada llamada a BCrypt
+    private final List<Boolean> transaccionActiva = new ArrayList<>();
+    private final List<Integer> conexionesEnUso = new ArrayList<>();
+
+    private Rol rol;
+
+    @BeforeEach
+    void preparar() {
+        rol = new Rol();
+        rol.setNombre("CAJERO");
+        rol = rolRepository.save(rol);
+
+        when(passwordHashService.codificar(anyString())).thenAnswer(inv -> {
+            registrarEstado();
+            return "hash-" + inv.getArgument(0);
+        });
+        when(passwordHashService.verificar(anyString(), anyString())).thenAnswer(inv -> {
+            registrarEstado();
+            return ("hash-" + inv.getArgument(0)).equals(inv.getArgument(1));
+        });
+    }
+
+    @AfterEach
+    void limpiar() {
+        usuarioRepository.deleteAll();
+        rolRepository.deleteAll();
+    }
+
+    @Test
+    void crearHasheaFueraDeLaTransaccion() {
+        UsuarioRequestDTO request = new UsuarioRequestDTO();
+        request.setNombre("Cajero");
+        request.setEmail(EMAIL);
+        request.setPassword("secreta123");
+        request.setNombreRol("CAJERO");
+
+        usuarioService.crear(request);
+
+        assertSinTransaccionNiConexion(1);
+        assertThat(usuarioRepository.findByEmailIgnoreCase(EMAIL))
+                .hasValueSatisfying(u -> assertThat(u.getPasswordHash()).isEqualTo("hash-secreta123"));
+    }
+
+    @Test
+    void cambiarPasswordHasheaFueraDeLaTransaccion() {
+        crearUsuario("hash-secreta123");
+
+        usuarioService.cambiarPassword(EMAIL, cambio("secreta123", "nueva-clave"));
+
+        // Verificación de la actual, comparación con la nueva y hash de la nueva
+        assertSinTransaccionNiConexion(3);
+        assertThat(usuarioRepository.findByEmailIgnoreCase(EMAIL))
+                .hasValueSatisfying(u -> assertThat(u.getPasswordHash()).isEqualTo("hash-nueva-clave"));
+    }
+
+    @Test
+    void cambiarPasswordDetectaCambioConcurrente() {
+        Usuario usuario = crearUsuario("hash-secreta123");
+        // Otro cambio de contraseña se confirma mientras esta petición hashea
+        when(passwordHashService.codificar(anyString())).thenAnswer(inv -> {
+            usuarioRepository.actualizarPasswordHash(usuario.getId(), "hash-secreta123", "hash-otra");
+            return "hash-" + inv.getArgument(0);
+        });
+
+        assertThatThrownBy(() -> usuarioService.cambiarPassword(EMAIL, cambio("secreta123", "nueva-clave")))
+                .isInstanceOfSatisfying(BusinessException.class, e -> {
+                    assertThat(e.getCode()).isEqualTo("CONCURRENT_MODIFICATION");
+                    assertThat(e.getStatusCode()).isEqualTo(409);
+                });
+        assertThat(usuarioRepository.findByEmailIgnoreCase(EMAIL))
+                .hasValueSatisfying(u -> assertThat(u.getPasswordHash()).isEqualTo("hash-otra"));
+    }
+
+    private void registrarEstado() {
+        transaccionActiva.add(TransactionSynchronizationManager.isActualTransactionActive());
+        conexionesEnUso.add(((HikariDataSource) dataSource).getHikariPoolMXBean().getActiveConnections());
+    }
+
+    private void assertSinTransaccionNiConexion(int llamadas) {
+        assertThat(transaccionActiva).hasSize(llamadas).containsOnly(false);
+        assertThat(conexionesEnUso).hasSize(llamadas).containsOnly(0);
+    }
+
+    private Usuario crearUsuario(String passwordHash) {
+        Usuario usuario = new Usuario();
+        usuario.setNombre("Cajero");
+        usuario.setEmail(EMAIL);
+        usuario.setPasswordHash(passwordHash);
+        usuario.setRol(rol);
+        return usuarioRepository.save(usuario);
+    }
+
+    private CambiarPasswordRequestDTO cambio(String actual, String nueva) {
+        CambiarPasswordRequestDTO request = new CambiarPasswordRequestDTO();
+        request.setPasswordActual(actual);
+        request.setNuevoPassword(nueva);
+        return request;
+    }
+}
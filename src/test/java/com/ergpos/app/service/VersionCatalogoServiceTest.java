@@ -0,0 +1,61 @@
+package com.ergpos.app.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import com.ergpos.app.repository.CatalogoVersionRepository;
+import com.ergpos.app.service.VersionCatalogoService.Version;
+
+/**
+ * Versión de los listados compartida por varias instancias: una escritura
+ * atendida por una instancia cambia el ETag que responden las demás.
+ */
+@JdbcTest
+@Import(CatalogoVersionRepository.class)
+@Sql("/db/migrations/007_catalogo_version.sql")
+// Sin la transacción del test: el incremento va en una transacción propia
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class VersionCatalogoServiceTest {
+
+    @Autowired
+    private CatalogoVersionRepository versionRepo;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void escrituraEnUnaInstanciaCambiaElEtagDeLasDemas() {
+        VersionCatalogoService instanciaA = new VersionCatalogoService(versionRepo, transactionManager);
+        VersionCatalogoService instanciaB = new VersionCatalogoService(versionRepo, transactionManager);
+        Version antes = instanciaB.productos();
+        assertThat(instanciaA.productos()).isEqualTo(antes);
+
+        instanciaA.productosModificados(ProductosModificadosEvent.de(UUID.randomUUID()));
+
+        Version despues = instanciaB.productos();
+        assertThat(despues.etag()).isNotEqualTo(antes.etag()).startsWith("\"p-").endsWith("\"");
+        assertThat(despues.ultimaModificacion()).isGreaterThanOrEqualTo(antes.ultimaModificacion());
+        assertThat(instanciaA.productos()).isEqualTo(despues);
+    }
+
+    @Test
+    void categoriaSoloInvalidaProductosSiLosAfecta() {
+        VersionCatalogoService servicio = new VersionCatalogoService(versionRepo, transactionManager);
+        Version productos = servicio.productos();
+        Version categorias = servicio.categorias();
+
+        servicio.categoriaModificada(new CategoriaModificadaEvent(UUID.randomUUID(), false));
+        assertThat(servicio.productos()).isEqualTo(productos);
+        assertThat(servicio.categorias().etag()).isNotEqualTo(categorias.etag());
+
+        servicio.categoriaModificada(new CategoriaModificadaEvent(UUID.randomUUID(), true));
+        assertThat(servicio.productos().etag()).isNotEqualTo(productos.etag());
+    }
+}
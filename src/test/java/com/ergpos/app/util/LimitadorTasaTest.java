@@ -0,0 +1,142 @@
+package com.ergpos.app.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Límite por ventana, y comportamiento del reemplazo por CAS cuando una
+ * inundación de claves distintas llena la memoria fija del limitador.
+ */
+class LimitadorTasaTest {
+
+    private static final long AHORA = 1_700_000_000_000L;
+    private static final int HILOS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+
+    @AfterEach
+    void detener() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void admiteHastaMaxEventosPorVentana() {
+        // 5 eventos por segundo: se recupera uno cada 200 ms
+        LimitadorTasa limitador = new LimitadorTasa(5, 1000, 1024, AHORA);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limitador.registrar("ip", AHORA)).as("evento %d", i).isTrue();
+        }
+        assertThat(limitador.registrar("ip", AHORA)).isFalse();
+        assertThat(limitador.eventos("ip", AHORA)).isEqualTo(5);
+        assertThat(limitador.espera("ip", AHORA)).isEqualTo(200);
+
+        assertThat(limitador.registrar("ip", AHORA + 200)).isTrue();
+        assertThat(limitador.registrar("ip", AHORA + 200)).isFalse();
+
+        // Pasada la ventana completa no queda rastro
+        assertThat(limitador.eventos("ip", AHORA + 1200)).isZero();
+        assertThat(limitador.espera("ip", AHORA + 1200)).isZero();
+        assertThat(limitador.registrar("otra-ip", AHORA)).isTrue();
+    }
+
+    @Test
+    void rechazadosNoAlarganMasDeUnaVentana() {
+        LimitadorTasa limitador = new LimitadorTasa(5, 1000, 1024, AHORA);
+
+        for (int i = 0; i < 1000; i++) {
+            limitador.registrar("ip", AHORA);
+        }
+        assertThat(limitador.espera("ip", AHORA)).isEqualTo(200);
+        assertThat(limitador.registrar("ip", AHORA + 1000)).isTrue();
+    }
+
+    @Test
+    void limpiarReiniciaLaClave() {
+        LimitadorTasa limitador = new LimitadorTasa(2, 1000, 1024, AHORA);
+        limitador.registrar("usuario", AHORA);
+        limitador.registrar("usuario", AHORA);
+        assertThat(limitador.registrar("usuario", AHORA)).isFalse();
+
+        limitador.limpiar("usuario");
+
+        assertThat(limitador.eventos("usuario", AHORA)).isZero();
+        assertThat(limitador.registrar("usuario", AHORA)).isTrue();
+    }
+
+    @Test
+    void concurrenteAdmiteExactamenteMaxEventos() throws Exception {
+        LimitadorTasa limitador = new LimitadorTasa(100, 60_000, 1024, AHORA);
+        AtomicInteger admitidos = new AtomicInteger();
+
+        enParalelo(hilo -> {
+            for (int i = 0; i < 1000; i++) {
+                if (limitador.registrar("misma-clave", AHORA)) {
+                    admitidos.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(admitidos).hasValue(100);
+    }
+
+    @Test
+    void inundacionDeUnMillonDeClavesNoExpulsaALasCastigadas() throws Exception {
+        // Memoria para 1024 claves; 5 eventos por minuto
+        LimitadorTasa limitador = new LimitadorTasa(5, 60_000, 1024, AHORA);
+        List<String> castigadas = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            String clave = "atacante-" + i;
+            for (int j = 0; j < 10; j++) {
+                limitador.registrar(clave, AHORA);
+            }
+            castigadas.add(clave);
+        }
+
+        // Un millón de claves distintas, un evento cada una, desde varios hilos
+        AtomicInteger admitidas = new AtomicInteger();
+        int porHilo = 1_000_000 / HILOS;
+        enParalelo(hilo -> {
+            for (int i = 0; i < porHilo; i++) {
+                if (limitador.registrar("inundacion-" + hilo + "-" + i, AHORA + 1)) {
+                    admitidas.incrementAndGet();
+                }
+            }
+        });
+
+        // Las claves nuevas desplazan a otras de un solo evento, no a las que esperan una ventana
+        for (String clave : castigadas) {
+            assertThat(limitador.registrar(clave, AHORA + 2)).as(clave).isFalse();
+            assertThat(limitador.eventos(clave, AHORA + 2)).as(clave).isEqualTo(5);
+        }
+        // Solo una colisión de huella puede rechazar el primer evento de una clave nueva
+        assertThat(admitidas.get()).isGreaterThan(999_000);
+    }
+
+    private interface Tarea {
+        void ejecutar(int hilo) throws Exception;
+    }
+
+    private void enParalelo(Tarea tarea) throws Exception {
+        List<Callable<Void>> tareas = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            tareas.add(() -> {
+                tarea.ejecutar(hilo);
+                return null;
+            });
+        }
+        for (Future<Void> resultado : executor.invokeAll(tareas)) {
+            resultado.get();
+        }
+    }
+}